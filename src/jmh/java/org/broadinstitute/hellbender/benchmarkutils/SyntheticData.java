@@ -0,0 +1,128 @@
+package org.broadinstitute.hellbender.benchmarkutils;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic inputs for the benchmarks, built on top of {@link ArtificialReadUtils} and {@link ArtificialBAMBuilder}.
+ *
+ * Everything is generated from an explicit {@link Random} so that a benchmark sees exactly the same input in every
+ * fork and in every release, which is what makes results from different releases comparable.
+ */
+public final class SyntheticData {
+
+    /**
+     * Seed that all benchmarks should use for their inputs
+     */
+    public static final long RANDOM_SEED = 47382911L;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private SyntheticData() {}
+
+    /**
+     * @return a new Random seeded with {@link #RANDOM_SEED}
+     */
+    public static Random newRandom() {
+        return new Random(RANDOM_SEED);
+    }
+
+    /**
+     * @return {@code length} uniformly random A/C/G/T bases
+     */
+    public static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    /**
+     * @return {@code length} base qualities drawn uniformly from [minQual, maxQual]
+     */
+    public static byte[] randomQuals(final Random random, final int length, final int minQual, final int maxQual) {
+        Utils.validateArg(minQual <= maxQual, "minQual must be <= maxQual");
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte)(minQual + random.nextInt(maxQual - minQual + 1));
+        }
+        return quals;
+    }
+
+    /**
+     * @return a copy of {@code bases} in which each base is replaced by a different random base with probability
+     * {@code substitutionRate}
+     */
+    public static byte[] addSubstitutions(final Random random, final byte[] bases, final double substitutionRate) {
+        final byte[] mutated = bases.clone();
+        for ( int i = 0; i < mutated.length; i++ ) {
+            if ( random.nextDouble() < substitutionRate ) {
+                byte newBase;
+                do {
+                    newBase = BASES[random.nextInt(BASES.length)];
+                } while ( newBase == mutated[i] );
+                mutated[i] = newBase;
+            }
+        }
+        return mutated;
+    }
+
+    /**
+     * Sample reads from a template sequence, as if sequenced with a per-base substitution error rate. Reads start at
+     * uniformly random positions, are all fully aligned ({@code <readLength>M}) and are returned in coordinate order.
+     *
+     * @param header header for the reads
+     * @param namePrefix reads are named namePrefix0, namePrefix1, ...
+     * @param template sequence to sample the reads from
+     * @param templateStart 1-based position of the first base of {@code template} on the first contig of the header
+     * @param readLength length of each read; must be <= template length
+     * @param readCount number of reads
+     * @param errorRate per-base substitution error rate
+     */
+    public static List<GATKRead> sampleReads(final Random random, final SAMFileHeader header, final String namePrefix,
+                                             final byte[] template, final int templateStart, final int readLength,
+                                             final int readCount, final double errorRate) {
+        Utils.validateArg(readLength <= template.length, "reads can't be longer than the template");
+        final int[] offsets = new int[readCount];
+        for ( int i = 0; i < readCount; i++ ) {
+            offsets[i] = random.nextInt(template.length - readLength + 1);
+        }
+        Arrays.sort(offsets);
+
+        final List<GATKRead> reads = new ArrayList<>(readCount);
+        for ( int i = 0; i < readCount; i++ ) {
+            final byte[] bases = addSubstitutions(random, Arrays.copyOfRange(template, offsets[i], offsets[i] + readLength), errorRate);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, namePrefix + i, 0, templateStart + offsets[i],
+                    bases, randomQuals(random, readLength, 10, 40), readLength + "M");
+            read.setIsReverseStrand(random.nextBoolean());
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    /**
+     * Replace the bases and qualities of the reads made by an {@link ArtificialBAMBuilder} (which are all A's) with
+     * bases from {@code reference}, at a per-base substitution error rate, and random qualities.
+     *
+     * @param reference bases of the first contig, starting at position 1
+     */
+    public static List<GATKRead> makeReadsFromReference(final Random random, final ArtificialBAMBuilder builder,
+                                                        final byte[] reference, final double errorRate) {
+        final List<GATKRead> reads = builder.makeReads();
+        for ( final GATKRead read : reads ) {
+            final byte[] bases = Arrays.copyOfRange(reference, read.getStart() - 1, read.getStart() - 1 + read.getLength());
+            read.setBases(addSubstitutions(random, bases, errorRate));
+            read.setBaseQualities(randomQuals(random, read.getLength(), 10, 40));
+        }
+        return reads;
+    }
+}
@@ -0,0 +1,91 @@
+package org.broadinstitute.hellbender.tools.walkers.genotyper;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeLikelihoods;
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@link GenotypeLikelihoodCalculator#genotypeLikelihoods} to marginalize a synthetic read-by-allele
+ * likelihood matrix into genotype likelihoods for one sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenotypeLikelihoodCalculatorBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final int READ_LENGTH = 100;
+
+    @Param({"2", "4"})
+    public int ploidy;
+
+    @Param({"2", "4", "6"})
+    public int alleleCount;
+
+    @Param({"50", "500"})
+    public int readCount;
+
+    private GenotypeLikelihoodCalculator calculator;
+    private LikelihoodMatrix<GATKRead, Allele> likelihoods;
+
+    @Setup
+    public void setup() {
+        final Random random = SyntheticData.newRandom();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1_000_000);
+
+        final List<Allele> alleles = new ArrayList<>(alleleCount);
+        alleles.add(Allele.create(SyntheticData.randomBases(random, 1), true));
+        while ( alleles.size() < alleleCount ) {
+            // distinct alternate alleles of increasing length
+            alleles.add(Allele.create(SyntheticData.randomBases(random, alleles.size() + 1), false));
+        }
+
+        final List<GATKRead> reads = SyntheticData.sampleReads(random, header, "read", SyntheticData.randomBases(random, 2 * READ_LENGTH),
+                1, READ_LENGTH, readCount, 0.01);
+        final AlleleLikelihoods<GATKRead, Allele> alleleLikelihoods = new AlleleLikelihoods<>(new IndexedSampleList(SAMPLE),
+                new IndexedAlleleList<>(alleles), Collections.singletonMap(SAMPLE, reads));
+
+        // each read strongly supports one allele
+        likelihoods = alleleLikelihoods.sampleMatrix(0);
+        for ( int r = 0; r < readCount; r++ ) {
+            final int supportedAllele = random.nextInt(alleleCount);
+            for ( int a = 0; a < alleleCount; a++ ) {
+                likelihoods.set(a, r, a == supportedAllele ? -0.1 * random.nextDouble() : -3.0 - 3.0 * random.nextDouble());
+            }
+        }
+
+        calculator = new GenotypeLikelihoodCalculators().getInstance(ploidy, alleleCount);
+    }
+
+    @Benchmark
+    public GenotypeLikelihoods genotypeLikelihoods() {
+        return calculator.genotypeLikelihoods(likelihoods);
+    }
+}
@@ -0,0 +1,107 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerReadThreadingAssemblerArgumentCollection;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.ReferenceConfidenceModel;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanJavaAligner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@link ReadThreadingAssembler#runLocalAssembly} to assemble a synthetic assembly region, with the
+ * HaplotypeCaller's default assembly arguments.
+ *
+ * The reads are sampled half from the reference and half from an alternate haplotype carrying SNPs and a deletion,
+ * so that the graphs have bubbles to find paths through and dangling ends to recover.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadThreadingAssemblerBenchmark {
+
+    private static final int CONTIG_LENGTH = 2_000;
+    private static final SimpleInterval ACTIVE_SPAN = new SimpleInterval("1", 701, 1_000);
+    private static final int REGION_PADDING = 100;
+    private static final int REFERENCE_PADDING = 500;
+    private static final int READ_LENGTH = 150;
+    private static final int DELETION_LENGTH = 5;
+
+    @Param({"100", "500"})
+    public int readCount;
+
+    @Param({"0.001", "0.01"})
+    public double errorRate;
+
+    private ReadThreadingAssembler assembler;
+    private SmithWatermanAligner aligner;
+    private SAMFileHeader header;
+    private AssemblyRegion region;
+    private Haplotype refHaplotype;
+    private byte[] paddedReference;
+    private SimpleInterval paddedReferenceLoc;
+
+    @Setup
+    public void setup() {
+        final Random random = SyntheticData.newRandom();
+        header = ArtificialReadUtils.createArtificialSamHeader(1, 1, CONTIG_LENGTH);
+        final byte[] reference = SyntheticData.randomBases(random, CONTIG_LENGTH);
+
+        region = new AssemblyRegion(ACTIVE_SPAN, REGION_PADDING, header);
+        final SimpleInterval paddedSpan = region.getPaddedSpan();
+        paddedReferenceLoc = new SimpleInterval(paddedSpan.getContig(), paddedSpan.getStart() - REFERENCE_PADDING, paddedSpan.getEnd() + REFERENCE_PADDING);
+        paddedReference = Arrays.copyOfRange(reference, paddedReferenceLoc.getStart() - 1, paddedReferenceLoc.getEnd());
+        refHaplotype = ReferenceConfidenceModel.createReferenceHaplotype(region,
+                Arrays.copyOfRange(reference, paddedSpan.getStart() - 1, paddedSpan.getEnd()), paddedReferenceLoc);
+
+        // the alternate haplotype has a few SNPs and a deletion in the middle of the active span; reads sampled from it
+        // are given the positions they would have without the deletion, which is good enough for assembly
+        final byte[] regionReference = Arrays.copyOfRange(reference, paddedSpan.getStart() - 1, paddedSpan.getEnd());
+        final int deletionStart = regionReference.length / 2;
+        final byte[] alternate = Utils.concat(
+                Arrays.copyOfRange(regionReference, 0, deletionStart),
+                Arrays.copyOfRange(regionReference, deletionStart + DELETION_LENGTH, regionReference.length));
+        final byte[] alternateWithSNPs = SyntheticData.addSubstitutions(random, alternate, 0.01);
+
+        final List<GATKRead> reads = new ArrayList<>(readCount);
+        reads.addAll(SyntheticData.sampleReads(random, header, "ref", regionReference, paddedSpan.getStart(), READ_LENGTH, readCount / 2, errorRate));
+        reads.addAll(SyntheticData.sampleReads(random, header, "alt", alternateWithSNPs, paddedSpan.getStart(), READ_LENGTH, readCount - readCount / 2, errorRate));
+        reads.sort(Comparator.comparingInt(GATKRead::getStart));
+        region.addAll(reads);
+
+        assembler = new HaplotypeCallerReadThreadingAssemblerArgumentCollection().makeReadThreadingAssembler();
+        aligner = SmithWatermanJavaAligner.getInstance();
+    }
+
+    @Benchmark
+    public AssemblyResultSet assemble() {
+        return assembler.runLocalAssembly(region, refHaplotype, paddedReference, paddedReferenceLoc, null, header, aligner);
+    }
+}
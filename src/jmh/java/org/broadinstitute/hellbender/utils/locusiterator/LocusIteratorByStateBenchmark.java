@@ -0,0 +1,86 @@
+package org.broadinstitute.hellbender.utils.locusiterator;
+
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.engine.AlignmentContext;
+import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.hellbender.utils.pileup.ColumnarPileup;
+import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@link LocusIteratorByState} to build the pileup at every locus covered by the reads of an
+ * {@link ArtificialBAMBuilder}, and for a consumer to count the bases in each pileup. Both the object-based and the
+ * columnar pileups are benchmarked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocusIteratorByStateBenchmark {
+
+    private static final int NUMBER_OF_LOCI = 10_000;
+    private static final int READ_LENGTH = 100;
+
+    @Param({"1", "10"})
+    public int readsPerLocus;
+
+    @Param({"1", "4"})
+    public int numberOfSamples;
+
+    @Param({"false", "true"})
+    public boolean useColumnarPileups;
+
+    private ArtificialBAMBuilder bamBuilder;
+    private List<GATKRead> reads;
+
+    @Setup
+    public void setup() {
+        bamBuilder = new ArtificialBAMBuilder(readsPerLocus, NUMBER_OF_LOCI)
+                .setReadLength(READ_LENGTH)
+                .createAndSetHeader(numberOfSamples);
+        final byte[] reference = SyntheticData.randomBases(SyntheticData.newRandom(), bamBuilder.getAlignmentEnd() + READ_LENGTH);
+        reads = SyntheticData.makeReadsFromReference(SyntheticData.newRandom(), bamBuilder, reference, 0.01);
+    }
+
+    @Benchmark
+    public long countBases() {
+        final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(), DownsamplingMethod.NONE, false,
+                bamBuilder.getSamples(), bamBuilder.getHeader(), true);
+        libs.setUseColumnarPileups(useColumnarPileups);
+
+        final int[] counts = new int[4];
+        long depth = 0;
+        while ( libs.hasNext() ) {
+            final AlignmentContext context = libs.next();
+            if ( useColumnarPileups ) {
+                final ColumnarPileup pileup = context.getColumnarPileup();
+                pileup.addBaseCounts(0, counts);
+                depth += pileup.size();
+            } else {
+                final int[] pileupCounts = context.getBasePileup().getBaseCounts();
+                for ( int i = 0; i < counts.length; i++ ) {
+                    counts[i] += pileupCounts[i];
+                }
+                depth += context.size();
+            }
+            context.release();
+        }
+        return depth + counts[0] + counts[1] + counts[2] + counts[3];
+    }
+}
@@ -0,0 +1,117 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.PairHMMNativeArgumentCollection;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to compute the likelihoods of all reads against all haplotypes of a synthetic assembly region, as done by
+ * {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.PairHMMLikelihoodCalculationEngine}.
+ *
+ * Only implementations that are always available are benchmarked by default. FASTEST_AVAILABLE measures whatever the
+ * machine supports, so its results are only comparable between runs on the same hardware.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairHMMBenchmark {
+
+    private static final int HAPLOTYPE_LENGTH = 400;
+    private static final byte CONSTANT_GCP = 10;
+
+    @Param({"LOGLESS_CACHING", "FASTEST_AVAILABLE"})
+    public PairHMM.Implementation implementation;
+
+    @Param({"4", "16"})
+    public int haplotypeCount;
+
+    @Param({"100", "250"})
+    public int readLength;
+
+    @Param({"200"})
+    public int readCount;
+
+    private PairHMM pairHMM;
+    private AlleleLikelihoods<GATKRead, Haplotype> likelihoods;
+    private List<GATKRead> reads;
+    private Map<GATKRead, byte[]> gcp;
+
+    @Setup
+    public void setup() {
+        final Random random = SyntheticData.newRandom();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1_000_000);
+
+        // the reference haplotype, followed by haplotypes carrying a few SNPs each
+        final byte[] refBases = SyntheticData.randomBases(random, HAPLOTYPE_LENGTH);
+        final List<Haplotype> haplotypes = new ArrayList<>(haplotypeCount);
+        haplotypes.add(new Haplotype(refBases, true));
+        while ( haplotypes.size() < haplotypeCount ) {
+            final byte[] bases = SyntheticData.addSubstitutions(random, refBases, 0.01);
+            if ( haplotypes.stream().noneMatch(h -> Arrays.equals(h.getBases(), bases)) ) {
+                haplotypes.add(new Haplotype(bases, false));
+            }
+        }
+
+        // the same number of reads from each haplotype
+        reads = new ArrayList<>(readCount);
+        for ( int i = 0; i < haplotypeCount; i++ ) {
+            reads.addAll(SyntheticData.sampleReads(random, header, "hap" + i + "_read", haplotypes.get(i).getBases(), 1,
+                    readLength, readCount / haplotypeCount, 0.005));
+        }
+
+        gcp = new HashMap<>(readCount);
+        for ( final GATKRead read : reads ) {
+            final byte[] readGCP = new byte[read.getLength()];
+            Arrays.fill(readGCP, CONSTANT_GCP);
+            gcp.put(read, readGCP);
+        }
+
+        final Map<String, List<GATKRead>> readsBySample = Collections.singletonMap("sample", reads);
+        likelihoods = new AlleleLikelihoods<>(new IndexedSampleList("sample"), new IndexedAlleleList<>(haplotypes), readsBySample);
+
+        // initialized the way the likelihood calculation engine does it; the native implementations depend on this
+        pairHMM = implementation.makeNewHMM(new PairHMMNativeArgumentCollection().getPairHMMArgs());
+        pairHMM.initialize(haplotypes, readsBySample, readLength, HAPLOTYPE_LENGTH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pairHMM.close();
+    }
+
+    @Benchmark
+    public double[] computeLikelihoods() {
+        pairHMM.computeLog10Likelihoods(likelihoods.sampleMatrix(0), reads, gcp);
+        return pairHMM.getLogLikelihoodArray();
+    }
+}
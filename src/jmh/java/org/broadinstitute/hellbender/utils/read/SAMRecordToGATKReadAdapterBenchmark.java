@@ -0,0 +1,152 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTag;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link SAMRecordToGATKReadAdapter} accessors that read filters, transformers and walkers call on every
+ * read, grouped the way they are typically used together.
+ *
+ * The reads are written to a BAM by an {@link ArtificialBAMBuilder} and read back, so that they are backed by the same
+ * lazily-decoded {@link SAMRecord}s as in a real traversal. {@link #decodeAndAccess} measures reading the BAM and the
+ * first access to each read, when the lazily-decoded fields are decoded; the other benchmarks measure accessors on
+ * reads that have already been decoded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SAMRecordToGATKReadAdapterBenchmark {
+
+    private static final int NUMBER_OF_LOCI = 1_000;
+    private static final int READS_PER_LOCUS = 2;
+    private static final int READ_LENGTH = 100;
+
+    // a read with clipping and indels, so that the clipped position and cigar accessors have some work to do
+    private static final String CIGAR = "5S60M2I10M3D20M3S";
+
+    private File bam;
+    private List<GATKRead> reads;
+
+    @Setup
+    public void setup() throws IOException {
+        final Random random = SyntheticData.newRandom();
+        final ArtificialBAMBuilder bamBuilder = new ArtificialBAMBuilder(READS_PER_LOCUS, NUMBER_OF_LOCI).setReadLength(READ_LENGTH);
+        final byte[] reference = SyntheticData.randomBases(random, bamBuilder.getAlignmentEnd() + READ_LENGTH);
+        for ( final GATKRead read : SyntheticData.makeReadsFromReference(random, bamBuilder, reference, 0.01) ) {
+            read.setCigar(CIGAR);
+            read.setMappingQuality(60);
+            read.setIsReverseStrand(random.nextBoolean());
+            read.setAttribute(SAMTag.NM.name(), 7);
+            read.setAttribute(SAMTag.MD.name(), "10A49^ACG30");
+        }
+        bam = bamBuilder.makeTemporaryBAMFile();
+        reads = readBam();
+        reads.forEach(this::accessAll);
+    }
+
+    private List<GATKRead> readBam() {
+        try ( final SamReader reader = SamReaderFactory.makeDefault().open(bam) ) {
+            final List<GATKRead> bamReads = new ArrayList<>(NUMBER_OF_LOCI * READS_PER_LOCUS);
+            for ( final SAMRecord record : reader ) {
+                bamReads.add(new SAMRecordToGATKReadAdapter(record));
+            }
+            return bamReads;
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotReadInputFile(bam, e);
+        }
+    }
+
+    private int accessAll(final GATKRead read) {
+        return read.getStart() + read.getEnd() + read.getUnclippedStart() + read.getLength() + read.numCigarElements()
+                + read.getBaseQuality(0) + read.getAttributeAsInteger(SAMTag.NM.name()) + read.getReadGroup().length();
+    }
+
+    @Benchmark
+    public long decodeAndAccess() {
+        long sum = 0;
+        for ( final GATKRead read : readBam() ) {
+            sum += accessAll(read);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void positions(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getContig());
+            blackhole.consume(read.getStart());
+            blackhole.consume(read.getEnd());
+            blackhole.consume(read.getUnclippedStart());
+            blackhole.consume(read.getUnclippedEnd());
+            blackhole.consume(read.getSoftStart());
+            blackhole.consume(read.getSoftEnd());
+        }
+    }
+
+    @Benchmark
+    public void flags(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.isUnmapped());
+            blackhole.consume(read.isReverseStrand());
+            blackhole.consume(read.isSecondaryAlignment());
+            blackhole.consume(read.isSupplementaryAlignment());
+            blackhole.consume(read.isDuplicate());
+            blackhole.consume(read.failsVendorQualityCheck());
+            blackhole.consume(read.getMappingQuality());
+        }
+    }
+
+    @Benchmark
+    public void basesAndQualities(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getBases());
+            blackhole.consume(read.getBaseQualities());
+            blackhole.consume(read.getBase(READ_LENGTH / 2));
+            blackhole.consume(read.getBaseQuality(READ_LENGTH / 2));
+        }
+    }
+
+    @Benchmark
+    public void cigar(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getCigar());
+            blackhole.consume(read.numCigarElements());
+            blackhole.consume(read.getCigarElement(0));
+        }
+    }
+
+    @Benchmark
+    public void attributes(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getReadGroup());
+            blackhole.consume(read.getAttributeAsInteger(SAMTag.NM.name()));
+            blackhole.consume(read.getAttributeAsString(SAMTag.MD.name()));
+            blackhole.consume(read.hasAttribute(SAMTag.OQ.name()));
+        }
+    }
+}
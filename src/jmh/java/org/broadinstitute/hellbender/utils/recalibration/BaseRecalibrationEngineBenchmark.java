@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@link BaseRecalibrationEngine#processRead} to add a batch of synthetic reads to the recalibration tables,
+ * as done by BaseRecalibrator for each read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BaseRecalibrationEngineBenchmark {
+
+    private static final int NUMBER_OF_LOCI = 1_000;
+    private static final int READ_LENGTH = 150;
+    private static final int KNOWN_SITE_SPACING = 1_000;
+
+    @Param({"1", "4"})
+    public int numberOfReadGroups;
+
+    @Param({"false", "true"})
+    public boolean enableBAQ;
+
+    @Param({"0.001", "0.01"})
+    public double errorRate;
+
+    private BaseRecalibrationEngine engine;
+    private ReferenceDataSource reference;
+    private List<GATKRead> reads;
+    private List<SimpleInterval> knownSites;
+
+    @Setup
+    public void setup() {
+        final Random random = SyntheticData.newRandom();
+        final int contigLength = NUMBER_OF_LOCI + 2 * READ_LENGTH;
+        final SAMFileHeader referenceHeader = ArtificialReadUtils.createArtificialSamHeader(1, 1, contigLength);
+        final ArtificialBAMBuilder bamBuilder = new ArtificialBAMBuilder(referenceHeader.getSequenceDictionary(), 1, NUMBER_OF_LOCI)
+                .setReadLength(READ_LENGTH)
+                .createAndSetHeader(numberOfReadGroups);
+
+        final byte[] referenceBases = SyntheticData.randomBases(random, contigLength);
+        reference = ReferenceDataSource.of(
+                new ReferenceBases(referenceBases, new SimpleInterval(referenceHeader.getSequence(0).getSequenceName(), 1, contigLength)),
+                referenceHeader.getSequenceDictionary());
+        reads = SyntheticData.makeReadsFromReference(random, bamBuilder, referenceBases, errorRate);
+
+        knownSites = new ArrayList<>();
+        for ( int position = KNOWN_SITE_SPACING / 2; position <= contigLength; position += KNOWN_SITE_SPACING ) {
+            knownSites.add(new SimpleInterval(referenceHeader.getSequence(0).getSequenceName(), position, position));
+        }
+
+        final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+        recalArgs.enableBAQ = enableBAQ;
+        engine = new BaseRecalibrationEngine(recalArgs, bamBuilder.getHeader());
+    }
+
+    @TearDown
+    public void tearDown() {
+        reference.close();
+    }
+
+    @Benchmark
+    public BaseRecalibrationEngine processReads() {
+        for ( final GATKRead read : reads ) {
+            final List<? extends Locatable> overlappingKnownSites = knownSitesOverlapping(read);
+            engine.processRead(read, reference, overlappingKnownSites);
+        }
+        return engine;
+    }
+
+    /**
+     * The known sites that the engine is given for each read are those that overlap it, as for a ReadWalker's
+     * FeatureContext
+     */
+    private List<? extends Locatable> knownSitesOverlapping(final GATKRead read) {
+        final int first = (read.getStart() + KNOWN_SITE_SPACING / 2 - 1) / KNOWN_SITE_SPACING;
+        final int last = (read.getEnd() + KNOWN_SITE_SPACING / 2) / KNOWN_SITE_SPACING;
+        return first >= last ? Collections.emptyList() : knownSites.subList(first, Math.min(last, knownSites.size()));
+    }
+}
@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.broadinstitute.hellbender.benchmarkutils.SyntheticData;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to align a batch of synthetic alternate sequences, each carrying SNPs and one indel, to their reference with
+ * the pure java aligners, {@link SmithWatermanJavaAligner} and {@link SmithWatermanQueryProfileAligner}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmithWatermanBenchmark {
+
+    private static final int NUMBER_OF_PAIRS = 64;
+    private static final int MAX_INDEL_LENGTH = 10;
+
+    /**
+     * Aligner implementation to time: JAVA or JAVA_QUERY_PROFILE
+     */
+    @Param({"JAVA", "JAVA_QUERY_PROFILE"})
+    public SmithWatermanAligner.Implementation implementation;
+
+    /**
+     * Name of one of the parameter sets in {@link SmithWatermanAligner}
+     */
+    @Param({"STANDARD_NGS", "ORIGINAL_DEFAULT"})
+    public String parameterSet;
+
+    @Param({"SOFTCLIP", "INDEL"})
+    public SWOverhangStrategy overhangStrategy;
+
+    @Param({"150", "500"})
+    public int referenceLength;
+
+    private SWParameters parameters;
+    private SmithWatermanAligner aligner;
+    private byte[][] references;
+    private byte[][] alternates;
+
+    @Setup
+    public void setup() {
+        switch ( parameterSet ) {
+            case "STANDARD_NGS":
+                parameters = SmithWatermanAligner.STANDARD_NGS;
+                break;
+            case "ORIGINAL_DEFAULT":
+                parameters = SmithWatermanAligner.ORIGINAL_DEFAULT;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown parameter set " + parameterSet);
+        }
+        aligner = SmithWatermanAligner.getAligner(implementation);
+
+        final Random random = SyntheticData.newRandom();
+        references = new byte[NUMBER_OF_PAIRS][];
+        alternates = new byte[NUMBER_OF_PAIRS][];
+        for ( int i = 0; i < NUMBER_OF_PAIRS; i++ ) {
+            references[i] = SyntheticData.randomBases(random, referenceLength);
+            alternates[i] = addIndel(random, SyntheticData.addSubstitutions(random, references[i], 0.01));
+        }
+    }
+
+    /**
+     * @return bases with an insertion or deletion of up to {@link #MAX_INDEL_LENGTH} bases in the middle half
+     */
+    private static byte[] addIndel(final Random random, final byte[] bases) {
+        final int position = bases.length / 4 + random.nextInt(bases.length / 2);
+        final int length = 1 + random.nextInt(MAX_INDEL_LENGTH);
+        if ( random.nextBoolean() ) {
+            return Utils.concat(
+                    Arrays.copyOfRange(bases, 0, position),
+                    SyntheticData.randomBases(random, length),
+                    Arrays.copyOfRange(bases, position, bases.length));
+        } else {
+            return Utils.concat(
+                    Arrays.copyOfRange(bases, 0, position),
+                    Arrays.copyOfRange(bases, Math.min(position + length, bases.length), bases.length));
+        }
+    }
+
+    @Benchmark
+    public void align(final Blackhole blackhole) {
+        for ( int i = 0; i < NUMBER_OF_PAIRS; i++ ) {
+            blackhole.consume(aligner.align(references[i], alternates[i], parameters, overhangStrategy));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.hellbender.utils.HasGenomeLocation;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.pileup.ColumnarPileup;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.util.Collection;
@@ -14,6 +15,10 @@ import java.util.Map;
 
 /**
  * Bundles together a pileup and a location.
+ *
+ * The pileup is available both as an object-based {@link ReadPileup} ({@link #getBasePileup()}) and as a
+ * primitive, column-wise {@link ColumnarPileup} ({@link #getColumnarPileup()}). Whichever view the context was
+ * created with is returned directly, and the other one is built from it on first request.
  */
 public final class AlignmentContext implements Locatable, HasGenomeLocation {
     // Definitions:
@@ -24,7 +29,8 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     public enum ReadOrientation { COMPLETE, FORWARD, REVERSE }
 
     private final Locatable loc;
-    private final ReadPileup basePileup;
+    private ReadPileup basePileup;
+    private ColumnarPileup columnarPileup;
 
     private boolean hasPileupBeenDownsampled;
 
@@ -41,12 +47,27 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
         this.hasPileupBeenDownsampled = hasPileupBeenDownsampled;
     }
 
+    /**
+     * Create a context backed by a columnar pileup. The object-based pileup is only built if requested.
+     *
+     * The columnar pileup may be pooled by its producer, in which case the consumer of this context must call
+     * {@link #release()} once it is done with it, and must not use it (or its columnar pileup) afterwards.
+     */
+    public AlignmentContext(final Locatable loc, final ColumnarPileup columnarPileup) {
+        Utils.nonNull(loc, "BUG: GenomeLoc in Alignment context is null");
+        Utils.nonNull(columnarPileup, "BUG: ColumnarPileup in Alignment context is null");
+
+        this.loc = loc;
+        this.columnarPileup = columnarPileup;
+        this.hasPileupBeenDownsampled = false;
+    }
+
     /**
      * How many reads cover this locus?
      * @return
      */
     public int size() {
-        return basePileup.size();
+        return basePileup != null ? basePileup.size() : columnarPileup.size();
     }
 
     @Override
@@ -76,9 +97,36 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     public boolean hasPileupBeenDownsampled() { return hasPileupBeenDownsampled; }
 
     public ReadPileup getBasePileup() {
+        if (basePileup == null) {
+            basePileup = columnarPileup.toReadPileup();
+        }
         return basePileup;
     }
 
+    /**
+     * Get the pileup at this locus as parallel primitive arrays. For contexts produced by a traversal that opted into
+     * columnar pileups (see {@link LocusWalker#useColumnarPileups()}) this involves no per-read allocation.
+     *
+     * The returned pileup must not be kept beyond the processing of this locus.
+     */
+    public ColumnarPileup getColumnarPileup() {
+        if (columnarPileup == null) {
+            columnarPileup = ColumnarPileup.fromReadPileup(basePileup);
+        }
+        return columnarPileup;
+    }
+
+    /**
+     * Hand the storage of this context's columnar pileup, if any, back to its producer for reuse. Neither this
+     * context nor its columnar pileup may be used afterwards, although a {@link ReadPileup} previously obtained
+     * from {@link #getBasePileup()} remains valid.
+     */
+    public void release() {
+        if (columnarPileup != null) {
+            columnarPileup.release();
+        }
+    }
+
     /**
      * Returns a potentially derived subcontext containing only forward, reverse, or in fact all reads
      * in alignment context context.
@@ -88,9 +136,9 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
             case COMPLETE:
                 return this;
             case FORWARD:
-                return new AlignmentContext(loc, basePileup.makeFilteredPileup(pe -> !pe.getRead().isReverseStrand()));
+                return new AlignmentContext(loc, getBasePileup().makeFilteredPileup(pe -> !pe.getRead().isReverseStrand()));
             case REVERSE:
-                return new AlignmentContext(loc, basePileup.makeFilteredPileup(pe -> pe.getRead().isReverseStrand()));
+                return new AlignmentContext(loc, getBasePileup().makeFilteredPileup(pe -> pe.getRead().isReverseStrand()));
             default:
                 throw new IllegalArgumentException("Unable to get alignment context for type = " + type);
         }
@@ -134,7 +182,7 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     public String toString() {
         return "AlignmentContext{" +
                 "loc=" + loc +
-                ", basePileup=" + basePileup +
+                ", basePileup=" + getBasePileup() +
                 ", hasPileupBeenDownsampled=" + hasPileupBeenDownsampled +
                 '}';
     }
@@ -0,0 +1,40 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * A per-thread unit of work for {@link AssemblyRegionWalker} tools that support multi-threaded traversal
+ * (see {@link AssemblyRegionWalker#makeAssemblyRegionProcessor}).
+ *
+ * Each traversal thread owns exactly one processor, so implementations do not need to be thread-safe, but
+ * they must not share mutable state with other processors or with the tool instance itself. Typically a
+ * processor wraps its own private instance of the tool's calling engine, or the tool's engine if it is safe
+ * to use from several threads (as {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerEngine} is).
+ *
+ * {@link #process} runs concurrently with other traversal threads. The {@link Runnable} that it returns is
+ * run later on the main traversal thread, in coordinate order across all regions, and is the only place where
+ * tool output (eg., writing to a VCF writer) should happen.
+ */
+public interface AssemblyRegionProcessor extends AutoCloseable {
+
+    /**
+     * @return The evaluator used by this processor's traversal thread to determine whether each locus is active.
+     *         Must not be shared with other processors unless it is safe to use from several threads.
+     */
+    AssemblyRegionEvaluator assemblyRegionEvaluator();
+
+    /**
+     * Process an individual AssemblyRegion on the calling traversal thread.
+     *
+     * @param region region to process (pre-marked as either active or inactive)
+     * @param referenceContext reference data overlapping the padded span of the assembly region
+     * @param featureContext features overlapping the padded span of the assembly region
+     * @return an action that emits the results for this region; it will be run on the main traversal thread, in
+     *         coordinate order. Never {@code null}.
+     */
+    Runnable process( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * Release any resources held by this processor. Called on the main traversal thread once traversal is complete.
+     */
+    @Override
+    default void close() {}
+}
@@ -1,5 +1,7 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
@@ -9,18 +11,29 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.engine.spark.AssemblyRegionArgumentCollection;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.IGVUtils;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An AssemblyRegionWalker is a tool that processes an entire region of reads at a time, each marked as either "active"
@@ -39,6 +52,12 @@ import java.util.List;
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
  * for processing by the tool implementation. One read shard is created per contig.
+ *
+ * Tools that override {@link #makeAssemblyRegionProcessor} may also be run with more than one traversal thread
+ * (see {@link #traversalThreads}). In that mode the traversal intervals are cut into read shards of
+ * {@link #traversalShardSize} bases that are processed concurrently, each thread with its own reads, reference and
+ * Feature data sources and its own {@link AssemblyRegionProcessor}. The output of each region is then emitted on
+ * the main traversal thread in coordinate order.
  */
 public abstract class AssemblyRegionWalker extends WalkerBase {
 
@@ -56,6 +75,37 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
     @Argument(fullName = AssemblyRegionArgumentCollection.ASSEMBLY_REGION_OUT_LONG_NAME, doc="Output the assembly region to this IGV formatted file", optional = true)
     protected String assemblyRegionOut = null;
 
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+    public static final String TRAVERSAL_SHARD_SIZE_LONG_NAME = "traversal-shard-size";
+    public static final int DEFAULT_TRAVERSAL_SHARD_SIZE = 1_000_000;
+
+    /**
+     * Traversal profile timer for the per-locus calls to the {@link AssemblyRegionEvaluator}
+     */
+    public static final String ASSEMBLY_REGION_EVALUATOR_TIMER = "engine.assemblyRegionEvaluator";
+
+    /**
+     * Traversal profile timer for emitting the output of regions processed on traversal threads
+     */
+    public static final String PROCESSOR_OUTPUT_TIMER = "engine.assemblyRegionOutput";
+
+    /**
+     * Number of read shards processed concurrently. Values greater than 1 are only supported by tools that provide
+     * an {@link AssemblyRegionProcessor}. Since read shards are smaller in this mode, assembly region boundaries
+     * may differ slightly from a single-threaded run near shard boundaries.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads used to process read shards concurrently", optional = true, minValue = 1)
+    public int traversalThreads = 1;
+
+    /**
+     * Only used when running with more than one traversal thread, in which case it also bounds the amount of
+     * pending output held in memory.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_SHARD_SIZE_LONG_NAME, doc = "Maximum size in bases of each read shard when running with more than one traversal thread", optional = true, minValue = 1)
+    public int traversalShardSize = DEFAULT_TRAVERSAL_SHARD_SIZE;
+
     private PrintStream assemblyRegionOutStream;
 
     @Override
@@ -69,6 +119,9 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
 
     private List<MultiIntervalLocalReadShard> readShards;
 
+    // Intervals of each read shard, used instead of readShards in multi-threaded mode where every thread queries its own reads source
+    private List<List<SimpleInterval>> parallelShardIntervals;
+
     /**
      * Initialize data sources for traversal.
      *
@@ -81,7 +134,11 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         assemblyRegionArgs.validate();
 
         final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        readShards = makeReadShards(intervals);
+        if ( traversalThreads > 1 ) {
+            parallelShardIntervals = makeParallelShardIntervals(intervals);
+        } else {
+            readShards = makeReadShards(intervals);
+        }
 
         initializeAssemblyRegionOutputStreams();
     }
@@ -107,6 +164,35 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         return shards;
     }
 
+    /**
+     * Cut our intervals for multi-threaded traversal into groups of at most {@link #traversalShardSize} bases,
+     * never spanning more than one contig. Each group is turned into a (padded) read shard by the traversal
+     * thread that processes it.
+     *
+     * @param intervals unmodified intervals for traversal
+     * @return intervals for each shard, in traversal order
+     */
+    private List<List<SimpleInterval>> makeParallelShardIntervals(final List<SimpleInterval> intervals) {
+        final List<List<SimpleInterval>> shardIntervals = new ArrayList<>();
+        for ( final List<SimpleInterval> allIntervalsOnContig : IntervalUtils.groupIntervalsByContig(intervals) ) {
+            List<SimpleInterval> currentShard = new ArrayList<>();
+            int currentShardIndex = -1;
+            for ( final SimpleInterval interval : IntervalUtils.cutToShards(allIntervalsOnContig, traversalShardSize) ) {
+                final int shardIndex = IntervalUtils.shardIndex(interval.getStart(), traversalShardSize);
+                if ( shardIndex != currentShardIndex && ! currentShard.isEmpty() ) {
+                    shardIntervals.add(currentShard);
+                    currentShard = new ArrayList<>();
+                }
+                currentShardIndex = shardIndex;
+                currentShard.add(interval);
+            }
+            if ( ! currentShard.isEmpty() ) {
+                shardIntervals.add(currentShard);
+            }
+        }
+        return shardIntervals;
+    }
+
     private void initializeAssemblyRegionOutputStreams() {
         if ( assemblyRegionOut != null ) {
             try {
@@ -156,12 +242,17 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
     @Override
     public void traverse() {
 
-        CountingReadFilter countedFilter = makeReadFilter();
-
         // Since we're processing regions rather than individual reads, tell the progress
         // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
         progressMeter.setRecordsBetweenTimeChecks(10L);
 
+        if ( traversalThreads > 1 ) {
+            traverseInParallel();
+            return;
+        }
+
+        CountingReadFilter countedFilter = makeReadFilter();
+
         for ( final MultiIntervalLocalReadShard readShard : readShards ) {
             // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
             // instead of filtering the reads directly here
@@ -174,6 +265,7 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         }
 
         logger.info(countedFilter.getSummaryLine());
+        recordReadFilterCounts(countedFilter);
     }
 
     /**
@@ -185,7 +277,8 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
      * @param features FeatureManager
      */
     private void processReadShard(MultiIntervalLocalReadShard shard, ReferenceDataSource reference, FeatureManager features ) {
-        final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, assemblyRegionEvaluator(), assemblyRegionArgs);
+        final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, timedEvaluator(assemblyRegionEvaluator()), assemblyRegionArgs);
+        final TraversalProfiler.Timer applyTimer = getTraversalProfiler().getTimer(TraversalProfiler.APPLY_TIMER);
 
         // Call into the tool implementation to process each assembly region from this shard.
         while ( assemblyRegionIter.hasNext() ) {
@@ -195,23 +288,200 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
             }
 
             logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
-            writeAssemblyRegion(assemblyRegion);
+            writeAssemblyRegion(assemblyRegion, assemblyRegion.isActive());
 
+            final long applyStart = applyTimer.start();
             apply(assemblyRegion,
                     new ReferenceContext(reference, assemblyRegion.getPaddedSpan()),
                     new FeatureContext(features, assemblyRegion.getPaddedSpan()));
+            applyTimer.stop(applyStart);
 
             // For this traversal, the progress meter unit is the assembly region rather than the read shard
             progressMeter.update(assemblyRegion.getSpan());
         }
     }
 
-    private void writeAssemblyRegion(final AssemblyRegion region) {
+    /**
+     * @return {@code evaluator}, with each call timed in the traversal profile if profiling is enabled
+     */
+    private AssemblyRegionEvaluator timedEvaluator(final AssemblyRegionEvaluator evaluator) {
+        if ( ! getTraversalProfiler().isEnabled() ) {
+            return evaluator;
+        }
+        final TraversalProfiler.Timer timer = getTraversalProfiler().getTimer(ASSEMBLY_REGION_EVALUATOR_TIMER);
+        return (locusPileup, referenceContext, featureContext) -> {
+            final long start = timer.start();
+            try {
+                return evaluator.isActive(locusPileup, referenceContext, featureContext);
+            } finally {
+                timer.stop(start);
+            }
+        };
+    }
+
+    private void writeAssemblyRegion(final Locatable region, final boolean isActive) {
         if ( assemblyRegionOutStream != null ) {
             IGVUtils.printIGVFormatRow(assemblyRegionOutStream, new SimpleInterval(region.getContig(), region.getStart(), region.getStart()),
                     "end-marker", 0.0);
             IGVUtils.printIGVFormatRow(assemblyRegionOutStream, region,
-                    "size=" + new SimpleInterval(region).size(), region.isActive() ? 1.0 : -1.0);
+                    "size=" + new SimpleInterval(region).size(), isActive ? 1.0 : -1.0);
+        }
+    }
+
+    /**
+     * Multi-threaded implementation of assembly region traversal.
+     *
+     * Read shards are handed out to a pool of {@link #traversalThreads} threads, each owning a {@link ShardWorker}.
+     * At most twice as many shards as there are threads are in flight at any time, and the results of each shard
+     * are emitted on this thread in shard order, so the output is in coordinate order and memory is bounded by the
+     * shard size.
+     */
+    private void traverseInParallel() {
+        final BlockingQueue<ShardWorker> idleWorkers = new ArrayBlockingQueue<>(traversalThreads);
+        final List<ShardWorker> allWorkers = new ArrayList<>(traversalThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(traversalThreads,
+                new ThreadFactoryBuilder().setNameFormat("assembly-region-traversal-%d").setDaemon(true).build());
+
+        try {
+            for ( int i = 0; i < traversalThreads; i++ ) {
+                final ShardWorker worker = new ShardWorker();
+                allWorkers.add(worker);
+                idleWorkers.add(worker);
+            }
+
+            logger.info("Processing " + parallelShardIntervals.size() + " read shards using " + traversalThreads + " traversal threads");
+
+            final Iterator<List<SimpleInterval>> shardIterator = parallelShardIntervals.iterator();
+            final Queue<Future<List<ProcessedAssemblyRegion>>> pendingShards = new ArrayDeque<>();
+            final int maxPendingShards = 2 * traversalThreads;
+            final TraversalProfiler.Timer outputTimer = getTraversalProfiler().getTimer(PROCESSOR_OUTPUT_TIMER);
+
+            while ( shardIterator.hasNext() || ! pendingShards.isEmpty() ) {
+                while ( shardIterator.hasNext() && pendingShards.size() < maxPendingShards ) {
+                    final List<SimpleInterval> shardIntervals = shardIterator.next();
+                    pendingShards.add(executor.submit(() -> {
+                        final ShardWorker worker = idleWorkers.take();
+                        try {
+                            return worker.processShard(shardIntervals);
+                        } finally {
+                            idleWorkers.add(worker);
+                        }
+                    }));
+                }
+
+                for ( final ProcessedAssemblyRegion processedRegion : getShardResult(pendingShards.remove()) ) {
+                    writeAssemblyRegion(processedRegion.span, processedRegion.isActive);
+                    final long outputStart = outputTimer.start();
+                    processedRegion.output.run();
+                    outputTimer.stop(outputStart);
+                    progressMeter.update(processedRegion.span);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            allWorkers.forEach(ShardWorker::close);
+        }
+
+        allWorkers.forEach(worker -> {
+            logger.info(worker.readFilter.getSummaryLine());
+            recordReadFilterCounts(worker.readFilter);
+        });
+    }
+
+    private static List<ProcessedAssemblyRegion> getShardResult(final Future<List<ProcessedAssemblyRegion>> shardResult) {
+        try {
+            return shardResult.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for a read shard to be processed", e);
+        } catch ( ExecutionException e ) {
+            // rethrow exceptions from the traversal threads unchanged, so that user errors are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error processing read shard", e.getCause());
+        }
+    }
+
+    /**
+     * The data sources, read filter and {@link AssemblyRegionProcessor} owned by a single traversal thread.
+     * Workers are created and closed on the main traversal thread, but only ever used by one thread at a time.
+     */
+    private final class ShardWorker implements AutoCloseable {
+        private final ReadsDataSource readsSource;
+        private final ReferenceDataSource referenceSource;
+        private final FeatureManager featureManager;
+        private final CountingReadFilter readFilter;
+        private final AssemblyRegionProcessor processor;
+
+        private ShardWorker() {
+            processor = makeAssemblyRegionProcessor();
+            if ( processor == null ) {
+                throw new UserException.BadInput("Tool " + getClass().getSimpleName() + " does not support multi-threaded traversal. " +
+                        "Please run with --" + TRAVERSAL_THREADS_LONG_NAME + " 1");
+            }
+            readsSource = createReadsDataSource();
+            referenceSource = createReferenceDataSource();
+            featureManager = hasFeatures() ? createFeatureManager() : null;
+            readFilter = makeReadFilter();
+        }
+
+        private List<ProcessedAssemblyRegion> processShard(final List<SimpleInterval> shardIntervals) {
+            final MultiIntervalLocalReadShard readShard = new MultiIntervalLocalReadShard(shardIntervals, assemblyRegionArgs.assemblyRegionPadding, readsSource);
+            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+            readShard.setReadFilter(readFilter);
+            readShard.setDownsampler(createDownsampler());
+            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+            final List<ProcessedAssemblyRegion> processedRegions = new ArrayList<>();
+            final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(readShard, getHeaderForReads(), referenceSource, featureManager, timedEvaluator(processor.assemblyRegionEvaluator()), assemblyRegionArgs);
+            final TraversalProfiler.Timer processTimer = getTraversalProfiler().getTimer(TraversalProfiler.APPLY_TIMER);
+            while ( assemblyRegionIter.hasNext() ) {
+                final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+                if ( assemblyRegionArgs.forceActive ) {
+                    assemblyRegion.setIsActive(true);
+                }
+
+                logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+                final long processStart = processTimer.start();
+                final Runnable output = processor.process(assemblyRegion,
+                        new ReferenceContext(referenceSource, assemblyRegion.getPaddedSpan()),
+                        new FeatureContext(featureManager, assemblyRegion.getPaddedSpan()));
+                processTimer.stop(processStart);
+                processedRegions.add(new ProcessedAssemblyRegion(assemblyRegion.getSpan(), assemblyRegion.isActive(), output));
+            }
+            return processedRegions;
+        }
+
+        @Override
+        public void close() {
+            processor.close();
+            readsSource.close();
+            referenceSource.close();
+            if ( featureManager != null ) {
+                featureManager.close();
+            }
+        }
+    }
+
+    /**
+     * The result of processing one assembly region on a traversal thread, waiting to be emitted in order.
+     * Holds only the region span rather than the region itself, so that its reads can be garbage collected.
+     */
+    private static final class ProcessedAssemblyRegion {
+        private final SimpleInterval span;
+        private final boolean isActive;
+        private final Runnable output;
+
+        private ProcessedAssemblyRegion(final SimpleInterval span, final boolean isActive, final Runnable output) {
+            this.span = span;
+            this.isActive = isActive;
+            this.output = Utils.nonNull(output, "AssemblyRegionProcessor output must not be null");
         }
     }
 
@@ -236,6 +506,20 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
      */
     public abstract AssemblyRegionEvaluator assemblyRegionEvaluator();
 
+    /**
+     * Create a new, independent {@link AssemblyRegionProcessor} for one traversal thread. Tools that support running
+     * with more than one traversal thread must override this. It is called once per traversal thread on the main
+     * thread, after {@link #onTraversalStart}, and the tool's own {@link #assemblyRegionEvaluator} and {@link #apply}
+     * are not called in that mode.
+     *
+     * The default implementation returns {@code null}, which signifies that multi-threaded traversal is not supported.
+     *
+     * @return a new processor that does not share mutable state with the tool or with other processors, or {@code null}
+     */
+    protected AssemblyRegionProcessor makeAssemblyRegionProcessor() {
+        return null;
+    }
+
     /**
      * Process an individual AssemblyRegion. Must be implemented by tool authors.
      *
@@ -4,31 +4,38 @@ import htsjdk.samtools.util.Locatable;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.*;
 
 /**
  * FeatureCache: helper class for {@link FeatureDataSource} to manage the cache of Feature records used
  * during query operations initiated via {@link FeatureDataSource#query(org.broadinstitute.hellbender.utils.SimpleInterval)}
- * and/or {@link FeatureDataSource#queryAndPrefetch(org.broadinstitute.hellbender.utils.SimpleInterval)}.
+ * and/or {@link FeatureDataSource#queryAndPrefetch(htsjdk.samtools.util.Locatable)}.
  *
  * Strategy is to pre-fetch a large number of records AFTER each query interval that produces
- * a cache miss. This optimizes for the use case of intervals with gradually increasing start
- * positions, as many subsequent queries will find their records wholly contained in the cache
- * before we have another cache miss. Performance will be poor for random/non-localized access
- * patterns, or intervals with decreasing start positions.
+ * a cache miss, and to keep the results of several such fetches (cached blocks) around at once. Any query
+ * interval that is wholly contained within one of the cached blocks is a cache hit, regardless of whether it
+ * starts before or after the previous query, so overlapping, padded, backwards and otherwise out-of-order
+ * queries within the recently-visited part of the genome don't need to go back to disk.
+ *
+ * Within each block, Features are kept sorted by start position alongside the running maximum of their end
+ * positions, which lets us binary search for the first Feature that can overlap a query rather than
+ * scanning the block from the beginning.
+ *
+ * The cache is bounded by a budget on the total number of cached Features (a proxy for memory usage) rather
+ * than by position: when a fill pushes the cache over budget, least-recently-used blocks are evicted until we
+ * are back under budget. The most recently filled block is never evicted, so a single fill larger than the
+ * budget is still served.
  *
  * Usage:
- * -Test whether each query interval is a cache hit via {@link #cacheHit(org.broadinstitute.hellbender.utils.SimpleInterval)}
+ * -Test whether each query interval is a cache hit via {@link #cacheHit(Locatable)}
  *
- * -If it is a cache hit, trim the cache to the start position of the interval (discarding records that
- *  end before the start of the new interval) via {@link #trimToNewStartPosition(int)}, then retrieve
- *  records up to the desired endpoint using {@link #getCachedFeaturesUpToStopPosition(int)}.
+ * -If it is a cache miss, add a new block to the cache using {@link #fill(java.util.Iterator, org.broadinstitute.hellbender.utils.SimpleInterval)},
+ *  pre-fetching a large number of records after the query interval in addition to those actually requested.
  *
- * -If it is a cache miss, reset the cache using {@link #fill(java.util.Iterator, org.broadinstitute.hellbender.utils.SimpleInterval)}, pre-fetching
- *  a large number of records after the query interval in addition to those actually requested.
+ * -Retrieve the records overlapping the query interval using {@link #getCachedFeatures(Locatable)}
  *
  * @param <CACHED_FEATURE> Type of Feature record we are caching
  */
@@ -36,69 +43,74 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
     private static final Logger logger = LogManager.getLogger(FeatureCache.class);
 
     /**
-     * Our cache of Features, optimized for insertion/removal at both ends.
+     * Default maximum number of Features to hold in the cache across all blocks. A decoded sites-only VCF record
+     * takes on the order of a kilobyte, so this allows roughly 10 MB per data source; records with many genotypes
+     * take proportionally more.
      */
-    private final Deque<CACHED_FEATURE> cache;
+    public static final int DEFAULT_MAX_CACHED_FEATURES = 10_000;
 
     /**
-     * Our cache currently contains Feature records overlapping this interval
+     * Cached blocks on each contig, keyed by start position. Since a block is only added after a cache miss, no
+     * block is ever contained within another, so on each contig blocks with larger starts also have larger ends.
      */
-    private SimpleInterval cachedInterval;
+    private final Map<String, TreeMap<Integer, CachedBlock<CACHED_FEATURE>>> blocksByContig = new HashMap<>();
 
     /**
-     * Number of times we called {@link #cacheHit(SimpleInterval)} and it returned true
+     * All cached blocks, in least-recently-used to most-recently-used order
      */
-    private int numCacheHits = 0;
+    private final LinkedHashMap<CachedBlock<CACHED_FEATURE>, CachedBlock<CACHED_FEATURE>> blocksByRecentUse = new LinkedHashMap<>(16, 0.75f, true);
 
     /**
-     * Number of times we called {@link #cacheHit(SimpleInterval)} and it returned false
+     * Maximum number of Features to keep in the cache across all blocks
      */
-    private int numCacheMisses = 0;
+    private int maxCachedFeatures;
 
     /**
-     * Initial capacity of our cache (will grow by doubling if needed)
+     * Total number of Features currently in the cache across all blocks
      */
-    private static final int INITIAL_CAPACITY = 1024;
+    private int numCachedFeatures = 0;
 
     /**
-     * When we trim our cache to a new start position, this is the maximum number of
-     * Features we expect to need to place into temporary storage for the duration of
-     * the trim operation. Performance only suffers slightly if our estimate is wrong.
+     * Number of times we called {@link #cacheHit(Locatable)} and it returned true
      */
-    private static final int EXPECTED_MAX_OVERLAPPING_FEATURES_DURING_CACHE_TRIM = 128;
+    private long numCacheHits = 0;
 
     /**
-     * Create an initially-empty FeatureCache with default initial capacity
+     * Number of times we called {@link #cacheHit(Locatable)} and it returned false
      */
-    public FeatureCache() {
-        cache = new ArrayDeque<>(INITIAL_CAPACITY);
-    }
+    private long numCacheMisses = 0;
 
     /**
-     * Get the name of the contig on which the Features in our cache are located
-     *
-     * @return the name of the contig on which the Features in our cache are located
+     * Number of blocks evicted to stay within our budget
      */
-    public String getContig() {
-        return cachedInterval.getContig();
+    private long numEvictions = 0;
+
+    /**
+     * Create an initially-empty FeatureCache with the default budget of {@link #DEFAULT_MAX_CACHED_FEATURES}
+     */
+    public FeatureCache() {
+        this(DEFAULT_MAX_CACHED_FEATURES);
     }
 
     /**
-     * Get the start position of the interval that all Features in our cache overlap
+     * Create an initially-empty FeatureCache
      *
-     * @return the start position of the interval that all Features in our cache overlap
+     * @param maxCachedFeatures maximum number of Features to keep in the cache across all cached blocks (> 0)
      */
-    public int getCacheStart() {
-        return cachedInterval.getStart();
+    public FeatureCache( final int maxCachedFeatures ) {
+        Utils.validateArg(maxCachedFeatures > 0, "maxCachedFeatures must be > 0");
+        this.maxCachedFeatures = maxCachedFeatures;
     }
 
     /**
-     * Get the stop position of the interval that all Features in our cache overlap
+     * Change the maximum number of Features to keep in the cache, evicting least-recently-used blocks as needed
      *
-     * @return the stop position of the interval that all Features in our cache overlap
+     * @param maxCachedFeatures maximum number of Features to keep in the cache across all cached blocks (> 0)
      */
-    public int getCacheEnd() {
-        return cachedInterval.getEnd();
+    public void setMaxCachedFeatures( final int maxCachedFeatures ) {
+        Utils.validateArg(maxCachedFeatures > 0, "maxCachedFeatures must be > 0");
+        this.maxCachedFeatures = maxCachedFeatures;
+        evictToBudget(null);
     }
 
     /**
@@ -107,42 +119,117 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
      * @return true if our cache contains no Features, otherwise false
      */
     public boolean isEmpty() {
-        return cache.isEmpty();
+        return numCachedFeatures == 0;
     }
 
     /**
-     * @return Number of times we called {@link #cacheHit(SimpleInterval)} and it returned true
+     * @return Number of Features currently held in our cache, across all cached blocks
      */
-    public int getNumCacheHits() {
+    public int getNumCachedFeatures() {
+        return numCachedFeatures;
+    }
+
+    /**
+     * @return Number of times we called {@link #cacheHit(Locatable)} and it returned true
+     */
+    public long getNumCacheHits() {
         return numCacheHits;
     }
 
     /**
-     * @return Number of times we called {@link #cacheHit(SimpleInterval)} and it returned false
+     * @return Number of times we called {@link #cacheHit(Locatable)} and it returned false
      */
-    public int getNumCacheMisses() {
+    public long getNumCacheMisses() {
         return numCacheMisses;
     }
 
     /**
-     * Clear our cache and fill it with the records from the provided iterator, preserving their
-     * relative ordering, and update our contig/start/stop to reflect the new interval that all
-     * records in our cache overlap.
+     * @return Number of cached blocks evicted so far to keep the cache within its budget
+     */
+    public long getNumEvictions() {
+        return numEvictions;
+    }
+
+    /**
+     * Add a new block to our cache containing the records from the provided iterator, preserving their relative
+     * ordering. Any existing blocks contained within the new interval are replaced, and least-recently-used blocks
+     * are evicted as needed to stay within our budget.
      *
      * Typically each fill operation should involve significant lookahead beyond the region
      * requested so that future queries will be cache hits.
      *
-     * @param featureIter iterator from which to pull Features with which to populate our cache
-     *                    (replacing existing cache contents)
+     * @param featureIter iterator from which to pull Features with which to populate the new block. Features
+     *                    must be sorted by start position.
      * @param interval all Features from featureIter overlap this interval
      */
     public void fill( final Iterator<CACHED_FEATURE> featureIter, final SimpleInterval interval ) {
-        cache.clear();
+        final List<CACHED_FEATURE> features = new ArrayList<>();
         while ( featureIter.hasNext() ) {
-            cache.add(featureIter.next());
+            features.add(featureIter.next());
         }
+        final CachedBlock<CACHED_FEATURE> newBlock = new CachedBlock<>(interval, features);
+
+        // Replace any blocks that the new block makes redundant
+        final TreeMap<Integer, CachedBlock<CACHED_FEATURE>> existingContigBlocks = blocksByContig.get(interval.getContig());
+        if ( existingContigBlocks != null ) {
+            final List<CachedBlock<CACHED_FEATURE>> redundantBlocks = new ArrayList<>();
+            for ( final CachedBlock<CACHED_FEATURE> block : existingContigBlocks.subMap(interval.getStart(), true, interval.getEnd(), true).values() ) {
+                if ( block.interval.getEnd() <= interval.getEnd() || block.interval.getStart() == interval.getStart() ) {
+                    redundantBlocks.add(block);
+                }
+            }
+            redundantBlocks.forEach(this::removeBlock);
+        }
+
+        blocksByContig.computeIfAbsent(interval.getContig(), k -> new TreeMap<>()).put(interval.getStart(), newBlock);
+        blocksByRecentUse.put(newBlock, newBlock);
+        numCachedFeatures += features.size();
+
+        evictToBudget(newBlock);
+    }
+
+    /**
+     * Evict least-recently-used blocks other than the one provided until we are within our budget
+     */
+    private void evictToBudget( final CachedBlock<CACHED_FEATURE> blockToKeep ) {
+        final Iterator<CachedBlock<CACHED_FEATURE>> leastRecentlyUsed = blocksByRecentUse.keySet().iterator();
+        while ( numCachedFeatures > maxCachedFeatures && leastRecentlyUsed.hasNext() ) {
+            final CachedBlock<CACHED_FEATURE> block = leastRecentlyUsed.next();
+            if ( block != blockToKeep ) {
+                leastRecentlyUsed.remove();
+                removeFromContigIndex(block);
+                ++numEvictions;
+            }
+        }
+    }
+
+    private void removeBlock( final CachedBlock<CACHED_FEATURE> block ) {
+        blocksByRecentUse.remove(block);
+        removeFromContigIndex(block);
+    }
 
-        cachedInterval = interval;
+    private void removeFromContigIndex( final CachedBlock<CACHED_FEATURE> block ) {
+        final TreeMap<Integer, CachedBlock<CACHED_FEATURE>> contigBlocks = blocksByContig.get(block.interval.getContig());
+        contigBlocks.remove(block.interval.getStart(), block);
+        if ( contigBlocks.isEmpty() ) {
+            blocksByContig.remove(block.interval.getContig());
+        }
+        numCachedFeatures -= block.features.size();
+    }
+
+    /**
+     * @return the cached block that contains the provided interval, or null if there isn't one
+     */
+    private CachedBlock<CACHED_FEATURE> findContainingBlock( final Locatable interval ) {
+        final TreeMap<Integer, CachedBlock<CACHED_FEATURE>> contigBlocks = blocksByContig.get(interval.getContig());
+        if ( contigBlocks == null ) {
+            return null;
+        }
+
+        // Blocks with larger starts also have larger ends, so the block with the largest start at or before
+        // the start of the interval is the only candidate
+        final Map.Entry<Integer, CachedBlock<CACHED_FEATURE>> candidate = contigBlocks.floorEntry(interval.getStart());
+        return candidate != null && candidate.getValue().interval.contains(interval) ? candidate.getValue() : null;
     }
 
     /**
@@ -152,7 +239,7 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
      * @return true if all records overlapping the provided interval are already contained in our cache, otherwise false
      */
     public boolean cacheHit( final Locatable interval ) {
-        final boolean cacheHit = cachedInterval != null && cachedInterval.contains(interval);
+        final boolean cacheHit = findContainingBlock(interval) != null;
 
         if ( cacheHit ) {
             ++numCacheHits;
@@ -165,62 +252,19 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
     }
 
     /**
-     * Trims the cache to the specified new start position by discarding all records that end before it
-     * while preserving relative ordering of records.
-     *
-     * @param newStart new start position on the current contig to which to trim the cache
-     */
-    public void trimToNewStartPosition( final int newStart ) {
-        if ( newStart > cachedInterval.getEnd() ) {
-            throw new GATKException(String.format("BUG: attempted to trim Feature cache to an improper new start position (%d). Cache stop = %d",
-                    newStart, cachedInterval.getEnd()));
-        }
-
-        List<CACHED_FEATURE> overlappingFeaturesBeforeNewStart = new ArrayList<>(EXPECTED_MAX_OVERLAPPING_FEATURES_DURING_CACHE_TRIM);
-
-        // In order to trim the cache to the new start position, we need to find
-        // all Features in the cache that start before the new start position,
-        // and discard those that don't overlap the new start while keeping those
-        // that do overlap. We can stop once we find a Feature that starts on or
-        // after the new start position, since the Features are assumed to be sorted
-        // by start position.
-        while ( ! cache.isEmpty() && cache.getFirst().getStart() < newStart ) {
-            CACHED_FEATURE featureBeforeNewStart = cache.removeFirst();
-
-            if ( featureBeforeNewStart.getEnd() >= newStart ) {
-                overlappingFeaturesBeforeNewStart.add(featureBeforeNewStart);
-            }
-        }
-
-        // Add back the Features that started before the new start but overlapped it
-        // in the reverse of the order in which we encountered them so that their original
-        // relative ordering in the cache is restored.
-        for ( int i = overlappingFeaturesBeforeNewStart.size() - 1; i >= 0; --i ) {
-            cache.addFirst(overlappingFeaturesBeforeNewStart.get(i));
-        }
-
-        // Record our new start boundary
-        cachedInterval = new SimpleInterval(cachedInterval.getContig(), newStart, cachedInterval.getEnd());
-    }
-
-    /**
-     * Returns (but does not remove) all cached Features that overlap the region from the start
-     * of our cache (cacheStart) to the specified stop position.
+     * Returns (but does not remove) all cached Features that overlap the provided interval, in the order in which
+     * they were added to the cache. The interval must be a cache hit (see {@link #cacheHit(Locatable)}).
      *
-     * @param stopPosition Endpoint of the interval that returned Features must overlap
-     * @return all cached Features that overlap the region from the start of our cache to the specified stop position
+     * @param interval the interval that returned Features must overlap
+     * @return all cached Features that overlap the provided interval
      */
-    public List<CACHED_FEATURE> getCachedFeaturesUpToStopPosition( final int stopPosition ) {
-        List<CACHED_FEATURE> matchingFeatures = new ArrayList<>(cache.size());
+    public List<CACHED_FEATURE> getCachedFeatures( final Locatable interval ) {
+        final CachedBlock<CACHED_FEATURE> block = findContainingBlock(interval);
+        Utils.validate(block != null, () -> "BUG: attempted to retrieve Features for an interval that is not cached: " + new SimpleInterval(interval));
 
-        // Find (but do not remove from our cache) all Features that start before or on the provided stop position
-        for ( CACHED_FEATURE candidateFeature : cache ) {
-            if ( candidateFeature.getStart() > stopPosition ) {
-                break; // No more possible matches among the remaining cached Features, so stop looking
-            }
-            matchingFeatures.add(candidateFeature);
-        }
-        return matchingFeatures;
+        // mark the block as recently used
+        blocksByRecentUse.get(block);
+        return block.getOverlapping(interval.getStart(), interval.getEnd());
     }
 
     /**
@@ -238,12 +282,64 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
 
         final String sourceNameString = sourceName.isEmpty() ? "" : "for data source " + sourceName;
 
-        final int totalQueries = getNumCacheHits() + getNumCacheMisses();
-        logger.debug(String.format("Cache hit rate %s was %.2f%% (%d out of %d total queries)",
+        final long totalQueries = getNumCacheHits() + getNumCacheMisses();
+        logger.debug(String.format("Cache hit rate %s was %.2f%% (%d out of %d total queries, %d cached blocks evicted)",
                 sourceNameString,
                 totalQueries > 0 ? ((double)getNumCacheHits() / totalQueries) * 100.0 : 0.0,
                 getNumCacheHits(),
-                totalQueries));
+                totalQueries,
+                getNumEvictions()));
     }
-}
 
+    /**
+     * The Features overlapping one interval fetched after a cache miss, sorted by start position, together
+     * with the running maximum of their end positions.
+     */
+    private static final class CachedBlock<CACHED_FEATURE extends Feature> {
+        private final SimpleInterval interval;
+        private final List<CACHED_FEATURE> features;
+
+        /**
+         * maxEnds[i] is the maximum end position of features 0..i, so it is non-decreasing
+         */
+        private final int[] maxEnds;
+
+        CachedBlock( final SimpleInterval interval, final List<CACHED_FEATURE> features ) {
+            this.interval = interval;
+            this.features = features;
+            this.maxEnds = new int[features.size()];
+
+            int maxEnd = Integer.MIN_VALUE;
+            for ( int i = 0; i < features.size(); i++ ) {
+                maxEnd = Math.max(maxEnd, features.get(i).getEnd());
+                maxEnds[i] = maxEnd;
+            }
+        }
+
+        List<CACHED_FEATURE> getOverlapping( final int start, final int end ) {
+            // Find the first feature that could overlap the start: every feature before it ends before the start
+            int low = 0;
+            int high = maxEnds.length;
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( maxEnds[mid] < start ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            final List<CACHED_FEATURE> overlapping = new ArrayList<>();
+            for ( int i = low; i < features.size(); i++ ) {
+                final CACHED_FEATURE feature = features.get(i);
+                if ( feature.getStart() > end ) {
+                    break; // No more possible matches among the remaining Features, so stop looking
+                }
+                if ( feature.getEnd() >= start ) {
+                    overlapping.add(feature);
+                }
+            }
+            return overlapping;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * Snapshot of the query cache counters for a single {@link FeatureDataSource}.
+ *
+ * Obtain via {@link FeatureManager#getFeatureCacheStatistics()} or {@link FeatureDataSource#getCacheStatistics()}.
+ */
+public final class FeatureCacheStatistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int cachedFeatures;
+
+    FeatureCacheStatistics( final long hits, final long misses, final long evictions, final int cachedFeatures ) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.cachedFeatures = cachedFeatures;
+    }
+
+    /**
+     * @return number of queries answered entirely from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of queries that had to go to the underlying reader
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of cached blocks evicted to keep the cache within its budget
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of Features held in the cache at the time this snapshot was taken
+     */
+    public int getCachedFeatures() {
+        return cachedFeatures;
+    }
+
+    /**
+     * @return fraction of queries that were cache hits, or 0.0 if there were no queries
+     */
+    public double getHitRate() {
+        final long totalQueries = hits + misses;
+        return totalQueries > 0 ? (double) hits / totalQueries : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (%.2f%% hit rate), %d evictions, %d cached features",
+                hits, misses, getHitRate() * 100.0, evictions, cachedFeatures);
+    }
+}
@@ -60,10 +60,10 @@ import static org.broadinstitute.hellbender.tools.genomicsdb.GenomicsDBUtils.cre
  * To improve performance in the case of targeted queries by one interval at a time, this class uses a caching
  * scheme that is optimized for the common access pattern of multiple separate queries over intervals with
  * gradually increasing start positions. It optimizes for this use case by pre-fetching records immediately
- * following each interval during a query and caching them. Performance will suffer if the access pattern is
- * random, involves queries over intervals with DECREASING start positions instead of INCREASING start positions,
- * or involves lots of very large jumps forward on the genome or lots of contig switches. Query caching
- * can be disabled, if desired.
+ * following each interval during a query and caching them. Several recently-fetched blocks of records are kept,
+ * so queries that overlap each other or move backwards within recently-visited territory (eg., padded assembly
+ * regions) are also served from the cache. Performance will suffer if the access pattern is random, or involves
+ * lots of very large jumps on the genome or lots of contig switches. Query caching can be disabled, if desired.
  *
  * @param <T> The type of Feature returned by this data source
  */
@@ -92,10 +92,9 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
 
     /**
      * Cache containing Features from recent queries initiated via {@link #query(SimpleInterval)} and/or
-     * {@link #queryAndPrefetch(Locatable)}. This is guaranteed to start at the start position of the
-     * most recent query, but will typically end well after the end of the most recent query. Designed to
-     * improve performance of the common access pattern involving multiple queries across nearby intervals
-     * with gradually increasing start positions.
+     * {@link #queryAndPrefetch(Locatable)}. Holds the Features fetched for several recent cache misses (each
+     * typically extending well after the end of the query that produced it), so that any query falling within
+     * one of them can be answered without going to disk, even if it starts before the previous query.
      */
     private final FeatureCache<T> queryCache;
 
@@ -306,10 +305,28 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         this.queryLookaheadBases = queryLookaheadBases;
     }
 
+    /**
+     * Change the maximum number of Features held in our query cache (see {@link FeatureCache#DEFAULT_MAX_CACHED_FEATURES}
+     * for the default and the memory it allows)
+     *
+     * @param maxCachedFeatures maximum number of Features to keep in the query cache (> 0)
+     */
+    public void setMaxCachedFeatures( final int maxCachedFeatures ) {
+        queryCache.setMaxCachedFeatures(maxCachedFeatures);
+    }
+
     final void printCacheStats() {
         queryCache.printCacheStatistics( getName() );
     }
 
+    /**
+     * @return a snapshot of the hit/miss/eviction counters of our query cache
+     */
+    public FeatureCacheStatistics getCacheStatistics() {
+        return new FeatureCacheStatistics(queryCache.getNumCacheHits(), queryCache.getNumCacheMisses(),
+                queryCache.getNumEvictions(), queryCache.getNumCachedFeatures());
+    }
+
     @SuppressWarnings("unchecked")
     private static <T extends Feature> FeatureReader<T> getFeatureReader(final FeatureInput<T> featureInput, final Class<? extends Feature> targetFeatureType,
                                                                          final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper,
@@ -344,7 +361,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      * @return A new FeatureCodec instance to use for the FeatureInput.
      */
     @SuppressWarnings("unchecked")
-    private static <T extends Feature> FeatureCodec<T, ?> getCodecForFeatureInput(final FeatureInput<T> featureInput,
+    static <T extends Feature> FeatureCodec<T, ?> getCodecForFeatureInput(final FeatureInput<T> featureInput,
                                                                                   final Class<? extends Feature> targetFeatureType) {
         final FeatureCodec<T, ?> codec;
         final Class<FeatureCodec<T, ?>> codecClass = featureInput.getFeatureCodecClass();
@@ -525,19 +542,14 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
-        // If the query can be satisfied using existing cache contents, prepare for retrieval
-        // by discarding all Features at the beginning of the cache that end before the start
-        // of our query interval.
-        if (queryCache.cacheHit(interval)) {
-            queryCache.trimToNewStartPosition(interval.getStart());
-        }
-        // Otherwise, we have a cache miss, so go to disk to refill our cache.
-        else {
+        // If the query can't be satisfied using existing cache contents, we have a cache miss,
+        // so go to disk to add the Features around our query interval to the cache.
+        if (!queryCache.cacheHit(interval)) {
             refillQueryCache(interval);
         }
 
         // Return the subset of our cache that overlaps our query interval
-        return queryCache.getCachedFeaturesUpToStopPosition(interval.getEnd());
+        return queryCache.getCachedFeatures(interval);
     }
 
     /**
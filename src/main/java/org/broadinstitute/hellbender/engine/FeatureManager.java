@@ -220,6 +220,26 @@ public final class FeatureManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Change the maximum number of Features held in the query cache of each of our Feature sources
+     *
+     * @param maxCachedFeatures maximum number of Features to keep in the query cache of each source (> 0)
+     */
+    public void setMaxCachedFeaturesPerSource( final int maxCachedFeatures ) {
+        featureSources.values().forEach(dataSource -> dataSource.setMaxCachedFeatures(maxCachedFeatures));
+    }
+
+    /**
+     * Get the query cache hit/miss/eviction counters for each of our Feature sources
+     *
+     * @return a snapshot of the cache statistics for each FeatureInput, in the order in which the inputs were added
+     */
+    public Map<FeatureInput<? extends Feature>, FeatureCacheStatistics> getFeatureCacheStatistics() {
+        final Map<FeatureInput<? extends Feature>, FeatureCacheStatistics> statistics = new LinkedHashMap<>();
+        featureSources.forEach((featureInput, dataSource) -> statistics.put(featureInput, dataSource.getCacheStatistics()));
+        return statistics;
+    }
+
     void addToFeatureSources(final int featureQueryLookahead, final FeatureInput<? extends Feature> featureInput,
                              final Class<? extends Feature> featureType, final int cloudPrefetchBuffer,
                              final int cloudIndexPrefetchBuffer, final Path reference) {
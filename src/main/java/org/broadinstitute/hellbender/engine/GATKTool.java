@@ -14,6 +14,7 @@ import java.nio.file.Path;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Stream;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLinePluginDescriptor;
@@ -38,6 +39,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.config.GATKConfig;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.iterators.SAMRecordReadAheadIterator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
@@ -110,6 +112,83 @@ public abstract class GATKTool extends CommandLineProgram {
     @Argument(fullName = StandardArgumentDefinitions.CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME, shortName = StandardArgumentDefinitions.CLOUD_INDEX_PREFETCH_BUFFER_SHORT_NAME, doc = "Size of the cloud-only prefetch buffer (in MB; 0 to disable). Defaults to cloudPrefetchBuffer if unset.", optional=true)
     public int cloudIndexPrefetchBuffer = getDefaultCloudIndexPrefetchBufferSize();
 
+    public static final String PACKED_REFERENCE_LONG_NAME = "packed-reference";
+
+    /**
+     * A packed, memory-mapped copy of the reference (see the CreatePackedReference tool) that the engine serves
+     * reference bases from instead of parsing the FASTA. The FASTA must still be provided via --reference.
+     */
+    @Advanced
+    @Argument(fullName = PACKED_REFERENCE_LONG_NAME,
+            doc = "Packed copy of the reference, created with CreatePackedReference, to read reference bases from.",
+            optional = true)
+    public String packedReference = null;
+
+    // whether the dictionary of the packed reference was checked against the FASTA, so that it is only read once
+    private volatile boolean packedReferenceValidated = false;
+
+    public static final String READ_AHEAD_DEPTH_LONG_NAME = "read-ahead-depth";
+    public static final String READ_AHEAD_DECODER_THREADS_LONG_NAME = "read-ahead-decoder-threads";
+
+    /**
+     * When > 0, each reads input is read and decompressed on its own background thread, buffering up to this many
+     * batches of reads ahead of the traversal. Most useful for tools whose per-read work is light compared to the
+     * cost of decompressing and decoding the input.
+     */
+    @Advanced
+    @Argument(fullName = READ_AHEAD_DEPTH_LONG_NAME,
+            doc = "Number of batches of reads to read ahead of the traversal on a background thread per reads input (0 to disable).",
+            optional = true, minValue = 0)
+    public int readAheadDepth = 0;
+
+    /**
+     * Only used when read-ahead is enabled via --read-ahead-depth. When > 0, batches of reads that were read ahead
+     * are also fully decoded (cigar, bases, qualities and tags) in parallel on this many threads.
+     */
+    @Advanced
+    @Argument(fullName = READ_AHEAD_DECODER_THREADS_LONG_NAME,
+            doc = "Number of threads used to fully decode reads that were read ahead (0 to decode lazily on the traversal thread).",
+            optional = true, minValue = 0)
+    public int readAheadDecoderThreads = 0;
+
+    public static final String MAX_CACHED_FEATURES_LONG_NAME = "max-cached-features";
+
+    /**
+     * Each Feature input caches the Features of its recent queries, so that overlapping and out-of-order queries
+     * don't go back to disk. Memory use grows with this limit and the number of Feature inputs: a decoded sites-only
+     * VCF record takes on the order of a kilobyte, and records with many genotypes take proportionally more.
+     */
+    @Advanced
+    @Argument(fullName = MAX_CACHED_FEATURES_LONG_NAME,
+            doc = "Maximum number of Features cached for the queries of each Feature input.",
+            optional = true, minValue = 1)
+    public int maxCachedFeatures = FeatureCache.DEFAULT_MAX_CACHED_FEATURES;
+
+    public static final String TRAVERSAL_PROFILE_LONG_NAME = "traversal-profile";
+    public static final String TRAVERSAL_PROFILE_INTERVAL_LONG_NAME = "traversal-profile-interval";
+
+    /**
+     * When set, the engine records the time spent in each stage of the traversal (reading, filtering and
+     * transforming reads, the tool's apply(), and any stages timed by the tool itself) along with counters such as
+     * the number of reads rejected by each read filter, and writes a summary to this file after the traversal. The
+     * summary is written as TSV if the file name ends with ".tsv", and as JSON otherwise.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_PROFILE_LONG_NAME,
+            doc = "Write a per-stage timing and counter summary of the traversal to this file (TSV if it ends with .tsv, JSON otherwise).",
+            optional = true)
+    public String traversalProfile = null;
+
+    /**
+     * Only used when --traversal-profile is set. When > 0, a snapshot of all profile timers and counters is also
+     * appended to a time series file, named after the profile with a ".timeseries.tsv" suffix, this often.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_PROFILE_INTERVAL_LONG_NAME,
+            doc = "Seconds between samples of the traversal profile time series (0 to write only the final summary).",
+            optional = true, minValue = 0)
+    public double traversalProfileInterval = 0;
+
     @Argument(fullName = StandardArgumentDefinitions.DISABLE_BAM_INDEX_CACHING_LONG_NAME,
             shortName = StandardArgumentDefinitions.DISABLE_BAM_INDEX_CACHING_SHORT_NAME,
             doc = "If true, don't cache bam indexes, this will reduce memory requirements but may harm performance if many intervals are specified.  Caching is automatically disabled if there are no intervals specified.",
@@ -222,6 +301,11 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     protected ProgressMeter progressMeter;
 
+    /**
+     * Per-stage timers and counters for the traversal, enabled by {@link #TRAVERSAL_PROFILE_LONG_NAME}.
+     */
+    private TraversalProfiler traversalProfiler = TraversalProfiler.DISABLED;
+
     /**
      * Return the list of GATKCommandLinePluginDescriptors to be used for this tool.
      * Uses the read filter plugin.
@@ -374,6 +458,12 @@ public abstract class GATKTool extends CommandLineProgram {
         if (hasReads()) {
             final ReadTransformer preTransformer = makePreReadFilterTransformer();
             final ReadTransformer postTransformer = makePostReadFilterTransformer();
+            if ( traversalProfiler.isEnabled() ) {
+                return Utils.stream(traversalProfiler.timeIterator("engine.readInput", reads.iterator()))
+                        .map(traversalProfiler.timeFunction("engine.preReadFilterTransformer", preTransformer))
+                        .filter(traversalProfiler.timePredicate("engine.readFilter", filter))
+                        .map(traversalProfiler.timeFunction("engine.postReadFilterTransformer", postTransformer));
+            }
             return Utils.stream(reads)
                     .map(preTransformer)
                     .filter(filter)
@@ -429,7 +519,36 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reference data source.
      */
     void initializeReference() {
-        reference = referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+        reference = referenceArguments.getReferencePath() != null ? createReferenceDataSource() : null;
+    }
+
+    /**
+     * Open a new, independent {@link ReferenceDataSource} over the reference for this tool, configured the same
+     * way as the engine reference data source. Requires that a reference was provided.
+     *
+     * For traversals and tools that need more than one concurrent view of the reference, such as one per traversal
+     * thread. Callers are responsible for closing the returned data source.
+     */
+    protected ReferenceDataSource createReferenceDataSource() {
+        if (packedReference == null) {
+            return ReferenceDataSource.of(referenceArguments.getReferencePath());
+        }
+
+        final ReferenceDataSource packedReferenceSource = ReferenceDataSource.ofPacked(IOUtils.getPath(packedReference));
+        if (!packedReferenceValidated) {
+            final SAMSequenceDictionary fastaDictionary;
+            try (final ReferenceDataSource fastaSource = ReferenceDataSource.of(referenceArguments.getReferencePath())) {
+                fastaDictionary = fastaSource.getSequenceDictionary();
+            }
+            if (!packedReferenceSource.getSequenceDictionary().isSameDictionary(fastaDictionary)) {
+                packedReferenceSource.close();
+                throw new UserException.IncompatibleSequenceDictionaries("the packed reference was not created from this reference",
+                        PACKED_REFERENCE_LONG_NAME, packedReferenceSource.getSequenceDictionary(),
+                        referenceArguments.getReferenceFileName(), fastaDictionary);
+            }
+            packedReferenceValidated = true;
+        }
+        return packedReferenceSource;
     }
 
     /**
@@ -440,26 +559,42 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     void initializeReads() {
         if (! readArguments.getReadFiles().isEmpty()) {
-            SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
-            if (hasReference()) { // pass in reference if available, because CRAM files need it
-                factory = factory.referenceSequence(referenceArguments.getReferencePath());
-            }
-            else if (hasCramInput()) {
-                throw UserException.MISSING_REFERENCE_FOR_CRAM;
-            }
-
-            if(bamIndexCachingShouldBeEnabled()) {
-                factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
-            }
-
-            reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
-                (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            reads = createReadsDataSource();
         }
         else {
             reads = null;
         }
     }
 
+    /**
+     * Open a new, independent {@link ReadsDataSource} over the reads inputs for this tool, configured the same
+     * way as the engine reads data source. Requires that reads inputs were provided.
+     *
+     * Package-private so that engine traversals that need more than one concurrent view of the reads (such as
+     * multi-threaded traversals) can open their own, but concrete tool child classes cannot. Callers are
+     * responsible for closing the returned data source.
+     */
+    ReadsDataSource createReadsDataSource() {
+        SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
+        if (hasReference()) { // pass in reference if available, because CRAM files need it
+            factory = factory.referenceSequence(referenceArguments.getReferencePath());
+        }
+        else if (hasCramInput()) {
+            throw UserException.MISSING_REFERENCE_FOR_CRAM;
+        }
+
+        if(bamIndexCachingShouldBeEnabled()) {
+            factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
+        }
+
+        final ReadsDataSource readsDataSource = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+        if (readAheadDepth > 0) {
+            readsDataSource.enableReadAhead(readAheadDepth, readAheadDecoderThreads);
+        }
+        return readsDataSource;
+    }
+
 
     private boolean bamIndexCachingShouldBeEnabled() {
         return intervalArgumentCollection.intervalsSpecified() && !disableBamIndexCaching;
@@ -481,13 +616,27 @@ public abstract class GATKTool extends CommandLineProgram {
      * By default, this method initializes the FeatureManager to use the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
      */
     void initializeFeatures() {
-        features = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer,
-                cloudIndexPrefetchBuffer, getGenomicsDBOptions());
+        features = createFeatureManager();
         if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
             features = null;
         }
     }
 
+    /**
+     * Open a new, independent {@link FeatureManager} over the Feature inputs of this tool, configured the same
+     * way as the engine feature manager.
+     *
+     * Package-private so that engine traversals that need more than one concurrent view of the Features (such as
+     * multi-threaded traversals) can open their own, but concrete tool child classes cannot. Callers are
+     * responsible for closing the returned manager.
+     */
+    FeatureManager createFeatureManager() {
+        final FeatureManager featureManager = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer,
+                cloudIndexPrefetchBuffer, getGenomicsDBOptions());
+        featureManager.setMaxCachedFeaturesPerSource(maxCachedFeatures);
+        return featureManager;
+    }
+
     /**
      * Initialize our intervals for traversal.
      *
@@ -697,6 +846,10 @@ public abstract class GATKTool extends CommandLineProgram {
     protected void onStartup() {
         super.onStartup();
 
+        if ( traversalProfile != null ) {
+            traversalProfiler = new TraversalProfiler(true);
+        }
+
         loadMasterSequenceDictionary();
 
         initializeReference();
@@ -704,6 +857,9 @@ public abstract class GATKTool extends CommandLineProgram {
         initializeReads(); // Must be initialized after reference, in case we are dealing with CRAM and a reference is required
 
         initializeFeatures();
+        if ( features != null ) {
+            features.setMaxCachedFeaturesPerSource(maxCachedFeatures);
+        }
 
         initializeIntervals(); // Must be initialized after reference, reads and features, since intervals currently require a sequence dictionary from another data source
 
@@ -1043,16 +1199,73 @@ public abstract class GATKTool extends CommandLineProgram {
     @Override
     protected final Object doWork() {
         try {
+            if ( traversalProfiler.isEnabled() && traversalProfileInterval > 0 ) {
+                traversalProfiler.startTimeSeries(IOUtils.getPath(traversalProfile + TraversalProfiler.TIME_SERIES_SUFFIX), traversalProfileInterval);
+            }
             onTraversalStart();
             progressMeter.start();
+            final TraversalProfiler.Timer traversalTimer = traversalProfiler.getTimer(TraversalProfiler.TRAVERSAL_TIMER);
+            final long traversalStart = traversalTimer.start();
             traverse();
+            traversalTimer.stop(traversalStart);
             progressMeter.stop();
-            return onTraversalSuccess();
+            final TraversalProfiler.Timer successTimer = traversalProfiler.getTimer(TraversalProfiler.TRAVERSAL_SUCCESS_TIMER);
+            final long successStart = successTimer.start();
+            final Object result = onTraversalSuccess();
+            successTimer.stop(successStart);
+            writeTraversalProfile();
+            return result;
         } finally {
+            traversalProfiler.stopTimeSeries();
             closeTool();
         }
     }
 
+    /**
+     * @return the profiler for this traversal, which records nothing unless {@link #TRAVERSAL_PROFILE_LONG_NAME} was
+     *         specified. Tools may add their own timers and counters to it. Never null.
+     */
+    public final TraversalProfiler getTraversalProfiler() {
+        return traversalProfiler;
+    }
+
+    /**
+     * Record the engine's own counters (records processed, and read-ahead and feature cache statistics) in the
+     * traversal profile and write it out, if profiling was requested.
+     */
+    private void writeTraversalProfile() {
+        if ( ! traversalProfiler.isEnabled() ) {
+            return;
+        }
+        traversalProfiler.getCounter("engine.recordsProcessed").add(progressMeter.getNumRecordsProcessed());
+        if ( hasReads() ) {
+            final SAMRecordReadAheadIterator.ReadAheadStatistics readAhead = reads.getReadAheadStatistics();
+            traversalProfiler.getCounter("engine.readAhead.batchesRead").add(readAhead.getBatchesRead());
+            traversalProfiler.getCounter("engine.readAhead.consumerStalls").add(readAhead.getConsumerStalls());
+            traversalProfiler.getCounter("engine.readAhead.consumerStallNanos").add(readAhead.getConsumerStallNanos());
+        }
+        if ( hasFeatures() ) {
+            features.getFeatureCacheStatistics().forEach((input, statistics) -> {
+                final String prefix = "engine.featureCache." + input.getName() + ".";
+                traversalProfiler.getCounter(prefix + "hits").add(statistics.getHits());
+                traversalProfiler.getCounter(prefix + "misses").add(statistics.getMisses());
+                traversalProfiler.getCounter(prefix + "evictions").add(statistics.getEvictions());
+            });
+        }
+        traversalProfiler.writeSummary(IOUtils.getPath(traversalProfile));
+    }
+
+    /**
+     * Record the number of reads rejected by each component of {@code filter} in the traversal profile. Walkers call
+     * this when they log the filter's summary.
+     */
+    protected final void recordReadFilterCounts(final CountingReadFilter filter) {
+        if ( traversalProfiler.isEnabled() ) {
+            filter.getFilteredCountsByFilter().forEach((name, count) ->
+                    traversalProfiler.getCounter(TraversalProfiler.READ_FILTER_COUNTER_PREFIX + name).add(count));
+        }
+    }
+
     /**
      * This method is called by the GATK framework at the end of the {@link #doWork} template method.
      * It is called regardless of whether the {@link #traverse} has succeeded or not.
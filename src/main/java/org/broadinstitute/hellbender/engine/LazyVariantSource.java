@@ -0,0 +1,353 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.tribble.FeatureCodec;
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.AbstractVCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.IndexUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A single input of a {@link StreamingVariantMerger}, which holds no open file handle, codec or query cache
+ * until the merge actually needs records from it.
+ *
+ * On construction the input is opened just long enough to read its header, its sequence dictionary and (for
+ * VCF text inputs) the locus of its first record, and then closed again. Once opened by the merger, a VCF text
+ * input is read line by line, and only the CHROM and POS columns of the line at the head of the input are parsed;
+ * the line is decoded into a VariantContext (with genotypes decoded lazily, as usual for VCFs) only when
+ * {@link #takeCurrentRecord()} is called as the record leaves the merge frontier. Other inputs (BCF, GenomicsDB),
+ * and all inputs during traversals restricted to intervals, are read through a {@link FeatureDataSource} that is
+ * created on open and closed as soon as the input is exhausted.
+ *
+ * Queries by interval go through a separate {@link FeatureDataSource} that is created by the first query and kept
+ * open for later ones, until {@link #closeQuerySource()} is called.
+ */
+final class LazyVariantSource implements AutoCloseable {
+
+    private final FeatureInput<VariantContext> featureInput;
+    private final int sourceIndex;
+    private final int queryLookaheadBases;
+    private final int cloudPrefetchBuffer;
+    private final int cloudIndexPrefetchBuffer;
+    private final Path reference;
+
+    /**
+     * Codec class to use when reading this input as VCF text, or null if it has to be read through a
+     * {@link FeatureDataSource}.
+     */
+    private final Class<? extends AbstractVCFCodec> textCodecClass;
+
+    /**
+     * Header and dictionary read when probing the input. Both can be released once the merged header has been
+     * built, since re-opening the input reads them again.
+     */
+    private VCFHeader header;
+    private SAMSequenceDictionary dictionary;
+
+    /**
+     * Locus of the first record of a VCF text input, or null if it is unknown (in which case the input has to be
+     * opened at the start of each traversal). Inputs known to contain no records at all are never opened.
+     */
+    private final String firstContig;
+    private final int firstStart;
+    private final boolean knownToBeEmpty;
+
+    // State of an open input
+    private SAMSequenceDictionary mergeDictionary;
+    private SynchronousLineReader lineReader;
+    private LineIterator lines;
+    private AbstractVCFCodec codec;
+    private FeatureDataSource<VariantContext> dataSource;
+    private Iterator<VariantContext> records;
+    private String currentLine;
+    private VariantContext currentRecord;
+    private int currentContigIndex;
+    private int currentStart;
+
+    // Data source kept open between queries by interval, or null if there is none
+    private FeatureDataSource<VariantContext> querySource;
+
+    /**
+     * Probes the given input for its header, dictionary and first record, and closes it again.
+     *
+     * @param featureInput source of VariantContexts
+     * @param sourceIndex position of this input among the inputs of the merge, used to break ties between records at the same locus
+     * @param queryLookaheadBases look ahead this many bases during queries by interval that produce cache misses
+     * @param cloudPrefetchBuffer MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param reference reference to use when creating FeatureDataSources, may be null, only needed by GenomicsDB
+     */
+    @SuppressWarnings("unchecked")
+    LazyVariantSource(final FeatureInput<VariantContext> featureInput, final int sourceIndex, final int queryLookaheadBases,
+                      final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final Path reference) {
+        this.featureInput = Utils.nonNull(featureInput);
+        this.sourceIndex = sourceIndex;
+        this.queryLookaheadBases = queryLookaheadBases;
+        this.cloudPrefetchBuffer = cloudPrefetchBuffer;
+        this.cloudIndexPrefetchBuffer = cloudIndexPrefetchBuffer;
+        this.reference = reference;
+
+        final FeatureCodec<VariantContext, ?> probeCodec = IOUtils.isGenomicsDBPath(featureInput) ?
+                null : FeatureDataSource.getCodecForFeatureInput(featureInput, VariantContext.class);
+        if (probeCodec instanceof AbstractVCFCodec) {
+            textCodecClass = (Class<? extends AbstractVCFCodec>) probeCodec.getClass();
+            try {
+                header = (VCFHeader) openText((AbstractVCFCodec) probeCodec);
+                knownToBeEmpty = !advanceText();
+                firstContig = knownToBeEmpty ? null : currentLine.substring(0, currentLine.indexOf('\t'));
+                firstStart = knownToBeEmpty ? 0 : currentStart;
+            } finally {
+                close();
+            }
+            final SAMSequenceDictionary headerDictionary = header.getSequenceDictionary();
+            dictionary = headerDictionary != null && !headerDictionary.isEmpty() ?
+                    headerDictionary :
+                    IndexUtils.createSequenceDictionaryFromFeatureIndex(featureInput.toPath());
+        } else {
+            textCodecClass = null;
+            try (final FeatureDataSource<VariantContext> probe = newFeatureDataSource(0)) {
+                header = (VCFHeader) probe.getHeader();
+                dictionary = probe.getSequenceDictionary();
+            }
+            firstContig = null;
+            firstStart = 0;
+            knownToBeEmpty = false;
+        }
+    }
+
+    /**
+     * @return the logical name of this input
+     */
+    String getName() {
+        return featureInput.getName();
+    }
+
+    /**
+     * @return the header read when probing this input, or null if it has been released
+     */
+    VCFHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Drop our references to the header and dictionary of this input. Once the merged header has been built they
+     * are no longer needed, and holding on to them would make our memory use grow with the number of inputs.
+     */
+    void releaseHeaderAndDictionary() {
+        header = null;
+        dictionary = null;
+    }
+
+    /**
+     * @return the sequence dictionary of this input, from its header or else from its index, or null if neither
+     *         has one or it has been released
+     */
+    SAMSequenceDictionary getSequenceDictionary() {
+        return dictionary;
+    }
+
+    int getSourceIndex() {
+        return sourceIndex;
+    }
+
+    boolean isKnownToBeEmpty() {
+        return knownToBeEmpty;
+    }
+
+    /**
+     * @return true if the locus of the first record of this input is known, in which case opening it can be
+     *         deferred until the merge reaches that locus
+     */
+    boolean hasKnownFirstRecord() {
+        return firstContig != null;
+    }
+
+    String getFirstContig() {
+        return firstContig;
+    }
+
+    int getFirstStart() {
+        return firstStart;
+    }
+
+    int getCurrentContigIndex() {
+        return currentContigIndex;
+    }
+
+    int getCurrentStart() {
+        return currentStart;
+    }
+
+    /**
+     * Open this input for a traversal. {@link #advance()} must be called to move to the first record.
+     *
+     * @param intervals restrict the traversal to records overlapping these intervals, or null for an unrestricted traversal
+     * @param mergeDictionary dictionary used to order the contigs of the merge; may only be null for a single input
+     */
+    void open(final List<SimpleInterval> intervals, final SAMSequenceDictionary mergeDictionary) {
+        this.mergeDictionary = mergeDictionary;
+        if (textCodecClass != null && intervals == null) {
+            openText(newTextCodec());
+        } else {
+            // No lookahead: records are consumed once, in order, so there is nothing to gain from caching them
+            dataSource = newFeatureDataSource(0);
+            dataSource.setIntervalsForTraversal(intervals);
+            records = dataSource.iterator();
+        }
+    }
+
+    /**
+     * Move to the next record of this open input.
+     *
+     * @return false if the input has no more records
+     */
+    boolean advance() {
+        if (lines != null) {
+            return advanceText();
+        }
+        currentRecord = records.hasNext() ? records.next() : null;
+        if (currentRecord == null) {
+            return false;
+        }
+        currentContigIndex = getContigIndex(currentRecord.getContig());
+        currentStart = currentRecord.getStart();
+        return true;
+    }
+
+    /**
+     * Decode and return the current record of this input. Must be called at most once per call to {@link #advance()}.
+     */
+    VariantContext takeCurrentRecord() {
+        if (lines != null) {
+            final VariantContext record = codec.decode(currentLine);
+            currentLine = null;
+            return record;
+        }
+        final VariantContext record = currentRecord;
+        currentRecord = null;
+        return record;
+    }
+
+    /**
+     * Returns all records of this input that overlap the provided interval, opening the input for queries if it
+     * isn't already. Requires the input to support random access.
+     */
+    List<VariantContext> query(final SimpleInterval interval) {
+        if (querySource == null) {
+            querySource = newFeatureDataSource(queryLookaheadBases);
+        }
+        return querySource.queryAndPrefetch(interval);
+    }
+
+    /**
+     * Close the data source used for queries by interval, if there is one. The next query opens it again.
+     */
+    void closeQuerySource() {
+        if (querySource != null) {
+            querySource.close();
+            querySource = null;
+        }
+    }
+
+    /**
+     * Close this input for traversal, releasing its file handle, reader and codec. The input can be opened again
+     * later. Does not affect the data source used for queries by interval (see {@link #closeQuerySource()}).
+     */
+    @Override
+    public void close() {
+        if (lineReader != null) {
+            lineReader.close();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        lineReader = null;
+        lines = null;
+        codec = null;
+        dataSource = null;
+        records = null;
+        currentLine = null;
+        currentRecord = null;
+        mergeDictionary = null;
+    }
+
+    /**
+     * Open this input as VCF text and read past its header with the given codec.
+     *
+     * @return the header of this input
+     */
+    private Object openText(final AbstractVCFCodec textCodec) {
+        lineReader = new SynchronousLineReader(BucketUtils.openFile(featureInput.getRawInputString()));
+        lines = new LineIteratorImpl(lineReader);
+        codec = textCodec;
+        return codec.readActualHeader(lines);
+    }
+
+    /**
+     * Move to the next data line, parsing only its CHROM and POS columns.
+     */
+    private boolean advanceText() {
+        currentLine = null;
+        while (lines.hasNext()) {
+            final String line = lines.next();
+            if (!line.isEmpty()) {
+                currentLine = line;
+                break;
+            }
+        }
+        if (currentLine == null) {
+            return false;
+        }
+
+        final int contigEnd = currentLine.indexOf('\t');
+        final int positionEnd = contigEnd < 0 ? -1 : currentLine.indexOf('\t', contigEnd + 1);
+        if (positionEnd < 0) {
+            throw new UserException.MalformedFile(featureInput.toPath(), "Found a VCF record with fewer than two columns: " + currentLine);
+        }
+        currentContigIndex = getContigIndex(currentLine.substring(0, contigEnd));
+        try {
+            currentStart = Integer.parseInt(currentLine.substring(contigEnd + 1, positionEnd));
+        } catch (final NumberFormatException e) {
+            throw new UserException.MalformedFile(featureInput.toPath(), "Found a VCF record with a non-numeric POS: " + currentLine, e);
+        }
+        return true;
+    }
+
+    private int getContigIndex(final String contig) {
+        if (mergeDictionary == null) {
+            return 0;
+        }
+        final int contigIndex = mergeDictionary.getSequenceIndex(contig);
+        if (contigIndex < 0) {
+            throw new UserException.MalformedFile(featureInput.toPath(),
+                    "Found a record on contig " + contig + ", which is not in the merged sequence dictionary of the inputs");
+        }
+        return contigIndex;
+    }
+
+    private AbstractVCFCodec newTextCodec() {
+        try {
+            return textCodecClass.getDeclaredConstructor().newInstance();
+        } catch (final InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new GATKException("Unable to automatically instantiate codec " + textCodecClass.getName());
+        }
+    }
+
+    private FeatureDataSource<VariantContext> newFeatureDataSource(final int lookaheadBases) {
+        return new FeatureDataSource<>(featureInput, lookaheadBases, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference);
+    }
+}
@@ -50,6 +50,18 @@ public abstract class LocusWalker extends WalkerBase {
         return false;
     }
 
+    /**
+     * Should the AlignmentContexts passed to {@link #apply} be backed by reusable primitive arrays
+     * (see {@link AlignmentContext#getColumnarPileup()}) rather than by one PileupElement object per read?
+     * Tools that opt in by overriding to return {@code true} avoid most per-locus allocation, and still get the
+     * object-based pileup from {@link AlignmentContext#getBasePileup()} on demand, but must not keep the
+     * AlignmentContext or its columnar pileup beyond the call to {@link #apply} (ReadPileups obtained from it may
+     * be kept).
+     */
+    protected boolean useColumnarPileups() {
+        return false;
+    }
+
     /**
      * LocusWalkers requires read sources
      */
@@ -155,15 +167,20 @@ public abstract class LocusWalker extends WalkerBase {
     public void traverse() {
         final CountingReadFilter countedFilter = makeReadFilter();
         final Iterator<AlignmentContext> iterator = getAlignmentContextIterator(countedFilter);
+        final TraversalProfiler.Timer applyTimer = getTraversalProfiler().getTimer(TraversalProfiler.APPLY_TIMER);
 
         // iterate over each alignment, and apply the function
         iterator.forEachRemaining(alignmentContext -> {
                         final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
+                        final long applyStart = applyTimer.start();
                         apply(alignmentContext, new ReferenceContext(reference, alignmentInterval), new FeatureContext(features, alignmentInterval));
+                        applyTimer.stop(applyStart);
+                        alignmentContext.release();
                         progressMeter.update(alignmentInterval);
                 }
             );
         logger.info(countedFilter.getSummaryLine());
+        recordReadFilterCounts(countedFilter);
     }
 
     /**
@@ -187,6 +204,7 @@ public abstract class LocusWalker extends WalkerBase {
         alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
         alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
         alignmentContextIteratorBuilder.setIncludeNs(includeNs());
+        alignmentContextIteratorBuilder.setUseColumnarPileups(useColumnarPileups());
 
         return alignmentContextIteratorBuilder.build(
                 readIterator, header, userIntervals, getBestAvailableSequenceDictionary(),
@@ -52,6 +52,7 @@ public abstract class LocusWalkerByInterval extends LocusWalker {
         iterator.forEachRemaining(alignmentContext -> {
                     final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
                     apply(alignmentContext, new ReferenceContext(reference, alignmentInterval), new FeatureContext(features, alignmentInterval));
+                    alignmentContext.release();
                     progressMeter.update(alignmentInterval);
                 }
         );
@@ -59,6 +60,7 @@ public abstract class LocusWalkerByInterval extends LocusWalker {
             onIntervalEnd(l);
         }
         logger.info(countedFilter.getSummaryLine());
+        recordReadFilterCounts(countedFilter);
     }
 
     @Override
@@ -37,15 +37,44 @@ import java.util.stream.Collectors;
  * -Targeted queries by one interval at a time. This also requires the files to have been indexed using
  *  the bundled tool IndexFeatureFile. Targeted queries by one interval at a time are unaffected by
  *  any intervals for full traversal set via {@link #setIntervalsForTraversal(List)}.
+ *
+ * By default each input is backed by its own FeatureDataSource for the lifetime of this data source, and the inputs
+ * are merged with a comparator-based iterator. When constructed in streaming merge mode, each input is instead backed
+ * by a {@link LazyVariantSource} that is opened only while its records are needed, and the inputs are merged by a
+ * {@link StreamingVariantMerger}, so that file handles and decoded records scale with the number of inputs that
+ * overlap the current position rather than with the total number of inputs. This is intended for merging large
+ * numbers of inputs, eg., when combining thousands of GVCFs. Queries by interval keep up to
+ * {@link #MAX_OPEN_QUERY_SOURCES} inputs open between queries.
  */
 public final class MultiVariantDataSource implements GATKDataSource<VariantContext>, AutoCloseable {
     private static final Logger logger = LogManager.getLogger(MultiVariantDataSource.class);
 
+    /**
+     * Maximum number of inputs kept open for queries by interval in streaming merge mode. Beyond this, the least
+     * recently queried inputs are closed, and reopened by their next query.
+     */
+    public static final int MAX_OPEN_QUERY_SOURCES = 64;
+
     /**
      * List of FeatureDataSource objects aggregated by this MultiVariantDataSource
      */
     final private List<FeatureDataSource<VariantContext>> featureDataSources = new ArrayList<FeatureDataSource<VariantContext>>();
 
+    /**
+     * List of LazyVariantSource objects aggregated by this MultiVariantDataSource in streaming merge mode (empty otherwise)
+     */
+    final private List<LazyVariantSource> lazySources = new ArrayList<>();
+
+    /**
+     * Inputs open for queries by interval in streaming merge mode, in least-recently-queried to most-recently-queried order
+     */
+    final private LinkedHashSet<LazyVariantSource> openQuerySources = new LinkedHashSet<>();
+
+    /**
+     * Intervals for traversal in streaming merge mode, applied to each input as it is opened (null if unrestricted)
+     */
+    private List<SimpleInterval> intervalsForTraversal;
+
     /**
      * Merged VCF header used for this (aggregate) source, derived from the individual sources.
      */
@@ -82,13 +111,42 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      * @param reference reference to use when creating FeatureDataSources, may be null, only needed by GenomicsDB
      */
     public MultiVariantDataSource(final List<FeatureInput<VariantContext>> featureInputs, final int queryLookaheadBases, final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final Path reference) {
+        this(featureInputs, queryLookaheadBases, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference, false);
+    }
+
+    /**
+     * Creates a MultiVariantDataSource backed by the provided FeatureInputs, optionally in streaming merge mode.
+     *
+     * @param featureInputs List of FeatureInput<VariantContext>> specifying sources of VariantContexts
+     * @param queryLookaheadBases look ahead this many bases during queries that produce cache misses
+     * @param cloudPrefetchBuffer  MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param reference reference to use when creating FeatureDataSources, may be null, only needed by GenomicsDB
+     * @param streamingMerge if true, open each input only while its records are needed, and merge the inputs with a
+     *                       {@link StreamingVariantMerger} (see the notes to the class as a whole)
+     */
+    public MultiVariantDataSource(final List<FeatureInput<VariantContext>> featureInputs, final int queryLookaheadBases, final int cloudPrefetchBuffer,
+                                  final int cloudIndexPrefetchBuffer, final Path reference, final boolean streamingMerge) {
         Utils.validateArg(queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
         Utils.validateArg(featureInputs != null && featureInputs.size() > 0, "FeatureInputs list must be non-null and non-empty");
 
-        featureInputs.forEach(
-                featureInput -> featureDataSources.add(
-                        new FeatureDataSource<>(featureInput, queryLookaheadBases, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                                reference)));
+        if (streamingMerge) {
+            for (int i = 0; i < featureInputs.size(); i++) {
+                lazySources.add(new LazyVariantSource(featureInputs.get(i), i, queryLookaheadBases, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference));
+            }
+        } else {
+            featureInputs.forEach(
+                    featureInput -> featureDataSources.add(
+                            new FeatureDataSource<>(featureInput, queryLookaheadBases, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                                    reference)));
+        }
+        final List<String> names = getSourceNames();
+        final List<VCFHeader> headers = streamingMerge ?
+                lazySources.stream().map(LazyVariantSource::getHeader).collect(Collectors.toList()) :
+                featureDataSources.stream().map(ds -> (VCFHeader) ds.getHeader()).collect(Collectors.toList());
+        final List<SAMSequenceDictionary> dictionaries = streamingMerge ?
+                lazySources.stream().map(LazyVariantSource::getSequenceDictionary).collect(Collectors.toList()) :
+                featureDataSources.stream().map(FeatureDataSource::getSequenceDictionary).collect(Collectors.toList());
 
         // Ensure that the merged header and sequence dictionary that we use are in sync with each
         // other, and reflect the actual dictionaries used to do validation:
@@ -98,9 +156,12 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
         // 2) Create and cache a merged header using versions of the individual headers from each data source that
         //    have been updated to include the actual dictionary returned from that data source
         //
-        validateAllSequenceDictionaries();
-        mergedHeader = getMergedHeader();
-        mergedSamples = getSortedSamples();
+        validateAllSequenceDictionaries(names, dictionaries);
+        mergedHeader = getMergedHeader(headers, dictionaries);
+        mergedSamples = getSortedSamples(names, headers);
+
+        // The individual headers and dictionaries are not needed past this point
+        lazySources.forEach(LazyVariantSource::releaseHeaderAndDictionary);
         if ((mergedHeader == null || mergedHeader.getSequenceDictionary() == null) && featureInputs.size() > 1) {
             throw new UserException(
                     "No sequence dictionary was found for any input. When using multiple inputs, at least one input " +
@@ -142,6 +203,8 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      */
     public void setIntervalsForTraversal( final List<SimpleInterval> intervals ) {
         featureDataSources.forEach(ds -> ds.setIntervalsForTraversal(intervals));
+        // Treat null and empty interval lists the same
+        intervalsForTraversal = (intervals != null && !intervals.isEmpty()) ? intervals : null;
     }
 
     /**
@@ -154,6 +217,11 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      */
     @Override
     public Iterator<VariantContext> iterator() {
+        if (isStreamingMerge()) {
+            closeOpenIterationIfNecessary();
+            currentIterator = new StreamingVariantMerger(lazySources, getSequenceDictionary(), intervalsForTraversal);
+            return currentIterator;
+        }
         return getMergedIteratorFromDataSources(ds -> ds.iterator());
     }
 
@@ -176,9 +244,46 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      */
     @Override
     public Iterator<VariantContext> query( final SimpleInterval interval ) {
+        if (isStreamingMerge()) {
+            return queryLazySources(interval);
+        }
         return getMergedIteratorFromDataSources(ds -> ds.queryAndPrefetch(interval).iterator());
     }
 
+    /**
+     * Query each input in turn and sort the combined results. The sort is stable, so records at the same locus stay
+     * in the order of their inputs. Inputs stay open for later queries, up to {@link #MAX_OPEN_QUERY_SOURCES} of
+     * them, so that a walker querying once per site does not reopen every input each time.
+     */
+    private Iterator<VariantContext> queryLazySources(final SimpleInterval interval) {
+        closeOpenIterationIfNecessary();
+
+        final List<VariantContext> overlapping = new ArrayList<>();
+        for (final LazyVariantSource source : lazySources) {
+            overlapping.addAll(source.query(interval));
+            // move the input to the most-recently-queried end
+            openQuerySources.remove(source);
+            openQuerySources.add(source);
+            if (openQuerySources.size() > MAX_OPEN_QUERY_SOURCES) {
+                final Iterator<LazyVariantSource> leastRecentlyQueried = openQuerySources.iterator();
+                leastRecentlyQueried.next().closeQuerySource();
+                leastRecentlyQueried.remove();
+            }
+        }
+        if (lazySources.size() > 1) {
+            overlapping.sort(new VariantContextComparator(getSequenceDictionary()));
+        }
+        currentIterator = getCloseableIteratorWrapper(overlapping.iterator());
+        return currentIterator;
+    }
+
+    /**
+     * @return true if this data source was created in streaming merge mode
+     */
+    public boolean isStreamingMerge() {
+        return !lazySources.isEmpty();
+    }
+
     /**
      * Close any existing iterator, create a new iterator and update the local cached iterator reference.
      * @param iteratorFromSource function to retrieve individual iterator, to be applied to each data source
@@ -210,10 +315,16 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      */
     public String getName() {
         return "MultiVariantDataSource: ("
-                + Utils.join(", ", featureDataSources.stream().map(fds -> fds.getName()).collect(Collectors.toList()))
+                + Utils.join(", ", getSourceNames())
                 + ")";
     }
 
+    private List<String> getSourceNames() {
+        return isStreamingMerge() ?
+                lazySources.stream().map(LazyVariantSource::getName).collect(Collectors.toList()) :
+                featureDataSources.stream().map(fds -> fds.getName()).collect(Collectors.toList());
+    }
+
     /**
      * Permanently close this data source, invalidating any open iteration over it, and making it invalid for future
      * iterations and queries.
@@ -222,32 +333,34 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
     public void close() {
         closeOpenIterationIfNecessary();
         featureDataSources.forEach(dataSource -> dataSource.close());
-    }
-
-    private SAMSequenceDictionary getMergedSequenceDictionary(VCFHeader header) {
-        return header != null ? header.getSequenceDictionary() : null;
+        lazySources.forEach(LazyVariantSource::close);
+        openQuerySources.forEach(LazyVariantSource::closeQuerySource);
+        openQuerySources.clear();
     }
 
     /**
      * Merge and sort the samples from each header requiring unique samples
      */
-    private SortedSet<String> getSortedSamples() {
-        final Map<String, VCFHeader> headers = featureDataSources
-                .stream()
-                .collect(Collectors.toMap(ds -> ds.getName(), ds -> (VCFHeader) ds.getHeader()));
-        
-        return VcfUtils.getSortedSampleSet(headers, GATKVariantContextUtils.GenotypeMergeType.REQUIRE_UNIQUE);
+    private SortedSet<String> getSortedSamples(final List<String> names, final List<VCFHeader> headers) {
+        final Map<String, VCFHeader> headersByName = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (headersByName.put(names.get(i), headers.get(i)) != null) {
+                throw new IllegalStateException("Duplicate key " + names.get(i));
+            }
+        }
+
+        return VcfUtils.getSortedSampleSet(headersByName, GATKVariantContextUtils.GenotypeMergeType.REQUIRE_UNIQUE);
     }
 
     /**
      * Update each individual header with the sequence dictionary returned by the corresponding data source;
      * then merge the resulting headers.
      */
-    private VCFHeader getMergedHeader() {
-        final List<VCFHeader> headers = featureDataSources
-                .stream()
-                .map(ds -> getHeaderWithUpdatedSequenceDictionary(ds))
-                .collect(Collectors.toList());
+    private VCFHeader getMergedHeader(final List<VCFHeader> sourceHeaders, final List<SAMSequenceDictionary> sourceDictionaries) {
+        final List<VCFHeader> headers = new ArrayList<>(sourceHeaders.size());
+        for (int i = 0; i < sourceHeaders.size(); i++) {
+            headers.add(getHeaderWithUpdatedSequenceDictionary(sourceHeaders.get(i), sourceDictionaries.get(i)));
+        }
 
         // Now merge the headers using htsjdk, which is pretty promiscuous, and which only works properly
         // because of the cross-dictionary validation done in validateAllSequenceDictionaries.
@@ -262,10 +375,9 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      * one that was embedded in the input file itself), so get the embedded one from the data source and
      * update it to include the actual sequence dictionary.
      */
-    private VCFHeader getHeaderWithUpdatedSequenceDictionary(final FeatureDataSource<VariantContext> dataSource) {
-        final VCFHeader header = (VCFHeader) dataSource.getHeader();
-        if (header.getSequenceDictionary() == null && dataSource.getSequenceDictionary() != null) {
-            header.setSequenceDictionary(dataSource.getSequenceDictionary());
+    private VCFHeader getHeaderWithUpdatedSequenceDictionary(final VCFHeader header, final SAMSequenceDictionary dictionary) {
+        if (header.getSequenceDictionary() == null && dictionary != null) {
+            header.setSequenceDictionary(dictionary);
         }
         return header;
     }
@@ -276,35 +388,35 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      * same length (and md5, when a value is present for that contig in both dictionaries) in every other dictionary
      * in which its present.
      */
-    private void validateAllSequenceDictionaries() {
-        final Map<String, FeatureDataSource<VariantContext>> contigMap = new HashMap<>();
-        featureDataSources.forEach(
-            ds -> {
-                final SAMSequenceDictionary dictionary = ds.getSequenceDictionary();
-                if (dictionary == null) {
-                    logger.warn(
-                            "A sequence dictionary is required for each input when using multiple inputs, and one could" +
-                            " not be obtained for feature input: " + ds.getName() +
-                            ". The input may not exist or may not have a valid header");
-                } else {
-                    dictionary.getSequences().forEach(
-                        sourceSequence -> {
-                            final String sourceSequenceName = sourceSequence.getSequenceName();
-                            final FeatureDataSource<VariantContext> previousDataSource = contigMap.getOrDefault(sourceSequenceName, null);
-                            if (previousDataSource != null) {
-                                final SAMSequenceDictionary previousDictionary = previousDataSource.getSequenceDictionary();
-                                final SAMSequenceRecord previousSequence = previousDictionary.getSequence(sourceSequenceName);
-                                validateSequenceDictionaryRecords(
-                                        ds.getName(), dictionary, sourceSequence,
-                                        previousDataSource.getName(), previousDictionary, previousSequence);
-                            } else {
-                                contigMap.put(sourceSequenceName, ds);
-                            }
+    private void validateAllSequenceDictionaries(final List<String> names, final List<SAMSequenceDictionary> dictionaries) {
+        final Map<String, Integer> contigMap = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            final String name = names.get(i);
+            final SAMSequenceDictionary dictionary = dictionaries.get(i);
+            if (dictionary == null) {
+                logger.warn(
+                        "A sequence dictionary is required for each input when using multiple inputs, and one could" +
+                        " not be obtained for feature input: " + name +
+                        ". The input may not exist or may not have a valid header");
+            } else {
+                final int sourceIndex = i;
+                dictionary.getSequences().forEach(
+                    sourceSequence -> {
+                        final String sourceSequenceName = sourceSequence.getSequenceName();
+                        final Integer previousIndex = contigMap.getOrDefault(sourceSequenceName, null);
+                        if (previousIndex != null) {
+                            final SAMSequenceDictionary previousDictionary = dictionaries.get(previousIndex);
+                            final SAMSequenceRecord previousSequence = previousDictionary.getSequence(sourceSequenceName);
+                            validateSequenceDictionaryRecords(
+                                    name, dictionary, sourceSequence,
+                                    names.get(previousIndex), previousDictionary, previousSequence);
+                        } else {
+                            contigMap.put(sourceSequenceName, sourceIndex);
                         }
-                    );
-                }
+                    }
+                );
             }
-        );
+        }
     }
 
     // Cross validate the length and md5 for a pair of sequence records.
@@ -3,6 +3,8 @@ package org.broadinstitute.hellbender.engine;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.MultiVariantInputArgumentCollection;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
@@ -21,9 +23,20 @@ import java.util.Spliterator;
  *
  * VariantWalker authors must implement the {@link #apply} method to process each variant, and may optionally implement
  * {@link #onTraversalStart}, {@link #onTraversalSuccess} and/or {@link #closeTool}.
+ *
+ * With {@link #streamingVariantMerge} set, the driving variants are merged in streaming mode (see
+ * {@link MultiVariantDataSource}), which keeps memory and open file handles proportional to the inputs overlapping
+ * the current position, and is recommended when there are many inputs. In that mode the driving variants are not
+ * registered with the FeatureManager unless {@link #drivingVariantsRequireFeatureContext()} returns true.
  */
 public abstract class MultiVariantWalker extends VariantWalkerBase {
 
+    public static final String STREAMING_VARIANT_MERGE_LONG_NAME = "streaming-variant-merge";
+
+    @Advanced
+    @Argument(fullName = STREAMING_VARIANT_MERGE_LONG_NAME, doc = "Merge the driving variant inputs with a streaming merge that opens each input only while its records are needed", optional = true)
+    public boolean streamingVariantMerge = false;
+
     @ArgumentCollection
     protected MultiVariantInputArgumentCollection multiVariantInputArgumentCollection = getMultiVariantInputArgumentCollection();
 
@@ -61,6 +74,7 @@ public abstract class MultiVariantWalker extends VariantWalkerBase {
 
     @Override
     protected void initializeDrivingVariants() {
+        final boolean registerWithFeatureManager = !streamingVariantMerge || drivingVariantsRequireFeatureContext();
         multiVariantInputArgumentCollection.getDrivingVariantPaths().stream().forEach(
                 f -> {
                     FeatureInput<VariantContext> featureInput = new FeatureInput<>(f);
@@ -71,19 +85,31 @@ public abstract class MultiVariantWalker extends VariantWalkerBase {
 
                     // Add each driving variants FeatureInput to the feature manager so that it can be queried, using a lookahead value
                     // of 0 to avoid caching because of windowed queries that need to "look behind" as well.
-                    features.addToFeatureSources(0, featureInput, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                                 referenceArguments.getReferencePath());
+                    if (registerWithFeatureManager) {
+                        features.addToFeatureSources(0, featureInput, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                                     referenceArguments.getReferencePath());
+                    }
                 }
         );
 
         // Create a (MultiVariantDataSource) FeatureDataSource for the driving variants inputs using the
         // cache lookahead value from getDrivingVariantCacheLookAheadBases()
         drivingVariants = new MultiVariantDataSource(drivingVariantsFeatureInputs, getDrivingVariantCacheLookAheadBases(), cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                                     referenceArguments.getReferencePath());
+                                                     referenceArguments.getReferencePath(), streamingVariantMerge);
 
         // Note: the intervals for the driving variants are set in onStartup()
     }
 
+    /**
+     * Whether this tool queries its driving variants through the {@link FeatureContext} passed to {@link #apply}
+     * (eg., via {@link #getDrivingVariantsFeatureInputs()}). If so, the driving variants are registered with the
+     * FeatureManager even in streaming merge mode, at the cost of keeping every input open for the whole traversal.
+     * The default implementation returns false.
+     */
+    protected boolean drivingVariantsRequireFeatureContext() {
+        return false;
+    }
+
     /**
      * Returns a list of feature inputs used for the driving variants for this source.
      */
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
@@ -65,11 +66,16 @@ public abstract class MultiplePassReadWalker extends ReadWalker {
         });
 
         logger.info(countedFilter.getSummaryLine());
+        recordReadFilterCounts(countedFilter);
         passCount++;
     }
 
     @Override
     public final void traverse() {
+        if ( traversalThreads > 1 ) {
+            throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, String.valueOf(traversalThreads),
+                    "multiple traversal threads are not supported by " + getClass().getSimpleName());
+        }
         countedFilter = makeReadFilter();
         traverseReads();
     }
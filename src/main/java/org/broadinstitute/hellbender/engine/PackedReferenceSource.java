@@ -0,0 +1,76 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.fasta.PackedReferenceFile;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Manages queries over reference data stored in a memory-mapped {@link PackedReferenceFile}.
+ *
+ * Returns exactly the same bases as a {@link ReferenceFileSource} over the FASTA the packed file was created from,
+ * but each query is a copy out of the page cache rather than a parse of FASTA text, and all processes on a host
+ * that use the same packed reference share a single in-memory copy of it.
+ *
+ * Supports targeted queries over the reference by interval, but does not
+ * yet support complete iteration over the entire reference.
+ */
+public final class PackedReferenceSource implements ReferenceDataSource {
+
+    private final PackedReferenceFile reference;
+
+    /**
+     * Initialize this data source using a packed reference file.
+     *
+     * @param packedReferencePath packed reference file created by {@link PackedReferenceFile#create}
+     */
+    public PackedReferenceSource(final Path packedReferencePath) {
+        reference = new PackedReferenceFile(Utils.nonNull(packedReferencePath));
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
+        return reference.getSubsequenceAt(contig, start, stop);
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return reference.getSequenceDictionary();
+    }
+
+    /**
+     * Permanently close this data source
+     */
+    @Override
+    public void close() {
+        reference.close();
+    }
+}
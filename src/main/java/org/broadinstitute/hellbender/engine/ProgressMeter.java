@@ -318,4 +318,11 @@ public final class ProgressMeter {
         return stopped;
     }
 
+    /**
+     * Returns the number of records processed since the meter was started.
+     */
+    public long getNumRecordsProcessed() {
+        return numRecordsProcessed;
+    }
+
 }
@@ -1,13 +1,28 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A ReadWalker is a tool that processes a single read at a time from one or multiple sources of reads, with
@@ -23,9 +38,32 @@ import java.util.List;
  *
  * ReadWalker authors must implement the apply() method to process each read, and may optionally implement
  * onTraversalStart() and/or onTraversalSuccess(). See the PrintReadsWithReference walker for an example.
+ *
+ * When run with more than one traversal thread (see {@link #traversalThreads}), the reads are decoded on the main
+ * traversal thread and handed out in batches of {@link #readBatchSize} reads to a pool of worker threads, which run
+ * the pre-filter transformer, the read filter and the post-filter transformer. The surviving reads are then passed
+ * to {@link #apply} on the main traversal thread, in the original input order. In this mode:
+ * - Each worker thread owns the transformer and filter instances returned by its own calls to
+ *   {@link #makePreReadFilterTransformer()}, {@link #makeReadFilter()} and {@link #makePostReadFilterTransformer()},
+ *   so these methods must return new instances that do not share mutable state with each other or with the tool.
+ * - {@link #apply} and all other tool state are confined to the main traversal thread, as in single-threaded mode.
+ * Tools that want their per-read work to scale with the number of threads should therefore do it in a read
+ * transformer rather than in {@link #apply}.
  */
 public abstract class ReadWalker extends WalkerBase {
 
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+    public static final String READ_BATCH_SIZE_LONG_NAME = "traversal-read-batch-size";
+    public static final int DEFAULT_READ_BATCH_SIZE = 1000;
+
+    @Advanced
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads used to transform and filter reads concurrently", optional = true, minValue = 1)
+    public int traversalThreads = 1;
+
+    @Advanced
+    @Argument(fullName = READ_BATCH_SIZE_LONG_NAME, doc = "Number of reads handed to each traversal thread at a time when running with more than one traversal thread", optional = true, minValue = 1)
+    public int readBatchSize = DEFAULT_READ_BATCH_SIZE;
+
     @Override
     public boolean requiresReads() {
         return true;
@@ -87,20 +125,123 @@ public abstract class ReadWalker extends WalkerBase {
      */
     @Override
     public void traverse() {
+        if ( traversalThreads > 1 ) {
+            traverseInParallel();
+            return;
+        }
+
         // Process each read in the input stream.
         // Supply reference bases spanning each read, if a reference is available.
         final CountingReadFilter countedFilter = makeReadFilter();
+        final TraversalProfiler.Timer applyTimer = getTraversalProfiler().getTimer(TraversalProfiler.APPLY_TIMER);
         getTransformedReadStream(countedFilter)
-                .forEach(read -> {
-                    final SimpleInterval readInterval = getReadInterval(read);
-                    apply(read,
-                          new ReferenceContext(reference, readInterval), // Will create an empty ReferenceContext if reference or readInterval == null
-                          new FeatureContext(features, readInterval));   // Will create an empty FeatureContext if features or readInterval == null
-
-                    progressMeter.update(readInterval);
-                });
+                .forEach(read -> applyToRead(read, applyTimer));
 
         logger.info(countedFilter.getSummaryLine());
+        recordReadFilterCounts(countedFilter);
+    }
+
+    private void applyToRead(final GATKRead read, final TraversalProfiler.Timer applyTimer) {
+        final SimpleInterval readInterval = getReadInterval(read);
+        final long applyStart = applyTimer.start();
+        apply(read,
+              new ReferenceContext(reference, readInterval), // Will create an empty ReferenceContext if reference or readInterval == null
+              new FeatureContext(features, readInterval));   // Will create an empty FeatureContext if features or readInterval == null
+        applyTimer.stop(applyStart);
+
+        progressMeter.update(readInterval);
+    }
+
+    /**
+     * Multi-threaded implementation of read traversal.
+     *
+     * This thread decodes the reads into batches and hands them to a pool of {@link #traversalThreads} threads, each
+     * owning a {@link ReadBatchWorker}. At most twice as many batches as there are threads are in flight at any time.
+     * Batches are sequenced back into input order on this thread, which then calls {@link #apply} on every read that
+     * passed the filter.
+     */
+    private void traverseInParallel() {
+        final BlockingQueue<ReadBatchWorker> idleWorkers = new ArrayBlockingQueue<>(traversalThreads);
+        final List<ReadBatchWorker> allWorkers = new ArrayList<>(traversalThreads);
+        for ( int i = 0; i < traversalThreads; i++ ) {
+            final ReadBatchWorker worker = new ReadBatchWorker();
+            allWorkers.add(worker);
+            idleWorkers.add(worker);
+        }
+
+        final TraversalProfiler.Timer applyTimer = getTraversalProfiler().getTimer(TraversalProfiler.APPLY_TIMER);
+        final ExecutorService executor = Executors.newFixedThreadPool(traversalThreads,
+                new ThreadFactoryBuilder().setNameFormat("read-traversal-%d").setDaemon(true).build());
+        try {
+            final Iterator<GATKRead> readIterator = reads.iterator();
+            final Queue<Future<List<GATKRead>>> pendingBatches = new ArrayDeque<>();
+            final int maxPendingBatches = 2 * traversalThreads;
+
+            while ( readIterator.hasNext() || ! pendingBatches.isEmpty() ) {
+                while ( readIterator.hasNext() && pendingBatches.size() < maxPendingBatches ) {
+                    final List<GATKRead> batch = new ArrayList<>(readBatchSize);
+                    while ( readIterator.hasNext() && batch.size() < readBatchSize ) {
+                        batch.add(readIterator.next());
+                    }
+                    pendingBatches.add(executor.submit(() -> {
+                        final ReadBatchWorker worker = idleWorkers.take();
+                        try {
+                            return worker.processBatch(batch);
+                        } finally {
+                            idleWorkers.add(worker);
+                        }
+                    }));
+                }
+
+                getBatchResult(pendingBatches.remove()).forEach(read -> applyToRead(read, applyTimer));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        allWorkers.forEach(worker -> {
+            logger.info(worker.readFilter.getSummaryLine());
+            recordReadFilterCounts(worker.readFilter);
+        });
+    }
+
+    private static List<GATKRead> getBatchResult(final Future<List<GATKRead>> batchResult) {
+        try {
+            return batchResult.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for a batch of reads to be processed", e);
+        } catch ( ExecutionException e ) {
+            // rethrow exceptions from the traversal threads unchanged, so that user errors are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error processing a batch of reads", e.getCause());
+        }
+    }
+
+    /**
+     * The transformers and read filter owned by a single traversal thread. Workers are created on the main traversal
+     * thread, but only ever used by one thread at a time.
+     */
+    private final class ReadBatchWorker {
+        private final ReadTransformer preReadFilterTransformer = makePreReadFilterTransformer();
+        private final CountingReadFilter readFilter = makeReadFilter();
+        private final ReadTransformer postReadFilterTransformer = makePostReadFilterTransformer();
+
+        /**
+         * @return the reads in the batch that pass the read filter, transformed and in their original order
+         */
+        private List<GATKRead> processBatch(final List<GATKRead> batch) {
+            final List<GATKRead> processed = new ArrayList<>(batch.size());
+            for ( final GATKRead read : batch ) {
+                final GATKRead transformed = preReadFilterTransformer.apply(read);
+                if ( readFilter.test(transformed) ) {
+                    processed.add(postReadFilterTransformer.apply(transformed));
+                }
+            }
+            return processed;
+        }
     }
 
     /**
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.engine;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.MergingSamRecordIterator;
 import htsjdk.samtools.SAMException;
 import htsjdk.samtools.SAMFileHeader;
@@ -20,6 +21,7 @@ import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.SAMRecordReadAheadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
@@ -35,6 +37,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -91,6 +95,25 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Maximum number of batches of reads to read ahead of the consumer for each input, or 0 if read-ahead is disabled.
+     * See {@link #enableReadAhead}.
+     */
+    private int readAheadDepth = 0;
+
+    /**
+     * Runs one background reader per input while a read-ahead iteration is open. Null if read-ahead is disabled.
+     */
+    private ExecutorService readAheadReaderPool;
+
+    /**
+     * Fully decodes batches of read-ahead records in parallel. Null if read-ahead is disabled or records are
+     * left to be decoded lazily by the consumer.
+     */
+    private ExecutorService readAheadDecoderPool;
+
+    private final SAMRecordReadAheadIterator.ReadAheadStatistics readAheadStatistics = new SAMRecordReadAheadIterator.ReadAheadStatistics();
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -266,6 +289,44 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return indicesAvailable;
     }
 
+    /**
+     * Read (and optionally decode) reads ahead of the consumer on background threads for all subsequent iterations
+     * and queries over this data source. Each input is read by its own background thread, so multiple inputs are
+     * decompressed concurrently, and up to {@code depth} batches of {@link SAMRecordReadAheadIterator#BATCH_SIZE}
+     * reads per input are buffered ahead of the consumer.
+     *
+     * Must be called before any iteration is started. Cumulative consumer stall metrics are available via
+     * {@link #getReadAheadStatistics} and are logged when this data source is closed.
+     *
+     * @param depth maximum number of batches of reads to buffer per input; 0 disables read-ahead
+     * @param decoderThreads number of threads used to fully decode buffered reads in parallel; if 0, reads are
+     *                       decoded lazily on the consumer thread as usual
+     */
+    public void enableReadAhead( final int depth, final int decoderThreads ) {
+        Utils.validateArg(depth >= 0, "read-ahead depth must be >= 0");
+        Utils.validateArg(decoderThreads >= 0, "number of read-ahead decoder threads must be >= 0");
+        Utils.validate(readers.values().stream().allMatch(it -> it == null), "cannot enable read-ahead while an iteration is open");
+        shutdownReadAheadPools();
+
+        readAheadDepth = depth;
+        if ( depth > 0 ) {
+            readAheadReaderPool = Executors.newCachedThreadPool(
+                    new ThreadFactoryBuilder().setNameFormat("reads-read-ahead-%d").setDaemon(true).build());
+            if ( decoderThreads > 0 ) {
+                readAheadDecoderPool = Executors.newFixedThreadPool(decoderThreads,
+                        new ThreadFactoryBuilder().setNameFormat("reads-decoder-%d").setDaemon(true).build());
+            }
+        }
+    }
+
+    /**
+     * @return cumulative read-ahead metrics for all iterations over this data source so far. All counts are zero
+     *         unless read-ahead was enabled via {@link #enableReadAhead}.
+     */
+    public SAMRecordReadAheadIterator.ReadAheadStatistics getReadAheadStatistics() {
+        return readAheadStatistics;
+    }
+
     /**
      * Restricts a traversal of this data source via {@link #iterator} to only return reads which overlap the given intervals.
      * Calls to {@link #query} are not affected by setting these intervals.
@@ -421,6 +482,11 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             } else {
                 readerEntry.setValue(readerEntry.getKey().iterator());
             }
+
+            if ( readAheadDepth > 0 ) {
+                readerEntry.setValue(new SAMRecordReadAheadIterator(readerEntry.getValue(), readAheadDepth,
+                        readAheadReaderPool, readAheadDecoderPool, readAheadStatistics));
+            }
         }
 
         // Create a merging iterator over all readers if necessary. In the case where there's only a single reader,
@@ -494,6 +560,11 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     public void close() {
         closePreviousIterationsIfNecessary();
 
+        if ( readAheadDepth > 0 ) {
+            logger.info("Read-ahead: " + readAheadStatistics);
+        }
+        shutdownReadAheadPools();
+
         try {
             for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
                 readerEntry.getKey().close();
@@ -517,6 +588,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         }
     }
 
+    private void shutdownReadAheadPools() {
+        if ( readAheadReaderPool != null ) {
+            readAheadReaderPool.shutdownNow();
+            readAheadReaderPool = null;
+        }
+        if ( readAheadDecoderPool != null ) {
+            readAheadDecoderPool.shutdownNow();
+            readAheadDecoderPool = null;
+        }
+    }
+
     // Return true if any input is has type==SAM_TYPE (is backed by a SamFileReader) since SamFileReader
     // doesn't support serial iterators and can't be serially re-traversed without re-initialization of the
     // reader
@@ -43,6 +43,16 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
         return new ReferenceFileSource(fastaPath, preserveAmbiguityCodesAndCapitalization);
     }
 
+    /**
+     * Initialize this data source using a packed reference file created by
+     * {@link org.broadinstitute.hellbender.utils.fasta.PackedReferenceFile#create}.
+     *
+     * @param packedReferencePath packed reference Path, on the local file system
+     */
+    public static ReferenceDataSource ofPacked(final Path packedReferencePath) {
+        return new PackedReferenceSource(packedReferencePath);
+    }
+
     /**
      * Initialize this data source using ReferenceBases and corresponding sequence dictionary.
      */
@@ -0,0 +1,152 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * A k-way merge of the records of many {@link LazyVariantSource}s into a single stream sorted by contig (in the
+ * order of the merged sequence dictionary) and start position. Records at the same locus are returned in the
+ * order of their inputs.
+ *
+ * The merge frontier is a priority queue holding each open input, keyed on the locus of its current record. Only
+ * the locus of that record is parsed while it waits in the queue; the record is decoded when it is returned from
+ * {@link #next()}. Inputs whose first record is known are opened only when the merge reaches that record, all
+ * the inputs that become due at the same point being opened together, and every input is closed as soon as it is
+ * exhausted. The open file handles and decoded records therefore scale with the number of inputs that overlap the
+ * current position, rather than with the total number of inputs.
+ */
+final class StreamingVariantMerger implements CloseableIterator<VariantContext> {
+
+    private static final Comparator<LazyVariantSource> FRONTIER_ORDER =
+            Comparator.comparingInt(LazyVariantSource::getCurrentContigIndex)
+                    .thenComparingInt(LazyVariantSource::getCurrentStart)
+                    .thenComparingInt(LazyVariantSource::getSourceIndex);
+
+    private final SAMSequenceDictionary dictionary;
+    private final List<SimpleInterval> intervals;
+
+    /**
+     * Open inputs, keyed on the locus of their current record
+     */
+    private final PriorityQueue<LazyVariantSource> frontier;
+
+    /**
+     * Inputs not yet opened, in order of the locus of their first record. Inputs whose first record is unknown
+     * come first, so that they are opened before anything is returned.
+     */
+    private final Deque<LazyVariantSource> unopened;
+
+    private boolean closed = false;
+
+    /**
+     * @param sources inputs to merge; none may be open
+     * @param dictionary dictionary giving the order of the contigs; may only be null when merging a single input
+     * @param intervals restrict the merge to records overlapping these intervals, or null for an unrestricted merge
+     */
+    StreamingVariantMerger(final List<LazyVariantSource> sources, final SAMSequenceDictionary dictionary, final List<SimpleInterval> intervals) {
+        Utils.nonEmpty(sources, "sources must be non-null and non-empty");
+        Utils.validateArg(dictionary != null || sources.size() == 1, "a sequence dictionary is required to merge more than one input");
+        this.dictionary = dictionary;
+        this.intervals = intervals;
+        this.frontier = new PriorityQueue<>(sources.size(), FRONTIER_ORDER);
+
+        final Comparator<LazyVariantSource> firstRecordOrder =
+                Comparator.comparing(LazyVariantSource::hasKnownFirstRecord)
+                        .thenComparingInt(source -> source.hasKnownFirstRecord() ? getContigIndex(source) : 0)
+                        .thenComparingInt(LazyVariantSource::getFirstStart)
+                        .thenComparingInt(LazyVariantSource::getSourceIndex);
+        this.unopened = sources.stream()
+                .filter(source -> !source.isKnownToBeEmpty())
+                .sorted(firstRecordOrder)
+                .collect(Collectors.toCollection(ArrayDeque::new));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        openDueSources();
+        return !frontier.isEmpty();
+    }
+
+    @Override
+    public VariantContext next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("hasNext should be called before next");
+        }
+
+        final LazyVariantSource source = frontier.poll();
+        final VariantContext record = source.takeCurrentRecord();
+        if (source.advance()) {
+            frontier.add(source);
+        } else {
+            source.close();
+        }
+        return record;
+    }
+
+    /**
+     * Open every input whose first record is at or before the head of the frontier (or, if the frontier is empty,
+     * the next batch of inputs sharing the earliest first record), and add those with records to the frontier.
+     */
+    private void openDueSources() {
+        while (!unopened.isEmpty() && (frontier.isEmpty() || isDue(unopened.peekFirst(), frontier.peek()))) {
+            final LazyVariantSource source = unopened.pollFirst();
+            source.open(intervals, dictionary);
+            if (source.advance()) {
+                frontier.add(source);
+            } else {
+                source.close();
+            }
+        }
+    }
+
+    private boolean isDue(final LazyVariantSource unopenedSource, final LazyVariantSource frontierHead) {
+        if (!unopenedSource.hasKnownFirstRecord()) {
+            return true;
+        }
+        final int contigIndex = getContigIndex(unopenedSource);
+        return contigIndex < frontierHead.getCurrentContigIndex() ||
+                (contigIndex == frontierHead.getCurrentContigIndex() && unopenedSource.getFirstStart() <= frontierHead.getCurrentStart());
+    }
+
+    private int getContigIndex(final LazyVariantSource source) {
+        if (dictionary == null) {
+            return 0;
+        }
+        final int contigIndex = dictionary.getSequenceIndex(source.getFirstContig());
+        if (contigIndex < 0) {
+            throw new UserException("Input " + source.getName() + " has a record on contig " + source.getFirstContig() +
+                    ", which is not in the merged sequence dictionary of the inputs");
+        }
+        return contigIndex;
+    }
+
+    /**
+     * Close all open inputs. Inputs that were never opened need no closing.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            final List<LazyVariantSource> openSources = new ArrayList<>(frontier);
+            frontier.clear();
+            unopened.clear();
+            openSources.forEach(LazyVariantSource::close);
+            closed = true;
+        }
+    }
+}
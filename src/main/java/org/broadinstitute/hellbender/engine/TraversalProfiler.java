@@ -0,0 +1,443 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Named timers and counters recording where a traversal spends its time, reported in a machine-readable summary at
+ * the end of the traversal and, optionally, as a periodic time series while it runs.
+ *
+ * Timers and counters are created on first use and may be updated concurrently from any thread. A disabled profiler
+ * hands out timers and counters that do nothing, so instrumented code never needs to check whether profiling was
+ * requested. Code on a per-record path should look its timers up once rather than by name for every record.
+ *
+ * Timers measure wall-clock time, so nested timers overlap: the time for a tool's apply() includes the time for every
+ * engine stage timed inside it. The time series is written in long format, one row per timer or counter per sample.
+ */
+public final class TraversalProfiler {
+    private static final Logger logger = LogManager.getLogger(TraversalProfiler.class);
+
+    /**
+     * Timer for the whole of {@link GATKTool#traverse}
+     */
+    public static final String TRAVERSAL_TIMER = "engine.traverse";
+
+    /**
+     * Timer for {@link GATKTool#onTraversalSuccess}
+     */
+    public static final String TRAVERSAL_SUCCESS_TIMER = "engine.onTraversalSuccess";
+
+    /**
+     * Timer for the tool's apply() method, for walkers that have one
+     */
+    public static final String APPLY_TIMER = "tool.apply";
+
+    /**
+     * Prefix for the counters reporting the number of reads rejected by each read filter
+     */
+    public static final String READ_FILTER_COUNTER_PREFIX = "readFilter.";
+
+    /**
+     * Report files with this extension are written as TSV, all others as JSON
+     */
+    public static final String TSV_EXTENSION = ".tsv";
+
+    /**
+     * Suffix appended to the report path to name the time series file
+     */
+    public static final String TIME_SERIES_SUFFIX = ".timeseries.tsv";
+
+    private static final Timer NO_OP_TIMER = new Timer("disabled", false);
+    private static final Counter NO_OP_COUNTER = new Counter("disabled", false);
+
+    /**
+     * A profiler that records nothing, for tools run without profiling
+     */
+    public static final TraversalProfiler DISABLED = new TraversalProfiler(false);
+
+    private final boolean enabled;
+    private final long creationTime = System.nanoTime();
+
+    // guarded by this
+    private final Map<String, Timer> timers = new LinkedHashMap<>();
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+
+    private ScheduledExecutorService timeSeriesExecutor;
+    private PrintWriter timeSeriesWriter;
+
+    /**
+     * @param enabled whether to record anything; if false, all timers and counters are no-ops
+     */
+    public TraversalProfiler(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the timer with the given name, created if this is its first use
+     */
+    public Timer getTimer(final String name) {
+        Utils.nonNull(name);
+        if ( ! enabled ) {
+            return NO_OP_TIMER;
+        }
+        synchronized ( this ) {
+            return timers.computeIfAbsent(name, n -> new Timer(n, true));
+        }
+    }
+
+    /**
+     * @return the counter with the given name, created if this is its first use
+     */
+    public Counter getCounter(final String name) {
+        Utils.nonNull(name);
+        if ( ! enabled ) {
+            return NO_OP_COUNTER;
+        }
+        synchronized ( this ) {
+            return counters.computeIfAbsent(name, n -> new Counter(n, true));
+        }
+    }
+
+    /**
+     * Time each call to a function (such as a read transformer) under the given timer name.
+     *
+     * @return the function itself if this profiler is disabled
+     */
+    public <T, R> Function<T, R> timeFunction(final String name, final Function<T, R> function) {
+        Utils.nonNull(function);
+        if ( ! enabled ) {
+            return function;
+        }
+        final Timer timer = getTimer(name);
+        return t -> {
+            final long start = timer.start();
+            try {
+                return function.apply(t);
+            } finally {
+                timer.stop(start);
+            }
+        };
+    }
+
+    /**
+     * Time each call to a predicate (such as a read filter) under the given timer name.
+     *
+     * @return the predicate itself if this profiler is disabled
+     */
+    public <T> Predicate<T> timePredicate(final String name, final Predicate<T> predicate) {
+        Utils.nonNull(predicate);
+        if ( ! enabled ) {
+            return predicate;
+        }
+        final Timer timer = getTimer(name);
+        return t -> {
+            final long start = timer.start();
+            try {
+                return predicate.test(t);
+            } finally {
+                timer.stop(start);
+            }
+        };
+    }
+
+    /**
+     * Time the production of each record by an iterator (such as the decoding of reads) under the given timer name.
+     *
+     * @return the iterator itself if this profiler is disabled
+     */
+    public <T> Iterator<T> timeIterator(final String name, final Iterator<T> iterator) {
+        Utils.nonNull(iterator);
+        if ( ! enabled ) {
+            return iterator;
+        }
+        final Timer timer = getTimer(name);
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                final long start = timer.start();
+                try {
+                    return iterator.hasNext();
+                } finally {
+                    timer.stopWithoutCounting(start);
+                }
+            }
+
+            @Override
+            public T next() {
+                final long start = timer.start();
+                try {
+                    return iterator.next();
+                } finally {
+                    timer.stop(start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Start writing a snapshot of all timers and counters to {@code output} every {@code secondsBetweenSamples}
+     * seconds, on a background thread, until {@link #stopTimeSeries} is called. Does nothing if this profiler is
+     * disabled.
+     */
+    public synchronized void startTimeSeries(final Path output, final double secondsBetweenSamples) {
+        Utils.nonNull(output);
+        Utils.validateArg(secondsBetweenSamples > 0, "the time between time series samples must be positive");
+        Utils.validate(timeSeriesExecutor == null, "the time series has already been started");
+        if ( ! enabled ) {
+            return;
+        }
+        try {
+            timeSeriesWriter = new PrintWriter(Files.newBufferedWriter(output));
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(output.toUri().toString(), "could not open the traversal profile time series", e);
+        }
+        timeSeriesWriter.println(String.join("\t", "elapsed_seconds", "type", "name", "count", "seconds"));
+        timeSeriesExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("traversal-profiler-%d").setDaemon(true).build());
+        final long periodMillis = Math.max(1L, Math.round(secondsBetweenSamples * 1000.0));
+        timeSeriesExecutor.scheduleAtFixedRate(this::writeTimeSeriesSample, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the time series started by {@link #startTimeSeries}, writing one final sample. Does nothing if no time
+     * series is running.
+     */
+    public void stopTimeSeries() {
+        final ScheduledExecutorService executor;
+        synchronized ( this ) {
+            executor = timeSeriesExecutor;
+        }
+        if ( executor == null ) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if ( ! executor.awaitTermination(1, TimeUnit.MINUTES) ) {
+                logger.warn("Timed out waiting for the traversal profile time series to finish writing");
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized ( this ) {
+            writeTimeSeriesSample();
+            timeSeriesWriter.close();
+            timeSeriesWriter = null;
+            timeSeriesExecutor = null;
+        }
+    }
+
+    private synchronized void writeTimeSeriesSample() {
+        if ( timeSeriesWriter == null ) {
+            return;
+        }
+        final String elapsed = formatSeconds(System.nanoTime() - creationTime);
+        for ( final Timer timer : timers.values() ) {
+            timeSeriesWriter.println(String.join("\t", elapsed, "timer", timer.getName(),
+                    Long.toString(timer.getCount()), formatSeconds(timer.getTotalNanos())));
+        }
+        for ( final Counter counter : counters.values() ) {
+            timeSeriesWriter.println(String.join("\t", elapsed, "counter", counter.getName(),
+                    Long.toString(counter.get()), "NA"));
+        }
+        timeSeriesWriter.flush();
+    }
+
+    /**
+     * Write a summary of all timers and counters to {@code output}, as TSV if its name ends with
+     * {@link #TSV_EXTENSION} and as JSON otherwise. Does nothing if this profiler is disabled.
+     */
+    public void writeSummary(final Path output) {
+        Utils.nonNull(output);
+        if ( ! enabled ) {
+            return;
+        }
+        final List<Timer> timerSnapshot;
+        final List<Counter> counterSnapshot;
+        synchronized ( this ) {
+            timerSnapshot = new ArrayList<>(timers.values());
+            counterSnapshot = new ArrayList<>(counters.values());
+        }
+        final long elapsedNanos = System.nanoTime() - creationTime;
+        try ( final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output)) ) {
+            if ( output.getFileName().toString().endsWith(TSV_EXTENSION) ) {
+                writeTsvSummary(writer, timerSnapshot, counterSnapshot, elapsedNanos);
+            } else {
+                writeJsonSummary(writer, timerSnapshot, counterSnapshot, elapsedNanos);
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(output.toUri().toString(), "could not write the traversal profile", e);
+        }
+        logger.info("Wrote traversal profile to " + output.toUri());
+    }
+
+    private static void writeTsvSummary(final PrintWriter writer, final List<Timer> timers, final List<Counter> counters, final long elapsedNanos) {
+        writer.println(String.join("\t", "type", "name", "count", "seconds", "mean_microseconds"));
+        writer.println(String.join("\t", "timer", "elapsed", "1", formatSeconds(elapsedNanos), "NA"));
+        for ( final Timer timer : timers ) {
+            writer.println(String.join("\t", "timer", timer.getName(), Long.toString(timer.getCount()),
+                    formatSeconds(timer.getTotalNanos()), formatMeanMicroseconds(timer)));
+        }
+        for ( final Counter counter : counters ) {
+            writer.println(String.join("\t", "counter", counter.getName(), Long.toString(counter.get()), "NA", "NA"));
+        }
+    }
+
+    private static void writeJsonSummary(final PrintWriter writer, final List<Timer> timers, final List<Counter> counters, final long elapsedNanos) {
+        writer.println("{");
+        writer.println("  \"elapsedSeconds\": " + formatSeconds(elapsedNanos) + ",");
+        writer.println("  \"timers\": [");
+        for ( int i = 0; i < timers.size(); i++ ) {
+            final Timer timer = timers.get(i);
+            writer.println("    {\"name\": " + jsonString(timer.getName())
+                    + ", \"count\": " + timer.getCount()
+                    + ", \"seconds\": " + formatSeconds(timer.getTotalNanos())
+                    + ", \"meanMicroseconds\": " + (timer.getCount() == 0 ? "null" : formatMeanMicroseconds(timer))
+                    + "}" + (i < timers.size() - 1 ? "," : ""));
+        }
+        writer.println("  ],");
+        writer.println("  \"counters\": [");
+        for ( int i = 0; i < counters.size(); i++ ) {
+            final Counter counter = counters.get(i);
+            writer.println("    {\"name\": " + jsonString(counter.getName())
+                    + ", \"value\": " + counter.get()
+                    + "}" + (i < counters.size() - 1 ? "," : ""));
+        }
+        writer.println("  ]");
+        writer.println("}");
+    }
+
+    private static String formatSeconds(final long nanos) {
+        return String.format("%.6f", nanos / 1e9);
+    }
+
+    private static String formatMeanMicroseconds(final Timer timer) {
+        return timer.getCount() == 0 ? "NA" : String.format("%.3f", timer.getTotalNanos() / 1e3 / timer.getCount());
+    }
+
+    private static String jsonString(final String s) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for ( final char c : s.toCharArray() ) {
+            if ( c == '"' || c == '\\' ) {
+                builder.append('\\').append(c);
+            } else if ( c < 0x20 ) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * Accumulates the wall-clock time and number of timed events for one named stage. Typical use is
+     *
+     * <pre>
+     *     final long start = timer.start();
+     *     doWork();
+     *     timer.stop(start);
+     * </pre>
+     */
+    public static final class Timer {
+        private final String name;
+        private final boolean enabled;
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Timer(final String name, final boolean enabled) {
+            this.name = name;
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return a start time to be passed to {@link #stop}
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0L;
+        }
+
+        /**
+         * Record one event that began at {@code start}, as returned by {@link #start}
+         */
+        public void stop(final long start) {
+            if ( enabled ) {
+                totalNanos.add(System.nanoTime() - start);
+                count.increment();
+            }
+        }
+
+        private void stopWithoutCounting(final long start) {
+            if ( enabled ) {
+                totalNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+    }
+
+    /**
+     * A named count of events
+     */
+    public static final class Counter {
+        private final String name;
+        private final boolean enabled;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(final String name, final boolean enabled) {
+            this.name = name;
+            this.enabled = enabled;
+        }
+
+        public void increment() {
+            if ( enabled ) {
+                value.increment();
+            }
+        }
+
+        public void add(final long n) {
+            if ( enabled ) {
+                value.add(n);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+}
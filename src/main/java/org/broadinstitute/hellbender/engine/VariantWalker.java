@@ -97,14 +97,17 @@ public abstract class VariantWalker extends VariantWalkerBase {
     @Override
     public void traverse() {
         final CountingReadFilter readFilter = makeReadFilter();
+        final TraversalProfiler.Timer applyTimer = getTraversalProfiler().getTimer(TraversalProfiler.APPLY_TIMER);
         // Process each variant in the input stream.
         getTransformedVariantStream( makeVariantFilter() )
                 .forEach(variant -> {
                     final SimpleInterval variantInterval = new SimpleInterval(variant);
+                    final long applyStart = applyTimer.start();
                     apply(variant,
                             new ReadsContext(reads, variantInterval, readFilter),
                             new ReferenceContext(reference, variantInterval),
                             new FeatureContext(features, variantInterval));
+                    applyTimer.stop(applyStart);
 
                     progressMeter.update(variantInterval);
                 });
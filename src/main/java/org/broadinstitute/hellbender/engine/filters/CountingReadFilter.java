@@ -6,7 +6,9 @@ import htsjdk.samtools.SAMFileHeader;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.Utils;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
@@ -42,8 +44,9 @@ public class CountingReadFilter extends ReadFilter {
     /**
      * Return a composite (and) {@code CountingReadFilter} constructed from a list of
      * {@link org.broadinstitute.hellbender.engine.filters.ReadFilter}. Each filter in the list is first
-     * initialized with the {@code SAMFileHeader} param. The resulting filter honors the order of the input list
-     * and tests the filter conditions in the same order as the iteration order of the input list.
+     * initialized with the {@code SAMFileHeader} param. The resulting filter tests the filters that use only
+     * fixed-length fields (see {@link ReadFilter#usesOnlyFixedLengthFields()}) first, and otherwise honors the
+     * order of the input list.
      * @param readFilters If null or empty, the ALLOW_ALL_READS read filter will be returned
      * @param samHeader {@code SAMFileHeader} used to initialize each filter. May not be null
      * @return Composite CountingReadFilter
@@ -54,9 +57,10 @@ public class CountingReadFilter extends ReadFilter {
             return new CountingReadFilter(ReadFilterLibrary.ALLOW_ALL_READS);
         }
         readFilters.forEach(f -> f.setHeader(samHeader));
-        CountingReadFilter compositeFilter = new CountingReadFilter(readFilters.get(0));
-        for (int i = 1; i < readFilters.size(); i++) {
-            compositeFilter = compositeFilter.and(new CountingReadFilter(readFilters.get(i)));
+        final List<ReadFilter> orderedFilters = orderByDecodingCost(readFilters);
+        CountingReadFilter compositeFilter = new CountingReadFilter(orderedFilters.get(0));
+        for (int i = 1; i < orderedFilters.size(); i++) {
+            compositeFilter = compositeFilter.and(new CountingReadFilter(orderedFilters.get(i)));
         }
         return compositeFilter;
     }
@@ -78,6 +82,24 @@ public class CountingReadFilter extends ReadFilter {
 
     public String getName() {return delegateFilter.getClass().getSimpleName();}
 
+    @Override
+    public boolean usesOnlyFixedLengthFields() {return delegateFilter.usesOnlyFixedLengthFields();}
+
+    /**
+     * Return the number of reads rejected by each of the simple (non-compound) filters that make up this filter,
+     * keyed by filter name, in the order in which the filters are evaluated. Counts for filters with the same name
+     * are summed. As for {@link #getSummaryLine}, counts reflect short-circuited evaluation.
+     */
+    public Map<String, Long> getFilteredCountsByFilter() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        addFilteredCountsByFilter(counts);
+        return counts;
+    }
+
+    protected void addFilteredCountsByFilter(final Map<String, Long> counts) {
+        counts.merge(getName(), filteredCount, Long::sum);
+    }
+
     // Returns a summary line with filter counts organized by level
     public String getSummaryLine() {return getSummaryLineForLevel(0);}
 
@@ -148,6 +170,11 @@ public class CountingReadFilter extends ReadFilter {
         public String getName() {
             return "NOT " + delegateCountingFilter.getName();
         }
+
+        @Override
+        public boolean usesOnlyFixedLengthFields() {
+            return delegateCountingFilter.usesOnlyFixedLengthFields();
+        }
     }
 
     /**
@@ -190,6 +217,17 @@ public class CountingReadFilter extends ReadFilter {
             this.rhs.resetFilteredCount();
         }
 
+        @Override
+        public boolean usesOnlyFixedLengthFields() {
+            return lhs.usesOnlyFixedLengthFields() && rhs.usesOnlyFixedLengthFields();
+        }
+
+        @Override
+        protected void addFilteredCountsByFilter(final Map<String, Long> counts) {
+            lhs.addFilteredCountsByFilter(counts);
+            rhs.addFilteredCountsByFilter(counts);
+        }
+
         @Override
         public abstract String getName();
     }
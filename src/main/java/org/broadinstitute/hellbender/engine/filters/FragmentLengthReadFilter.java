@@ -39,4 +39,9 @@ public final class FragmentLengthReadFilter extends ReadFilter implements Serial
         return Math.abs(read.getFragmentLength()) <= maxFragmentLength &&
                Math.abs(read.getFragmentLength()) >= minFragmentLength;
     }
+
+    @Override
+    public boolean usesOnlyFixedLengthFields() {
+        return true;
+    }
 }
@@ -23,4 +23,6 @@ public class MateDistantReadFilter extends ReadFilter {
         return read.isPaired() && !read.isUnmapped() && !read.mateIsUnmapped() &&
                 (Math.abs(read.getStart() - read.getMateStart()) >= mateTooDistantLength || !read.getContig().equals(read.getMateContig()));
     }
+
+    @Override public boolean usesOnlyFixedLengthFields() { return true; }
 }
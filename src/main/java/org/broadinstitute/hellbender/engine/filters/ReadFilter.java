@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -23,6 +24,10 @@ import java.util.function.Predicate;
  * used boxed types with null default/initial values) since otherwise they will be seen by the command
  * line parser as having been provided, and the user will not be notified that the value must be provided
  * on the command line).
+ *
+ * Filters that only look at the fixed-length fields of a read should override {@link #usesOnlyFixedLengthFields()}
+ * to return true. Composite filters built by {@link #fromList} test such filters first, so that reads they reject
+ * are never decoded any further.
  */
 public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
 
@@ -44,6 +49,11 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
         public boolean test( GATKRead read ) {
             return !delegate.test(read);
         }
+
+        @Override
+        public boolean usesOnlyFixedLengthFields() {
+            return delegate.usesOnlyFixedLengthFields();
+        }
     }
 
     protected abstract static class ReadFilterBinOp extends ReadFilter {
@@ -58,6 +68,11 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
             this.lhs = lhs;
             this.rhs = rhs;
         }
+
+        @Override
+        public boolean usesOnlyFixedLengthFields() {
+            return lhs.usesOnlyFixedLengthFields() && rhs.usesOnlyFixedLengthFields();
+        }
     }
 
     @VisibleForTesting
@@ -88,8 +103,8 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
     /**
      * Return a composite (and) {@code ReadFilter} constructed from a list of {@code ReadFilter}. Each
      * filter in the list is first initialized with the {@code SAMFileHeader} param. The resulting filter
-     * honors the order of the input list and tests the filter conditions in the same order as the iteration
-     * order of the input list.
+     * tests the filters that use only fixed-length fields (see {@link #usesOnlyFixedLengthFields()}) first,
+     * and otherwise honors the order of the input list.
      * @param readFilters If null or empty, the ALLOW_ALL_READS read filter will be returned
      * @param samHeader {@code SAMFileHeader} used to initialize each filter. May not be null
      * @return Composite ReadFilter
@@ -100,13 +115,39 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
             return ReadFilterLibrary.ALLOW_ALL_READS;
         }
         readFilters.forEach(f -> f.setHeader(samHeader));
-        ReadFilter compositeFilter = readFilters.get(0);
-        for (int i = 1; i < readFilters.size(); i++) {
-            compositeFilter = compositeFilter.and(readFilters.get(i));
+        final List<ReadFilter> orderedFilters = orderByDecodingCost(readFilters);
+        ReadFilter compositeFilter = orderedFilters.get(0);
+        for (int i = 1; i < orderedFilters.size(); i++) {
+            compositeFilter = compositeFilter.and(orderedFilters.get(i));
         }
         return compositeFilter;
      }
 
+    /**
+     * Stable partition of a list of filters into those that use only fixed-length fields, followed by all others.
+     * Since filters are side-effect free, this does not change which reads pass a conjunction of the filters, only
+     * how much of each rejected read has to be decoded (and, for counting filters, which filter a read that fails
+     * several of them is counted against).
+     */
+    static <F extends ReadFilter> List<F> orderByDecodingCost(final List<F> readFilters) {
+        final List<F> orderedFilters = new ArrayList<>(readFilters.size());
+        readFilters.stream().filter(ReadFilter::usesOnlyFixedLengthFields).forEach(orderedFilters::add);
+        readFilters.stream().filter(f -> ! f.usesOnlyFixedLengthFields()).forEach(orderedFilters::add);
+        return orderedFilters;
+    }
+
+    /**
+     * Whether this filter examines only the fixed-length fields of a read: its flags, mapping quality, fragment length
+     * and the contigs and start positions of the read and its mate. For BAM input these are decoded with every
+     * record, while the name, cigar, bases, qualities and attributes are only decoded from the record's raw bytes
+     * the first time they are accessed, so a read rejected by such a filter costs almost nothing to filter.
+     *
+     * The default implementation returns false. Filters that return true must not throw on any read.
+     */
+    public boolean usesOnlyFixedLengthFields() {
+        return false;
+    }
+
     //HACK: These methods are a hack to get the type system to accept compositions of ReadFilters.
     /**
      * Specialization of {@link #and(Predicate)} so that ReadFilters anded with other ReadFilters produce a ReadFilter
@@ -19,7 +19,8 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Do not filter out any read")
     public static class AllowAllReadsReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
-        @Override public boolean test(final GATKRead read){return true;}}
+        @Override public boolean test(final GATKRead read){return true;}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads containing skipped region from the reference (CIGAR strings with 'N' operator). */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads with CIGAR containing N operator")
@@ -34,7 +35,8 @@ public final class ReadFilterLibrary {
     public static class FirstOfPairReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test (final GATKRead read) {
-            return read.isFirstOfPair();}}
+            return read.isFirstOfPair();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /**
      * Keep only reads containing good CIGAR strings.
@@ -58,7 +60,8 @@ public final class ReadFilterLibrary {
     public static class NonZeroFragmentLengthReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read){
-            return read.getFragmentLength() != 0;}}
+            return read.getFragmentLength() != 0;}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads where the bases and qualities do not match in length. */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads where the bases and qualities do not match")
@@ -89,21 +92,24 @@ public final class ReadFilterLibrary {
     public static class MappedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return !read.isUnmapped();}}
+            return !read.isUnmapped();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads without available mapping quality (MAPQ=255). */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads without available mapping quality")
     public static class MappingQualityAvailableReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return read.getMappingQuality() != QualityUtils.MAPPING_QUALITY_UNAVAILABLE;}}
+            return read.getMappingQuality() != QualityUtils.MAPPING_QUALITY_UNAVAILABLE;}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads with mapping quality equal to zero. */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads with mapping quality equal to zero")
     public static class MappingQualityNotZeroReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return read.getMappingQuality() != 0;}}
+            return read.getMappingQuality() != 0;}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /**
      * Keep only reads that have a mate that maps to the same contig (RNEXT is "="), is single ended (not 0x1) or has an unmapped mate (0x8).
@@ -116,7 +122,8 @@ public final class ReadFilterLibrary {
         @Override public boolean test(final GATKRead read){
             return ! read.isPaired() ||
                     read.mateIsUnmapped() ||
-                    (! read.isUnmapped() && read.getContig().equals(read.getMateContig()));}}
+                    (! read.isUnmapped() && read.getContig().equals(read.getMateContig()));}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /**
      * For paired reads (0x1), keep only reads that are mapped, have a mate that is mapped (read is not 0x8), and both
@@ -131,7 +138,8 @@ public final class ReadFilterLibrary {
             return read.isPaired() &&
                     ! read.isUnmapped() &&
                     ! read.mateIsUnmapped() &&
-                    read.mateIsReverseStrand() != read.isReverseStrand();}}
+                    read.mateIsReverseStrand() != read.isReverseStrand();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads that do not align to the reference. Filter interprets each of the CIGAR operators M, D, N, = and X as alignment. */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads that do not align to the reference")
@@ -148,49 +156,56 @@ public final class ReadFilterLibrary {
     public static class NotDuplicateReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read){
-            return ! read.isDuplicate();}}
+            return ! read.isDuplicate();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Keep only paired reads that are marked as not properly paired (0x1 and !0x2). Removes unpaired reads. */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only paired reads that are not properly paired")
     public static class NotProperlyPairedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return read.isPaired() && !read.isProperlyPaired();}}
+            return read.isPaired() && !read.isProperlyPaired();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads representing secondary alignments (0x100). */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads representing secondary alignments")
     public static class NotSecondaryAlignmentReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return !read.isSecondaryAlignment();}}
+            return !read.isSecondaryAlignment();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads representing supplementary alignments (0x800). */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads representing supplementary alignments")
     public static class NotSupplementaryAlignmentReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return !read.isSupplementaryAlignment();}}
+            return !read.isSupplementaryAlignment();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out unpaired reads (not 0x1). */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out unpaired reads")
     public static class PairedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return read.isPaired();}}
+            return read.isPaired();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Filter out reads failing platform/vendor quality checks (0x200). */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads failing platfor/vendor quality checks")
     public static class PassesVendorQualityCheckReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read){
-            return ! read.failsVendorQualityCheck();}}
+            return ! read.failsVendorQualityCheck();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Keep only paired reads that are properly paired (0x1 and 0x2). Removes single ended reads. */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads that are properly paired")
     public static class ProperlyPairedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return read.isProperlyPaired();}}
+            return read.isProperlyPaired();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /**
      * Keep only reads representing primary alignments (those that satisfy both the NotSecondaryAlignment and
@@ -208,7 +223,8 @@ public final class ReadFilterLibrary {
     public static class PrimaryLineReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read) {
-            return ! read.isSecondaryAlignment() && ! read.isSupplementaryAlignment();}}
+            return ! read.isSecondaryAlignment() && ! read.isSupplementaryAlignment();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /**
      * Filter out reads where the read and CIGAR do not match in length.
@@ -228,7 +244,8 @@ public final class ReadFilterLibrary {
     public static class SecondOfPairReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test (final GATKRead read) {
-            return read.isSecondOfPair();}}
+            return read.isSecondOfPair();}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /** Keep only reads with sequenced bases. */
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads with sequenced bases")
@@ -246,7 +263,8 @@ public final class ReadFilterLibrary {
     public static class ValidAlignmentStartReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
         @Override public boolean test(final GATKRead read){
-            return read.isUnmapped() || read.getStart() > 0;}}
+            return read.isUnmapped() || read.getStart() > 0;}
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}}
 
     /**
      * Keep only reads where the read end corresponds to a proper alignment -- that is, the read ends after the start
@@ -294,6 +312,7 @@ public final class ReadFilterLibrary {
         @Override public boolean test(final GATKRead read) {
             return !(read.isUnmapped() || (read.isPaired() && read.mateIsUnmapped()));
         }
+        @Override public boolean usesOnlyFixedLengthFields() {return true;}
     }
 
     /**
@@ -28,4 +28,9 @@ public final class ReadStrandFilter extends ReadFilter {
     public boolean test( final GATKRead read ) {
         return read.isReverseStrand() == keepOnlyReverse;
     }
+
+    @Override
+    public boolean usesOnlyFixedLengthFields() {
+        return true;
+    }
 }
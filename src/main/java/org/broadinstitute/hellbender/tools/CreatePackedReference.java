@@ -0,0 +1,71 @@
+package org.broadinstitute.hellbender.tools;
+
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import picard.cmdline.programgroups.ReferenceProgramGroup;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.utils.fasta.PackedReferenceFile;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+/**
+ * Create a packed, memory-mappable copy of a reference FASTA for use with the --packed-reference engine argument
+ *
+ * <p>The packed file stores the reference bases one byte per base, already upper-cased and with IUPAC ambiguity
+ * codes converted to N, so that tools run with --packed-reference serve reference queries directly from a
+ * memory-mapped file instead of parsing the FASTA. All GATK processes on a host that use the same packed reference
+ * share a single copy of it in the OS page cache.</p>
+ *
+ * <h3>Input</h3>
+ *
+ * <ul>
+ *     <li>Reference FASTA file, with companion .fai and .dict files</li>
+ * </ul>
+ *
+ * <h4>Output</h4>
+ *
+ * <ul>
+ *     <li>Packed reference file, about the size of the reference genome in bases</li>
+ * </ul>
+ *
+ * <h3>Usage example</h3>
+ *
+ * <pre>
+ * gatk CreatePackedReference \
+ *     -R reference.fasta \
+ *     -O reference.fasta.packed
+ * </pre>
+ *
+ */
+@DocumentedFeature
+@CommandLineProgramProperties(
+        summary = "Create a packed, memory-mappable copy of a reference FASTA for use with the --packed-reference engine argument",
+        oneLineSummary = "Create a packed, memory-mappable copy of a reference FASTA",
+        programGroup = ReferenceProgramGroup.class
+)
+public final class CreatePackedReference extends CommandLineProgram {
+
+    @Argument(fullName = StandardArgumentDefinitions.REFERENCE_LONG_NAME,
+            shortName = StandardArgumentDefinitions.REFERENCE_SHORT_NAME,
+            doc = "Input reference FASTA file location.")
+    private String referenceFastaLoc = null;
+
+    /**
+     * If not provided, the default output path will be the same as the reference FASTA with the extension ".packed".
+     */
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            doc = "Output packed reference file (ending in \"" + PackedReferenceFile.PACKED_REFERENCE_EXTENSION + "\").",
+            optional = true)
+    private String packedReferenceOutputLoc = null;
+
+    @Override
+    protected final Object doWork() {
+        if (packedReferenceOutputLoc == null) {
+            packedReferenceOutputLoc = referenceFastaLoc + PackedReferenceFile.PACKED_REFERENCE_EXTENSION;
+        }
+        PackedReferenceFile.create(IOUtils.getPath(referenceFastaLoc), IOUtils.getPath(packedReferenceOutputLoc));
+        return null;
+    }
+}
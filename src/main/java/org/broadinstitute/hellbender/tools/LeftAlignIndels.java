@@ -11,8 +11,15 @@ import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 import org.broadinstitute.hellbender.engine.FeatureContext;
 import org.broadinstitute.hellbender.engine.ReadWalker;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Left-aligns indels in read data
  *
@@ -57,6 +64,9 @@ public final class LeftAlignIndels extends ReadWalker {
 
     private SAMFileGATKReadWriter outputWriter = null;
 
+    // the reference sources of the transformers, one per traversal thread
+    private final List<ReferenceDataSource> referenceSources = Collections.synchronizedList(new ArrayList<>());
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -67,17 +77,33 @@ public final class LeftAlignIndels extends ReadWalker {
         outputWriter = createSAMWriter(IOUtils.getPath(output), true);
     }
 
+    /**
+     * The left-alignment is done in a post-filter transformer rather than in {@link #apply}, so that it runs on the
+     * worker threads when traversing with more than one thread. Each transformer owns its own reference source,
+     * which is closed by {@link #closeTool}.
+     */
     @Override
-    public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
+    public ReadTransformer makePostReadFilterTransformer() {
+        final ReferenceDataSource referenceSource = createReferenceDataSource();
+        referenceSources.add(referenceSource);
+        return super.makePostReadFilterTransformer().andThen(read -> leftAlignIndels(read, referenceSource));
+    }
+
+    private static GATKRead leftAlignIndels(final GATKRead read, final ReferenceDataSource referenceSource) {
         // we can not deal with screwy records, and reads with a single cigar element are a trivial case
         if ( read.isUnmapped() || read.numCigarElements() <= 1 ) {
-            outputWriter.addRead(read);
-            return;
+            return read;
         }
 
-        final Cigar newCigar = AlignmentUtils.leftAlignIndels(read.getCigar(), ref.getBases(), read.getBases(), 0);
+        final byte[] refBases = SimpleInterval.isValid(read.getContig(), read.getStart(), read.getEnd()) ?
+                referenceSource.queryAndPrefetch(new SimpleInterval(read)).getBases() : new byte[0];
+        final Cigar newCigar = AlignmentUtils.leftAlignIndels(read.getCigar(), refBases, read.getBases(), 0);
         read.setCigar(newCigar);
+        return read;
+    }
 
+    @Override
+    public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
         outputWriter.addRead(read);
     }
 
@@ -86,5 +112,7 @@ public final class LeftAlignIndels extends ReadWalker {
         if ( outputWriter != null ) {
             outputWriter.close();
         }
+        referenceSources.forEach(ReferenceDataSource::close);
+        referenceSources.clear();
     }
 }
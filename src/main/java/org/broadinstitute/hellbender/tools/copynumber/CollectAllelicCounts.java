@@ -111,6 +111,11 @@ public final class CollectAllelicCounts extends LocusWalker {
         return true;
     }
 
+    @Override
+    protected boolean useColumnarPileups() {
+        return true;
+    }
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -160,6 +165,6 @@ public final class CollectAllelicCounts extends LocusWalker {
     @Override
     public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
         final byte refAsByte = referenceContext.getBase();
-        allelicCountCollector.collectAtLocus(Nucleotide.decode(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
+        allelicCountCollector.collectAtLocus(Nucleotide.decode(refAsByte), alignmentContext.getColumnarPileup(), alignmentContext.getLocation(), minimumBaseQuality);
     }
 }
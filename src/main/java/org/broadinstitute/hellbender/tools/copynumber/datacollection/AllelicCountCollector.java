@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.utils.Nucleotide;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.pileup.ColumnarPileup;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.util.ArrayList;
@@ -64,6 +65,44 @@ public final class AllelicCountCollector {
                 .filter(r -> r.getQual() >= minBaseQuality)
                 .forEach(r -> nucleotideCounter.add(r.getBase()));
 
+        addAllelicCount(refBase, nucleotideCounter, locus);
+    }
+
+    /**
+     * Add counts to this class for a specific locus, reading the bases directly from a columnar pileup.
+     *
+     * @param refBase single nucleotide of the reference.  Not {@code null}
+     * @param pileup associated pileup at the locus.  Not {@code null}
+     * @param locus position in genome to collect alellic counts.  Not {@code null}
+     * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
+     */
+    public void collectAtLocus(final Nucleotide refBase, final ColumnarPileup pileup, final Locatable locus, final int minBaseQuality) {
+        Utils.nonNull(refBase);
+        Utils.nonNull(pileup);
+        Utils.nonNull(locus);
+        ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be zero or higher.");
+
+        if (!BASES.contains(refBase)) {
+            logger.warn(String.format("The reference position at %s has an unknown base call (value: %s). Skipping...",
+                    locus, refBase.toString()));
+            return;
+        }
+
+        final Nucleotide.Counter nucleotideCounter = new Nucleotide.Counter();
+
+        final byte[] bases = pileup.getBases();
+        final byte[] quals = pileup.getQuals();
+        final int[] flags = pileup.getFlags();
+        for (int i = 0; i < pileup.size(); i++) {
+            if ((flags[i] & ColumnarPileup.DELETION) == 0 && quals[i] >= minBaseQuality) {
+                nucleotideCounter.add(bases[i]);
+            }
+        }
+
+        addAllelicCount(refBase, nucleotideCounter, locus);
+    }
+
+    private void addAllelicCount(final Nucleotide refBase, final Nucleotide.Counter nucleotideCounter, final Locatable locus) {
         final int totalBaseCount = BASES.stream().mapToInt(b -> (int) nucleotideCounter.get(b)).sum();  //only include total ACGT counts (exclude N, etc.)
         final int refReadCount = (int) nucleotideCounter.get(refBase);
         final int altReadCount = totalBaseCount - refReadCount;                                         //we take alt = total - ref instead of the actual alt count
@@ -2,7 +2,6 @@ package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.serializers.FieldSerializer;
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
@@ -85,8 +84,7 @@ public class MarkDuplicatesSparkUtils {
             return index;
         }
 
-        @VisibleForTesting
-        IndexPair(T value, int index) {
+        public IndexPair(T value, int index) {
             this.value = value;
             this.index = index;
         }
@@ -125,77 +123,91 @@ public class MarkDuplicatesSparkUtils {
         final Broadcast<Map<String, Byte>> libraryIndex = JavaSparkContext.fromSparkContext(reads.context()).broadcast( constructLibraryIndex(header));
 
         // Place all the reads into a single RDD of MarkDuplicatesSparkRecord objects
-        final JavaPairRDD<ReadsKey, MarkDuplicatesSparkRecord> pairedEnds = keyedReads.flatMapToPair(keyedRead -> {
-            final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> out = Lists.newArrayList();
-            final IndexPair<?>[] hadNonPrimaryRead = {null};
-
-            final List<IndexPair<GATKRead>> primaryReads = Utils.stream(keyedRead._2())
-                    ////// Making The Fragments //////
-                    // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
-                    .peek(readWithIndex -> {
-                        final GATKRead read = readWithIndex.getValue();
-                        if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
-                            PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
-                                    MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex.getValue()) :
-                                    MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex.getValue());
-
-                            out.add(new Tuple2<>(fragment.key(), fragment));
-                        } else {
-                            hadNonPrimaryRead[0] = readWithIndex;
-                        }
-                    })
-                    .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
-                    .collect(Collectors.toList());
-
-            // Catching the case where there are only secondary and supplementary reads in the readname group
-            if (primaryReads.isEmpty()) {
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-                return out.iterator();
-
-                // Mark duplicates cant properly handle templates with more than two reads in a pair
-            } else if (primaryReads.size()>2) {
-                throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
-                        " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
-            }
+        final JavaPairRDD<ReadsKey, MarkDuplicatesSparkRecord> pairedEnds = keyedReads.flatMapToPair(keyedRead ->
+                makeMarkDuplicatesSparkRecords(keyedRead._2(), header, scoringStrategy, headerReadGroupIndexMap.getValue(), libraryIndex.getValue()).iterator());
 
-            ////// Making The Paired Reads //////
-            // Write each paired read with a mapped mate as a pair
-            final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
-                    .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
-                    .collect(Collectors.toList());
-
-            // If there are two primary reads in the group pass them as a pair
-            if (mappedPair.size()==2) {
-                final GATKRead firstRead = mappedPair.get(0).getValue();
-                final IndexPair<GATKRead> secondRead = mappedPair.get(1);
-                final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex.getValue());
-                // Validate and add the read group to the pair
-                final Short readGroup = headerReadGroupIndexMap.getValue().get(firstRead.getReadGroup());
-                if (readGroup != null) {
-                    pair.setReadGroup(readGroup);
-                } else {
-                    throw (firstRead.getReadGroup()==null) ?
-                            new UserException.ReadMissingReadGroup(firstRead) :
-                            new UserException.HeaderMissingReadGroup(firstRead);
-                }
-                out.add(new Tuple2<>(pair.key(), pair));
+        final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs = pairedEnds.groupByKey(); //TODO evaluate replacing this with a smart aggregate by key.
 
-                // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
-            } else if (mappedPair.size()==1) {
-                final IndexPair<GATKRead> firstRead = mappedPair.get(0);
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-            }
-            // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
-            // and added to out. So we just pass through and return.
+        return markDuplicateRecords(keyedPairs, finder, markOpticalDups);
+    }
 
-            return out.iterator();
-        });
+    /**
+     * Steps (3)(a) to (3)(d) of {@link #transformToDuplicateNames}: build the MarkDuplicatesSparkRecords of the reads of
+     * one template, keyed by their alignment information.
+     *
+     * @param readsWithIndex the mapped reads sharing a read name, each with the index of the partition it came from
+     * @param headerReadGroupIndexMap read group indexes, as built by {@link #getHeaderReadGroupIndexMap}
+     * @param libraryIndex library indexes, as built by {@link #constructLibraryIndex}
+     */
+    public static List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> makeMarkDuplicatesSparkRecords(final Iterable<IndexPair<GATKRead>> readsWithIndex, final SAMFileHeader header,
+                                                                                                 final MarkDuplicatesScoringStrategy scoringStrategy,
+                                                                                                 final Map<String, Short> headerReadGroupIndexMap,
+                                                                                                 final Map<String, Byte> libraryIndex) {
+        final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> out = Lists.newArrayList();
+        final IndexPair<?>[] hadNonPrimaryRead = {null};
+
+        final List<IndexPair<GATKRead>> primaryReads = Utils.stream(readsWithIndex)
+                ////// Making The Fragments //////
+                // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
+                .peek(readWithIndex -> {
+                    final GATKRead read = readWithIndex.getValue();
+                    if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
+                        PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
+                                MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex) :
+                                MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex);
+
+                        out.add(new Tuple2<>(fragment.key(), fragment));
+                    } else {
+                        hadNonPrimaryRead[0] = readWithIndex;
+                    }
+                })
+                .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
+                .collect(Collectors.toList());
 
-        final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs = pairedEnds.groupByKey(); //TODO evaluate replacing this with a smart aggregate by key.
+        // Catching the case where there are only secondary and supplementary reads in the readname group
+        if (primaryReads.isEmpty()) {
+            final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex());
+            out.add(new Tuple2<>(pass.key(), pass));
+            return out;
 
-        return markDuplicateRecords(keyedPairs, finder, markOpticalDups);
+            // Mark duplicates cant properly handle templates with more than two reads in a pair
+        } else if (primaryReads.size()>2) {
+            throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
+                    " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
+        }
+
+        ////// Making The Paired Reads //////
+        // Write each paired read with a mapped mate as a pair
+        final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
+                .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
+                .collect(Collectors.toList());
+
+        // If there are two primary reads in the group pass them as a pair
+        if (mappedPair.size()==2) {
+            final GATKRead firstRead = mappedPair.get(0).getValue();
+            final IndexPair<GATKRead> secondRead = mappedPair.get(1);
+            final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex);
+            // Validate and add the read group to the pair
+            final Short readGroup = headerReadGroupIndexMap.get(firstRead.getReadGroup());
+            if (readGroup != null) {
+                pair.setReadGroup(readGroup);
+            } else {
+                throw (firstRead.getReadGroup()==null) ?
+                        new UserException.ReadMissingReadGroup(firstRead) :
+                        new UserException.HeaderMissingReadGroup(firstRead);
+            }
+            out.add(new Tuple2<>(pair.key(), pair));
+
+            // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
+        } else if (mappedPair.size()==1) {
+            final IndexPair<GATKRead> firstRead = mappedPair.get(0);
+            final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex());
+            out.add(new Tuple2<>(pass.key(), pass));
+        }
+        // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
+        // and added to out. So we just pass through and return.
+
+        return out;
     }
 
     /**
@@ -217,7 +229,7 @@ public class MarkDuplicatesSparkUtils {
     /**
      * Method which generates a map of the readgroups from the header so they can be serialized as indexes
      */
-    private static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
+    public static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
         final List<SAMReadGroupRecord> readGroups = header.getReadGroups();
         if (readGroups.size() > 65535) {
             throw new GATKException("Detected too many read groups in the header, currently MarkDuplicatesSpark only supports up to 65535 unique readgroup IDs but " + readGroups.size() + " were found");
@@ -279,42 +291,51 @@ public class MarkDuplicatesSparkUtils {
     /**
      * Primary landing point for MarkDuplicateSparkRecords:
      *  - Handles separating out hashed keys into into groups by start position/readgroup
+     *  - Farms out each group to {@link #markDuplicateRecordGroup}
+     */
+    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs,
+                                                                                final OpticalDuplicateFinder finder, final boolean markOpticalDups) {
+        return keyedPairs.flatMapToPair(keyedPair -> markDuplicateRecordGroup(keyedPair._2(), finder, markOpticalDups).iterator());
+    }
+
+    /**
+     * Marks the duplicates among a group of MarkDuplicatesSparkRecord sharing a key:
      *  - Further separates out MarkDuplicatesSparkRecord by their record objects
      *  - Farms out to methods which handles each group
-     *  - Collects the results and returns an iterator
+     *  - Collects the results
+     *
+     * @return the name and partition index of each non-duplicate, with the number of optical duplicates it represents
+     *         (or {@link MarkDuplicatesSpark#NO_OPTICAL_MARKER}), and of each optical duplicate if markOpticalDups is set,
+     *         with {@link MarkDuplicatesSpark#OPTICAL_DUPLICATE_MARKER}
      */
     @SuppressWarnings("unchecked")
-    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs,
-                                                                                final OpticalDuplicateFinder finder, final boolean markOpticalDups) {
-        return keyedPairs.flatMapToPair(keyedPair -> {
-            Iterable<MarkDuplicatesSparkRecord> pairGroups = keyedPair._2();
-
-            final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
-            final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> stratifiedByType = splitByType(pairGroups);
-
-            // Each key corresponds to either fragments or paired ends, not a mixture of both.
-            final List<MarkDuplicatesSparkRecord> emptyFragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT);
-            final List<MarkDuplicatesSparkRecord> fragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.FRAGMENT);
-            final List<Pair> pairs = (List<Pair>)(List)stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PAIR);
-            final List<MarkDuplicatesSparkRecord> passthroughs = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
-
-            //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
-            // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
-            if (Utils.isNonEmpty(fragments) && !Utils.isNonEmpty(emptyFragments)) {
-                final Tuple2<IndexPair<String>, Integer> bestFragment = handleFragments(fragments, finder);
-                nonDuplicates.add(bestFragment);
-            }
+    public static List<Tuple2<IndexPair<String>, Integer>> markDuplicateRecordGroup(final Iterable<MarkDuplicatesSparkRecord> pairGroups,
+                                                                                    final OpticalDuplicateFinder finder, final boolean markOpticalDups) {
+        final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
+        final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> stratifiedByType = splitByType(pairGroups);
+
+        // Each key corresponds to either fragments or paired ends, not a mixture of both.
+        final List<MarkDuplicatesSparkRecord> emptyFragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT);
+        final List<MarkDuplicatesSparkRecord> fragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.FRAGMENT);
+        final List<Pair> pairs = (List<Pair>)(List)stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PAIR);
+        final List<MarkDuplicatesSparkRecord> passthroughs = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
+
+        //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
+        // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
+        if (Utils.isNonEmpty(fragments) && !Utils.isNonEmpty(emptyFragments)) {
+            final Tuple2<IndexPair<String>, Integer> bestFragment = handleFragments(fragments, finder);
+            nonDuplicates.add(bestFragment);
+        }
 
-            if (Utils.isNonEmpty(pairs)) {
-                nonDuplicates.addAll(handlePairs(pairs, finder, markOpticalDups));
-            }
+        if (Utils.isNonEmpty(pairs)) {
+            nonDuplicates.addAll(handlePairs(pairs, finder, markOpticalDups));
+        }
 
-            if (Utils.isNonEmpty(passthroughs)) {
-                nonDuplicates.addAll(handlePassthroughs(passthroughs));
-            }
+        if (Utils.isNonEmpty(passthroughs)) {
+            nonDuplicates.addAll(handlePassthroughs(passthroughs));
+        }
 
-            return nonDuplicates.iterator();
-        });
+        return nonDuplicates;
     }
 
     /**
@@ -403,14 +424,7 @@ public class MarkDuplicatesSparkUtils {
                     final String library = LibraryIdGenerator.getLibraryName(header, read.getReadGroup());
                     GATKDuplicationMetrics metrics = new GATKDuplicationMetrics();
                     metrics.LIBRARY = library;
-                    metrics.updateMetrics(read);
-                    // NOTE: we use the SAMRecord transientAttribute field here specifically to prevent the already
-                    // serialized read from being parsed again here for performance reasons.
-                    if (read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME)!=null) {
-                        // NOTE: there is a safety check above in getReadsGroupedByName()
-                        metrics.READ_PAIR_OPTICAL_DUPLICATES +=
-                                (int)(read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME));
-                    }
+                    updateMetrics(metrics, read);
                     return new Tuple2<>(library, metrics);
                 })
                 .foldByKey(new GATKDuplicationMetrics(), (metricsSum, m) -> {
@@ -421,19 +435,39 @@ public class MarkDuplicatesSparkUtils {
                     }
                     return metricsSum;
                 })
-                .mapValues(metrics -> {
-                    final GATKDuplicationMetrics copy = metrics.copy();
-                    // Divide these by 2 because they are counted for each read
-                    // when they should be counted by pair.
-                    copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
-                    copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
-
-                    copy.calculateDerivedFields();
-                    if (copy.ESTIMATED_LIBRARY_SIZE == null) {
-                        copy.ESTIMATED_LIBRARY_SIZE = 0L;
-                    }
-                    return copy;
-                });
+                .mapValues(MarkDuplicatesSparkUtils::finalizeLibraryMetrics);
+    }
+
+    /**
+     * Add a duplicate marked read to the metrics of its library, including the optical duplicates counted for it
+     */
+    public static void updateMetrics(final GATKDuplicationMetrics metrics, final GATKRead read) {
+        metrics.updateMetrics(read);
+        // NOTE: we use the SAMRecord transientAttribute field here specifically to prevent the already
+        // serialized read from being parsed again here for performance reasons.
+        if (read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME)!=null) {
+            // NOTE: there is a safety check above in getReadsGroupedByName()
+            metrics.READ_PAIR_OPTICAL_DUPLICATES +=
+                    (int)(read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME));
+        }
+    }
+
+    /**
+     * @param metrics the metrics of a library, summed over all of its reads with {@link #updateMetrics}
+     * @return a copy of the metrics with the pair counts and derived fields computed
+     */
+    public static GATKDuplicationMetrics finalizeLibraryMetrics(final GATKDuplicationMetrics metrics) {
+        final GATKDuplicationMetrics copy = metrics.copy();
+        // Divide these by 2 because they are counted for each read
+        // when they should be counted by pair.
+        copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
+        copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
+
+        copy.calculateDerivedFields();
+        if (copy.ESTIMATED_LIBRARY_SIZE == null) {
+            copy.ESTIMATED_LIBRARY_SIZE = 0L;
+        }
+        return copy;
     }
 
     /**
@@ -442,9 +476,18 @@ public class MarkDuplicatesSparkUtils {
      * @param result metrics object, potentially pre-initialized with headers,
      */
     public static void saveMetricsRDD(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final JavaPairRDD<String, GATKDuplicationMetrics> metricsRDD, final String metricsOutputPath) {
+        saveMetrics(result, header, metricsRDD.collectAsMap(), metricsOutputPath);
+    }
+
+    /**
+     * Saves the metrics of each library to a file.
+     * Note: the SamFileHeader is needed in order to include libraries that didn't have any duplicates.
+     * @param result metrics object, potentially pre-initialized with headers,
+     * @param nonEmptyMetricsByLibrary the metrics of each library with reads, as computed by {@link #finalizeLibraryMetrics}
+     */
+    public static void saveMetrics(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary, final String metricsOutputPath) {
         final LibraryIdGenerator libraryIdGenerator = new LibraryIdGenerator(header);
 
-        final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary = metricsRDD.collectAsMap();           //Unknown Library
         final Map<String, GATKDuplicationMetrics> emptyMapByLibrary = libraryIdGenerator.getMetricsByLibraryMap();//with null
 
         final List<String> sortedListOfLibraryNames = new ArrayList<>(Sets.union(emptyMapByLibrary.keySet(), nonEmptyMetricsByLibrary.keySet()));
@@ -21,6 +21,9 @@ import java.util.*;
  *
  * Alternatively, if a pedigree file has been supplied (not founderIDs) then extending classes can call getTrios() to
  * return a set of Trio objects corresponding to a parsing of pedigree file.
+ *
+ * Annotations may be shared by several threads annotating at once, so the founders read from the pedigree file are
+ * set up under a lock, and never modified once set up.
  */
 public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
     private Collection<String> founderIds;
@@ -29,10 +32,18 @@ public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
     protected transient final Logger logger = LogManager.getLogger(this.getClass());
 
     protected GenotypesContext getFounderGenotypes(VariantContext vc) {
+        final Collection<String> founders = getFounderIds();
+        return (founders == null || founders.isEmpty()) ? vc.getGenotypes() : vc.getGenotypes(new HashSet<>(founders));
+    }
+
+    /**
+     * @return the founder IDs, including those of the pedigree file, which are read on the first call after it is set
+     */
+    private synchronized Collection<String> getFounderIds() {
         if ((pedigreeFile!= null) && (!hasAddedPedigreeFounders)) {
             initializeSampleDBAndSetFounders(pedigreeFile);
         }
-        return (founderIds == null || founderIds.isEmpty()) ? vc.getGenotypes() : vc.getGenotypes(new HashSet<>(founderIds));
+        return founderIds;
     }
 
     public PedigreeAnnotation(final Set<String> founderIds){
@@ -49,7 +60,7 @@ public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
     /**
      * Entry-point function to initialize the founders database from input data
      */
-    private void initializeSampleDBAndSetFounders(File pedigreeFile) {
+    private synchronized void initializeSampleDBAndSetFounders(File pedigreeFile) {
         final SampleDBBuilder sampleDBBuilder = new SampleDBBuilder(PedigreeValidationType.STRICT);
         sampleDBBuilder.addSamplesFromPedigreeFiles(Collections.singletonList(pedigreeFile));
 
@@ -57,7 +68,10 @@ public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
         if (this.founderIds == null || this.founderIds.isEmpty()) {
             this.founderIds = founderIdsToAdd;
         } else {
-            this.founderIds.addAll(founderIdsToAdd);
+            // copy rather than add to the current collection, which may be shared with the caller of setFounderIds
+            final Collection<String> allFounderIds = new ArrayList<>(this.founderIds);
+            allFounderIds.addAll(founderIdsToAdd);
+            this.founderIds = allFounderIds;
         }
         hasAddedPedigreeFounders = true;
     }
@@ -78,11 +92,11 @@ public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
      * Setter for pedigree file and founderIDs to be used by the GATKAnnotationPluginDescriptor to handle duplicated annotaiton
      * arguments between InbreedingCoeff and ExcessHet
      */
-    public void setPedigreeFile(File pedigreeFile) {
+    public synchronized void setPedigreeFile(File pedigreeFile) {
         this.pedigreeFile = pedigreeFile;
         hasAddedPedigreeFounders = false;
     }
-    public void setFounderIds(List<String> founderIds) {
+    public synchronized void setFounderIds(List<String> founderIds) {
         this.founderIds = founderIds;
         hasAddedPedigreeFounders = false;
     }
@@ -93,7 +107,7 @@ public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
      * This is expected to be called immediately after calling setPedigreeFile() and setFounderIDs() during argument
      * propagation in the {@link org.broadinstitute.hellbender.cmdline.GATKPlugin.GATKAnnotationPluginDescriptor}.
      */
-    public void validateArguments() {
+    public synchronized void validateArguments() {
         validateArguments(founderIds, pedigreeFile);
     }
     void validateArguments(Collection<String> founderIds, File pedigreeFile) {
@@ -42,24 +42,25 @@ import java.util.*;
 @DocumentedFeature(groupName=HelpConstants.DOC_CAT_ANNOTATORS, groupSummary=HelpConstants.DOC_CAT_ANNOTATORS_SUMMARY, summary="Existence of a de novo mutation in at least one of the given families (hiConfDeNovo, loConfDeNovo)")
 public final class PossibleDeNovo extends PedigreeAnnotation {
     protected final Logger warning = LogManager.getLogger(this.getClass());
-    private final MendelianViolation mendelianViolation;
+    // MendelianViolation keeps the counts of its last check, so a new one is used for each site
+    private final double minGenotypeQualityP;
     private Set<Trio> trios;
 
     @VisibleForTesting
     public PossibleDeNovo(final Set<Trio> trios, final double minGenotypeQualityP) {
         super((Set<String>) null);
         this.trios = Collections.unmodifiableSet(new LinkedHashSet<>(trios));
-        mendelianViolation = new MendelianViolation(minGenotypeQualityP);
+        this.minGenotypeQualityP = minGenotypeQualityP;
     }
 
     public PossibleDeNovo(final File pedigreeFile){
         super(pedigreeFile);
-        mendelianViolation = new MendelianViolation(DEFAULT_MIN_GENOTYPE_QUALITY_P);
+        minGenotypeQualityP = DEFAULT_MIN_GENOTYPE_QUALITY_P;
     }
 
     public PossibleDeNovo(){
         super((Set<String>) null);
-        mendelianViolation = new MendelianViolation(DEFAULT_MIN_GENOTYPE_QUALITY_P);
+        minGenotypeQualityP = DEFAULT_MIN_GENOTYPE_QUALITY_P;
     }
 
     @Override
@@ -84,7 +85,8 @@ public final class PossibleDeNovo extends PedigreeAnnotation {
     private static final double percentOfSamplesCutoff = 0.001; //for many, many samples use 0.1% of samples as allele frequency threshold for de novos
     private static final int flatNumberOfSamplesCutoff = 4;
 
-    private Set<Trio> initializeAndGetTrios() {
+    // synchronized since the annotation may be shared by several threads annotating at once
+    private synchronized Set<Trio> initializeAndGetTrios() {
         if (trios == null) {
             trios = getTrios();
         }
@@ -109,6 +111,7 @@ public final class PossibleDeNovo extends PedigreeAnnotation {
         }
         final List<String> highConfDeNovoChildren = new ArrayList<>();
         final List<String> lowConfDeNovoChildren = new ArrayList<>();
+        final MendelianViolation mendelianViolation = new MendelianViolation(minGenotypeQualityP);
         for (final Trio trio : trioSet) {
             if (vc.isBiallelic() &&
                 PossibleDeNovo.contextHasTrioLikelihoods(vc, trio) &&
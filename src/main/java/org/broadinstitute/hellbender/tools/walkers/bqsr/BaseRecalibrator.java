@@ -1,10 +1,13 @@
 package org.broadinstitute.hellbender.tools.walkers.bqsr;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -12,10 +15,12 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
+import org.broadinstitute.hellbender.utils.recalibration.KnownSitesIndex;
 import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
 import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
@@ -24,8 +29,15 @@ import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 /**
  * First pass of the base quality score recalibration.
@@ -87,6 +99,19 @@ public final class BaseRecalibrator extends ReadWalker {
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String RECALIBRATION_THREADS_LONG_NAME = "recalibration-threads";
+    public static final String PRELOAD_KNOWN_SITES_LONG_NAME = "preload-known-sites";
+    public static final String KNOWN_SITES_INDEX_LONG_NAME = "known-sites-index";
+
+    /**
+     * Number of reads handed to a recalibration thread at a time
+     */
+    private static final int READ_BATCH_SIZE = 1000;
+
+    /**
+     * Number of batches that may be queued or in progress on a recalibration thread before the traversal waits for it
+     */
+    private static final int MAX_PENDING_BATCHES_PER_THREAD = 2;
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -115,6 +140,36 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * Instead of querying the known sites overlapping each read, load the positions covered by all the known sites into
+     * an in-memory bit set per contig before traversal, so that each known sites record is decoded once.  Bases inserted
+     * in a read between two adjacent known sites are then skipped as well.  The bit sets take about one bit per base
+     * of each contig with known sites, about 400 MB for the human genome.
+     */
+    @Advanced
+    @Argument(fullName = PRELOAD_KNOWN_SITES_LONG_NAME, doc = "Load the positions covered by the known sites into memory before traversal", optional = true)
+    private boolean preloadKnownSites = false;
+
+    /**
+     * The preloaded known sites (see --preload-known-sites) are read from this file if it exists, and saved to it
+     * otherwise, so that later runs with the same known sites do not have to decode them again.  The index is rebuilt
+     * and saved again if the size or last modified time of any known sites file changed since it was built.  Implies
+     * --preload-known-sites.
+     */
+    @Advanced
+    @Argument(fullName = KNOWN_SITES_INDEX_LONG_NAME, doc = "File from which the preloaded known sites are read if it exists, or to which they are saved otherwise", optional = true)
+    private File knownSitesIndexFile = null;
+
+    /**
+     * With more than one thread, the traversal hands batches of reads, with the known sites overlapping them, to
+     * recalibration threads in turn.  Each thread has its own recalibration engine, with its own tables and BAQ,
+     * and its own reference data source, and the tables of the threads are combined in a fixed order before they are
+     * finalized, so the output for a given number of threads does not depend on thread scheduling.
+     */
+    @Advanced
+    @Argument(fullName = RECALIBRATION_THREADS_LONG_NAME, doc = "Number of threads used to collect the recalibration data", optional = true, minValue = 1)
+    private int recalibrationThreads = 1;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
@@ -124,6 +179,18 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     private QuantizationInfo quantizationInfo = null;
 
+    /**
+     * the recalibration threads, or null if reads are processed on the traversal thread
+     */
+    private List<RecalibrationWorker> workers = null;
+    private List<ReadWithKnownSites> readBatch = null;
+    private long numReadBatches = 0;
+
+    /**
+     * the preloaded known sites, or null if the known sites are queried for each read
+     */
+    private KnownSitesIndex knownSitesIndex = null;
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -144,6 +211,47 @@ public final class BaseRecalibrator extends ReadWalker {
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
         recalibrationEngine.logCovariatesUsed();
         referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+
+        if ( preloadKnownSites || knownSitesIndexFile != null ) {
+            knownSitesIndex = loadKnownSitesIndex();
+        }
+
+        if ( recalibrationThreads > 1 ) {
+            workers = new ArrayList<>(recalibrationThreads);
+            for ( int i = 0; i < recalibrationThreads; i++ ) {
+                workers.add(new RecalibrationWorker(i, new BaseRecalibrationEngine(recalArgs, getHeaderForReads()),
+                        ReferenceDataSource.of(referenceArguments.getReferencePath()), knownSitesIndex));
+            }
+            readBatch = new ArrayList<>(READ_BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Read the known sites index file if there is one and it exists, or build the index from the known sites and save
+     * it to the index file if there is one
+     */
+    private KnownSitesIndex loadKnownSitesIndex() {
+        if ( knownSitesIndexFile != null && knownSitesIndexFile.exists() ) {
+            logger.info("Loading known sites index " + knownSitesIndexFile);
+            final KnownSitesIndex index = KnownSitesIndex.load(knownSitesIndexFile);
+            final List<String> sources = knownSites.stream().map(FeatureInput::getFeaturePath).collect(Collectors.toList());
+            if ( !index.getSources().equals(sources) ) {
+                throw new CommandLineException.BadArgumentValue(KNOWN_SITES_INDEX_LONG_NAME,
+                        "the index was built from known sites " + index.getSources() + " but the known sites are " + sources);
+            }
+            final List<String> changedSources = index.getChangedSources(knownSites);
+            if ( changedSources.isEmpty() ) {
+                return index;
+            }
+            logger.warn("Known sites " + changedSources + " changed since the known sites index " + knownSitesIndexFile + " was built, rebuilding it");
+        }
+
+        final KnownSitesIndex index = KnownSitesIndex.build(knownSites, getBestAvailableSequenceDictionary());
+        if ( knownSitesIndexFile != null ) {
+            logger.info("Saving known sites index " + knownSitesIndexFile);
+            index.save(knownSitesIndexFile);
+        }
+        return index;
     }
 
     @Override
@@ -182,11 +290,39 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        if ( workers == null ) {
+            recalibrationEngine.processRead(read, referenceDataSource,
+                    knownSitesIndex != null ? knownSitesIndex.getKnownSites(read) : featureContext.getValues(knownSites));
+            return;
+        }
+
+        // the features are queried here since the feature context can only be used on the traversal thread, while the
+        // preloaded known sites are looked up by the recalibration threads
+        readBatch.add(new ReadWithKnownSites(read, knownSitesIndex != null ? null : featureContext.getValues(knownSites)));
+        if ( readBatch.size() >= READ_BATCH_SIZE ) {
+            submitReadBatch();
+        }
+    }
+
+    /**
+     * Hand the current batch of reads to the next recalibration thread in turn
+     */
+    private void submitReadBatch() {
+        workers.get((int) (numReadBatches++ % workers.size())).submit(readBatch);
+        readBatch = new ArrayList<>(READ_BATCH_SIZE);
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if ( workers != null ) {
+            if ( !readBatch.isEmpty() ) {
+                submitReadBatch();
+            }
+            for ( final RecalibrationWorker worker : workers ) {
+                worker.awaitPendingBatches();
+                recalibrationEngine.combine(worker.engine);
+            }
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -217,4 +353,85 @@ public final class BaseRecalibrator extends ReadWalker {
             throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
         }
     }
+
+    @Override
+    public void closeTool() {
+        if ( workers != null ) {
+            workers.forEach(RecalibrationWorker::close);
+        }
+        if ( referenceDataSource != null ) {
+            referenceDataSource.close();
+        }
+    }
+
+    private static final class ReadWithKnownSites {
+        private final GATKRead read;
+        private final List<Feature> knownSites; // null if the known sites are preloaded
+
+        private ReadWithKnownSites(final GATKRead read, final List<Feature> knownSites) {
+            this.read = read;
+            this.knownSites = knownSites;
+        }
+    }
+
+    /**
+     * A recalibration thread, with the engine and reference data source it uses.  Batches submitted to a worker are
+     * processed one at a time, in submission order.
+     */
+    private static final class RecalibrationWorker {
+        private final BaseRecalibrationEngine engine;
+        private final ReferenceDataSource reference;
+        private final KnownSitesIndex knownSitesIndex;
+        private final ExecutorService executor;
+        private final Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+
+        private RecalibrationWorker(final int index, final BaseRecalibrationEngine engine, final ReferenceDataSource reference,
+                                    final KnownSitesIndex knownSitesIndex) {
+            this.engine = engine;
+            this.reference = reference;
+            this.knownSitesIndex = knownSitesIndex;
+            this.executor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("base-recalibrator-" + index).setDaemon(true).build());
+        }
+
+        /**
+         * Queue a batch of reads, first waiting for the oldest pending batch if too many are pending
+         */
+        private void submit(final List<ReadWithKnownSites> batch) {
+            while ( pendingBatches.size() >= MAX_PENDING_BATCHES_PER_THREAD ) {
+                waitFor(pendingBatches.removeFirst());
+            }
+            pendingBatches.addLast(executor.submit(() -> {
+                for ( final ReadWithKnownSites read : batch ) {
+                    engine.processRead(read.read, reference,
+                            read.knownSites != null ? read.knownSites : knownSitesIndex.getKnownSites(read.read));
+                }
+            }));
+        }
+
+        private void awaitPendingBatches() {
+            while ( !pendingBatches.isEmpty() ) {
+                waitFor(pendingBatches.removeFirst());
+            }
+        }
+
+        private static void waitFor(final Future<?> batch) {
+            try {
+                batch.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while collecting recalibration data", e);
+            } catch (final ExecutionException e) {
+                if ( e.getCause() instanceof RuntimeException ) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new GATKException("Error while collecting recalibration data", e.getCause());
+            }
+        }
+
+        private void close() {
+            executor.shutdownNow();
+            reference.close();
+        }
+    }
 }
\ No newline at end of file
@@ -147,6 +147,12 @@ public class GetPileupSummaries extends LocusWalker {
         return true;
     }
 
+    // most loci have no population variant, so there's no need to build a ReadPileup for them
+    @Override
+    protected boolean useColumnarPileups() {
+        return true;
+    }
+
     @Override
     public boolean requiresReference() {
         return false;
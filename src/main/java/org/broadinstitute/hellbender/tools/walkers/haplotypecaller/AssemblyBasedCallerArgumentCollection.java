@@ -25,6 +25,7 @@ public abstract class AssemblyBasedCallerArgumentCollection {
 
     public static final String MIN_BASE_QUALITY_SCORE_LONG_NAME = "min-base-quality-score";
     public static final String SMITH_WATERMAN_LONG_NAME = "smith-waterman";
+    public static final String READ_REALIGNMENT_THREADS_LONG_NAME = "read-realignment-threads";
     public static final String FORCE_CALL_ALLELES_LONG_NAME = "alleles";
     public static final String FORCE_CALL_FILTERED_ALLELES_LONG_NAME = "force-call-filtered-alleles";
     public static final String FORCE_CALL_FILTERED_ALLELES_SHORT_NAME = "genotype-filtered-alleles";
@@ -36,6 +37,7 @@ public abstract class AssemblyBasedCallerArgumentCollection {
         final ReadThreadingAssembler assemblyEngine = assemblerArgs.makeReadThreadingAssembler();
         assemblyEngine.setDebug(assemblerArgs.debugAssembly);
         assemblyEngine.setMinBaseQualityToUseInAssembly(minBaseQualityScore);
+        assemblyEngine.setKmerAssemblyThreads(assemblerArgs.kmerAssemblyThreads);
 
         return assemblyEngine;
     }
@@ -112,6 +114,16 @@ public abstract class AssemblyBasedCallerArgumentCollection {
     @Argument(fullName = SMITH_WATERMAN_LONG_NAME, doc = "Which Smith-Waterman implementation to use, generally FASTEST_AVAILABLE is the right choice", optional = true)
     public SmithWatermanAligner.Implementation smithWatermanImplementation = SmithWatermanAligner.Implementation.JAVA;
 
+    /**
+     * Number of threads used to realign the reads of an active region to their best haplotype, which is done for
+     * genotyping and for the bam output.  The realigned reads are identical to those of a single thread.  The
+     * Smith-Waterman implementation is shared by the threads; the pure java implementations keep their work space
+     * per thread.
+     */
+    @Advanced
+    @Argument(fullName = READ_REALIGNMENT_THREADS_LONG_NAME, doc = "Number of threads used to realign the reads of a region to their best haplotype", optional = true, minValue = 1)
+    public int readRealignmentThreads = 1;
+
     /**
      * The reference confidence mode makes it possible to emit a per-bp or summarized confidence estimate for a site being strictly homozygous-reference.
      * See https://software.broadinstitute.org/gatk/documentation/article.php?id=4017 for information about GVCFs.
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileWriter;
@@ -11,9 +12,11 @@ import htsjdk.variant.vcf.VCFConstants;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
 import org.broadinstitute.hellbender.engine.AlignmentContext;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.walkers.ReferenceConfidenceVariantContextMerger;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.ReadThreadingAssembler;
 import org.broadinstitute.hellbender.utils.QualityUtils;
@@ -28,6 +31,8 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.haplotype.HaplotypeBAMWriter;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.*;
 import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
@@ -36,6 +41,10 @@ import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -62,6 +71,9 @@ public final class AssemblyBasedCallerUtils {
     // get realigned incorrectly.  See https://github.com/broadinstitute/gatk/issues/5060
     public static final int MINIMUM_READ_LENGTH_AFTER_TRIMMING = 10;
 
+    // number of reads realigned to their best haplotype by each task when realigning concurrently
+    private static final int READ_REALIGNMENT_BATCH_SIZE = 64;
+
     private static final String phase01 = "0|1";
     private static final String phase10 = "1|0";
 
@@ -73,19 +85,79 @@ public final class AssemblyBasedCallerUtils {
      * @return never {@code null}
      */
     public static Map<GATKRead, GATKRead> realignReadsToTheirBestHaplotype(final AlleleLikelihoods<GATKRead, Haplotype> originalReadLikelihoods, final Haplotype refHaplotype, final Locatable paddedReferenceLoc, final SmithWatermanAligner aligner) {
-        final Collection<AlleleLikelihoods<GATKRead, Haplotype>.BestAllele> bestAlleles = originalReadLikelihoods.bestAllelesBreakingTies(HAPLOTYPE_ALIGNMENT_TIEBREAKING_PRIORITY);
-        final Map<GATKRead, GATKRead> result = new HashMap<>(bestAlleles.size());
+        return realignReadsToTheirBestHaplotype(originalReadLikelihoods, refHaplotype, paddedReferenceLoc, aligner, null);
+    }
+
+    /**
+     * Same as {@link #realignReadsToTheirBestHaplotype(AlleleLikelihoods, Haplotype, Locatable, SmithWatermanAligner)},
+     * but the alignments of the best haplotypes to the reference are computed once for the region instead of once per
+     * read, and if an executor is given the reads are realigned concurrently in batches of
+     * {@link #READ_REALIGNMENT_BATCH_SIZE}.  The realignments do not depend on the executor.
+     *
+     * @param aligner the aligner, which must support concurrent calls if {@code executor} is not {@code null}
+     * @param executor executor used to realign batches of reads concurrently, or {@code null} to realign them on the
+     *                 calling thread
+     * @return never {@code null}
+     */
+    public static Map<GATKRead, GATKRead> realignReadsToTheirBestHaplotype(final AlleleLikelihoods<GATKRead, Haplotype> originalReadLikelihoods, final Haplotype refHaplotype,
+                                                                           final Locatable paddedReferenceLoc, final SmithWatermanAligner aligner, final ExecutorService executor) {
+        final List<AlleleLikelihoods<GATKRead, Haplotype>.BestAllele> bestAlleles = new ArrayList<>(originalReadLikelihoods.bestAllelesBreakingTies(HAPLOTYPE_ALIGNMENT_TIEBREAKING_PRIORITY));
 
+        // haplotypes are compared by identity here since the alignment depends on the haplotype cigar, not only the bases
+        final Map<Haplotype, Cigar> haplotypeCigars = new IdentityHashMap<>();
         for (final AlleleLikelihoods<GATKRead, Haplotype>.BestAllele bestAllele : bestAlleles) {
-            final GATKRead originalRead = bestAllele.evidence;
-            final Haplotype bestHaplotype = bestAllele.allele;
-            final boolean isInformative = bestAllele.isInformative();
-            final GATKRead realignedRead = AlignmentUtils.createReadAlignedToRef(originalRead, bestHaplotype, refHaplotype, paddedReferenceLoc.getStart(), isInformative, aligner);
-            result.put(originalRead, realignedRead);
+            haplotypeCigars.computeIfAbsent(bestAllele.allele, AlignmentUtils::getHaplotypeCigarForRealignment);
+        }
+
+        final int referenceStart = paddedReferenceLoc.getStart();
+        final Function<AlleleLikelihoods<GATKRead, Haplotype>.BestAllele, GATKRead> realign = bestAllele ->
+                AlignmentUtils.createReadAlignedToRef(bestAllele.evidence, bestAllele.allele, haplotypeCigars.get(bestAllele.allele),
+                        refHaplotype, referenceStart, bestAllele.isInformative(), aligner);
+
+        final Map<GATKRead, GATKRead> result = new HashMap<>(bestAlleles.size());
+        if (executor == null || bestAlleles.size() <= READ_REALIGNMENT_BATCH_SIZE) {
+            for (final AlleleLikelihoods<GATKRead, Haplotype>.BestAllele bestAllele : bestAlleles) {
+                result.put(bestAllele.evidence, realign.apply(bestAllele));
+            }
+            return result;
+        }
+
+        final List<Future<List<GATKRead>>> futures = new ArrayList<>();
+        for (int start = 0; start < bestAlleles.size(); start += READ_REALIGNMENT_BATCH_SIZE) {
+            final List<AlleleLikelihoods<GATKRead, Haplotype>.BestAllele> batch = bestAlleles.subList(start, Math.min(start + READ_REALIGNMENT_BATCH_SIZE, bestAlleles.size()));
+            futures.add(executor.submit(() -> batch.stream().map(realign).collect(Collectors.toList())));
+        }
+        try {
+            int index = 0;
+            for (final Future<List<GATKRead>> future : futures) {
+                for (final GATKRead realignedRead : future.get()) {
+                    result.put(bestAlleles.get(index++).evidence, realignedRead);
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for reads to be realigned", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error realigning reads to their best haplotype", e.getCause());
         }
         return result;
     }
 
+    /**
+     * Create the executor used to realign reads to their best haplotype with the given number of threads, or
+     * {@code null} if there is only one thread, in which case reads are realigned on the calling thread.
+     */
+    public static ExecutorService makeReadRealignmentExecutor(final int numThreads) {
+        ParamUtils.isPositive(numThreads, "numThreads must be positive");
+        return numThreads == 1 ? null : Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("read-realignment-%d").setDaemon(true).build());
+    }
+
     public static void finalizeRegion(final AssemblyRegion region,
                                       final boolean errorCorrectReads,
                                       final boolean skipSoftClips,
@@ -195,7 +267,18 @@ public final class AssemblyBasedCallerUtils {
         final double log10GlobalReadMismappingRate = likelihoodArgs.phredScaledGlobalReadMismappingRate < 0 ? Double.NEGATIVE_INFINITY
                 : QualityUtils.qualToErrorProbLog10(likelihoodArgs.phredScaledGlobalReadMismappingRate);
 
-        return new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel, likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD);
+        final boolean banded = likelihoodArgs.pairHMMBandWidth > 0 || likelihoodArgs.pairHMMAbandonMargin > 0.0;
+        if (banded && likelihoodArgs.pairHMM != PairHMM.Implementation.LOGLESS_CACHING_THREADED) {
+            throw new CommandLineException.BadArgumentValue(likelihoodArgs.pairHMMBandWidth > 0 ? LikelihoodEngineArgumentCollection.PAIR_HMM_BAND_WIDTH_LONG_NAME : LikelihoodEngineArgumentCollection.PAIR_HMM_ABANDON_MARGIN_LONG_NAME,
+                    "is only supported by the " + PairHMM.Implementation.LOGLESS_CACHING_THREADED + " PairHMM implementation");
+        }
+
+        final PairHMMLikelihoodCalculationEngine engine = new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel, likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD,
+                likelihoodArgs.pairHMMResultCacheSizeMB * 1024L * 1024L);
+        if (banded) {
+            engine.setPairHMMBanding(likelihoodArgs.pairHMMBandWidth, likelihoodArgs.pairHMMAbandonMargin, likelihoodArgs.pairHMMBandingLikelihoodDifferences);
+        }
+        return engine;
     }
 
     public static Optional<HaplotypeBAMWriter> createBamWriter(final AssemblyBasedCallerArgumentCollection args,
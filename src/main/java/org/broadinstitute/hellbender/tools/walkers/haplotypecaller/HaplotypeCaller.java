@@ -1,9 +1,11 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -191,9 +193,12 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             logger.warn("*************************************************************************");
         }
 
-        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
-                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE, false);
-        hcEngine = new HaplotypeCallerEngine(hcArgs, assemblyRegionArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        if ( traversalThreads > 1 && hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_LONG_NAME,
+                    "writing a bamout is not supported with more than one traversal thread");
+        }
+
+        hcEngine = makeHaplotypeCallerEngine();
 
         // The HC engine will make the right kind (VCF or GVCF) of writer for us
         final SAMSequenceDictionary sequenceDictionary = getHeaderForReads().getSequenceDictionary();
@@ -201,6 +206,35 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
     }
 
+    private HaplotypeCallerEngine makeHaplotypeCallerEngine() {
+        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
+                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE, false);
+        final HaplotypeCallerEngine engine = new HaplotypeCallerEngine(hcArgs, assemblyRegionArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(),
+                () -> getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        engine.setTraversalProfiler(getTraversalProfiler());
+        return engine;
+    }
+
+    /**
+     * All traversal threads share the {@link HaplotypeCallerEngine}, which keeps a workspace per thread; calls are made
+     * on the traversal thread and written to the shared VCF writer on the main thread.
+     */
+    @Override
+    protected AssemblyRegionProcessor makeAssemblyRegionProcessor() {
+        return new AssemblyRegionProcessor() {
+            @Override
+            public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+                return hcEngine;
+            }
+
+            @Override
+            public Runnable process(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                final List<VariantContext> calls = hcEngine.callRegion(region, featureContext, referenceContext);
+                return () -> calls.forEach(vcfWriter::add);
+            }
+        };
+    }
+
     private static CachingIndexedFastaSequenceFile getReferenceReader(ReferenceInputArgumentCollection referenceArguments) {
         // TODO: this code is duplicated in AssemblyBasedCallerUtils
         final Path reference = IOUtils.getPath(referenceArguments.getReferenceFileName());
@@ -49,6 +49,12 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -61,6 +67,13 @@ import java.util.stream.Collectors;
  * -Repeatedly call {@link #isActive} to identify active vs. inactive regions
  * -Repeatedly call {@link #callRegion} to call variants in each region, and add them to your writer
  * -When done, call {@link #shutdown}. Close the writer you got from {@link #makeVCFWriter} yourself.
+ *
+ * {@link #isActive} and {@link #callRegion} may be called concurrently from several threads, or regions may be handed
+ * to an executor with {@link #callRegionAsync}, provided that the engine was created with a factory of reference
+ * readers.  The configuration (arguments, samples, annotation engine, aligner) is shared by all threads, and the
+ * components that keep state during or between calls (assembler, read likelihood engine, genotyping engines, reference
+ * confidence model and reference reader) are created once per calling thread, on its first call.  The annotations
+ * of the shared annotation engine must therefore be safe to call from several threads at once.
  */
 public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
@@ -70,25 +83,21 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
     private final SAMFileHeader readsHeader;
 
-    private ReferenceConfidenceModel referenceConfidenceModel = null;
-
     private AssemblyRegionTrimmer trimmer;
 
     private final PrintStream assemblyDebugOutStream;
 
-    // the genotyping engine for the isActive() determination
-    private MinimalGenotypingEngine activeRegionEvaluationGenotyperEngine = null;
-
-    private ReadThreadingAssembler assemblyEngine = null;
-
-    private ReadLikelihoodCalculationEngine likelihoodCalculationEngine = null;
-
-    private HaplotypeCallerGenotypingEngine genotypingEngine = null;
+    // arguments of the genotyping engine for the isActive() determination
+    private StandardCallerArgumentCollection activeRegionArgs = null;
 
     private VariantAnnotatorEngine annotationEngine = null;
 
-    // fasta reference reader to supplement the edges of the reference sequence
-    private final ReferenceSequenceFile referenceReader;
+    // creates the fasta reference readers, one per workspace, used to supplement the edges of the reference sequence
+    private final Supplier<? extends ReferenceSequenceFile> referenceReaderFactory;
+
+    // the workspace of each calling thread, and all the workspaces created so far so that they can be closed on shutdown
+    private final ThreadLocal<Workspace> threadWorkspace = ThreadLocal.withInitial(this::createWorkspace);
+    private final Queue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
 
     // writes Haplotypes to a bam file when the -bamout option is specified
     private Optional<HaplotypeBAMWriter> haplotypeBAMWriter;
@@ -102,6 +111,20 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
     private SmithWatermanAligner aligner;
 
+    // realigns the reads of a region to their best haplotypes concurrently; null to realign them on the calling thread
+    private ExecutorService readRealignmentExecutor;
+
+    public static final String ASSEMBLY_TIMER = "haplotypeCaller.assembly";
+    public static final String LIKELIHOODS_TIMER = "haplotypeCaller.readLikelihoods";
+    public static final String REALIGNMENT_TIMER = "haplotypeCaller.realignReadsToBestHaplotype";
+    public static final String GENOTYPING_TIMER = "haplotypeCaller.genotyping";
+
+    // per-stage timers for the traversal profile; no-ops unless set via setTraversalProfiler()
+    private TraversalProfiler.Timer assemblyTimer = TraversalProfiler.DISABLED.getTimer(ASSEMBLY_TIMER);
+    private TraversalProfiler.Timer likelihoodsTimer = TraversalProfiler.DISABLED.getTimer(LIKELIHOODS_TIMER);
+    private TraversalProfiler.Timer realignmentTimer = TraversalProfiler.DISABLED.getTimer(REALIGNMENT_TIMER);
+    private TraversalProfiler.Timer genotypingTimer = TraversalProfiler.DISABLED.getTimer(GENOTYPING_TIMER);
+
     public static final byte MIN_TAIL_QUALITY_WITH_ERROR_CORRECTION = 6;
 
     /**
@@ -150,17 +173,33 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @param createBamOutIndex true to create an index file for the bamout
      * @param createBamOutMD5 true to create an md5 file for the bamout
      * @param readsHeader header for the reads
-     * @param referenceReader reader to provide reference data, this reference reader will be closed when {@link #shutdown()} is called
+     * @param referenceReader reader to provide reference data, this reference reader will be closed when {@link #shutdown()} is called.
+     *                        Since a reader cannot be shared by threads, the engine can only be used from the thread
+     *                        that creates it.
      * @param annotationEngine variantAnnotatorEngine with annotations to process already added
      */
     public HaplotypeCallerEngine(final HaplotypeCallerArgumentCollection hcArgs, AssemblyRegionArgumentCollection assemblyRegionArgs, boolean createBamOutIndex,
                                  boolean createBamOutMD5, final SAMFileHeader readsHeader,
                                  ReferenceSequenceFile referenceReader, VariantAnnotatorEngine annotationEngine) {
+        this(hcArgs, assemblyRegionArgs, createBamOutIndex, createBamOutMD5, readsHeader, singleReferenceReader(referenceReader), annotationEngine);
+    }
+
+    /**
+     * Create and initialize a new HaplotypeCallerEngine that can be used from several threads concurrently
+     *
+     * @param referenceReaderFactory creates a reader to provide reference data for each thread that calls the engine.
+     *                               The readers will be closed when {@link #shutdown()} is called.
+     * @see #HaplotypeCallerEngine(HaplotypeCallerArgumentCollection, AssemblyRegionArgumentCollection, boolean, boolean, SAMFileHeader, ReferenceSequenceFile, VariantAnnotatorEngine)
+     */
+    public HaplotypeCallerEngine(final HaplotypeCallerArgumentCollection hcArgs, AssemblyRegionArgumentCollection assemblyRegionArgs, boolean createBamOutIndex,
+                                 boolean createBamOutMD5, final SAMFileHeader readsHeader,
+                                 final Supplier<? extends ReferenceSequenceFile> referenceReaderFactory, VariantAnnotatorEngine annotationEngine) {
         this.hcArgs = Utils.nonNull(hcArgs);
         this.readsHeader = Utils.nonNull(readsHeader);
-        this.referenceReader = Utils.nonNull(referenceReader);
+        this.referenceReaderFactory = Utils.nonNull(referenceReaderFactory);
         this.annotationEngine = Utils.nonNull(annotationEngine);
         this.aligner = SmithWatermanAligner.getAligner(hcArgs.smithWatermanImplementation);
+        this.readRealignmentExecutor = AssemblyBasedCallerUtils.makeReadRealignmentExecutor(hcArgs.readRealignmentThreads);
         trimmer = new AssemblyRegionTrimmer(assemblyRegionArgs, readsHeader.getSequenceDictionary());
         forceCallingAllelesPresent = hcArgs.alleles != null;
         initialize(createBamOutIndex, createBamOutMD5);
@@ -173,6 +212,82 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         } else {
             assemblyDebugOutStream = null;
         }
+        // create the workspace of the constructing thread now, so that invalid arguments are reported right away
+        threadWorkspace.get();
+    }
+
+    /**
+     * @return a factory that returns the given reader once, and fails if a second thread needs a reader
+     */
+    private static Supplier<ReferenceSequenceFile> singleReferenceReader(final ReferenceSequenceFile referenceReader) {
+        Utils.nonNull(referenceReader);
+        final AtomicBoolean used = new AtomicBoolean(false);
+        return () -> {
+            if ( used.getAndSet(true) ) {
+                throw new IllegalStateException("This HaplotypeCallerEngine was created with a single reference reader and can only be used from one thread;" +
+                        " create it with a reference reader factory to call regions from several threads");
+            }
+            return referenceReader;
+        };
+    }
+
+    /**
+     * The components of the engine that keep state during or between calls, used by a single thread
+     */
+    private final class Workspace {
+        private final ReferenceSequenceFile referenceReader;
+        private final MinimalGenotypingEngine activeRegionEvaluationGenotyperEngine;
+        private final HaplotypeCallerGenotypingEngine genotypingEngine;
+        private final ReferenceConfidenceModel referenceConfidenceModel;
+        private final ReadThreadingAssembler assemblyEngine;
+        private final ReadLikelihoodCalculationEngine likelihoodCalculationEngine;
+
+        private Workspace() {
+            referenceReader = Utils.nonNull(referenceReaderFactory.get(), "the reference reader factory returned null");
+
+            activeRegionEvaluationGenotyperEngine = new MinimalGenotypingEngine(activeRegionArgs, samplesList);
+            activeRegionEvaluationGenotyperEngine.setLogger(logger);
+
+            genotypingEngine = new HaplotypeCallerGenotypingEngine(hcArgs, samplesList, ! hcArgs.doNotRunPhysicalPhasing);
+            genotypingEngine.setAnnotationEngine(annotationEngine);
+
+            referenceConfidenceModel = new ReferenceConfidenceModel(samplesList, readsHeader, hcArgs.indelSizeToEliminateInRefModel, hcArgs.standardArgs.genotypeArgs.numRefIfMissing);
+            assemblyEngine = hcArgs.createReadThreadingAssembler();
+            likelihoodCalculationEngine = AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs);
+        }
+
+        private void close() {
+            likelihoodCalculationEngine.close();
+            assemblyEngine.close();
+            try {
+                referenceReader.close();
+            } catch (IOException e) {
+                throw new RuntimeIOException(e);
+            }
+            // Write assembly region debug output if present
+            assemblyEngine.printDebugHistograms();
+        }
+    }
+
+    private Workspace createWorkspace() {
+        final Workspace newWorkspace = new Workspace();
+        workspaces.add(newWorkspace);
+        return newWorkspace;
+    }
+
+    /**
+     * Record the time spent in each stage of {@link #callRegion} (assembly, read likelihood calculation, realignment
+     * of reads to their best haplotype and genotyping) in the given traversal profile. Engines running on different
+     * threads may share a profiler.
+     *
+     * @param profiler profiler to record stage times in
+     */
+    public void setTraversalProfiler(final TraversalProfiler profiler) {
+        Utils.nonNull(profiler);
+        assemblyTimer = profiler.getTimer(ASSEMBLY_TIMER);
+        likelihoodsTimer = profiler.getTimer(LIKELIHOODS_TIMER);
+        realignmentTimer = profiler.getTimer(REALIGNMENT_TIMER);
+        genotypingTimer = profiler.getTimer(GENOTYPING_TIMER);
     }
 
     /**
@@ -215,12 +330,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         validateAndInitializeArgs();
         minTailQuality = (byte)(hcArgs.minBaseQualityScore - 1);
 
-        initializeActiveRegionEvaluationGenotyperEngine();
-
-        genotypingEngine = new HaplotypeCallerGenotypingEngine(hcArgs, samplesList, ! hcArgs.doNotRunPhysicalPhasing);
-        genotypingEngine.setAnnotationEngine(annotationEngine);
-
-        referenceConfidenceModel = new ReferenceConfidenceModel(samplesList, readsHeader, hcArgs.indelSizeToEliminateInRefModel, hcArgs.standardArgs.genotypeArgs.numRefIfMissing);
+        initializeActiveRegionEvaluationGenotyperArgs();
 
         //Allele-specific annotations are not yet supported in the VCF mode
         if (isAlleleSpecificMode(annotationEngine) && isVCFMode()){
@@ -228,8 +338,6 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
 
         haplotypeBAMWriter = AssemblyBasedCallerUtils.createBamWriter(hcArgs, createBamOutIndex, createBamOutMD5, readsHeader);
-        assemblyEngine = hcArgs.createReadThreadingAssembler();
-        likelihoodCalculationEngine = AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs);
     }
 
     private boolean isVCFMode() {
@@ -305,8 +413,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
     }
 
-    private void initializeActiveRegionEvaluationGenotyperEngine() {
-        final StandardCallerArgumentCollection activeRegionArgs = new StandardCallerArgumentCollection();
+    private void initializeActiveRegionEvaluationGenotyperArgs() {
+        activeRegionArgs = new StandardCallerArgumentCollection();
         activeRegionArgs.copyStandardCallerArgsFrom(hcArgs.standardArgs);
 
         activeRegionArgs.outputMode = OutputMode.EMIT_VARIANTS_ONLY;
@@ -315,9 +423,6 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         activeRegionArgs.CONTAMINATION_FRACTION_FILE = null;
         // Seems that at least with some test data we can lose genuine haploid variation if we use ploidy == 1
         activeRegionArgs.genotypeArgs.samplePloidy = Math.max(MINIMUM_PUTATIVE_PLOIDY_FOR_ACTIVE_REGION_DISCOVERY, hcArgs.standardArgs.genotypeArgs.samplePloidy);
-
-        activeRegionEvaluationGenotyperEngine = new MinimalGenotypingEngine(activeRegionArgs, samplesList);
-        activeRegionEvaluationGenotyperEngine.setLogger(logger);
     }
 
     /**
@@ -383,7 +488,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final Set<VCFHeaderLine> headerInfo = new HashSet<>();
         headerInfo.addAll(defaultToolHeaderLines);
 
-        headerInfo.addAll(genotypingEngine.getAppropriateVCFInfoHeaders());
+        headerInfo.addAll(threadWorkspace.get().genotypingEngine.getAppropriateVCFInfoHeaders());
         // all annotation fields from VariantAnnotatorEngine
         headerInfo.addAll(annotationEngine.getVCFAnnotationDescriptions(emitReferenceConfidence()));
         // all callers need to add these standard annotation header lines
@@ -415,7 +520,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         headerInfo.add(GATKVCFHeaderLines.getFilterLine(GATKVCFConstants.LOW_QUAL_FILTER_NAME));
 
         if ( emitReferenceConfidence() ) {
-            headerInfo.addAll(referenceConfidenceModel.getVCFHeaderLines());
+            headerInfo.addAll(threadWorkspace.get().referenceConfidenceModel.getVCFHeaderLines());
         }
 
         final VCFHeader vcfHeader = new VCFHeader(headerInfo, sampleSet);
@@ -458,6 +563,14 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             return new ActivityProfileState(ref.getInterval(), 0.0);
         }
 
+        if (samplesList.numberOfSamples() == 1 && ReferenceConfidenceModel.isReferenceOnlyBeforeAssembly(context.getBasePileup(), ref.getBase(), hcArgs.minBaseQualityScore)) {
+            // the single-sample active probability computed below would be exactly zero, with no high quality soft clips,
+            // so skip the reference model at the many loci where all bases match the reference
+            return new ActivityProfileState(ref.getInterval(), 0.0);
+        }
+
+        final Workspace workspace = threadWorkspace.get();
+        final MinimalGenotypingEngine activeRegionEvaluationGenotyperEngine = workspace.activeRegionEvaluationGenotyperEngine;
         final int ploidy = activeRegionEvaluationGenotyperEngine.getConfiguration().genotypeArgs.samplePloidy;
         final List<Allele> noCall = GATKVariantContextUtils.noCallAlleles(ploidy); // used to noCall all genotypes until the exact model is applied
 
@@ -474,7 +587,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         for( final Map.Entry<String, AlignmentContext> sample : splitContexts.entrySet() ) {
             // The ploidy here is not dictated by the sample but by the simple genotyping-engine used to determine whether regions are active or not.
             final int activeRegionDetectionHackishSamplePloidy = activeRegionEvaluationGenotyperEngine.getConfiguration().genotypeArgs.samplePloidy;
-            final double[] genotypeLikelihoods = ((RefVsAnyResult)referenceConfidenceModel.calcGenotypeLikelihoodsOfRefVsAny(
+            final double[] genotypeLikelihoods = ((RefVsAnyResult)workspace.referenceConfidenceModel.calcGenotypeLikelihoodsOfRefVsAny(
                     activeRegionDetectionHackishSamplePloidy,
                     sample.getValue().getBasePileup(), ref.getBase(),
                     hcArgs.minBaseQualityScore,
@@ -507,6 +620,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
             return NO_CALLS;
         }
+        final Workspace workspace = threadWorkspace.get();
 
         final List<VariantContext> VCpriors = new ArrayList<>();
         if (hcArgs.standardArgs.genotypeArgs.supportVariants != null) {
@@ -519,7 +633,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( ! region.isActive() ) {
             // Not active so nothing to do!
-            return referenceModelForNoVariation(region, true, VCpriors);
+            return referenceModelForNoVariation(workspace, region, true, VCpriors);
         }
 
         final List<VariantContext> givenAlleles = features.getValues(hcArgs.alleles).stream()
@@ -527,23 +641,29 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( givenAlleles.isEmpty() && region.size() == 0 ) {
             // No reads here so nothing to do!
-            return referenceModelForNoVariation(region, true, VCpriors);
+            return referenceModelForNoVariation(workspace, region, true, VCpriors);
         }
 
         if (assemblyDebugOutStream != null) {
-            assemblyDebugOutStream.println("\n\n\n\n"+region.getSpan()+"\nNumber of reads in region: " + region.getReads().size() + "     they are:");
-            for (GATKRead read : region.getReads()) {
-                assemblyDebugOutStream.println(read.getName() + "   " + read.convertToSAMRecord(region.getHeader()).getFlags());
+            synchronized (assemblyDebugOutStream) {
+                assemblyDebugOutStream.println("\n\n\n\n"+region.getSpan()+"\nNumber of reads in region: " + region.getReads().size() + "     they are:");
+                for (GATKRead read : region.getReads()) {
+                    assemblyDebugOutStream.println(read.getName() + "   " + read.convertToSAMRecord(region.getHeader()).getFlags());
+                }
             }
         }
 
         // run the local assembler, getting back a collection of information on how we should proceed
-        final AssemblyResultSet untrimmedAssemblyResult =  AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner, !hcArgs.doNotCorrectOverlappingBaseQualities);
+        final long assemblyStart = assemblyTimer.start();
+        final AssemblyResultSet untrimmedAssemblyResult =  AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, workspace.referenceReader, workspace.assemblyEngine, aligner, !hcArgs.doNotCorrectOverlappingBaseQualities);
+        assemblyTimer.stop(assemblyStart);
 
         if (assemblyDebugOutStream != null) {
-            assemblyDebugOutStream.println("\nThere were " + untrimmedAssemblyResult.getHaplotypeList().size() + " haplotypes found. Here they are:");
-            for (String haplotype : untrimmedAssemblyResult.getHaplotypeList().stream().map(haplotype -> haplotype.toString()).sorted().collect(Collectors.toList())) {
-                assemblyDebugOutStream.println(haplotype);
+            synchronized (assemblyDebugOutStream) {
+                assemblyDebugOutStream.println("\nThere were " + untrimmedAssemblyResult.getHaplotypeList().size() + " haplotypes found. Here they are:");
+                for (String haplotype : untrimmedAssemblyResult.getHaplotypeList().stream().map(haplotype -> haplotype.toString()).sorted().collect(Collectors.toList())) {
+                    assemblyDebugOutStream.println(haplotype);
+                }
             }
         }
 
@@ -552,7 +672,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(region, allVariationEvents, referenceContext);
 
         if ( ! trimmingResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return referenceModelForNoVariation(workspace, region, false, VCpriors);
         }
 
         final AssemblyResultSet assemblyResult = untrimmedAssemblyResult.trimTo(trimmingResult.getVariantRegion());
@@ -573,7 +693,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         // abort early if something is out of the acceptable range
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if( ! assemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return referenceModelForNoVariation(workspace, region, false, VCpriors);
         }
 
         // For sure this is not true if gVCF is on.
@@ -584,7 +704,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if ( regionForGenotyping.size() == 0 && ! hcArgs.disableOptimizations ) {
             // no reads remain after filtering so nothing else to do!
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return referenceModelForNoVariation(workspace, region, false, VCpriors);
         }
 
         // evaluate each sample's reads against all haplotypes
@@ -592,12 +712,16 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final Map<String,List<GATKRead>> reads = AssemblyBasedCallerUtils.splitReadsBySample(samplesList, readsHeader, regionForGenotyping.getReads());
 
         // Calculate the likelihoods: CPU intensive part.
+        final long likelihoodsStart = likelihoodsTimer.start();
         final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods =
-                likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
+                workspace.likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
+        likelihoodsTimer.stop(likelihoodsStart);
 
         // Realign reads to their best haplotype.
-        final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
+        final long realignmentStart = realignmentTimer.start();
+        final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner, readRealignmentExecutor);
         readLikelihoods.changeEvidence(readRealignments);
+        realignmentTimer.stop(realignmentStart);
 
         // Note: we used to subset down at this point to only the "best" haplotypes in all samples for genotyping, but there
         //  was a bad interaction between that selection and the marginalization that happens over each event when computing
@@ -605,7 +729,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         //  haplotype containing C as reference (and vice versa).  Now this is fine if all possible haplotypes are included
         //  in the genotyping, but we lose information if we select down to a few haplotypes.  [EB]
 
-        final CalledHaplotypes calledHaplotypes = genotypingEngine.assignGenotypeLikelihoods(
+        final long genotypingStart = genotypingTimer.start();
+        final CalledHaplotypes calledHaplotypes = workspace.genotypingEngine.assignGenotypeLikelihoods(
                 haplotypes,
                 readLikelihoods,
                 perSampleFilteredReadList,
@@ -618,14 +743,18 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
                 hcArgs.maxMnpDistance,
                 readsHeader,
                 haplotypeBAMWriter.isPresent());
+        genotypingTimer.stop(genotypingStart);
 
         if ( haplotypeBAMWriter.isPresent() ) {
             final Set<Haplotype> calledHaplotypeSet = new HashSet<>(calledHaplotypes.getCalledHaplotypes());
             if ( hcArgs.disableOptimizations ) {
                 calledHaplotypeSet.add(assemblyResult.getReferenceHaplotype());
             }
-            haplotypeBAMWriter.get().writeReadsAlignedToHaplotypes(haplotypes, assemblyResult.getPaddedReferenceLoc(), haplotypes,
-                                                             calledHaplotypeSet, readLikelihoods,regionForGenotyping.getSpan());
+            // keep the haplotypes and reads of a region together when regions are called concurrently
+            synchronized (haplotypeBAMWriter.get()) {
+                haplotypeBAMWriter.get().writeReadsAlignedToHaplotypes(haplotypes, assemblyResult.getPaddedReferenceLoc(), haplotypes,
+                                                                 calledHaplotypeSet, readLikelihoods,regionForGenotyping.getSpan());
+            }
         }
 
         if( hcArgs.assemblerArgs.debugAssembly) {
@@ -635,19 +764,19 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         if ( emitReferenceConfidence() ) {
             if ( !containsCalls(calledHaplotypes) ) {
                 // no called all of the potential haplotypes
-                return referenceModelForNoVariation(region, false, VCpriors);
+                return referenceModelForNoVariation(workspace, region, false, VCpriors);
             }
             else {
                 final List<VariantContext> result = new LinkedList<>();
                 // output left-flanking non-variant section, then variant-containing section, then right flank
-                trimmingResult.nonVariantLeftFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(flank, false, VCpriors)));
+                trimmingResult.nonVariantLeftFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(workspace, flank, false, VCpriors)));
 
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
+                result.addAll(workspace.referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
                         calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), hcArgs.standardArgs.genotypeArgs.supportVariants != null,
+                        readLikelihoods, workspace.genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), hcArgs.standardArgs.genotypeArgs.supportVariants != null,
                         VCpriors));
 
-                trimmingResult.nonVariantRightFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(flank, false, VCpriors)));
+                trimmingResult.nonVariantRightFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(workspace, flank, false, VCpriors)));
 
                 return result;
             }
@@ -661,6 +790,27 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
     }
 
+    /**
+     * Call variants in an assembly region on a thread of the given executor, as {@link #callRegion} does.  Each thread
+     * of the executor gets its own workspace on its first call, so the memory used grows with the number of threads,
+     * not with the number of regions in flight.
+     *
+     * The region and contexts are used by the executor thread, so they must not be modified or used by other threads
+     * until the returned future completes; in particular the contexts must be backed by data sources that are not
+     * used concurrently elsewhere.  Calls are not ordered: callers that emit them in order must do so themselves.
+     *
+     * @param region region to assemble and perform variant calling on
+     * @param features Features overlapping the assembly region
+     * @param executor executor to call the region on
+     * @return a future completed with the variants discovered in the region, or with the exception thrown while calling them
+     */
+    public CompletableFuture<List<VariantContext>> callRegionAsync(final AssemblyRegion region, final FeatureContext features,
+                                                                   final ReferenceContext referenceContext, final Executor executor) {
+        Utils.nonNull(region);
+        Utils.nonNull(executor);
+        return CompletableFuture.supplyAsync(() -> callRegion(region, features, referenceContext), executor);
+    }
+
     private boolean containsCalls(final CalledHaplotypes calledHaplotypes) {
         return calledHaplotypes.getCalls().stream()
                 .flatMap(call -> call.getGenotypes().stream())
@@ -671,11 +821,12 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * Create an ref model result (ref model or no calls depending on mode) for an active region without any variation
      * (not is active, or assembled to just ref)
      *
+     * @param workspace the workspace of the calling thread
      * @param region the region to return a no-variation result
      * @param needsToBeFinalized should the region be finalized before computing the ref model (should be false if already done)
      * @return a list of variant contexts (can be empty) to emit for this ref region
      */
-    private List<VariantContext> referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized, final List<VariantContext> VCpriors) {
+    private List<VariantContext> referenceModelForNoVariation(final Workspace workspace, final AssemblyRegion region, final boolean needsToBeFinalized, final List<VariantContext> VCpriors) {
         if ( emitReferenceConfidence() ) {
             //TODO - why the activeRegion cannot manage its own one-time finalization and filtering?
             //TODO - perhaps we can remove the last parameter of this method and the three lines bellow?
@@ -685,11 +836,11 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             filterNonPassingReads(region);
 
             final SimpleInterval paddedLoc = region.getPaddedSpan();
-            final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
+            final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, workspace.referenceReader);
             final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
-            return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
+            return workspace.referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
                     paddedLoc, region, AssemblyBasedCallerUtils.createDummyStratifiedReadMap(refHaplotype, samplesList, readsHeader, region),
-                    genotypingEngine.getPloidyModel(), Collections.emptyList(), hcArgs.standardArgs.genotypeArgs.supportVariants != null, VCpriors);
+                    workspace.genotypingEngine.getPloidyModel(), Collections.emptyList(), hcArgs.standardArgs.genotypeArgs.supportVariants != null, VCpriors);
         }
         else {
             return NO_CALLS;
@@ -697,28 +848,22 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     }
 
     /**
-     * Shutdown this HC engine, closing resources as appropriate
+     * Shutdown this HC engine, closing resources as appropriate.  Must not be called while regions are being called.
      */
     public void shutdown() {
-        likelihoodCalculationEngine.close();
+        workspaces.forEach(Workspace::close);
+        workspaces.clear();
+        if ( readRealignmentExecutor != null ) {
+            readRealignmentExecutor.shutdownNow();
+        }
         aligner.close();
         if ( haplotypeBAMWriter.isPresent() ) {
             haplotypeBAMWriter.get().close();
         }
-        if ( referenceReader != null){
-            try {
-                referenceReader.close();
-            } catch (IOException e) {
-                throw new RuntimeIOException(e);
-            }
-        }
 
         if (assemblyDebugOutStream != null) {
             assemblyDebugOutStream.close();
         }
-        // Write assembly region debug output if present
-        assemblyEngine.printDebugHistograms();
-
     }
 
     private Set<GATKRead> filterNonPassingReads( final AssemblyRegion activeRegion ) {
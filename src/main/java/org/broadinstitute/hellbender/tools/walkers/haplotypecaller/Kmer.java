@@ -16,6 +16,18 @@ import java.util.Arrays;
  *    only does the work of that operation once, updating its internal state
  */
 public final class Kmer {
+    /**
+     * The longest kmer that {@link #pack} can pack into a long, at two bits per base
+     */
+    public static final int MAX_PACKED_LENGTH = 31;
+
+    /**
+     * Returned by {@link #pack} for kmers that cannot be packed; never the packed value of a kmer
+     */
+    public static final long UNPACKABLE = -1L;
+
+    private static final byte[] PACKED_BASES = {'A', 'C', 'G', 'T'};
+
     // this values may be updated in the course of interacting with this kmer
     private byte[] bases;
     private int start;
@@ -105,6 +117,62 @@ public final class Kmer {
         return bases;
     }
 
+    /**
+     * Pack the bases of this kmer into a long
+     *
+     * @see #pack(byte[], int, int)
+     */
+    public long pack() {
+        return pack(bases, start, length);
+    }
+
+    /**
+     * Pack a kmer into a long, two bits per base, so that two kmers of the same length have the same packed value
+     * if and only if they are equal.  Packed values of kmers of different lengths must not be compared.
+     *
+     * @param bases an array of bases
+     * @param start the start of the kmer in bases
+     * @param length the length of the kmer
+     * @return the non-negative packed kmer, or {@link #UNPACKABLE} if the kmer is longer than {@link #MAX_PACKED_LENGTH}
+     *         or contains a base other than (upper case) A, C, G and T
+     */
+    public static long pack(final byte[] bases, final int start, final int length) {
+        if ( length > MAX_PACKED_LENGTH ) {
+            return UNPACKABLE;
+        }
+        long packed = 0;
+        for (int i = start, stop = start + length; i < stop; i++) {
+            final long code;
+            switch ( bases[i] ) {
+                case 'A': code = 0; break;
+                case 'C': code = 1; break;
+                case 'G': code = 2; break;
+                case 'T': code = 3; break;
+                default: return UNPACKABLE;
+            }
+            packed = (packed << 2) | code;
+        }
+        return packed;
+    }
+
+    /**
+     * Unpack a kmer packed by {@link #pack}
+     *
+     * @param packed the packed kmer
+     * @param length the length of the packed kmer
+     * @return a new kmer with the bases of the packed kmer
+     */
+    public static Kmer unpack(final long packed, final int length) {
+        Utils.validateArg(packed >= 0 && length <= MAX_PACKED_LENGTH, () -> "not a packed kmer of length " + length + ": " + packed);
+        final byte[] bases = new byte[length];
+        long remaining = packed;
+        for ( int i = length - 1; i >= 0; i-- ) {
+            bases[i] = PACKED_BASES[(int) (remaining & 3)];
+            remaining >>>= 2;
+        }
+        return new Kmer(bases);
+    }
+
     /**
      * The length of this kmer
      * @return an integer >= 0
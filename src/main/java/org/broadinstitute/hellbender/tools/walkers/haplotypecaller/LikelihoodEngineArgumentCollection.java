@@ -15,6 +15,11 @@ import java.io.Serializable;
 public final class LikelihoodEngineArgumentCollection implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    public static final String PAIR_HMM_RESULT_CACHE_SIZE_LONG_NAME = "pair-hmm-result-cache-size-mb";
+    public static final String PAIR_HMM_BAND_WIDTH_LONG_NAME = "pair-hmm-band-width";
+    public static final String PAIR_HMM_ABANDON_MARGIN_LONG_NAME = "pair-hmm-abandon-margin";
+    public static final String PAIR_HMM_BANDING_LIKELIHOOD_DIFFERENCES_LONG_NAME = "pair-hmm-banding-likelihood-differences";
+
     /**
      * Bases with a quality below this threshold will reduced to the minimum usable qualiy score (6).
      */
@@ -62,6 +67,46 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     @Argument(fullName="phred-scaled-global-read-mismapping-rate", doc="The global assumed mismapping rate for reads", optional = true)
     public int phredScaledGlobalReadMismappingRate = 45;
 
+    /**
+     * Overlapping active regions, and the tumor and normal samples of Mutect2, often evaluate the same read against a
+     * haplotype with the same sequence more than once. When this is positive, PairHMM results are cached by the content
+     * of the read (bases, qualities and gap penalties) and of the haplotype, so that they are computed only once, and
+     * the cache hit rate is reported at the end of the run. The cache holds roughly this many megabytes of results,
+     * evicting the least recently used ones; the results are identical with or without it.
+     */
+    @Advanced
+    @Argument(fullName = PAIR_HMM_RESULT_CACHE_SIZE_LONG_NAME, doc = "Memory (in MB) to use for caching PairHMM results across regions, 0 to disable", optional = true, minValue = 0)
+    public int pairHMMResultCacheSizeMB = 0;
+
+    /**
+     * When this is positive, the PairHMM anchors each read to each haplotype with short exact matches from the start,
+     * middle and end of the read, and only computes the alignments within this many bases of the anchors, which is
+     * much faster for long haplotypes. Reads that cannot be anchored are computed in full. The likelihoods are
+     * approximate, so this is only supported by the LOGLESS_CACHING_THREADED implementation.
+     */
+    @Advanced
+    @Argument(fullName = PAIR_HMM_BAND_WIDTH_LONG_NAME, doc = "Width of the band around its anchors in which to align each read to each haplotype in the PairHMM, 0 to align fully", optional = true, minValue = 0)
+    public int pairHMMBandWidth = 0;
+
+    /**
+     * When this is positive, the PairHMM stops computing the likelihood of a read given a haplotype once it is known to
+     * be more than this far (in log10 units) below the best likelihood of the read so far, and uses an upper bound
+     * instead. Such haplotypes hardly affect the genotypes. Only supported by the LOGLESS_CACHING_THREADED implementation.
+     */
+    @Advanced
+    @Argument(fullName = PAIR_HMM_ABANDON_MARGIN_LONG_NAME, doc = "Log10 likelihood margin below the best haplotype of a read at which the PairHMM stops computing other haplotypes, 0 to never stop early", optional = true, minValue = 0)
+    public double pairHMMAbandonMargin = 0.0;
+
+    /**
+     * Compute the exact likelihoods as well as the approximate ones of --pair-hmm-band-width and --pair-hmm-abandon-margin,
+     * and report how many likelihoods differ, and how many reads have a different most likely haplotype, at the end
+     * of the run. This only measures the likelihoods: the approximate ones are used for calling, so to evaluate the
+     * effect on the calls, compare them with those of a run without approximation using Concordance.
+     */
+    @Advanced
+    @Argument(fullName = PAIR_HMM_BANDING_LIKELIHOOD_DIFFERENCES_LONG_NAME, doc = "Report the differences between the banded and the exact PairHMM likelihoods", optional = true)
+    public boolean pairHMMBandingLikelihoodDifferences = false;
+
     @ArgumentCollection
     public PairHMMNativeArgumentCollection pairHMMNativeArgs = new PairHMMNativeArgumentCollection();
 
@@ -12,6 +12,8 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.*;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMMResultCache;
+import org.broadinstitute.hellbender.utils.pairhmm.ThreadedLoglessPairHMM;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
@@ -120,6 +122,27 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final double log10globalReadMismappingRate,
                                               final PCRErrorModel pcrErrorModel,
                                               final byte baseQualityScoreThreshold) {
+        this( constantGCP, arguments, hmmType, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold, 0L );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     * @param resultCacheBytes memory to use for caching PairHMM results across calls, see {@link PairHMMResultCache}; 0 to disable
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final long resultCacheBytes) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
         if (constantGCP < 0){
@@ -132,6 +155,10 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         this.log10globalReadMismappingRate = log10globalReadMismappingRate;
         this.pcrErrorModel = pcrErrorModel;
         this.pairHMM = hmmType.makeNewHMM(arguments);
+        Utils.validateArg(resultCacheBytes >= 0, "resultCacheBytes must be non-negative");
+        if (resultCacheBytes > 0) {
+            pairHMM.setResultCache(new PairHMMResultCache(resultCacheBytes));
+        }
 
         initializePCRErrorModel();
 
@@ -141,6 +168,15 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         this.baseQualityScoreThreshold = baseQualityScoreThreshold;
     }
 
+    /**
+     * Approximate the PairHMM likelihoods to save time, see {@link ThreadedLoglessPairHMM#setBanding}.  Requires the
+     * {@link PairHMM.Implementation#LOGLESS_CACHING_THREADED} implementation.
+     */
+    public void setPairHMMBanding(final int bandWidth, final double abandonMargin, final boolean reportLikelihoodDifferences) {
+        Utils.validate(pairHMM instanceof ThreadedLoglessPairHMM, () -> "banding is not supported by " + pairHMM.getClass().getSimpleName());
+        ((ThreadedLoglessPairHMM) pairHMM).setBanding(bandWidth, abandonMargin, reportLikelihoodDifferences);
+    }
+
     @Override
     public void close() {
         pairHMM.close();
@@ -8,7 +8,7 @@ import org.broadinstitute.barclay.argparser.Argument;
  */
 public class PairHMMNativeArgumentCollection {
 
-    @Argument(fullName = "native-pair-hmm-threads", doc="How many threads should a native pairHMM implementation use", optional = true)
+    @Argument(fullName = "native-pair-hmm-threads", doc="How many threads should a native pairHMM implementation, or the LOGLESS_CACHING_THREADED implementation, use", optional = true)
     private int pairHmmNativeThreads = 4;
 
     @Argument(fullName = "native-pair-hmm-use-double-precision", doc="use double precision in the native pairHmm. " +
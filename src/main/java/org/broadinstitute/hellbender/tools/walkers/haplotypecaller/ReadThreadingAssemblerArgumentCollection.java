@@ -26,6 +26,7 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     public static final String KMER_SIZE_LONG_NAME = "kmer-size";
     public static final String DONT_INCREASE_KMER_SIZE_LONG_NAME = "dont-increase-kmer-sizes-for-cycles";
     public static final String LINKED_DE_BRUIJN_GRAPH_LONG_NAME = "linked-de-bruijn-graph";
+    public static final String KMER_ASSEMBLY_THREADS_LONG_NAME = "kmer-assembly-threads";
 
     // -----------------------------------------------------------------------------------------------
     // arguments to control internal behavior of the read threading assembler
@@ -54,6 +55,16 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     @Argument(fullName="allow-non-unique-kmers-in-ref", doc="Allow graphs that have non-unique kmers in the reference", optional = true)
     public boolean allowNonUniqueKmersInRef = false;
 
+    /**
+     * Number of threads used to build and prune the graphs for the different kmer sizes of an assembly region concurrently.
+     * The assembly results are identical to those of a single thread, but when kmer sizes are increased because of cycles,
+     * graphs for larger kmer sizes may be built speculatively and then discarded. Each assembly engine (one per traversal
+     * thread) gets a pool of this size.
+     */
+    @Advanced
+    @Argument(fullName= KMER_ASSEMBLY_THREADS_LONG_NAME, doc="Number of threads used to assemble the kmer sizes of a region concurrently", optional = true, minValue = 1)
+    public int kmerAssemblyThreads = 1;
+
     /**
      * If fewer samples than the specified number pass the minPruning threshold for a given path, that path will be eliminated from the graph.
      */
@@ -68,6 +68,13 @@ public class ReferenceConfidenceModel {
      */
     private static final byte HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD = 28;
 
+    /**
+     * Lowest base quality at which a base matching the reference is more likely under the hom-ref genotype than under
+     * any other genotype in {@link #calcGenotypeLikelihoodsOfRefVsAny}, i.e. at which the probability that the base is
+     * correct is greater than a third of the probability that it is an error.
+     */
+    private static final byte MIN_REF_FAVORING_BASE_QUAL = 2;
+
     //TODO change this: https://github.com/broadinstitute/gsa-unstable/issues/1108
     protected static final int MAX_N_INDEL_INFORMATIVE_READS = 40; // more than this is overkill because GQs are capped at 99 anyway
 
@@ -389,6 +396,34 @@ public class ReferenceConfidenceModel {
         return result;
     }
 
+    /**
+     * Fast check for pileups that carry no evidence of variation before assembly: no mismatching bases, deletions,
+     * indel starts or bases next to soft clips among the bases used by {@link #calcGenotypeLikelihoodsOfRefVsAny}.
+     * For such a pileup the hom-ref genotype has the highest likelihood (or all genotypes are equally likely if no
+     * base is used), so the single-sample non-reference posterior used for activity detection is exactly zero and
+     * there is no need to compute the likelihoods.
+     *
+     * @param pileup the read backed pileup at the position
+     * @param refBase the reference base at this pileup position
+     * @param minBaseQual the min base quality for a read in the pileup at the pileup position to be included in the calculation
+     * @return true if no base of the pileup supports a non-reference allele
+     */
+    public static boolean isReferenceOnlyBeforeAssembly(final ReadPileup pileup, final byte refBase, final byte minBaseQual) {
+        for (final PileupElement p : pileup) {
+            if (p.isDeletion()) {
+                return false;
+            }
+            final byte qual = p.getQual();
+            if (qual <= minBaseQual) {
+                continue;
+            }
+            if (qual < MIN_REF_FAVORING_BASE_QUAL || isAltBeforeAssembly(p, refBase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips, final boolean readsWereRealigned) {
         final boolean isAlt = readsWereRealigned ? isAltAfterAssembly(element, refBase) : isAltBeforeAssembly(element, refBase);
         final double referenceLikelihood;
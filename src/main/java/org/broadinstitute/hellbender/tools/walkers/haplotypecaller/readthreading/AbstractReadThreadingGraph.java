@@ -47,7 +47,7 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
     /**
      * A map from kmers -> their corresponding vertex in the graph
      */
-    protected final Map<Kmer, MultiDeBruijnVertex> kmerToVertexMap = new LinkedHashMap<>();
+    protected final PackedKmerVertexMap kmerToVertexMap;
     protected final boolean debugGraphTransformations;
     protected final byte minBaseQualityToUseInAssembly;
     protected List<MultiDeBruijnVertex> referencePath = null;
@@ -67,6 +67,7 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
 
     AbstractReadThreadingGraph(int kmerSize, EdgeFactory<MultiDeBruijnVertex, MultiSampleEdge> edgeFactory) {
         super(kmerSize, edgeFactory);
+        kmerToVertexMap = new PackedKmerVertexMap(kmerSize);
         debugGraphTransformations = false;
         minBaseQualityToUseInAssembly = 0;
     }
@@ -81,6 +82,7 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
 
         Utils.validateArg(kmerSize > 0, () -> "bad minkKmerSize " + kmerSize);
 
+        kmerToVertexMap = new PackedKmerVertexMap(kmerSize);
         this.debugGraphTransformations = debugGraphTransformations;
         this.minBaseQualityToUseInAssembly = minBaseQualityToUseInAssembly;
     }
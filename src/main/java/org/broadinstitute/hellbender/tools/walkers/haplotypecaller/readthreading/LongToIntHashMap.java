@@ -0,0 +1,138 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative longs to ints, with linear probing, that stores its keys and values
+ * in primitive arrays.  Used to index packed kmers (see {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer#pack})
+ * without allocating an object per kmer.
+ */
+final class LongToIntHashMap {
+    /**
+     * Returned by lookups for keys that are not in the map
+     */
+    static final int NO_VALUE = -1;
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+    private int shift;
+
+    /**
+     * @param expectedSize number of keys the map should hold without growing
+     */
+    LongToIntHashMap(final int expectedSize) {
+        Utils.validateArg(expectedSize >= 0, "expectedSize must be >= 0");
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the value for key, or {@link #NO_VALUE} if key is not in the map
+     */
+    int get(final long key) {
+        final int slot = findSlot(key);
+        return keys[slot] == EMPTY ? NO_VALUE : values[slot];
+    }
+
+    /**
+     * Associate value with key, replacing any previous value
+     *
+     * @param key a non-negative key
+     * @param value a non-negative value
+     * @return the previous value for key, or {@link #NO_VALUE} if there was none
+     */
+    int put(final long key, final int value) {
+        Utils.validateArg(key >= 0 && value >= 0, "keys and values must be non-negative");
+        final int slot = findSlot(key);
+        if ( keys[slot] != EMPTY ) {
+            final int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if ( ++size * 2 > keys.length ) {
+            rehash(keys.length * 2);
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Remove key from the map, closing the gap it leaves in its probe sequence so that no tombstones are needed
+     *
+     * @return the value that was associated with key, or {@link #NO_VALUE} if key was not in the map
+     */
+    int remove(final long key) {
+        int gap = findSlot(key);
+        if ( keys[gap] == EMPTY ) {
+            return NO_VALUE;
+        }
+        final int removed = values[gap];
+        final int mask = keys.length - 1;
+        for ( int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask ) {
+            // an entry can fill the gap if the gap lies between its home slot and its current slot
+            final int home = homeSlot(keys[next]);
+            if ( ((next - home) & mask) >= ((next - gap) & mask) ) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * @return the slot holding key, or the empty slot where it would be inserted
+     */
+    private int findSlot(final long key) {
+        final int mask = keys.length - 1;
+        int slot = homeSlot(key);
+        while ( keys[slot] != EMPTY && keys[slot] != key ) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Fibonacci hashing: packed kmers differ mostly in their low bits, so take the high bits of the product
+     */
+    private int homeSlot(final long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void rehash(final int newCapacity) {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(newCapacity);
+        for ( int i = 0; i < oldKeys.length; i++ ) {
+            if ( oldKeys[i] != EMPTY ) {
+                final int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
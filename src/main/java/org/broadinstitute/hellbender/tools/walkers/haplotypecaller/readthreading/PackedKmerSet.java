@@ -0,0 +1,118 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of kmers of a single length, used to find the non-unique kmers of the sequences threaded into a
+ * {@link ReadThreadingGraph}.
+ *
+ * As in {@link PackedKmerVertexMap}, kmers of at most {@link Kmer#MAX_PACKED_LENGTH} bases of A, C, G and T are
+ * packed into longs and kept in primitive arrays, and only the kmers that cannot be packed are kept as {@link Kmer}s.
+ * Kmers can be added and looked up directly from a range of a sequence.  Removal is not supported.
+ */
+final class PackedKmerSet extends AbstractSet<Kmer> {
+    private final int kmerSize;
+
+    // packed kmers in insertion order, and their positions in that order
+    private long[] packedKmers;
+    private final LongToIntHashMap packedPositions;
+    private final Set<Kmer> unpackableKmers = new LinkedHashSet<>();
+
+    /**
+     * @param kmerSize length of the kmers in the set
+     * @param expectedSize number of kmers the set should hold without growing
+     */
+    PackedKmerSet(final int kmerSize, final int expectedSize) {
+        Utils.validateArg(kmerSize > 0, () -> "bad kmerSize " + kmerSize);
+        this.kmerSize = kmerSize;
+        this.packedKmers = new long[Math.max(1, expectedSize)];
+        this.packedPositions = new LongToIntHashMap(expectedSize);
+    }
+
+    /**
+     * Add the kmer of sequence starting at start
+     *
+     * @return true if the kmer was not already in the set
+     */
+    boolean add(final byte[] sequence, final int start) {
+        final long packed = Kmer.pack(sequence, start, kmerSize);
+        return packed == Kmer.UNPACKABLE ? unpackableKmers.add(new Kmer(sequence, start, kmerSize)) : addPacked(packed);
+    }
+
+    /**
+     * @return true if the kmer of sequence starting at start is in the set
+     */
+    boolean contains(final byte[] sequence, final int start) {
+        final long packed = Kmer.pack(sequence, start, kmerSize);
+        return packed == Kmer.UNPACKABLE ? unpackableKmers.contains(new Kmer(sequence, start, kmerSize)) :
+                packedPositions.get(packed) != LongToIntHashMap.NO_VALUE;
+    }
+
+    @Override
+    public boolean add(final Kmer kmer) {
+        Utils.validateArg(kmer.length() == kmerSize, () -> "kmer " + kmer + " does not have length " + kmerSize);
+        final long packed = kmer.pack();
+        return packed == Kmer.UNPACKABLE ? unpackableKmers.add(kmer) : addPacked(packed);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if ( !(o instanceof Kmer) ) {
+            return false;
+        }
+        final Kmer kmer = (Kmer) o;
+        final long packed = kmer.length() == kmerSize ? kmer.pack() : Kmer.UNPACKABLE;
+        return packed == Kmer.UNPACKABLE ? unpackableKmers.contains(kmer) : packedPositions.get(packed) != LongToIntHashMap.NO_VALUE;
+    }
+
+    @Override
+    public int size() {
+        return packedPositions.size() + unpackableKmers.size();
+    }
+
+    /**
+     * Iterates over the packable kmers in insertion order, followed by the unpackable ones
+     */
+    @Override
+    public Iterator<Kmer> iterator() {
+        final int numPacked = packedPositions.size();
+        final Iterator<Kmer> unpackable = unpackableKmers.iterator();
+        return new Iterator<Kmer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < numPacked || unpackable.hasNext();
+            }
+
+            @Override
+            public Kmer next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                return next < numPacked ? Kmer.unpack(packedKmers[next++], kmerSize) : unpackable.next();
+            }
+        };
+    }
+
+    private boolean addPacked(final long packed) {
+        final int position = packedPositions.size();
+        if ( packedPositions.get(packed) != LongToIntHashMap.NO_VALUE ) {
+            return false;
+        }
+        packedPositions.put(packed, position);
+        if ( position == packedKmers.length ) {
+            packedKmers = Arrays.copyOf(packedKmers, position * 2);
+        }
+        packedKmers[position] = packed;
+        return true;
+    }
+}
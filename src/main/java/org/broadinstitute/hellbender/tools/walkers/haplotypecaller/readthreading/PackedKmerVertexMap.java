@@ -0,0 +1,181 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The map from kmers to their vertices in an {@link AbstractReadThreadingGraph}.
+ *
+ * Kmers of at most {@link Kmer#MAX_PACKED_LENGTH} bases of A, C, G and T are packed into longs and indexed by a
+ * {@link LongToIntHashMap} into a list of vertices, so a lookup hashes and compares a single long, and the map holds
+ * no key or entry objects.  The few kmers that cannot be packed (those with other bases, and all kmers of graphs
+ * with larger kmer sizes) are kept in an ordinary map.  Lookups can be made directly from a range of a sequence,
+ * without creating a {@link Kmer}.
+ *
+ * The key of every entry must be the sequence of its vertex, which is how keys are recovered when iterating over
+ * the entries.
+ */
+final class PackedKmerVertexMap extends AbstractMap<Kmer, MultiDeBruijnVertex> {
+    private final int kmerSize;
+
+    private final LongToIntHashMap packedIndex = new LongToIntHashMap(0);
+    // vertices of packable kmers, indexed by packedIndex; null where an entry has been removed
+    private final List<MultiDeBruijnVertex> packedVertices = new ArrayList<>();
+    private final Map<Kmer, MultiDeBruijnVertex> unpackableVertices = new LinkedHashMap<>();
+
+    PackedKmerVertexMap(final int kmerSize) {
+        Utils.validateArg(kmerSize > 0, () -> "bad kmerSize " + kmerSize);
+        this.kmerSize = kmerSize;
+    }
+
+    /**
+     * Get the vertex for the kmer of sequence starting at start
+     *
+     * @return the vertex, or null if the kmer is not in the map
+     */
+    MultiDeBruijnVertex get(final byte[] sequence, final int start) {
+        final long packed = Kmer.pack(sequence, start, kmerSize);
+        return packed == Kmer.UNPACKABLE ? unpackableVertices.get(new Kmer(sequence, start, kmerSize)) : getPacked(packed);
+    }
+
+    /**
+     * @return true if the kmer of sequence starting at start is in the map
+     */
+    boolean containsKey(final byte[] sequence, final int start) {
+        return get(sequence, start) != null;
+    }
+
+    @Override
+    public MultiDeBruijnVertex get(final Object key) {
+        if ( !(key instanceof Kmer) ) {
+            return null;
+        }
+        final Kmer kmer = (Kmer) key;
+        final long packed = kmer.length() == kmerSize ? kmer.pack() : Kmer.UNPACKABLE;
+        return packed == Kmer.UNPACKABLE ? unpackableVertices.get(kmer) : getPacked(packed);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public MultiDeBruijnVertex put(final Kmer kmer, final MultiDeBruijnVertex vertex) {
+        Utils.nonNull(vertex, "vertex cannot be null");
+        Utils.validateArg(kmer.length() == kmerSize, () -> "kmer " + kmer + " does not have length " + kmerSize);
+        final long packed = kmer.pack();
+        if ( packed == Kmer.UNPACKABLE ) {
+            return unpackableVertices.put(kmer, vertex);
+        }
+        final int index = packedIndex.get(packed);
+        if ( index != LongToIntHashMap.NO_VALUE ) {
+            return packedVertices.set(index, vertex);
+        }
+        packedIndex.put(packed, packedVertices.size());
+        packedVertices.add(vertex);
+        return null;
+    }
+
+    @Override
+    public MultiDeBruijnVertex remove(final Object key) {
+        if ( !(key instanceof Kmer) ) {
+            return null;
+        }
+        final Kmer kmer = (Kmer) key;
+        final long packed = kmer.length() == kmerSize ? kmer.pack() : Kmer.UNPACKABLE;
+        if ( packed == Kmer.UNPACKABLE ) {
+            return unpackableVertices.remove(kmer);
+        }
+        final int index = packedIndex.remove(packed);
+        return index == LongToIntHashMap.NO_VALUE ? null : packedVertices.set(index, null);
+    }
+
+    @Override
+    public int size() {
+        return packedIndex.size() + unpackableVertices.size();
+    }
+
+    @Override
+    public void clear() {
+        packedIndex.clear();
+        packedVertices.clear();
+        unpackableVertices.clear();
+    }
+
+    @Override
+    public Set<Entry<Kmer, MultiDeBruijnVertex>> entrySet() {
+        return new AbstractSet<Entry<Kmer, MultiDeBruijnVertex>>() {
+            @Override
+            public Iterator<Entry<Kmer, MultiDeBruijnVertex>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return PackedKmerVertexMap.this.size();
+            }
+        };
+    }
+
+    private MultiDeBruijnVertex getPacked(final long packed) {
+        final int index = packedIndex.get(packed);
+        return index == LongToIntHashMap.NO_VALUE ? null : packedVertices.get(index);
+    }
+
+    /**
+     * Iterates over the entries of packable kmers in insertion order, followed by those of unpackable kmers
+     */
+    private final class EntryIterator implements Iterator<Entry<Kmer, MultiDeBruijnVertex>> {
+        private final Iterator<Entry<Kmer, MultiDeBruijnVertex>> unpackableEntries = unpackableVertices.entrySet().iterator();
+        private int nextPackedIndex = 0;
+        private Kmer lastPackedKmer = null;
+        private boolean lastWasUnpackable = false;
+
+        @Override
+        public boolean hasNext() {
+            while ( nextPackedIndex < packedVertices.size() && packedVertices.get(nextPackedIndex) == null ) {
+                nextPackedIndex++;
+            }
+            return nextPackedIndex < packedVertices.size() || unpackableEntries.hasNext();
+        }
+
+        @Override
+        public Entry<Kmer, MultiDeBruijnVertex> next() {
+            if ( !hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            if ( nextPackedIndex < packedVertices.size() ) {
+                final MultiDeBruijnVertex vertex = packedVertices.get(nextPackedIndex++);
+                lastPackedKmer = new Kmer(vertex.getSequence());
+                lastWasUnpackable = false;
+                return new SimpleImmutableEntry<>(lastPackedKmer, vertex);
+            }
+            lastPackedKmer = null;
+            lastWasUnpackable = true;
+            return unpackableEntries.next();
+        }
+
+        @Override
+        public void remove() {
+            if ( lastWasUnpackable ) {
+                unpackableEntries.remove();
+            } else {
+                Utils.validate(lastPackedKmer != null, "next() has not been called, or remove() has already been called");
+                PackedKmerVertexMap.this.remove(lastPackedKmer);
+            }
+            lastPackedKmer = null;
+            lastWasUnpackable = false;
+        }
+    }
+}
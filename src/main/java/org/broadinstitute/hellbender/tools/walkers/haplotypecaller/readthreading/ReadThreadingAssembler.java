@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreadin
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
@@ -9,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
@@ -22,12 +24,17 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.read.CigarUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public final class ReadThreadingAssembler {
     private static final Logger logger = LogManager.getLogger(ReadThreadingAssembler.class);
@@ -71,6 +78,13 @@ public final class ReadThreadingAssembler {
     private Histogram haplotypeHistogram = null;
     private Histogram kmersUsedHistogram = null;
 
+    /**
+     * Number of kmer sizes whose graphs are created at once, and the pool on which they are created (null when
+     * they are created serially)
+     */
+    private int kmerAssemblyThreads = 1;
+    private ExecutorService kmerAssemblyPool = null;
+
     public ReadThreadingAssembler(final int maxAllowedPathsForReadThreadingAssembler, final List<Integer> kmerSizes,
                                   final boolean dontIncreaseKmerSizesForCycles, final boolean allowNonUniqueKmersInRef,
                                   final int numPruningSamples, final int pruneFactor, final boolean useAdaptivePruning,
@@ -212,11 +226,19 @@ public final class ReadThreadingAssembler {
         boolean hasAdequatelyAssembledGraph = false;
         List<Integer> kmersToTry = getExpandedKmerList();
         // first, try using the requested kmer sizes
-        for ( int i = 0; i < kmersToTry.size(); i++ ) {
-            final int kmerSize = kmersToTry.get(i);
-            final boolean isLastCycle = i == kmersToTry.size() - 1;
-            if (!hasAdequatelyAssembledGraph) {
-                AssemblyResult assembledResult = createGraph(correctedReads, refHaplotype, kmerSize, isLastCycle || dontIncreaseKmerSizesForCycles, isLastCycle || allowNonUniqueKmersInRef, header, aligner);
+        // the graphs are created in batches of as many kmer sizes as we have assembly threads, but they are examined
+        // strictly in kmer order, so the graphs created after the first adequate one are simply discarded
+        int nextKmerIndex = 0;
+        while ( nextKmerIndex < kmersToTry.size() && !hasAdequatelyAssembledGraph ) {
+            final List<KmerGraphRequest> batch = new ArrayList<>(kmerAssemblyThreads);
+            for ( ; nextKmerIndex < kmersToTry.size() && batch.size() < kmerAssemblyThreads; nextKmerIndex++ ) {
+                final boolean isLastCycle = nextKmerIndex == kmersToTry.size() - 1;
+                batch.add(new KmerGraphRequest(kmersToTry.get(nextKmerIndex), isLastCycle || dontIncreaseKmerSizesForCycles, isLastCycle || allowNonUniqueKmersInRef));
+            }
+            for ( final AssemblyResult assembledResult : createGraphs(correctedReads, refHaplotype, batch, header, aligner) ) {
+                if ( hasAdequatelyAssembledGraph ) {
+                    break;
+                }
                 if (assembledResult != null && assembledResult.getStatus() == AssemblyResult.Status.ASSEMBLED_SOME_VARIATION) {
                     // do some QC on the graph
                     sanityCheckGraph(assembledResult.getThreadingGraph(), refHaplotype);
@@ -530,20 +552,32 @@ public final class ReadThreadingAssembler {
         final List<AssemblyResult> results = new LinkedList<>();
 
         // first, try using the requested kmer sizes
+        final List<KmerGraphRequest> requestedKmerSizes = new ArrayList<>(kmerSizes.size());
         for ( final int kmerSize : kmerSizes ) {
-            addResult(results, createGraph(reads, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner));
+            requestedKmerSizes.add(new KmerGraphRequest(kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef));
         }
+        createGraphs(reads, refHaplotype, requestedKmerSizes, header, aligner).forEach(result -> addResult(results, result));
 
         // if none of those worked, iterate over larger sizes if allowed to do so
+        // with more than one assembly thread, the next few sizes are tried at once and the smallest one that worked wins
         if ( results.isEmpty() && !dontIncreaseKmerSizesForCycles ) {
             int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
             int numIterations = 1;
             while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
-                // on the last attempt we will allow low complexity graphs
-                final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
-                addResult(results, createGraph(reads, refHaplotype, kmerSize, lastAttempt, lastAttempt, header, aligner));
-                kmerSize += KMER_SIZE_ITERATION_INCREASE;
-                numIterations++;
+                final List<KmerGraphRequest> batch = new ArrayList<>(kmerAssemblyThreads);
+                while ( batch.size() < kmerAssemblyThreads && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
+                    // on the last attempt we will allow low complexity graphs
+                    final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
+                    batch.add(new KmerGraphRequest(kmerSize, lastAttempt, lastAttempt));
+                    kmerSize += KMER_SIZE_ITERATION_INCREASE;
+                    numIterations++;
+                }
+                for ( final AssemblyResult result : createGraphs(reads, refHaplotype, batch, header, aligner) ) {
+                    addResult(results, result);
+                    if ( !results.isEmpty() ) {
+                        break;
+                    }
+                }
             }
         }
 
@@ -572,6 +606,75 @@ public final class ReadThreadingAssembler {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
 
+    /**
+     * The kmer size and graph checks for one call to {@link #createGraph}
+     */
+    private static final class KmerGraphRequest {
+        private final int kmerSize;
+        private final boolean allowLowComplexityGraphs;
+        private final boolean allowNonUniqueKmersInRef;
+
+        private KmerGraphRequest(final int kmerSize, final boolean allowLowComplexityGraphs, final boolean allowNonUniqueKmersInRef) {
+            this.kmerSize = kmerSize;
+            this.allowLowComplexityGraphs = allowLowComplexityGraphs;
+            this.allowNonUniqueKmersInRef = allowNonUniqueKmersInRef;
+        }
+    }
+
+    /**
+     * Creates the graphs for several kmer sizes, concurrently on the kmer assembly pool if there is one.
+     *
+     * Graph creation only reads the reads, the reference haplotype and the (stateless) chain pruner, so the graphs
+     * are independent of each other. The aligner is shared by the concurrent calls; both the Java and the native
+     * Smith-Waterman aligners keep no per-alignment state, apart from their (approximate) compute time statistics.
+     *
+     * @return the result of {@link #createGraph} for each request, in the order of the requests (possibly null)
+     */
+    private List<AssemblyResult> createGraphs(final List<GATKRead> reads,
+                                              final Haplotype refHaplotype,
+                                              final List<KmerGraphRequest> requests,
+                                              final SAMFileHeader header,
+                                              final SmithWatermanAligner aligner) {
+        final List<AssemblyResult> results = new ArrayList<>(requests.size());
+        if ( kmerAssemblyPool == null || requests.size() == 1 ) {
+            for ( final KmerGraphRequest request : requests ) {
+                results.add(createGraph(reads, refHaplotype, request.kmerSize, request.allowLowComplexityGraphs, request.allowNonUniqueKmersInRef, header, aligner));
+            }
+            return results;
+        }
+
+        // reads decode their fields lazily, which is not safe to do from several threads at once, so decode
+        // everything graph threading needs up front
+        for ( final GATKRead read : reads ) {
+            read.getBases();
+            read.getBaseQualities();
+            read.getName();
+            ReadUtils.getSampleName(read, header);
+        }
+
+        final List<Future<AssemblyResult>> futures = new ArrayList<>(requests.size());
+        for ( final KmerGraphRequest request : requests ) {
+            futures.add(kmerAssemblyPool.submit(() -> createGraph(reads, refHaplotype, request.kmerSize, request.allowLowComplexityGraphs, request.allowNonUniqueKmersInRef, header, aligner)));
+        }
+        try {
+            for ( final Future<AssemblyResult> future : futures ) {
+                results.add(future.get());
+            }
+        } catch ( InterruptedException e ) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for assembly graphs to be created", e);
+        } catch ( ExecutionException e ) {
+            futures.forEach(future -> future.cancel(true));
+            // rethrow exceptions from the assembly threads unchanged, so that user errors are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error creating assembly graph", e.getCause());
+        }
+        return results;
+    }
+
     /**
      * Creates the sequence graph for the given kmerSize
      *
@@ -824,6 +927,31 @@ public final class ReadThreadingAssembler {
         this.minDanglingBranchLength = minDanglingBranchLength;
     }
 
+    /**
+     * Create the graphs for up to this many kmer sizes of a region concurrently. The results are the same as with one
+     * thread, which creates the graphs serially.
+     */
+    public void setKmerAssemblyThreads( final int kmerAssemblyThreads ) {
+        ParamUtils.isPositive(kmerAssemblyThreads, "kmerAssemblyThreads must be positive");
+        if ( kmerAssemblyPool != null ) {
+            kmerAssemblyPool.shutdownNow();
+        }
+        this.kmerAssemblyThreads = kmerAssemblyThreads;
+        kmerAssemblyPool = kmerAssemblyThreads == 1 ? null : Executors.newFixedThreadPool(kmerAssemblyThreads,
+                new ThreadFactoryBuilder().setNameFormat("kmer-assembly-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Release the threads created by {@link #setKmerAssemblyThreads}. The assembler creates the graphs serially after
+     * being closed.
+     */
+    public void close() {
+        if ( kmerAssemblyPool != null ) {
+            kmerAssemblyPool.shutdownNow();
+            kmerAssemblyPool = null;
+        }
+    }
+
     @VisibleForTesting
     void setJustReturnRawGraph(final boolean justReturnRawGraph) {
         this.justReturnRawGraph = justReturnRawGraph;
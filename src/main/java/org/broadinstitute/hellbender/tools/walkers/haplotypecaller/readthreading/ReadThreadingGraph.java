@@ -120,7 +120,7 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
      * @return a non-null NonUniqueResult
      */
     private static Set<Kmer> determineNonUniques(final int kmerSize, Collection<SequenceForKmers> withNonUniques) {
-        final Set<Kmer> nonUniqueKmers = new HashSet<>();
+        final Set<Kmer> nonUniqueKmers = new PackedKmerSet(kmerSize, 0);
 
         // loop over all sequences that have non-unique kmers in them from the previous iterator
         final Iterator<SequenceForKmers> it = withNonUniques.iterator();
@@ -157,13 +157,13 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
      */
     static Collection<Kmer> determineNonUniqueKmers(final SequenceForKmers seqForKmers, final int kmerSize) {
         // count up occurrences of kmers within each read
-        final Set<Kmer> allKmers = new LinkedHashSet<>();
-        final List<Kmer> nonUniqueKmers = new ArrayList<>();
+        // the kmers are packed, so that only the non-unique ones need Kmer objects
         final int stopPosition = seqForKmers.stop - kmerSize;
+        final PackedKmerSet allKmers = new PackedKmerSet(kmerSize, stopPosition + 1);
+        final List<Kmer> nonUniqueKmers = new ArrayList<>();
         for (int i = 0; i <= stopPosition; i++) {
-            final Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (!allKmers.add(kmer)) {
-                nonUniqueKmers.add(kmer);
+            if (!allKmers.add(seqForKmers.sequence, i)) {
+                nonUniqueKmers.add(new Kmer(seqForKmers.sequence, i, kmerSize));
             }
         }
         return nonUniqueKmers;
@@ -0,0 +1,174 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.metrics.MetricsFile;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
+import org.broadinstitute.hellbender.engine.GATKTool;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.read.markduplicates.GATKDuplicationMetrics;
+import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+import picard.sam.markduplicates.MarkDuplicates;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MarkDuplicates without Spark
+ *
+ * <p>Marks duplicates the same way as MarkDuplicatesSpark, in a single JVM on several threads and without a Spark
+ * context.  The reads are read twice: once to group the duplicate marking information of every template by alignment,
+ * and once to mark and write them.  The grouping information is spilled to temporary files (see --tmp-dir) whenever
+ * more than --max-records-in-ram records are held in memory, so memory use does not grow with the size of the input.</p>
+ *
+ * Here are some differences of note with MarkDuplicatesSpark.
+ *
+ * <ul>
+ *  <li>The input must be queryname-grouped (that is, all reads with the same queryname are together in the file) or queryname sorted.</li>
+ *  <li>The output is written in the order of the input, not coordinate sorted.</li>
+ * </ul>
+ *
+ * <h3>Usage examples</h3>
+ *     <pre>
+ *      gatk MarkDuplicatesLocal \
+ *            -I input.bam \
+ *            -O marked_duplicates.bam \
+ *            -M marked_dup_metrics.txt \
+ *            --scoring-threads 8
+ *     </pre>
+ */
+@DocumentedFeature
+@BetaFeature
+@CommandLineProgramProperties(
+        summary ="Marks duplicates in queryname-grouped reads on several threads, without Spark",
+        oneLineSummary ="MarkDuplicates without Spark",
+        programGroup = ReadDataManipulationProgramGroup.class)
+public final class MarkDuplicatesLocal extends GATKTool {
+    public static final String SCORING_THREADS_LONG_NAME = "scoring-threads";
+    public static final String MAX_RECORDS_IN_RAM_LONG_NAME = "max-records-in-ram";
+    public static final String GROUPING_PARTITIONS_LONG_NAME = "grouping-partitions";
+
+    @Argument(doc = "the output bam", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, optional = false)
+    protected String output;
+
+    @Argument(doc = "Path to write duplication metrics to.", optional=true,
+            shortName = StandardArgumentDefinitions.METRICS_FILE_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.METRICS_FILE_LONG_NAME)
+    protected String metricsFile;
+
+    @Argument(doc = "Number of threads scoring the duplicates", fullName = SCORING_THREADS_LONG_NAME, minValue = 1, optional = true)
+    protected int scoringThreads = 4;
+
+    @Advanced
+    @Argument(doc = "Number of duplicate marking records held in memory before they are spilled to temporary files",
+            fullName = MAX_RECORDS_IN_RAM_LONG_NAME, minValue = 1, optional = true)
+    protected long maxRecordsInRam = 2_000_000L;
+
+    @Advanced
+    @Argument(doc = "Number of partitions the duplicate marking records are grouped in; the records of one partition are held in memory by each scoring thread",
+            fullName = GROUPING_PARTITIONS_LONG_NAME, minValue = 1, optional = true)
+    protected int groupingPartitions = 1024;
+
+    @ArgumentCollection
+    protected MarkDuplicatesSparkArgumentCollection markDuplicatesSparkArgumentCollection = new MarkDuplicatesSparkArgumentCollection();
+
+    @ArgumentCollection
+    protected OpticalDuplicatesArgumentCollection opticalDuplicatesArgumentCollection = new OpticalDuplicatesArgumentCollection();
+
+    @Override
+    public boolean requiresReads() { return true; }
+
+    @Override
+    public List<ReadFilter> getDefaultReadFilters() {
+        return Collections.singletonList(ReadFilterLibrary.ALLOW_ALL_READS);
+    }
+
+    @Override
+    public void traverse() {
+        final SAMFileHeader header = getHeaderForReads();
+        // If we need to remove optical duplicates, set the engine to mark optical duplicates using the DT tag.
+        if (markDuplicatesSparkArgumentCollection.removeSequencingDuplicates && markDuplicatesSparkArgumentCollection.taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.DontTag) {
+            markDuplicatesSparkArgumentCollection.taggingPolicy = MarkDuplicates.DuplicateTaggingPolicy.OpticalOnly;
+        }
+
+        try (final MarkDuplicatesLocalEngine engine = new MarkDuplicatesLocalEngine(header, markDuplicatesSparkArgumentCollection,
+                opticalDuplicatesArgumentCollection, scoringThreads, groupingPartitions, maxRecordsInRam)) {
+            forEachTemplate(engine::addTemplate);
+            engine.scoreDuplicates();
+
+            final Map<String, GATKDuplicationMetrics> metricsByLibrary = new HashMap<>();
+            try (final SAMFileGATKReadWriter writer = createSAMWriter(IOUtils.getPath(output), true)) {
+                forEachTemplate(template -> {
+                    engine.markTemplate(template);
+                    for (final GATKRead read : template) {
+                        if (metricsFile != null) {
+                            final String library = LibraryIdGenerator.getLibraryName(header, read.getReadGroup());
+                            MarkDuplicatesSparkUtils.updateMetrics(metricsByLibrary.computeIfAbsent(library, MarkDuplicatesLocal::newLibraryMetrics), read);
+                        }
+                        if (shouldWrite(read)) {
+                            writer.addRead(read);
+                        }
+                    }
+                });
+            }
+
+            if (metricsFile != null) {
+                final Map<String, GATKDuplicationMetrics> finalMetricsByLibrary = new HashMap<>();
+                metricsByLibrary.forEach((library, metrics) -> finalMetricsByLibrary.put(library, MarkDuplicatesSparkUtils.finalizeLibraryMetrics(metrics)));
+                final MetricsFile<GATKDuplicationMetrics, Double> resultMetrics = getMetricsFile();
+                MarkDuplicatesSparkUtils.saveMetrics(resultMetrics, header, finalMetricsByLibrary, metricsFile);
+            }
+        }
+    }
+
+    /**
+     * Call action on each template of the input, as the list of its consecutive reads that share a read name
+     */
+    private void forEachTemplate(final Consumer<List<GATKRead>> action) {
+        List<GATKRead> template = new ArrayList<>();
+        for (final GATKRead read : directlyAccessEngineReadsDataSource()) {
+            if (!template.isEmpty() && !template.get(0).getName().equals(read.getName())) {
+                action.accept(template);
+                template = new ArrayList<>();
+            }
+            template.add(read);
+        }
+        if (!template.isEmpty()) {
+            action.accept(template);
+        }
+    }
+
+    private static GATKDuplicationMetrics newLibraryMetrics(final String library) {
+        final GATKDuplicationMetrics metrics = new GATKDuplicationMetrics();
+        metrics.LIBRARY = library;
+        return metrics;
+    }
+
+    // Filter out the duplicates if instructed to do so
+    private boolean shouldWrite(final GATKRead read) {
+        if (markDuplicatesSparkArgumentCollection.removeAllDuplicates) {
+            return !read.isDuplicate();
+        } else if (markDuplicatesSparkArgumentCollection.removeSequencingDuplicates) {
+            return !MarkDuplicates.DUPLICATE_TYPE_SEQUENCING.equals(read.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG));
+        }
+        return true;
+    }
+}
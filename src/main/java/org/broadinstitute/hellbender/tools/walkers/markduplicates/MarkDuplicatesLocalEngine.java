@@ -0,0 +1,356 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMFileHeader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.engine.spark.GATKRegistrator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils.IndexPair;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecord;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import picard.sam.markduplicates.MarkDuplicates;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Duplicate marking of reads grouped by read name, within one JVM and without Spark, with the same grouping and
+ * scoring of {@link MarkDuplicatesSparkRecord}s as {@link MarkDuplicatesSpark}, so that the reads are marked the same.
+ *
+ * The reads are marked in three steps:
+ * <ol>
+ *     <li>{@link #addTemplate} builds the records of each template (the reads sharing a read name) with
+ *     {@link MarkDuplicatesSparkUtils#makeMarkDuplicatesSparkRecords}, and hashes them by key into a fixed number of
+ *     partitions.  The records are buffered in memory and, whenever more than the maximum number of records in RAM
+ *     are buffered, the buffers are appended to one temporary file per partition with Kryo.</li>
+ *     <li>{@link #scoreDuplicates} groups the records of each partition by key and scores each group with
+ *     {@link MarkDuplicatesSparkUtils#markDuplicateRecordGroup}, one partition per task on a thread pool.  Only the
+ *     results are kept: which templates hold a non-duplicate or an optical duplicate, and the optical duplicate count
+ *     of each non-duplicate.</li>
+ *     <li>{@link #markTemplate} sets the duplicate flag and tag of the reads of each template, added again in the
+ *     same order, the way {@link MarkDuplicatesSpark#mark} does.</li>
+ * </ol>
+ *
+ * Memory use is bounded by the maximum number of records in RAM while the templates are added, and by the records
+ * of one partition per thread while they are scored, plus a few bits per template for the results.
+ *
+ * Not thread-safe: the templates must be added and marked from a single thread.
+ */
+public final class MarkDuplicatesLocalEngine implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MarkDuplicatesLocalEngine.class);
+
+    private static final int SPILL_BUFFER_SIZE = 1 << 16;
+
+    private final SAMFileHeader header;
+    private final MarkDuplicatesScoringStrategy scoringStrategy;
+    private final boolean markUnmappedMates;
+    private final MarkDuplicates.DuplicateTaggingPolicy taggingPolicy;
+    private final OpticalDuplicatesArgumentCollection opticalDuplicatesArgs;
+    private final int numThreads;
+    private final long maxRecordsInRam;
+
+    private final Map<String, Short> headerReadGroupIndexMap;
+    private final Map<String, Byte> libraryIndex;
+    private final Kryo kryo;
+
+    // records of each partition that have not been spilled, and the temporary directory of the spilled ones
+    private final List<List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>>> partitionBuffers;
+    private long numBufferedRecords = 0;
+    private long numRecords = 0;
+    private File spillDirectory = null;
+
+    private int numTemplates = 0;
+    private int numMarkedTemplates = 0;
+    private boolean scored = false;
+
+    // results of the scoring, by template index
+    private final BitSet nonDuplicateTemplates = new BitSet();
+    private final BitSet opticalDuplicateTemplates = new BitSet();
+    private final Map<Integer, Integer> opticalDuplicateCounts = new HashMap<>();
+
+    /**
+     * @param header header of the reads, which must be grouped by read name
+     * @param mdArgs duplicate marking arguments; whether duplicates are removed is left to the caller
+     * @param opticalDuplicatesArgs optical duplicate arguments; optical duplicates are not detected if the read name regex is null
+     * @param numThreads number of threads scoring the duplicates
+     * @param numPartitions number of partitions the records are hashed into
+     * @param maxRecordsInRam number of records buffered in memory before they are spilled to disk
+     */
+    public MarkDuplicatesLocalEngine(final SAMFileHeader header, final MarkDuplicatesSparkArgumentCollection mdArgs,
+                                     final OpticalDuplicatesArgumentCollection opticalDuplicatesArgs,
+                                     final int numThreads, final int numPartitions, final long maxRecordsInRam) {
+        Utils.nonNull(header);
+        Utils.nonNull(mdArgs);
+        Utils.nonNull(opticalDuplicatesArgs);
+        Utils.validateArg(numThreads > 0, "numThreads must be positive");
+        Utils.validateArg(numPartitions > 0, "numPartitions must be positive");
+        Utils.validateArg(maxRecordsInRam > 0, "maxRecordsInRam must be positive");
+        if (!ReadUtils.isReadNameGroupedBam(header)) {
+            throw new UserException.BadInput(String.format("Duplicate marking requires input reads to be queryname sorted or querygrouped, yet the header indicated it was in %s order instead", header.getSortOrder()));
+        }
+
+        this.header = header;
+        this.scoringStrategy = mdArgs.duplicatesScoringStrategy;
+        this.markUnmappedMates = !mdArgs.dontMarkUnmappedMates;
+        this.taggingPolicy = mdArgs.taggingPolicy;
+        this.opticalDuplicatesArgs = opticalDuplicatesArgs;
+        this.numThreads = numThreads;
+        this.maxRecordsInRam = maxRecordsInRam;
+
+        headerReadGroupIndexMap = MarkDuplicatesSparkUtils.getHeaderReadGroupIndexMap(header);
+        libraryIndex = MarkDuplicatesSparkUtils.constructLibraryIndex(header);
+        kryo = newKryo();
+
+        partitionBuffers = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            partitionBuffers.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Add the reads of the next template, in the order of the input
+     *
+     * @param reads all the reads with the same read name
+     */
+    public void addTemplate(final List<GATKRead> reads) {
+        Utils.validate(!scored, "templates cannot be added once the duplicates are scored");
+        final int templateIndex = numTemplates++;
+
+        // unmapped reads are treated specially and never produce records
+        final List<IndexPair<GATKRead>> mappedReads = new ArrayList<>(reads.size());
+        for (final GATKRead read : reads) {
+            if (ReadFilterLibrary.MAPPED.test(read)) {
+                mappedReads.add(new IndexPair<>(read, templateIndex));
+            }
+        }
+        if (mappedReads.isEmpty()) {
+            return;
+        }
+
+        for (final Tuple2<ReadsKey, MarkDuplicatesSparkRecord> record : MarkDuplicatesSparkUtils.makeMarkDuplicatesSparkRecords(
+                mappedReads, header, scoringStrategy, headerReadGroupIndexMap, libraryIndex)) {
+            partitionBuffers.get(getPartition(record._1())).add(record);
+            numBufferedRecords++;
+            numRecords++;
+        }
+        if (numBufferedRecords >= maxRecordsInRam) {
+            spill();
+        }
+    }
+
+    private int getPartition(final ReadsKey key) {
+        return Math.floorMod(key.hashCode(), partitionBuffers.size());
+    }
+
+    /**
+     * Append the buffered records of each partition to its file
+     */
+    private void spill() {
+        if (spillDirectory == null) {
+            spillDirectory = IOUtils.createTempDir("markduplicates");
+            logger.info("Spilling duplicate marking records to " + spillDirectory.getAbsolutePath());
+        }
+        for (int partition = 0; partition < partitionBuffers.size(); partition++) {
+            final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> buffer = partitionBuffers.get(partition);
+            if (buffer.isEmpty()) {
+                continue;
+            }
+            final File file = getSpillFile(partition);
+            try (final Output output = new Output(Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND), SPILL_BUFFER_SIZE)) {
+                for (final Tuple2<ReadsKey, MarkDuplicatesSparkRecord> record : buffer) {
+                    // the key of a record is transient, so it is written alongside
+                    kryo.writeClassAndObject(output, record._1());
+                    kryo.writeClassAndObject(output, record._2());
+                }
+            } catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(file, "could not spill duplicate marking records", e);
+            }
+            partitionBuffers.set(partition, new ArrayList<>());
+        }
+        numBufferedRecords = 0;
+    }
+
+    private File getSpillFile(final int partition) {
+        return new File(spillDirectory, "partition-" + partition + ".kryo");
+    }
+
+    /**
+     * Score the duplicates among the records of all the templates added, which must all have been added
+     */
+    public void scoreDuplicates() {
+        Utils.validate(!scored, "the duplicates have already been scored");
+        scored = true;
+        logger.info(String.format("Scoring %d duplicate marking records of %d templates in %d partitions on %d threads",
+                numRecords, numTemplates, partitionBuffers.size(), numThreads));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("mark-duplicates-%d").setDaemon(true).build());
+        try {
+            final List<Future<?>> partitions = new ArrayList<>(partitionBuffers.size());
+            for (int partition = 0; partition < partitionBuffers.size(); partition++) {
+                final int index = partition;
+                partitions.add(executor.submit(() -> scorePartition(index)));
+            }
+            for (final Future<?> partition : partitions) {
+                waitFor(partition);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Group the records of a partition by key, score each group and record the results.  Runs on a scoring thread,
+     * and only touches the buffer and file of its own partition.
+     */
+    private void scorePartition(final int partition) {
+        final Map<ReadsKey, List<MarkDuplicatesSparkRecord>> groups = new HashMap<>();
+        if (spillDirectory != null && getSpillFile(partition).exists()) {
+            final File file = getSpillFile(partition);
+            final Kryo partitionKryo = newKryo();
+            try (final Input input = new Input(Files.newInputStream(file.toPath()), SPILL_BUFFER_SIZE)) {
+                while (!input.eof()) {
+                    final ReadsKey key = (ReadsKey) partitionKryo.readClassAndObject(input);
+                    final MarkDuplicatesSparkRecord record = (MarkDuplicatesSparkRecord) partitionKryo.readClassAndObject(input);
+                    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+                }
+            } catch (final IOException e) {
+                throw new UserException.CouldNotReadInputFile(file, "could not read spilled duplicate marking records", e);
+            }
+            file.delete();
+        }
+        for (final Tuple2<ReadsKey, MarkDuplicatesSparkRecord> record : partitionBuffers.get(partition)) {
+            groups.computeIfAbsent(record._1(), k -> new ArrayList<>()).add(record._2());
+        }
+        partitionBuffers.set(partition, null);
+
+        // the finder caches the parsing of the last read name, so each partition has its own
+        final OpticalDuplicateFinder finder = opticalDuplicatesArgs.READ_NAME_REGEX != null ?
+                new OpticalDuplicateFinder(opticalDuplicatesArgs.READ_NAME_REGEX, opticalDuplicatesArgs.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null) : null;
+        final boolean markOpticalDups = taggingPolicy != MarkDuplicates.DuplicateTaggingPolicy.DontTag;
+        final List<Tuple2<IndexPair<String>, Integer>> results = new ArrayList<>();
+        for (final List<MarkDuplicatesSparkRecord> group : groups.values()) {
+            results.addAll(MarkDuplicatesSparkUtils.markDuplicateRecordGroup(group, finder, markOpticalDups));
+        }
+        groups.clear();
+        recordResults(results);
+    }
+
+    private synchronized void recordResults(final List<Tuple2<IndexPair<String>, Integer>> results) {
+        for (final Tuple2<IndexPair<String>, Integer> result : results) {
+            final int templateIndex = result._1().getIndex();
+            if (nonDuplicateTemplates.get(templateIndex) || opticalDuplicateTemplates.get(templateIndex)) {
+                throw new GATKException(String.format("Detected multiple mark duplicate records objects corresponding to read with name '%s', this could be the result of the file sort order being incorrect", result._1().getValue()));
+            }
+            if (result._2() == MarkDuplicatesSpark.OPTICAL_DUPLICATE_MARKER) {
+                opticalDuplicateTemplates.set(templateIndex);
+            } else {
+                nonDuplicateTemplates.set(templateIndex);
+                if (result._2() > 0) {
+                    opticalDuplicateCounts.put(templateIndex, result._2());
+                }
+            }
+        }
+    }
+
+    private static void waitFor(final Future<?> partition) {
+        try {
+            partition.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while scoring duplicates", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error while scoring duplicates", e.getCause());
+        }
+    }
+
+    /**
+     * Set the duplicate flag and duplicate type tag of the reads of the next template, which must be the same as
+     * the reads added by {@link #addTemplate} for it.  The optical duplicates represented by a non-duplicate are
+     * counted in the {@link MarkDuplicatesSparkUtils#OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME} transient attribute
+     * of one of its reads, for {@link MarkDuplicatesSparkUtils#updateMetrics}.
+     */
+    public void markTemplate(final List<GATKRead> reads) {
+        Utils.validate(scored, "the duplicates must be scored before templates are marked");
+        Utils.validate(numMarkedTemplates < numTemplates, "more templates marked than added");
+        final int templateIndex = numMarkedTemplates++;
+        final boolean isNonDuplicate = nonDuplicateTemplates.get(templateIndex);
+        final boolean isOpticalDuplicate = opticalDuplicateTemplates.get(templateIndex);
+        Integer opticalDuplicateCount = isNonDuplicate ? opticalDuplicateCounts.remove(templateIndex) : null;
+
+        for (final GATKRead read : reads) {
+            read.setIsDuplicate(false);
+            read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, (String) null);
+            // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
+            if (isOpticalDuplicate) {
+                read.setIsDuplicate(true);
+                read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_SEQUENCING);
+            } else if (isNonDuplicate) {
+                if (opticalDuplicateCount != null && (markUnmappedMates || !read.isUnmapped())) {
+                    read.setTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, opticalDuplicateCount);
+                    opticalDuplicateCount = null;
+                }
+            // Mark unmapped read pairs as non-duplicates
+            } else if (!ReadUtils.readAndMateAreUnmapped(read)) {
+                // Everything else is a duplicate
+                if (markUnmappedMates || !read.isUnmapped()) {
+                    read.setIsDuplicate(true);
+                    if (taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.All) {
+                        read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_LIBRARY);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a Kryo instance that reads and writes the records and keys the same way as Spark does
+     */
+    private static Kryo newKryo() {
+        final Kryo kryo = new Kryo();
+        // the records have no no-arg constructors, so fall back on objenesis as Spark's KryoSerializer does
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        new GATKRegistrator().registerClasses(kryo);
+        return kryo;
+    }
+
+    @Override
+    public void close() {
+        if (spillDirectory != null) {
+            IOUtils.deleteRecursively(spillDirectory.toPath());
+            spillDirectory = null;
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 /**
@@ -98,6 +99,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
     private Optional<HaplotypeBAMWriter> haplotypeBAMWriter;
     private VariantAnnotatorEngine annotationEngine;
     private final SmithWatermanAligner aligner;
+    private final ExecutorService readRealignmentExecutor;
     private final AssemblyRegionTrimmer trimmer;
     private SomaticReferenceConfidenceModel referenceConfidenceModel = null;
 
@@ -122,6 +124,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
         minCallableDepth = MTAC.callableDepth;
         referenceReader = AssemblyBasedCallerUtils.createReferenceReader(Utils.nonNull(reference));
         aligner = SmithWatermanAligner.getAligner(MTAC.smithWatermanImplementation);
+        readRealignmentExecutor = AssemblyBasedCallerUtils.makeReadRealignmentExecutor(MTAC.readRealignmentThreads);
         samplesList = new IndexedSampleList(new ArrayList<>(ReadUtils.getSamplesFromHeader(header)));
 
         // optimize set operations for the common cases of no normal and one normal
@@ -246,7 +249,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
         final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods = likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult,samplesList,reads);
         readLikelihoods.switchToNaturalLog();
 
-        final Map<GATKRead,GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
+        final Map<GATKRead,GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner, readRealignmentExecutor);
         readLikelihoods.changeEvidence(readRealignments);
 
         final CalledHaplotypes calledHaplotypes = genotypingEngine.callMutations(
@@ -348,7 +351,11 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
 
     public void shutdown() {
         likelihoodCalculationEngine.close();
+        if (readRealignmentExecutor != null) {
+            readRealignmentExecutor.shutdownNow();
+        }
         aligner.close();
+        assemblyEngine.close();
         haplotypeBAMWriter.ifPresent(writer -> writer.close());
         referenceReader.close();
     }
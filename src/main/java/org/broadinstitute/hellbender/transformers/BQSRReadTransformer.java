@@ -3,11 +3,12 @@ package org.broadinstitute.hellbender.transformers;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.UserException.MalformedRead;
 import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
-import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.recalibration.*;
@@ -16,7 +17,6 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariat
 import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -26,9 +26,10 @@ import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_R
 
 public final class BQSRReadTransformer implements ReadTransformer {
     private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(BQSRReadTransformer.class);
 
     private final QuantizationInfo quantizationInfo; // histogram containing the map for qual quantization (calculated after recalibration is done)
-    private final RecalibrationTables recalibrationTables;
+    private final RecalibratedQualityTable recalibratedQualityTable;
     private final StandardCovariateList covariates; // list of all covariates to be used in this calculation
     private final SAMFileHeader header;
     
@@ -36,17 +37,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
     private final double globalQScorePrior;
     private final boolean emitOriginalQuals;
 
-    //These fields are created to avoid redoing these calculations for every read
-    private final int totalCovariateCount;
-    private final int specialCovariateCount;
-
-    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
-
-    //Note: varargs allocates a new array every time. We'll pre-allocate one array and reuse it to avoid object allocation for every base of every read.
-    private final RecalDatum[] empiricalQualCovsArgs;
     private final boolean useOriginalBaseQualities;
 
     private byte[] staticQuantizedMapping;
+
+    // the output quality of each rounded recalibrated quality, after quantization and static quantization
+    private final byte[] outputQuals;
     private final CovariateKeyCache keyCache;
 
     /**
@@ -71,7 +67,6 @@ public final class BQSRReadTransformer implements ReadTransformer {
      */
     private BQSRReadTransformer(final SAMFileHeader header, final RecalibrationTables recalibrationTables, final QuantizationInfo quantizationInfo, final StandardCovariateList covariates, final ApplyBQSRArgumentCollection args) {
         this.header = header;
-        this.recalibrationTables = recalibrationTables;
         this.covariates = covariates;
         this.quantizationInfo = quantizationInfo;
 
@@ -92,11 +87,17 @@ public final class BQSRReadTransformer implements ReadTransformer {
             staticQuantizedMapping = constructStaticQuantizedMapping(args.staticQuantizationQuals, args.roundDown);
         }
 
-        totalCovariateCount = covariates.size();
-        specialCovariateCount = covariates.numberOfSpecialCovariates();
+        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
+        outputQuals = new byte[MAX_RECALIBRATED_Q_SCORE + 1];
+        for (int qual = 0; qual <= MAX_RECALIBRATED_Q_SCORE; qual++) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            outputQuals[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+
+        recalibratedQualityTable = new RecalibratedQualityTable(recalibrationTables, covariates, globalQScorePrior);
+        logger.info(String.format("Precomputed recalibrated qualities for %d read group and reported quality pairs (%.1f MB)",
+                recalibratedQualityTable.getNumRows(), recalibratedQualityTable.getSizeInBytes() / (1024.0 * 1024.0)));
 
-        //Note: We pre-create the varargs arrays that will be used in the calls. Otherwise we're spending a lot of time allocating those int[] objects
-        empiricalQualCovsArgs = new RecalDatum[totalCovariateCount - specialCovariateCount];
         keyCache = new CovariateKeyCache();//one cache per transformer
     }
 
@@ -154,18 +155,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
         // the rg key is constant over the whole read, the global deltaQ is too
         final int rgKey = fullReadKeySet[0][0];
 
-        final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
-
-        if (empiricalQualRG == null) {
+        if (!recalibratedQualityTable.hasReadGroup(rgKey)) {
             return read;
         }
         final byte[] quals = read.getBaseQualities();
 
         final int readLength = quals.length;
-        final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
-
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
-        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
 
         //Note: this loop is under very heavy use in applyBQSR. Keep it slim.
         for (int offset = 0; offset < readLength; offset++) { // recalibrate all bases in the read
@@ -174,23 +169,10 @@ public final class BQSRReadTransformer implements ReadTransformer {
             if (quals[offset] < preserveQLessThan) {
                 continue;
             }
-            Arrays.fill(empiricalQualCovsArgs, null);  //clear the array
-            final int[] keySet = fullReadKeySet[offset];
-
-
-            final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(keySet[0], keySet[1], BASE_SUBSTITUTION_INDEX);
-
-            for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
-                if (keySet[i] >= 0) {
-                    empiricalQualCovsArgs[i - specialCovariateCount] = recalibrationTables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], BASE_SUBSTITUTION_INDEX);
-                }
-            }
-            final double recalibratedQualDouble = hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovsArgs);
-
-            final byte recalibratedQualityScore = quantizedQuals.get(getRecalibratedQual(recalibratedQualDouble));
 
-            // Bin to static quals
-            quals[offset] = staticQuantizedMapping == null ? recalibratedQualityScore : staticQuantizedMapping[recalibratedQualityScore];
+            // same as hierarchicalBayesianQualityEstimate with the datums of the base, then quantized and binned to static quals
+            final double recalibratedQualDouble = recalibratedQualityTable.getRecalibratedQuality(fullReadKeySet[offset]);
+            quals[offset] = outputQuals[getRecalibratedQual(recalibratedQualDouble)];
         }
         read.setBaseQualities(quals);
         return read;
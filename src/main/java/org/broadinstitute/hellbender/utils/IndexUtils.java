@@ -12,9 +12,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.IndexFeatureFile;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 public final class IndexUtils {
@@ -99,6 +102,33 @@ public final class IndexUtils {
         return index == null ? null : getSamSequenceDictionaryFromIndex(index);
     }
 
+    /**
+     * Same as {@link #createSequenceDictionaryFromFeatureIndex(File)}, for feature files on any file system (such as
+     * gs://). Nothing is logged if the feature file has no index.
+     * @return a SAMSequenceDictionary or null if there is no index, it cannot be loaded or there are no contigs in it
+     */
+    public static SAMSequenceDictionary createSequenceDictionaryFromFeatureIndex(final Path featurePath) {
+        Utils.nonNull(featurePath);
+        final Path tribbleIndexPath = Tribble.indexPath(featurePath);
+        final Path tabixIndexPath = Tribble.tabixIndexPath(featurePath);
+        final Path indexPath = Files.exists(tribbleIndexPath) ? tribbleIndexPath :
+                Files.exists(tabixIndexPath) ? tabixIndexPath : null;
+        if (indexPath == null) {
+            return null;
+        }
+        logger.warn(
+                String.format(
+                    "Feature file \"%s\" appears to contain no sequence dictionary. " +
+                    "Attempting to retrieve a sequence dictionary from the associated index file",
+                    featurePath.toUri())
+        );
+        try {
+            return getSamSequenceDictionaryFromIndex(IndexFactory.loadIndex(IOUtils.getAbsolutePathWithoutFileProtocol(indexPath)));
+        } catch (final RuntimeException e) {
+            return null;
+        }
+    }
+
     /**
      * Determine if <code>sequenceDictionary</code> has the form of a dictionary created from an index file by
      * {@link #createSequenceDictionaryFromFeatureIndex}).
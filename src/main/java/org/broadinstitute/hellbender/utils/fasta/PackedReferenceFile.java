@@ -0,0 +1,231 @@
+package org.broadinstitute.hellbender.utils.fasta;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.util.BufferedLineReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A reference in a pre-normalized, memory-mapped binary layout, so that a subsequence query is a slice of the
+ * OS page cache with no FASTA parsing.
+ *
+ * The file is created once from an indexed FASTA via {@link #create}. Bases are stored one byte per base, already
+ * upper-cased and with IUPAC ambiguity codes converted to N (exactly as {@link CachingIndexedFastaSequenceFile}
+ * returns them by default), with no line breaks. Layout:
+ *
+ * <pre>
+ *     8 bytes      magic ("GATKPREF")
+ *     int          format version
+ *     int          length of the sequence dictionary text, followed by the dictionary as SAM header (@SQ) text in UTF-8
+ *     long[n]      file offset of the bases of each of the n contigs, in dictionary order
+ *     bytes        bases of each contig, contig after contig
+ * </pre>
+ *
+ * Each contig is mapped lazily on its first query. Since the mapping is backed by the page cache, all processes
+ * on a host that use the same packed reference share a single in-memory copy of it.
+ *
+ * Instances are thread-safe, and may be shared by all the threads of a tool.
+ */
+public final class PackedReferenceFile implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(PackedReferenceFile.class);
+
+    /**
+     * Conventional extension for packed reference files
+     */
+    public static final String PACKED_REFERENCE_EXTENSION = ".packed";
+
+    private static final byte[] MAGIC = "GATKPREF".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Number of bases read from the FASTA at a time while packing it
+     */
+    private static final int PACKING_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final SAMSequenceDictionary sequenceDictionary;
+    private final long[] contigOffsets;
+
+    /**
+     * Mapped bases of each contig, in dictionary order. Null until the contig is first queried.
+     */
+    private final AtomicReferenceArray<MappedByteBuffer> contigBases;
+
+    /**
+     * Open an existing packed reference file
+     *
+     * @param path packed reference created by {@link #create}. Must be on the local file system.
+     */
+    public PackedReferenceFile(final Path path) {
+        this.path = Utils.nonNull(path);
+        if ( path.getFileSystem() != FileSystems.getDefault() ) {
+            throw new UserException.CouldNotReadInputFile(path, "packed references can only be memory-mapped from the local file system");
+        }
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            final DataInputStream headerStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+            final byte[] magic = new byte[MAGIC.length];
+            headerStream.readFully(magic);
+            final int version = headerStream.readInt();
+            if ( ! Arrays.equals(magic, MAGIC) || version != FORMAT_VERSION ) {
+                throw new UserException.MalformedFile(path, "not a packed reference file (version " + FORMAT_VERSION + ")");
+            }
+
+            final byte[] dictionaryText = new byte[headerStream.readInt()];
+            headerStream.readFully(dictionaryText);
+            sequenceDictionary = new SAMTextHeaderCodec()
+                    .decode(new BufferedLineReader(new ByteArrayInputStream(dictionaryText)), path.toUri().toString())
+                    .getSequenceDictionary();
+
+            contigOffsets = new long[sequenceDictionary.size()];
+            for ( int i = 0; i < contigOffsets.length; i++ ) {
+                contigOffsets[i] = headerStream.readLong();
+            }
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotReadInputFile(path, e);
+        }
+
+        contigBases = new AtomicReferenceArray<>(sequenceDictionary.size());
+    }
+
+    /**
+     * @return the sequence dictionary of the FASTA this file was created from
+     */
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    /**
+     * Get the bases of the given 1-based, inclusive interval, with the same semantics as
+     * {@link CachingIndexedFastaSequenceFile#getSubsequenceAt}.
+     *
+     * @param contig contig to query
+     * @param start 1-based start of the query
+     * @param stop 1-based, inclusive end of the query; may be start - 1 for an empty query
+     * @return a ReferenceSequence holding a private copy of the requested bases
+     */
+    public ReferenceSequence getSubsequenceAt(final String contig, final long start, final long stop) {
+        final SAMSequenceRecord contigInfo = sequenceDictionary.getSequence(contig);
+        if ( contigInfo == null ) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        if ( stop > contigInfo.getSequenceLength() ) {
+            throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" +  contigInfo.getSequenceLength());
+        }
+        if ( start < 1 || start > stop + 1 ) {
+            throw new SAMException(String.format("Malformed query; start point %d lies after end point %d", start, stop));
+        }
+
+        final byte[] bases = new byte[(int)(stop - start + 1)];
+        // duplicate so that concurrent queries don't share a position
+        final ByteBuffer contigView = getContigBases(contigInfo.getSequenceIndex()).duplicate();
+        contigView.position((int)(start - 1));
+        contigView.get(bases);
+        return new ReferenceSequence(contigInfo.getSequenceName(), contigInfo.getSequenceIndex(), bases);
+    }
+
+    private MappedByteBuffer getContigBases(final int contigIndex) {
+        final MappedByteBuffer mapped = contigBases.get(contigIndex);
+        if ( mapped != null ) {
+            return mapped;
+        }
+
+        // if two threads race to map the same contig, both mappings are valid and only one is kept
+        try {
+            contigBases.compareAndSet(contigIndex, null, channel.map(FileChannel.MapMode.READ_ONLY, contigOffsets[contigIndex],
+                    sequenceDictionary.getSequence(contigIndex).getSequenceLength()));
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotReadInputFile(path, e);
+        }
+        return contigBases.get(contigIndex);
+    }
+
+    /**
+     * Close the underlying file. Mappings that are already established stay valid until they are garbage collected.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotReadInputFile(path, e);
+        }
+    }
+
+    /**
+     * Pack an indexed FASTA (which must have companion .fai and .dict files) into a packed reference file.
+     *
+     * @param fastaPath FASTA to pack
+     * @param outputPath packed reference file to create
+     */
+    public static void create(final Path fastaPath, final Path outputPath) {
+        Utils.nonNull(fastaPath);
+        Utils.nonNull(outputPath);
+
+        try ( final CachingIndexedFastaSequenceFile fasta = new CachingIndexedFastaSequenceFile(fastaPath) ) {
+            final SAMSequenceDictionary dictionary = fasta.getSequenceDictionary();
+            for ( final SAMSequenceRecord contig : dictionary.getSequences() ) {
+                // each contig is mapped as a single buffer
+                Utils.validate(contig.getSequenceLength() <= Integer.MAX_VALUE, () -> "contig " + contig.getSequenceName() + " is too long to pack");
+            }
+
+            final SAMFileHeader dictionaryHeader = new SAMFileHeader();
+            dictionaryHeader.setSequenceDictionary(dictionary);
+            final StringWriter dictionaryWriter = new StringWriter();
+            new SAMTextHeaderCodec().encode(dictionaryWriter, dictionaryHeader);
+            final byte[] dictionaryText = dictionaryWriter.toString().getBytes(StandardCharsets.UTF_8);
+
+            try ( final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath))) ) {
+                out.write(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(dictionaryText.length);
+                out.write(dictionaryText);
+
+                long offset = MAGIC.length + Integer.BYTES * 2 + dictionaryText.length + (long) Long.BYTES * dictionary.size();
+                for ( final SAMSequenceRecord contig : dictionary.getSequences() ) {
+                    out.writeLong(offset);
+                    offset += contig.getSequenceLength();
+                }
+
+                for ( final SAMSequenceRecord contig : dictionary.getSequences() ) {
+                    logger.info("Packing contig " + contig.getSequenceName());
+                    for ( long start = 1; start <= contig.getSequenceLength(); start += PACKING_CHUNK_SIZE ) {
+                        final long stop = Math.min(start + PACKING_CHUNK_SIZE - 1, contig.getSequenceLength());
+                        out.write(fasta.getSubsequenceAt(contig.getSequenceName(), start, stop).getBases());
+                    }
+                }
+            }
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "could not write packed reference", e);
+        }
+    }
+}
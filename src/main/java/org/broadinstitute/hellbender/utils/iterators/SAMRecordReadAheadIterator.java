@@ -0,0 +1,226 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads ahead of its consumer on a background thread, so that BGZF inflation and BAM record parsing of upcoming
+ * records overlap with the work done by the consumer.
+ *
+ * The background reader pulls records from the source iterator in batches of {@link #BATCH_SIZE} records into a
+ * bounded buffer of {@code bufferDepth} batches. If a decoder pool is provided, each batch is additionally fully
+ * decoded on that pool, so lazily-decoded fields such as the cigar, bases, qualities and attributes are ready by the
+ * time the consumer needs them. Batches are always returned in source order.
+ *
+ * The source iterator is only ever advanced by the background reader, and is closed by {@link #close} once the
+ * background reader has stopped. The background reader is never interrupted, since interrupting a thread that is
+ * blocked in NIO closes the underlying channel, which would break later queries on the same reader.
+ */
+public final class SAMRecordReadAheadIterator implements CloseableIterator<SAMRecord> {
+
+    /**
+     * Number of records handed over between the background reader and the consumer at a time
+     */
+    public static final int BATCH_SIZE = 256;
+
+    private final CloseableIterator<SAMRecord> source;
+    private final BlockingQueue<Future<List<SAMRecord>>> buffer;
+    private final Future<?> readerTask;
+    private final ReadAheadStatistics statistics;
+
+    private volatile boolean closed = false;
+    private Iterator<SAMRecord> currentBatch = Collections.emptyIterator();
+    private boolean sourceExhausted = false;
+
+    /**
+     * @param source iterator to read ahead of. Will be closed when this iterator is closed.
+     * @param bufferDepth maximum number of batches of records to buffer ahead of the consumer (>= 1)
+     * @param readerPool executor that runs the background reader. Must be able to start a new thread for every
+     *                   open read-ahead iterator, since the reader blocks for the lifetime of the iteration.
+     * @param decoderPool executor used to fully decode each batch of records before it is returned, or null to leave
+     *                    records to be decoded lazily on the consumer thread
+     * @param statistics consumer stall metrics are accumulated here; may be shared by several iterators
+     */
+    public SAMRecordReadAheadIterator(final CloseableIterator<SAMRecord> source, final int bufferDepth,
+                                      final ExecutorService readerPool, final ExecutorService decoderPool,
+                                      final ReadAheadStatistics statistics) {
+        Utils.nonNull(source);
+        Utils.validateArg(bufferDepth >= 1, "bufferDepth must be >= 1");
+        Utils.nonNull(readerPool);
+
+        this.source = source;
+        this.buffer = new ArrayBlockingQueue<>(bufferDepth);
+        this.statistics = Utils.nonNull(statistics);
+        this.readerTask = readerPool.submit(() -> readAhead(decoderPool));
+    }
+
+    /**
+     * Body of the background reader. A batch with fewer than {@link #BATCH_SIZE} records (possibly empty) marks the
+     * end of the source. Anything thrown by the source, including errors, is handed to the consumer in place of the next
+     * batch, so that the consumer never waits for a batch that will not come.
+     */
+    private void readAhead(final ExecutorService decoderPool) {
+        try {
+            boolean sourceHasMore = true;
+            while ( sourceHasMore && ! closed ) {
+                final List<SAMRecord> batch = new ArrayList<>(BATCH_SIZE);
+                while ( batch.size() < BATCH_SIZE && source.hasNext() ) {
+                    batch.add(source.next());
+                }
+                sourceHasMore = batch.size() == BATCH_SIZE;
+
+                final Future<List<SAMRecord>> decodedBatch = decoderPool == null || batch.isEmpty() ?
+                        CompletableFuture.completedFuture(batch) :
+                        decoderPool.submit(() -> {
+                            batch.forEach(SAMRecordReadAheadIterator::decode);
+                            return batch;
+                        });
+                buffer.put(decodedBatch);
+                statistics.batchesRead.incrementAndGet();
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } catch ( Throwable e ) {
+            final CompletableFuture<List<SAMRecord>> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            try {
+                buffer.put(failure);
+            } catch ( InterruptedException e2 ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Force decoding of all lazily-decoded fields of the record (a no-op for records that aren't lazily decoded).
+     * {@link SAMRecord#eagerDecode()} is not public, so this goes through the accessors that trigger decoding instead.
+     */
+    private static void decode(final SAMRecord record) {
+        record.getCigar();
+        record.getReadBases();
+        record.getBaseQualities();
+        record.getAttributes();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( ! currentBatch.hasNext() && ! sourceExhausted ) {
+            final List<SAMRecord> batch = nextBatch();
+            sourceExhausted = batch.size() < BATCH_SIZE;
+            currentBatch = batch.iterator();
+        }
+        return currentBatch.hasNext();
+    }
+
+    @Override
+    public SAMRecord next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("next() called when there are no more records");
+        }
+        return currentBatch.next();
+    }
+
+    private List<SAMRecord> nextBatch() {
+        try {
+            Future<List<SAMRecord>> batch = buffer.poll();
+            if ( batch == null || ! batch.isDone() ) {
+                // the consumer caught up with the background reader
+                final long stallStart = System.nanoTime();
+                if ( batch == null ) {
+                    batch = buffer.take();
+                }
+                final List<SAMRecord> records = batch.get();
+                statistics.recordStall(System.nanoTime() - stallStart);
+                return records;
+            }
+            return batch.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for reads to be read ahead", e);
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            if ( e.getCause() instanceof Error ) {
+                throw (Error) e.getCause();
+            }
+            throw new GATKException("Error reading ahead", e.getCause());
+        }
+    }
+
+    /**
+     * Stop the background reader and close the source iterator. The background reader finishes the batch it is
+     * currently reading, so this may block for the time needed to read one batch.
+     */
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+
+        // keep draining the buffer until the background reader notices that we're closed, so it can't stay blocked on put()
+        try {
+            while ( true ) {
+                buffer.clear();
+                try {
+                    readerTask.get(10, TimeUnit.MILLISECONDS);
+                    break;
+                } catch ( TimeoutException e ) {
+                    // still running
+                } catch ( ExecutionException e ) {
+                    break;
+                }
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } finally {
+            buffer.clear();
+            source.close();
+        }
+    }
+
+    /**
+     * Read-ahead metrics, accumulated over all iterators that share an instance. A stall is counted every time the
+     * consumer needs the next batch of records and the background threads haven't finished producing it yet.
+     */
+    public static final class ReadAheadStatistics {
+        private final AtomicLong batchesRead = new AtomicLong();
+        private final AtomicLong consumerStalls = new AtomicLong();
+        private final AtomicLong consumerStallNanos = new AtomicLong();
+
+        private void recordStall(final long nanos) {
+            consumerStalls.incrementAndGet();
+            consumerStallNanos.addAndGet(nanos);
+        }
+
+        public long getBatchesRead() { return batchesRead.get(); }
+
+        public long getConsumerStalls() { return consumerStalls.get(); }
+
+        public long getConsumerStallNanos() { return consumerStallNanos.get(); }
+
+        @Override
+        public String toString() {
+            return String.format("%d batches of reads read ahead, consumer stalled %d times for a total of %.2f seconds",
+                    getBatchesRead(), getConsumerStalls(), getConsumerStallNanos() / 1.0e9);
+        }
+    }
+}
@@ -30,6 +30,7 @@ public class AlignmentContextIteratorBuilder {
     private boolean isKeepUniqueReadListInLibs;
     private boolean isIncludeDeletions;
     private boolean isIncludeNs;
+    private boolean isUseColumnarPileups;
     private LIBSDownsamplingInfo downsamplingInfo;
 
     public void setEmitEmptyLoci(boolean emitEmptyLoci) {
@@ -48,6 +49,13 @@ public class AlignmentContextIteratorBuilder {
         isIncludeNs = includeNs;
     }
 
+    /**
+     * @see LocusIteratorByState#setUseColumnarPileups(boolean)
+     */
+    public void setUseColumnarPileups(boolean useColumnarPileups) {
+        isUseColumnarPileups = useColumnarPileups;
+    }
+
     public void setDownsamplingInfo(LIBSDownsamplingInfo downsamplingInfo) {
         this.downsamplingInfo = downsamplingInfo;
     }
@@ -57,6 +65,7 @@ public class AlignmentContextIteratorBuilder {
         isKeepUniqueReadListInLibs = false;
         isIncludeDeletions = true;
         isIncludeNs = false;
+        isUseColumnarPileups = false;
         downsamplingInfo = LocusIteratorByState.NO_DOWNSAMPLING;
     }
 
@@ -75,7 +84,7 @@ public class AlignmentContextIteratorBuilder {
         Utils.nonNull(readIterator, "Read iterator cannot be null");
         final boolean isDefinitelyReference = (dictionary != null) && isReference ;
         return createAlignmentContextIterator(intervalsForTraversal, header, readIterator, dictionary, downsamplingInfo,
-                isDefinitelyReference, isEmitEmptyLoci, isKeepUniqueReadListInLibs, isIncludeDeletions, isIncludeNs);
+                isDefinitelyReference, isEmitEmptyLoci, isKeepUniqueReadListInLibs, isIncludeDeletions, isIncludeNs, isUseColumnarPileups);
     }
 
     /**
@@ -94,6 +103,7 @@ public class AlignmentContextIteratorBuilder {
      *                                       available via the transferReadsFromAllPreviousPileups interface (this parameter is specific to {@link LocusIteratorByState})
      * @param isIncludeDeletions include reads with deletion on the loci in question
      * @param isIncludeNs include reads with N on the loci in question
+     * @param isUseColumnarPileups produce AlignmentContexts backed by pooled columnar pileups (this parameter is specific to {@link LocusIteratorByState})
      * @return iterator that produces AlignmentContexts ready for consumption (e.g. by a {@link org.broadinstitute.hellbender.engine.LocusWalker})
      */
     private static Iterator<AlignmentContext> createAlignmentContextIterator(final List<SimpleInterval> intervalsForTraversal,
@@ -105,7 +115,8 @@ public class AlignmentContextIteratorBuilder {
                                                                              boolean emitEmptyLoci,
                                                                              boolean isKeepUniqueReadListInLibs,
                                                                              boolean isIncludeDeletions,
-                                                                             boolean isIncludeNs) {
+                                                                             boolean isIncludeNs,
+                                                                             boolean isUseColumnarPileups) {
 
         // get the samples from the read groups
         final Set<String> samples = header.getReadGroups().stream()
@@ -114,6 +125,7 @@ public class AlignmentContextIteratorBuilder {
 
         // get the LIBS
         final LocusIteratorByState libs = new LocusIteratorByState(readIterator, downsamplingInfo, isKeepUniqueReadListInLibs, samples, header, isIncludeDeletions, isIncludeNs);
+        libs.setUseColumnarPileups(isUseColumnarPileups);
 
         List<SimpleInterval> finalIntervals = intervalsForTraversal;
         validateEmitEmptyLociParameters(emitEmptyLoci, dictionary, intervalsForTraversal, isReference);
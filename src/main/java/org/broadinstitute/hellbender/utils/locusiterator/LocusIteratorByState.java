@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.engine.AlignmentContext;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.hellbender.utils.pileup.ColumnarPileup;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
@@ -86,6 +87,17 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      */
     private AlignmentContext nextAlignmentContext;
 
+    /**
+     * If true, produce AlignmentContexts backed by pooled {@link ColumnarPileup}s rather than by lists of
+     * PileupElements. See {@link #setUseColumnarPileups}.
+     */
+    private boolean useColumnarPileups = false;
+
+    /**
+     * Columnar pileups released by consumers, ready for reuse
+     */
+    private final Deque<ColumnarPileup> recycledColumnarPileups = new ArrayDeque<>();
+
     // -----------------------------------------------------------------------------------------------------------------
     //
     // constructors and other basic operations
@@ -226,6 +238,21 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
         this.readStates = new ReadStateManager(samIterator, this.samples, downsamplingInfo, keepUniqueReadListInLIBS, header);
     }
 
+    /**
+     * Produce AlignmentContexts backed by {@link ColumnarPileup}s, which store the pileup as reusable primitive
+     * arrays instead of allocating a PileupElement per read per locus. The object-based ReadPileup of each context is
+     * then only built if it is requested.
+     *
+     * The columnar pileups are pooled: consumers must call {@link AlignmentContext#release()} on each context once
+     * they are done with it so that its storage can be reused. Contexts that are never released are simply garbage
+     * collected, so releasing is an optimization rather than a requirement for correctness.
+     *
+     * @param useColumnarPileups whether to produce columnar-backed AlignmentContexts
+     */
+    public void setUseColumnarPileups(final boolean useColumnarPileups) {
+        this.useColumnarPileups = useColumnarPileups;
+    }
+
     /**
      * Get the current location (i.e., the bp of the center of the pileup) of the pileup, or null if not anywhere yet
      *
@@ -320,7 +347,8 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
             // since they are just going to get combined into one monolithic pileup anyway
             // when we construct the final ReadPileup below. This optimization speeds up the
             // HaplotypeCaller by quite a bit!
-            final List<PileupElement> allPileupElements = new ArrayList<>(100);
+            final List<PileupElement> allPileupElements = useColumnarPileups ? null : new ArrayList<>(100);
+            final ColumnarPileup columnarPileup = useColumnarPileups ? nextColumnarPileup(location) : null;
 
             for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
                 final PerSampleReadStateManager readState = sampleStatePair.getValue();
@@ -341,18 +369,39 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                             continue;
                         }
 
-                        allPileupElements.add(state.makePileupElement());
+                        if (useColumnarPileups) {
+                            columnarPileup.add(read, state.getReadOffset(), state.getCurrentCigarElement(),
+                                    state.getCurrentCigarElementOffset(), state.getOffsetIntoCurrentCigarElement());
+                        } else {
+                            allPileupElements.add(state.makePileupElement());
+                        }
                     }
                 }
             }
 
             readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
-            if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
+            if (useColumnarPileups) {
+                if (!columnarPileup.isEmpty()) {
+                    nextAlignmentContext = new AlignmentContext(location, columnarPileup);
+                } else {
+                    columnarPileup.release();
+                }
+            } else if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
                 nextAlignmentContext = new AlignmentContext(location, new ReadPileup(location, allPileupElements));
             }
         }
     }
 
+    /**
+     * @return an empty columnar pileup at the given location, reusing a released one if possible
+     */
+    private ColumnarPileup nextColumnarPileup(final Locatable location) {
+        final ColumnarPileup columnarPileup = recycledColumnarPileups.isEmpty() ?
+                new ColumnarPileup(recycledColumnarPileups::push) : recycledColumnarPileups.pop();
+        columnarPileup.reset(location);
+        return columnarPileup;
+    }
+
     /**
      * Should this read be excluded from the pileup?
      *
@@ -70,7 +70,8 @@ public final class Log10PairHMM extends N2MemoryPairHMM {
             initializeLog10Probabilities(insertionGOP, deletionGOP, overallGCP);
         }
         initializeLog10Priors(haplotypeBases, readBases, readQuals, hapStartIndex);
-        if (previousHaplotypeBases == null || previousHaplotypeBases.length != haplotypeBases.length) {
+        // the first row is also reset for each read, since other PairHMMs on this thread share the matrices
+        if (previousHaplotypeBases == null || previousHaplotypeBases.length != haplotypeBases.length || recacheReadValues) {
             // set the initial value (free deletions in the beginning) for the first row in the deletion matrix
             initializeMatrixValues(haplotypeBases);
         }
@@ -27,7 +27,8 @@ public class LoglessPairHMM extends N2MemoryPairHMM {
                                                                final boolean recacheReadValues,
                                                                final int nextHapStartIndex) {
 
-        if (previousHaplotypeBases == null || previousHaplotypeBases.length != haplotypeBases.length) {
+        // the first row is also reset for each read, since other PairHMMs on this thread share the matrices
+        if (previousHaplotypeBases == null || previousHaplotypeBases.length != haplotypeBases.length || recacheReadValues) {
             final double initialValue = INITIAL_CONDITION / haplotypeBases.length;
             // set the initial value (free deletions in the beginning) for the first row in the deletion matrix
             for( int j = 0; j < paddedHaplotypeLength; j++ ) {
@@ -20,6 +20,9 @@ abstract class N2MemoryPairHMM extends PairHMM {
      *
      * Note: Do not worry about padding, just provide the true max length of the read and haplotype. The HMM will take care of the padding.
      *
+     * The matrices are taken from the {@link N2MemoryPairHMMWorkspace} of the current thread, and may be larger than
+     * needed.
+     *
      * @param haplotypeMaxLength the max length of haplotypes we want to use with this PairHMM
      * @param readMaxLength the max length of reads we want to use with this PairHMM
      */
@@ -27,12 +30,13 @@ abstract class N2MemoryPairHMM extends PairHMM {
     public void initialize( final int readMaxLength, final int haplotypeMaxLength ) {
         super.initialize(readMaxLength, haplotypeMaxLength);
 
-        matchMatrix = new double[paddedMaxReadLength][paddedMaxHaplotypeLength];
-        insertionMatrix = new double[paddedMaxReadLength][paddedMaxHaplotypeLength];
-        deletionMatrix = new double[paddedMaxReadLength][paddedMaxHaplotypeLength];
+        final N2MemoryPairHMMWorkspace workspace = N2MemoryPairHMMWorkspace.get(getClass(), paddedMaxReadLength, paddedMaxHaplotypeLength);
+        matchMatrix = workspace.matchMatrix;
+        insertionMatrix = workspace.insertionMatrix;
+        deletionMatrix = workspace.deletionMatrix;
 
-        transition = PairHMMModel.createTransitionMatrix(maxReadLength);
-        prior = new double[paddedMaxReadLength][paddedMaxHaplotypeLength];
+        transition = workspace.transition;
+        prior = workspace.prior;
     }
 
     /**
@@ -0,0 +1,55 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The matrices of an {@link N2MemoryPairHMM}, pooled per thread so that they are allocated once and reused by every
+ * region, instead of being reallocated each time the PairHMM is initialized for a region.
+ *
+ * The matrices only grow, to the largest read and haplotype lengths seen so far, so later regions with shorter
+ * reads or haplotypes use a corner of them.  There is one workspace per thread and {@link N2MemoryPairHMM} class,
+ * since the implementations rely on different values in the cells they never write (zero for
+ * {@link LoglessPairHMM}, negative infinity for {@link Log10PairHMM}).  PairHMMs sharing a workspace must not be
+ * used in an interleaved way for the same read, which cannot happen on one thread.
+ */
+final class N2MemoryPairHMMWorkspace {
+    private static final ThreadLocal<Map<Class<? extends N2MemoryPairHMM>, N2MemoryPairHMMWorkspace>> WORKSPACES = ThreadLocal.withInitial(HashMap::new);
+
+    double[][] transition;
+    double[][] prior;
+    double[][] matchMatrix;
+    double[][] insertionMatrix;
+    double[][] deletionMatrix;
+
+    private int paddedReadCapacity = 0;
+    private int paddedHaplotypeCapacity = 0;
+
+    private N2MemoryPairHMMWorkspace() { }
+
+    /**
+     * @return the workspace of the current thread for PairHMMs of the given class, with matrices of at least the
+     *         given padded dimensions
+     */
+    static N2MemoryPairHMMWorkspace get(final Class<? extends N2MemoryPairHMM> hmmClass, final int paddedReadLength, final int paddedHaplotypeLength) {
+        final N2MemoryPairHMMWorkspace workspace = WORKSPACES.get().computeIfAbsent(hmmClass, c -> new N2MemoryPairHMMWorkspace());
+        workspace.ensureCapacity(paddedReadLength, paddedHaplotypeLength);
+        return workspace;
+    }
+
+    private void ensureCapacity(final int paddedReadLength, final int paddedHaplotypeLength) {
+        if (paddedReadLength <= paddedReadCapacity && paddedHaplotypeLength <= paddedHaplotypeCapacity) {
+            return;
+        }
+        // grow both dimensions to the largest seen, so that alternating long reads and long haplotypes do not reallocate
+        paddedReadCapacity = Math.max(paddedReadCapacity, paddedReadLength);
+        paddedHaplotypeCapacity = Math.max(paddedHaplotypeCapacity, paddedHaplotypeLength);
+
+        matchMatrix = new double[paddedReadCapacity][paddedHaplotypeCapacity];
+        insertionMatrix = new double[paddedReadCapacity][paddedHaplotypeCapacity];
+        deletionMatrix = new double[paddedReadCapacity][paddedHaplotypeCapacity];
+
+        transition = PairHMMModel.createTransitionMatrix(paddedReadCapacity - 1);
+        prior = new double[paddedReadCapacity][paddedHaplotypeCapacity];
+    }
+}
@@ -18,6 +18,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * Class for performing the pair HMM for global alignment. Figure 4.1 in Durbin 1998 book.
@@ -25,6 +26,7 @@ import java.util.function.Function;
 public abstract class PairHMM implements Closeable{
     protected static final Logger logger = LogManager.getLogger(PairHMM.class);
 
+    private static final int DEFAULT_THREADED_PAIR_HMM_THREADS = 4;
     public static final byte BASE_QUALITY_SCORE_THRESHOLD = 18; // Base quals less than this value are squashed down to min possible qual
 
     protected boolean constantsAreInitialized = false;
@@ -51,6 +53,13 @@ public abstract class PairHMM implements Closeable{
             logger.info("Using the non-hardware-accelerated Java LOGLESS_CACHING PairHMM implementation");
             return hmm;
         }),
+        /* LOGLESS_CACHING evaluating reads on multiple threads, for platforms without the native implementations. Uses the native PairHMM thread count */
+        LOGLESS_CACHING_THREADED(args -> {
+            final int numThreads = args == null ? DEFAULT_THREADED_PAIR_HMM_THREADS : args.maxNumberOfThreads;
+            final ThreadedLoglessPairHMM hmm = new ThreadedLoglessPairHMM(numThreads);
+            logger.info("Using the non-hardware-accelerated Java LOGLESS_CACHING PairHMM implementation with " + numThreads + " threads");
+            return hmm;
+        }),
         /* Optimized AVX implementation of LOGLESS_CACHING called through JNI. Throws if AVX is not available */
         AVX_LOGLESS_CACHING(args -> {
             // Constructor will throw a UserException if AVX is not available
@@ -139,6 +148,19 @@ public abstract class PairHMM implements Closeable{
     protected long threadLocalPairHMMComputeTimeDiff = 0;
     protected long startTime = 0;
 
+    // cache of results across calls to computeLog10Likelihoods, or null if results are not cached
+    protected PairHMMResultCache resultCache = null;
+
+    /**
+     * Consult and fill the given cache in {@link #computeLog10Likelihoods}, so that a read is only evaluated against
+     * a haplotype when no read and haplotype with the same content were evaluated recently
+     *
+     * @param resultCache the cache to use, or null to disable caching
+     */
+    public void setResultCache(final PairHMMResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
     /**
      * Initialize this PairHMM, making it suitable to run against a read and haplotype with given lengths
      *
@@ -228,8 +250,9 @@ public abstract class PairHMM implements Closeable{
         final List<Haplotype> alleles = logLikelihoods.alleles();
         final int alleleCount = alleles.size();
         mLogLikelihoodArray = new double[readCount * alleleCount];
-        int idx = 0;
+        final int[] alleleOrder = trieOrder(alleles);
         int readIndex = 0;
+        final double[] cachedLikelihoods = new double[alleleCount];
         for(final GATKRead read : processedReads){
             final byte[] readBases = read.getBases();
             final byte[] readQuals = read.getBaseQualities();
@@ -237,16 +260,34 @@ public abstract class PairHMM implements Closeable{
             final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read);
             final byte[] overallGCP = gcp.get(read);
 
-            // peek at the next haplotype in the list (necessary to get nextHaplotypeBases, which is required for caching in the array implementation)
-            final boolean isFirstHaplotype = true;
+            // look up the cached results for this read, if any; NaN marks the haplotypes that must be evaluated
+            final PairHMMResultCache.ReadKey readKey = resultCache == null ? null :
+                    new PairHMMResultCache.ReadKey(readBases, readQuals, readInsQuals, readDelQuals, overallGCP);
             for (int a = 0; a < alleleCount; a++) {
+                cachedLikelihoods[a] = readKey == null ? Double.NaN : resultCache.get(readKey, alleles.get(a).getBases());
+            }
+
+            // evaluate the haplotypes in trie order, so that each one reuses the matrix columns of the longest prefix
+            // it shares with the previous one, and peek at the next one to find that prefix
+            boolean isFirstHaplotype = true;
+            for (int k = 0; k < alleleCount; k++) {
+                final int a = alleleOrder[k];
                 final Allele allele = alleles.get(a);
                 final byte[] alleleBases = allele.getBases();
-                final byte[] nextAlleleBases = a == alleles.size() - 1 ? null : alleles.get(a + 1).getBases();
-                final double lk = computeReadLikelihoodGivenHaplotypeLog10(alleleBases,
-                        readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
+                final double lk;
+                if (Double.isNaN(cachedLikelihoods[a])) {
+                    final byte[] nextAlleleBases = nextUncachedAlleleBases(alleles, alleleOrder, cachedLikelihoods, k);
+                    lk = computeReadLikelihoodGivenHaplotypeLog10(alleleBases,
+                            readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
+                    isFirstHaplotype = false;
+                    if (readKey != null) {
+                        resultCache.put(readKey, alleleBases, lk);
+                    }
+                } else {
+                    lk = cachedLikelihoods[a];
+                }
                 logLikelihoods.set(a, readIndex, lk);
-                mLogLikelihoodArray[idx++] = lk;
+                mLogLikelihoodArray[readIndex * alleleCount + a] = lk;
             }
             readIndex++;
         }
@@ -258,6 +299,49 @@ public abstract class PairHMM implements Closeable{
         }
     }
 
+    /**
+     * @return the bases of the first allele after the k-th one in alleleOrder whose likelihood is not cached (marked NaN
+     *         in cachedLikelihoods), or null if there is none.  This is the next haplotype that will actually be run
+     *         through the HMM.
+     */
+    private static byte[] nextUncachedAlleleBases(final List<? extends Allele> alleles, final int[] alleleOrder, final double[] cachedLikelihoods, final int k) {
+        for (int next = k + 1; next < alleleOrder.length; next++) {
+            if (Double.isNaN(cachedLikelihoods[alleleOrder[next]])) {
+                return alleles.get(alleleOrder[next]).getBases();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Order the alleles by length and then by their bases, which is the depth-first order of a trie of alleles of each
+     * length.  Only alleles of the same length share matrix columns (the initial condition depends on the length), and
+     * in this order each allele shares with the previous one the longest prefix it shares with any allele before it.
+     *
+     * @return the indices of the alleles in that order
+     */
+    private static int[] trieOrder(final List<? extends Allele> alleles) {
+        final byte[][] bases = new byte[alleles.size()][];
+        for (int a = 0; a < bases.length; a++) {
+            bases[a] = alleles.get(a).getBases();
+        }
+        return IntStream.range(0, bases.length).boxed()
+                .sorted((a1, a2) -> compareBases(bases[a1], bases[a2]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int compareBases(final byte[] bases1, final byte[] bases2) {
+        if (bases1.length != bases2.length) {
+            return Integer.compare(bases1.length, bases2.length);
+        }
+        for (int i = 0; i < bases1.length; i++) {
+            if (bases1[i] != bases2[i]) {
+                return Byte.compare(bases1[i], bases2[i]);
+            }
+        }
+        return 0;
+    }
+
     /**
      * Compute the total probability of read arising from haplotypeBases given base substitution, insertion, and deletion
      * probabilities.
@@ -376,5 +460,7 @@ public abstract class PairHMM implements Closeable{
     public void close() {
         if(doProfiling)
             logger.info("Total compute time in PairHMM computeLogLikelihoods() : "+(pairHMMComputeTime*1e-9));
+        if(resultCache != null)
+            logger.info("PairHMM result cache: " + resultCache.getStatistics());
     }
 }
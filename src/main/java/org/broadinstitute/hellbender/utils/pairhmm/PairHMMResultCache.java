@@ -0,0 +1,147 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of PairHMM results, keyed by the content of the read (bases, base qualities,
+ * insertion and deletion gap open penalties and gap continuation penalties) and of the haplotype.
+ *
+ * Overlapping active regions, and the tumor and normal samples of Mutect2, often evaluate the same processed read
+ * against a haplotype with the same sequence more than once, and since the PairHMM result only depends on these
+ * arrays, the cached value is exactly the one the PairHMM would compute.  The memory used by the cache is estimated
+ * from the lengths of the keys plus a fixed overhead per entry, and the least recently used entries are evicted
+ * to keep the estimate under the limit.
+ *
+ * Not thread-safe: each {@link PairHMM} should have its own cache.
+ */
+public final class PairHMMResultCache {
+    /**
+     * Estimated bytes used by an entry of the cache besides its arrays: the map entry, the key, the boxed value
+     * and the array headers
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Double> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    private long lookups = 0;
+    private long hits = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxBytes upper bound on the estimated memory used by the cache, must be positive
+     */
+    public PairHMMResultCache(final long maxBytes) {
+        Utils.validateArg(maxBytes > 0, () -> "maxBytes must be positive but got " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The part of a cache key that depends on the read.  Create it once per read and use it for the lookups of all
+     * haplotypes.
+     */
+    public static final class ReadKey {
+        private final byte[] content;
+        private final int hash;
+
+        public ReadKey(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+            final int length = readBases.length;
+            content = new byte[5 * length];
+            System.arraycopy(readBases, 0, content, 0, length);
+            System.arraycopy(readQuals, 0, content, length, length);
+            System.arraycopy(insertionGOP, 0, content, 2 * length, length);
+            System.arraycopy(deletionGOP, 0, content, 3 * length, length);
+            System.arraycopy(overallGCP, 0, content, 4 * length, length);
+            hash = Arrays.hashCode(content);
+        }
+    }
+
+    private static final class Key {
+        private final ReadKey read;
+        private final byte[] haplotypeBases;
+        private final int hash;
+
+        private Key(final ReadKey read, final byte[] haplotypeBases) {
+            this.read = read;
+            this.haplotypeBases = haplotypeBases;
+            this.hash = 31 * read.hash + Arrays.hashCode(haplotypeBases);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hash == other.hash && Arrays.equals(haplotypeBases, other.haplotypeBases) &&
+                    (read == other.read || Arrays.equals(read.content, other.read.content));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private long estimatedBytes() {
+            return ENTRY_OVERHEAD_BYTES + read.content.length + haplotypeBases.length;
+        }
+    }
+
+    /**
+     * @param haplotypeBases the haplotype bases, which must not be modified while the result is cached
+     * @return the cached log10 likelihood of the read given the haplotype, or NaN if it is not cached
+     */
+    public double get(final ReadKey read, final byte[] haplotypeBases) {
+        lookups++;
+        final Double result = results.get(new Key(read, haplotypeBases));
+        if ( result == null ) {
+            return Double.NaN;
+        }
+        hits++;
+        return result;
+    }
+
+    /**
+     * Cache the log10 likelihood of the read given the haplotype, evicting the least recently used results if
+     * necessary
+     *
+     * @param haplotypeBases the haplotype bases, which must not be modified while the result is cached
+     */
+    public void put(final ReadKey read, final byte[] haplotypeBases, final double log10Likelihood) {
+        final Key key = new Key(read, haplotypeBases);
+        if ( results.put(key, log10Likelihood) == null ) {
+            bytes += key.estimatedBytes();
+        }
+        final Iterator<Map.Entry<Key, Double>> eldest = results.entrySet().iterator();
+        while ( bytes > maxBytes && eldest.hasNext() ) {
+            bytes -= eldest.next().getKey().estimatedBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return a one-line summary of the cache usage
+     */
+    public String getStatistics() {
+        return String.format("%d lookups, %d hits (%.1f%%), %d evictions, %d results cached (~%.1f MB)",
+                lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions, results.size(), bytes / (1024.0 * 1024.0));
+    }
+}
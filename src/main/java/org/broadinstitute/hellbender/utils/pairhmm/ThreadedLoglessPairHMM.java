@@ -0,0 +1,573 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure Java implementation of the LOGLESS_CACHING PairHMM that evaluates the reads of a sample on a pool of threads,
+ * for platforms where the native AVX implementations are not available.
+ *
+ * The reads are split into batches, each of which is evaluated against all haplotypes by one thread.  Each thread
+ * fills the dynamic programming matrix row by row, keeping only two rows.  Within a row the match and insertion
+ * states depend only on the previous row, so they are computed in one loop with no loop-carried dependency that
+ * the JIT can vectorize, and the deletion state, which depends on the cell to its left, is computed in a second
+ * loop.  Every cell is computed with exactly the same arithmetic as in {@link LoglessPairHMM}, so the results are
+ * identical to that implementation.
+ *
+ * Optionally (see {@link #setBanding}) the results can be approximated to save time, in two ways:
+ * <ul>
+ *     <li>Banding: the read is anchored to the haplotype by exact matches of short seeds from its start, middle and
+ *     end, and only the cells within a number of diagonals of the anchors are computed.  Reads that cannot be
+ *     anchored are computed in full.</li>
+ *     <li>Early termination: the probability mass of a row, grown by the most the deletions of the remaining rows can
+ *     add, is an upper bound on the final likelihood, so the computation of a read against a haplotype stops once this
+ *     bound falls more than a margin below the best likelihood of the read so far, and the bound is used as the
+ *     result.</li>
+ * </ul>
+ * When reporting likelihood differences, every approximated result is also computed exactly, and the differences,
+ * including the reads whose most likely haplotype changes, are reported when this PairHMM is closed.  This measures
+ * the effect on the likelihoods only, not on the calls made from them.
+ */
+public final class ThreadedLoglessPairHMM extends PairHMM {
+    /**
+     * Batches per thread, so that threads that finish early can pick up more work
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * Length of the seeds used to anchor a read to a haplotype in banded mode
+     */
+    private static final int ANCHOR_SEED_LENGTH = 12;
+
+    /**
+     * Rows between checks for early termination
+     */
+    private static final int ABANDON_CHECK_INTERVAL = 8;
+
+    private final int numThreads;
+    private final ExecutorService pool;
+
+    // scratch space of the pool threads, and of the calling thread for single computations
+    private final ThreadLocal<RowKernel> kernels = ThreadLocal.withInitial(RowKernel::new);
+
+    private int bandWidth = 0;
+    private double abandonMargin = 0.0;
+    private LikelihoodDifferences likelihoodDifferences = null;
+
+    /**
+     * @param numThreads number of threads to evaluate reads on, must be positive
+     */
+    public ThreadedLoglessPairHMM(final int numThreads) {
+        Utils.validateArg(numThreads > 0, () -> "numThreads must be positive but got " + numThreads);
+        this.numThreads = numThreads;
+        this.pool = numThreads == 1 ? null : Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("pairhmm-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Approximate the results to save time, see the class documentation
+     *
+     * @param bandWidth number of diagonals on either side of the read's anchors to compute, 0 to compute the full matrix
+     * @param abandonMargin stop computing a read against a haplotype once its log10 likelihood is known to be more than
+     *                      this far below the best one of the read so far, 0 to never stop early
+     * @param reportLikelihoodDifferences also compute the exact results, and report the differences in likelihoods when closed
+     */
+    public void setBanding(final int bandWidth, final double abandonMargin, final boolean reportLikelihoodDifferences) {
+        Utils.validateArg(bandWidth >= 0, () -> "bandWidth must be non-negative but got " + bandWidth);
+        Utils.validateArg(abandonMargin >= 0.0, () -> "abandonMargin must be non-negative but got " + abandonMargin);
+        this.bandWidth = bandWidth;
+        this.abandonMargin = abandonMargin;
+        this.likelihoodDifferences = reportLikelihoodDifferences && isApproximate() ? new LikelihoodDifferences() : null;
+    }
+
+    private boolean isApproximate() {
+        return bandWidth > 0 || abandonMargin > 0.0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void computeLog10Likelihoods(final LikelihoodMatrix<GATKRead, Haplotype> logLikelihoods,
+                                        final List<GATKRead> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        if (processedReads.isEmpty()) {
+            return;
+        }
+        if (doProfiling) {
+            startTime = System.nanoTime();
+        }
+        final List<Haplotype> haplotypes = logLikelihoods.alleles();
+        final int readCount = processedReads.size();
+        final int haplotypeCount = haplotypes.size();
+        final byte[][] haplotypeBases = new byte[haplotypeCount][];
+        for (int h = 0; h < haplotypeCount; h++) {
+            haplotypeBases[h] = haplotypes.get(h).getBases();
+        }
+
+        // gather the read data, and the cached results if any, on the calling thread; NaN marks the results to compute
+        final ReadData[] reads = new ReadData[readCount];
+        final double[] results = new double[readCount * haplotypeCount];
+        for (int r = 0; r < readCount; r++) {
+            final GATKRead read = processedReads.get(r);
+            reads[r] = new ReadData(read.getBases(), read.getBaseQualities(), ReadUtils.getBaseInsertionQualities(read),
+                    ReadUtils.getBaseDeletionQualities(read), gcp.get(read));
+            for (int h = 0; h < haplotypeCount; h++) {
+                results[r * haplotypeCount + h] = resultCache == null ? Double.NaN : resultCache.get(reads[r].getCacheKey(), haplotypeBases[h]);
+            }
+        }
+
+        // results that stopped early are upper bounds, which are neither cached nor used as the best of their read
+        final boolean[] abandoned = new boolean[readCount * haplotypeCount];
+        final double[] exactResults = likelihoodDifferences == null ? null : new double[readCount * haplotypeCount];
+        final double[] abandonThresholds = likelihoodDifferences == null ? null : new double[readCount * haplotypeCount];
+
+        final int batchSize = pool == null ? readCount : Math.max(1, (readCount + numThreads * BATCHES_PER_THREAD - 1) / (numThreads * BATCHES_PER_THREAD));
+        if (pool == null || batchSize >= readCount) {
+            computeBatch(reads, haplotypeBases, results, abandoned, exactResults, abandonThresholds, 0, readCount);
+        } else {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int start = 0; start < readCount; start += batchSize) {
+                final int batchStart = start;
+                final int batchEnd = Math.min(readCount, start + batchSize);
+                futures.add(pool.submit(() -> computeBatch(reads, haplotypeBases, results, abandoned, exactResults, abandonThresholds, batchStart, batchEnd)));
+            }
+            awaitAll(futures);
+        }
+
+        if (likelihoodDifferences != null) {
+            likelihoodDifferences.add(results, exactResults, abandoned, abandonThresholds, readCount, haplotypeCount);
+        }
+
+        mLogLikelihoodArray = results;
+        for (int r = 0; r < readCount; r++) {
+            for (int h = 0; h < haplotypeCount; h++) {
+                final double result = results[r * haplotypeCount + h];
+                logLikelihoods.set(h, r, result);
+                if (resultCache != null && !abandoned[r * haplotypeCount + h]) {
+                    resultCache.put(reads[r].getCacheKey(), haplotypeBases[h], result);
+                }
+            }
+        }
+        if (doProfiling) {
+            threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
+            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+        }
+    }
+
+    /**
+     * Compute the uncached (NaN) results of reads [start, end) against all haplotypes
+     *
+     * @param exactResults if not null, where to put the exact values of the computed results
+     * @param abandonThresholds if not null, where to put the log10 likelihood below which each result could stop early
+     */
+    private void computeBatch(final ReadData[] reads, final byte[][] haplotypeBases, final double[] results,
+                              final boolean[] abandoned, final double[] exactResults, final double[] abandonThresholds,
+                              final int start, final int end) {
+        final RowKernel kernel = kernels.get();
+        final int haplotypeCount = haplotypeBases.length;
+        for (int r = start; r < end; r++) {
+            final ReadData read = reads[r];
+            kernel.setRead(read.bases, read.quals, read.insertionGOP, read.deletionGOP, read.overallGCP, doNotUseTristateCorrection);
+            double best = Double.NEGATIVE_INFINITY;
+            for (int h = 0; h < haplotypeCount; h++) {
+                final double cached = results[r * haplotypeCount + h];
+                best = Double.isNaN(cached) ? best : Math.max(best, cached);
+            }
+            for (int h = 0; h < haplotypeCount; h++) {
+                final int index = r * haplotypeCount + h;
+                if (Double.isNaN(results[index])) {
+                    final byte[] haplotype = haplotypeBases[h];
+                    final double abandonBelow = abandonMargin > 0.0 ? best - abandonMargin : Double.NEGATIVE_INFINITY;
+                    final double result = kernel.computeLog10Likelihood(haplotype, bandWidth, abandonBelow);
+                    Utils.validate(result <= 0.0, () -> "PairHMM Log Probability cannot be greater than 0: " + String.format("haplotype: %s, read: %s, result: %f, PairHMM: %s", new String(haplotype), new String(read.bases), result, getClass().getSimpleName()));
+                    Utils.validate(MathUtils.isValidLog10Probability(result), () -> "Invalid Log Probability: " + result);
+                    results[index] = result;
+                    abandoned[index] = kernel.wasAbandoned();
+                    if (!abandoned[index]) {
+                        best = Math.max(best, result);
+                    }
+                    if (exactResults != null) {
+                        exactResults[index] = kernel.computeLog10Likelihood(haplotype);
+                        abandonThresholds[index] = abandonBelow;
+                    }
+                } else if (exactResults != null) {
+                    exactResults[index] = Double.NaN;
+                }
+            }
+        }
+    }
+
+    private static void awaitAll(final List<Future<?>> futures) {
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for PairHMM threads", e);
+        } catch (final ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error computing PairHMM likelihoods", e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10(final byte[] haplotypeBases,
+                                                                 final byte[] readBases,
+                                                                 final byte[] readQuals,
+                                                                 final byte[] insertionGOP,
+                                                                 final byte[] deletionGOP,
+                                                                 final byte[] overallGCP,
+                                                                 final int hapStartIndex,
+                                                                 final boolean recacheReadValues,
+                                                                 final int nextHapStartIndex) {
+        final RowKernel kernel = kernels.get();
+        kernel.setRead(readBases, readQuals, insertionGOP, deletionGOP, overallGCP, doNotUseTristateCorrection);
+        return kernel.computeLog10Likelihood(haplotypeBases);
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (likelihoodDifferences != null) {
+            logger.info(String.format("Banded PairHMM (band width %d, abandon margin %.2f) likelihood differences from the exact results: %s",
+                    bandWidth, abandonMargin, likelihoodDifferences.getSummary()));
+        }
+        super.close();
+    }
+
+    /**
+     * Differences between the approximate and exact results, accumulated on the calling thread
+     */
+    private static final class LikelihoodDifferences {
+        /**
+         * Differences in log10 likelihood above this are reported as discordant
+         */
+        private static final double DISCORDANCE_TOLERANCE = 0.01;
+
+        private long pairs = 0;
+        private long abandonedPairs = 0;
+        private long wronglyAbandonedPairs = 0;
+        private long discordantPairs = 0;
+        private double maxDifference = 0.0;
+        private long reads = 0;
+        private long readsWithDifferentBest = 0;
+
+        /**
+         * @param exactResults the exact results, NaN for those that were not computed
+         * @param abandonThresholds the log10 likelihood below which each computed result could stop early
+         */
+        private void add(final double[] results, final double[] exactResults, final boolean[] abandoned,
+                         final double[] abandonThresholds, final int readCount, final int haplotypeCount) {
+            for (int r = 0; r < readCount; r++) {
+                int best = -1;
+                int exactBest = -1;
+                boolean computed = false;
+                for (int h = 0; h < haplotypeCount; h++) {
+                    final int index = r * haplotypeCount + h;
+                    final double exact = exactResultOf(results, exactResults, index);
+                    if (!Double.isNaN(exactResults[index])) {
+                        computed = true;
+                        pairs++;
+                        abandonedPairs += abandoned[index] ? 1 : 0;
+                        // the bound used to stop early should never be below the exact result
+                        wronglyAbandonedPairs += abandoned[index] && exact > abandonThresholds[index] ? 1 : 0;
+                        // results that stopped early only need to stay below the best result of the read
+                        final double difference = abandoned[index] ? 0.0 : Math.abs(results[index] - exact);
+                        discordantPairs += difference > DISCORDANCE_TOLERANCE ? 1 : 0;
+                        maxDifference = Math.max(maxDifference, difference);
+                    }
+                    if (best < 0 || results[index] > results[r * haplotypeCount + best]) {
+                        best = h;
+                    }
+                    if (exactBest < 0 || exact > exactResultOf(results, exactResults, r * haplotypeCount + exactBest)) {
+                        exactBest = h;
+                    }
+                }
+                if (computed) {
+                    reads++;
+                    readsWithDifferentBest += best == exactBest ? 0 : 1;
+                }
+            }
+        }
+
+        private static double exactResultOf(final double[] results, final double[] exactResults, final int index) {
+            return Double.isNaN(exactResults[index]) ? results[index] : exactResults[index];
+        }
+
+        private String getSummary() {
+            return String.format("%d read-haplotype pairs, %d stopped early (%d of them wrongly), %d differ by more than %.2f (max difference %.4f); " +
+                            "%d of %d reads have a different most likely haplotype",
+                    pairs, abandonedPairs, wronglyAbandonedPairs, discordantPairs, DISCORDANCE_TOLERANCE, maxDifference, readsWithDifferentBest, reads);
+        }
+    }
+
+    private static final class ReadData {
+        private final byte[] bases;
+        private final byte[] quals;
+        private final byte[] insertionGOP;
+        private final byte[] deletionGOP;
+        private final byte[] overallGCP;
+        private PairHMMResultCache.ReadKey cacheKey;
+
+        private ReadData(final byte[] bases, final byte[] quals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+            this.bases = bases;
+            this.quals = quals;
+            this.insertionGOP = insertionGOP;
+            this.deletionGOP = deletionGOP;
+            this.overallGCP = overallGCP;
+        }
+
+        // only called on the calling thread
+        private PairHMMResultCache.ReadKey getCacheKey() {
+            if (cacheKey == null) {
+                cacheKey = new PairHMMResultCache.ReadKey(bases, quals, insertionGOP, deletionGOP, overallGCP);
+            }
+            return cacheKey;
+        }
+    }
+
+    /**
+     * Computes the LOGLESS_CACHING likelihood of one read against haplotypes, two rows of the matrices at a time.
+     * Not thread-safe; each thread has its own.
+     */
+    private static final class RowKernel {
+        private double[][] transition = createTransitionMatrix(0);
+        private double[] matchPriors = new double[0];
+        private double[] mismatchPriors = new double[0];
+        // at index i, how much the log10 probability mass of row i can grow by the last row, see computeLog10Likelihood
+        private double[] remainingMassGrowthLog10 = new double[0];
+
+        private double[] previousMatch = new double[0];
+        private double[] previousInsertion = new double[0];
+        private double[] previousDeletion = new double[0];
+        private double[] match = new double[0];
+        private double[] insertion = new double[0];
+        private double[] deletion = new double[0];
+        private double[] prior = new double[0];
+
+        private byte[] readBases;
+
+        private int minAnchorDiagonal;
+        private int maxAnchorDiagonal;
+        private boolean abandoned;
+
+        /**
+         * Compute the transition probabilities and the priors of each read base
+         */
+        private void setRead(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP, final byte[] deletionGOP,
+                             final byte[] overallGCP, final boolean doNotUseTristateCorrection) {
+            final int readLength = readBases.length;
+            if (transition.length < readLength + 1) {
+                transition = createTransitionMatrix(readLength);
+                matchPriors = new double[readLength];
+                mismatchPriors = new double[readLength];
+                remainingMassGrowthLog10 = new double[readLength + 1];
+            }
+            qualToTransProbs(transition, insertionGOP, deletionGOP, overallGCP);
+            remainingMassGrowthLog10[readLength] = 0.0;
+            for (int i = readLength - 1; i >= 0; i--) {
+                final double[] t = transition[i + 1];
+                remainingMassGrowthLog10[i] = remainingMassGrowthLog10[i + 1] + Math.log10(1.0 + t[matchToDeletion] / (1.0 - t[deletionToDeletion]));
+            }
+            for (int i = 0; i < readLength; i++) {
+                matchPriors[i] = QualityUtils.qualToProb(readQuals[i]);
+                mismatchPriors[i] = QualityUtils.qualToErrorProb(readQuals[i]) / (doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION);
+            }
+            this.readBases = readBases;
+        }
+
+        private double computeLog10Likelihood(final byte[] haplotypeBases) {
+            return computeLog10Likelihood(haplotypeBases, 0, Double.NEGATIVE_INFINITY);
+        }
+
+        /**
+         * @param bandWidth if positive, only compute the cells within this many diagonals of the read's anchored
+         *                  alignment to the haplotype; the full matrix is computed if the read cannot be anchored
+         * @param abandonBelow give up once the likelihood is known to be below this log10 value, and return an upper
+         *                     bound on it instead; see {@link #wasAbandoned()}
+         */
+        private double computeLog10Likelihood(final byte[] haplotypeBases, final int bandWidth, final double abandonBelow) {
+            final int readLength = readBases.length;
+            final int haplotypeLength = haplotypeBases.length;
+            final int paddedHaplotypeLength = haplotypeLength + 1;
+            if (match.length < paddedHaplotypeLength) {
+                previousMatch = new double[paddedHaplotypeLength];
+                previousInsertion = new double[paddedHaplotypeLength];
+                previousDeletion = new double[paddedHaplotypeLength];
+                match = new double[paddedHaplotypeLength];
+                insertion = new double[paddedHaplotypeLength];
+                deletion = new double[paddedHaplotypeLength];
+                prior = new double[paddedHaplotypeLength];
+            }
+            abandoned = false;
+
+            // the band covers the diagonals j - i in [minDiagonal, maxDiagonal], or the whole matrix
+            final boolean banded = bandWidth > 0 && anchor(haplotypeBases) &&
+                    maxAnchorDiagonal + bandWidth >= 0 && readLength + minAnchorDiagonal - bandWidth <= haplotypeLength;
+            final int minDiagonal = banded ? minAnchorDiagonal - bandWidth : -readLength;
+            final int maxDiagonal = banded ? maxAnchorDiagonal + bandWidth : haplotypeLength;
+
+            // first row: free deletions at the start of the haplotype
+            final double initialValue = LoglessPairHMM.INITIAL_CONDITION / haplotypeLength;
+            for (int j = 0; j < paddedHaplotypeLength; j++) {
+                previousMatch[j] = 0.0;
+                previousInsertion[j] = 0.0;
+                previousDeletion[j] = initialValue;
+            }
+
+            int lo = 1;
+            int hi = haplotypeLength;
+            for (int i = 1; i <= readLength; i++) {
+                lo = Math.max(1, i + minDiagonal);
+                hi = Math.min(haplotypeLength, i + maxDiagonal);
+                // the cells just outside the band, including the first column, are zero: they are the only cells
+                // outside the band that this row and the next one read
+                match[lo - 1] = 0.0;
+                insertion[lo - 1] = 0.0;
+                deletion[lo - 1] = 0.0;
+                if (hi < haplotypeLength) {
+                    match[hi + 1] = 0.0;
+                    insertion[hi + 1] = 0.0;
+                    deletion[hi + 1] = 0.0;
+                }
+                final byte x = readBases[i - 1];
+                final double matchPrior = matchPriors[i - 1];
+                final double mismatchPrior = mismatchPriors[i - 1];
+                for (int j = lo; j <= hi; j++) {
+                    final byte y = haplotypeBases[j - 1];
+                    prior[j] = x == y || x == (byte) 'N' || y == (byte) 'N' ? matchPrior : mismatchPrior;
+                }
+
+                final double[] t = transition[i];
+                final double matchToMatchProb = t[matchToMatch];
+                final double indelToMatchProb = t[indelToMatch];
+                final double matchToInsertionProb = t[matchToInsertion];
+                final double insertionToInsertionProb = t[insertionToInsertion];
+                final double matchToDeletionProb = t[matchToDeletion];
+                final double deletionToDeletionProb = t[deletionToDeletion];
+
+                // match and insertion only depend on the previous row
+                for (int j = lo; j <= hi; j++) {
+                    match[j] = prior[j] * ( previousMatch[j - 1] * matchToMatchProb +
+                            previousInsertion[j - 1] * indelToMatchProb +
+                            previousDeletion[j - 1] * indelToMatchProb );
+                    insertion[j] = previousMatch[j] * matchToInsertionProb + previousInsertion[j] * insertionToInsertionProb;
+                }
+                // deletion depends on the cell to its left
+                for (int j = lo; j <= hi; j++) {
+                    deletion[j] = match[j - 1] * matchToDeletionProb + deletion[j - 1] * deletionToDeletionProb;
+                }
+
+                double[] swap = previousMatch; previousMatch = match; match = swap;
+                swap = previousInsertion; previousInsertion = insertion; insertion = swap;
+                swap = previousDeletion; previousDeletion = deletion; deletion = swap;
+
+                // The transitions out of each state sum to at most one and the priors are at most one, so the match
+                // and insertion mass of row k + 1 is at most the total mass of row k.  The deletions of row k + 1 come
+                // from its own match cells, adding at most matchToDeletion / (1 - deletionToDeletion) of their mass,
+                // so the total mass of a row times the product of those factors over the later rows bounds the final
+                // likelihood.
+                if (abandonBelow > Double.NEGATIVE_INFINITY && i % ABANDON_CHECK_INTERVAL == 0 && i < readLength) {
+                    double rowSum = 0.0;
+                    for (int j = lo; j <= hi; j++) {
+                        rowSum += previousMatch[j] + previousInsertion[j] + previousDeletion[j];
+                    }
+                    final double bound = Math.min(0.0, Math.log10(rowSum) + remainingMassGrowthLog10[i] - LoglessPairHMM.INITIAL_CONDITION_LOG10);
+                    if (bound < abandonBelow) {
+                        abandoned = true;
+                        return bound;
+                    }
+                }
+            }
+
+            // the last row is now in the "previous" arrays
+            double finalSumProbabilities = 0.0;
+            for (int j = lo; j <= hi; j++) {
+                finalSumProbabilities += previousMatch[j] + previousInsertion[j];
+            }
+            return Math.log10(finalSumProbabilities) - LoglessPairHMM.INITIAL_CONDITION_LOG10;
+        }
+
+        /**
+         * @return whether the last computation gave up early and returned an upper bound on the likelihood
+         */
+        private boolean wasAbandoned() {
+            return abandoned;
+        }
+
+        /**
+         * Anchor the read on the haplotype with seeds taken from its start, middle and end, each of which must occur
+         * exactly once in the haplotype.  Sets the smallest and largest diagonals (haplotype position minus read
+         * position) of the seeds, which differ when there are indels between them.
+         *
+         * @return false if no seed could be placed
+         */
+        private boolean anchor(final byte[] haplotypeBases) {
+            final int readLength = readBases.length;
+            if (readLength < ANCHOR_SEED_LENGTH) {
+                return false;
+            }
+            boolean anchored = false;
+            final int[] seedStarts = {0, (readLength - ANCHOR_SEED_LENGTH) / 2, readLength - ANCHOR_SEED_LENGTH};
+            for (final int seedStart : seedStarts) {
+                final int haplotypeStart = findUniqueOccurrence(haplotypeBases, seedStart);
+                if (haplotypeStart >= 0) {
+                    final int diagonal = haplotypeStart - seedStart;
+                    minAnchorDiagonal = anchored ? Math.min(minAnchorDiagonal, diagonal) : diagonal;
+                    maxAnchorDiagonal = anchored ? Math.max(maxAnchorDiagonal, diagonal) : diagonal;
+                    anchored = true;
+                }
+            }
+            return anchored;
+        }
+
+        /**
+         * @return the start of the only occurrence in the haplotype of the seed of the read starting at seedStart,
+         * or -1 if it does not occur exactly once
+         */
+        private int findUniqueOccurrence(final byte[] haplotypeBases, final int seedStart) {
+            int found = -1;
+            for (int start = 0; start + ANCHOR_SEED_LENGTH <= haplotypeBases.length; start++) {
+                int k = 0;
+                while (k < ANCHOR_SEED_LENGTH && haplotypeBases[start + k] == readBases[seedStart + k]) {
+                    k++;
+                }
+                if (k == ANCHOR_SEED_LENGTH) {
+                    if (found >= 0) {
+                        return -1;
+                    }
+                    found = start;
+                }
+            }
+            return found;
+        }
+    }
+}
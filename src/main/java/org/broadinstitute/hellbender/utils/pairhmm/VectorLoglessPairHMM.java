@@ -15,6 +15,7 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -145,10 +146,14 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
         if (doProfiling) {
             threadLocalSetupTimeDiff = (System.nanoTime() - startTime);
         }
-        //for(reads)
-        //   for(haplotypes)
-        //       compute_full_prob()
-        pairHmm.computeLikelihoods(readDataArray, mHaplotypeDataArray, mLogLikelihoodArray);
+        if (resultCache == null) {
+            //for(reads)
+            //   for(haplotypes)
+            //       compute_full_prob()
+            pairHmm.computeLikelihoods(readDataArray, mHaplotypeDataArray, mLogLikelihoodArray);
+        } else {
+            computeLikelihoodsWithCache(readDataArray, numHaplotypes);
+        }
 
         int readIdx = 0;
         for (int r = 0; r < readListSize; r++) {
@@ -171,6 +176,46 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
     }
 
 
+    /**
+     * Fill mLogLikelihoodArray from the result cache where possible, and send only the reads with at least one
+     * uncached haplotype to the native implementation, which evaluates each read it is given against all haplotypes.
+     */
+    private void computeLikelihoodsWithCache(final ReadDataHolder[] readDataArray, final int numHaplotypes) {
+        final PairHMMResultCache.ReadKey[] readKeys = new PairHMMResultCache.ReadKey[readDataArray.length];
+        final List<Integer> uncachedReads = new ArrayList<>();
+        for (int r = 0; r < readDataArray.length; r++) {
+            final ReadDataHolder readData = readDataArray[r];
+            readKeys[r] = new PairHMMResultCache.ReadKey(readData.readBases, readData.readQuals, readData.insertionGOP, readData.deletionGOP, readData.overallGCP);
+            boolean allCached = true;
+            for (int h = 0; h < numHaplotypes && allCached; h++) {
+                final double cached = resultCache.get(readKeys[r], mHaplotypeDataArray[h].haplotypeBases);
+                mLogLikelihoodArray[r * numHaplotypes + h] = cached;
+                allCached = !Double.isNaN(cached);
+            }
+            if (!allCached) {
+                uncachedReads.add(r);
+            }
+        }
+        if (uncachedReads.isEmpty()) {
+            return;
+        }
+
+        final ReadDataHolder[] uncachedReadData = new ReadDataHolder[uncachedReads.size()];
+        for (int i = 0; i < uncachedReadData.length; i++) {
+            uncachedReadData[i] = readDataArray[uncachedReads.get(i)];
+        }
+        final double[] uncachedLikelihoods = new double[uncachedReadData.length * numHaplotypes];
+        pairHmm.computeLikelihoods(uncachedReadData, mHaplotypeDataArray, uncachedLikelihoods);
+
+        for (int i = 0; i < uncachedReadData.length; i++) {
+            final int r = uncachedReads.get(i);
+            System.arraycopy(uncachedLikelihoods, i * numHaplotypes, mLogLikelihoodArray, r * numHaplotypes, numHaplotypes);
+            for (int h = 0; h < numHaplotypes; h++) {
+                resultCache.put(readKeys[r], mHaplotypeDataArray[h].haplotypeBases, uncachedLikelihoods[i * numHaplotypes + h]);
+            }
+        }
+    }
+
     @Override
     public void close() {
         pairHmm.done();
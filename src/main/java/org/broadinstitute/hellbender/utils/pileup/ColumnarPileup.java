@@ -0,0 +1,322 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A pileup stored column-wise, as parallel primitive arrays of base, base quality, read offset, mapping quality and
+ * flags with one entry per read, instead of as one {@link PileupElement} object per read.
+ *
+ * Instances are meant to be filled by a producer (such as
+ * {@link org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState}) and reused from one locus to the
+ * next, so that building a pileup allocates nothing once the arrays have grown to the maximum depth. Consumers
+ * should therefore not hold on to a ColumnarPileup, or to the arrays returned by its bulk accessors, beyond the
+ * locus for which it was handed to them. The object-based {@link ReadPileup} view, which is safe to keep, is
+ * available on demand via {@link #toReadPileup()}.
+ *
+ * The bulk accessors ({@link #getBases()}, {@link #getQuals()}, ...) return the backing arrays directly; only the
+ * first {@link #size()} entries of each are meaningful.
+ */
+public final class ColumnarPileup {
+
+    /**
+     * Flag bit: the read has a deletion (w.r.t. the reference) at this locus
+     */
+    public static final int DELETION = 1;
+
+    /**
+     * Flag bit: the read is on the reverse strand
+     */
+    public static final int REVERSE_STRAND = 1 << 1;
+
+    /**
+     * Flag bit: this locus is the first position of the read's current cigar element
+     */
+    public static final int AT_START_OF_CIGAR_ELEMENT = 1 << 2;
+
+    /**
+     * Flag bit: this locus is the last position of the read's current cigar element
+     */
+    public static final int AT_END_OF_CIGAR_ELEMENT = 1 << 3;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 128;
+
+    private Locatable location;
+    private int size = 0;
+
+    private byte[] bases;
+    private byte[] quals;
+    private int[] offsets;
+    private int[] mappingQuals;
+    private int[] flags;
+
+    // needed to build PileupElements for the object-based view
+    private GATKRead[] reads;
+    private CigarElement[] cigarElements;
+    private int[] cigarElementIndices;
+    private int[] offsetsInCigarElement;
+
+    /**
+     * Called by {@link #release()}, or null if this pileup isn't pooled
+     */
+    private final Consumer<ColumnarPileup> recycler;
+
+    private boolean released = false;
+
+    private ReadPileup readPileupView = null;
+
+    /**
+     * Create an empty pileup that isn't pooled
+     */
+    public ColumnarPileup() {
+        this(null);
+    }
+
+    /**
+     * Create an empty pileup
+     *
+     * @param recycler called with this pileup when {@link #release()} is called, so that its producer can reuse it;
+     *                 may be null
+     */
+    public ColumnarPileup(final Consumer<ColumnarPileup> recycler) {
+        this.recycler = recycler;
+        allocate(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Build a columnar copy of an object-based pileup
+     */
+    public static ColumnarPileup fromReadPileup(final ReadPileup pileup) {
+        Utils.nonNull(pileup);
+        final ColumnarPileup columnarPileup = new ColumnarPileup();
+        columnarPileup.reset(pileup.getLocation());
+        for ( final PileupElement pe : pileup ) {
+            columnarPileup.add(pe.getRead(), pe.getOffset(), pe.getCurrentCigarElement(), pe.getCurrentCigarOffset(), pe.getOffsetInCurrentCigar());
+        }
+        // the object view is the pileup we were built from
+        columnarPileup.readPileupView = pileup;
+        return columnarPileup;
+    }
+
+    private void allocate(final int capacity) {
+        bases = new byte[capacity];
+        quals = new byte[capacity];
+        offsets = new int[capacity];
+        mappingQuals = new int[capacity];
+        flags = new int[capacity];
+        reads = new GATKRead[capacity];
+        cigarElements = new CigarElement[capacity];
+        cigarElementIndices = new int[capacity];
+        offsetsInCigarElement = new int[capacity];
+    }
+
+    private void grow() {
+        final int capacity = bases.length * 2;
+        bases = Arrays.copyOf(bases, capacity);
+        quals = Arrays.copyOf(quals, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        mappingQuals = Arrays.copyOf(mappingQuals, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        reads = Arrays.copyOf(reads, capacity);
+        cigarElements = Arrays.copyOf(cigarElements, capacity);
+        cigarElementIndices = Arrays.copyOf(cigarElementIndices, capacity);
+        offsetsInCigarElement = Arrays.copyOf(offsetsInCigarElement, capacity);
+    }
+
+    /**
+     * Empty this pileup and move it to a new location, keeping its arrays for reuse. For producers.
+     */
+    public void reset(final Locatable location) {
+        this.location = Utils.nonNull(location);
+        // don't keep reads from previous loci reachable
+        Arrays.fill(reads, 0, size, null);
+        Arrays.fill(cigarElements, 0, size, null);
+        size = 0;
+        readPileupView = null;
+        released = false;
+    }
+
+    /**
+     * Add the base of a read aligned to this locus. For producers. Arguments are as for
+     * {@link PileupElement#PileupElement(GATKRead, int, CigarElement, int, int)}.
+     */
+    public void add(final GATKRead read, final int offset, final CigarElement currentCigarElement,
+                    final int currentCigarOffset, final int offsetInCurrentCigar) {
+        if ( size == bases.length ) {
+            grow();
+        }
+
+        final boolean isDeletion = currentCigarElement.getOperator() == CigarOperator.D;
+        int elementFlags = 0;
+        if ( isDeletion ) {
+            elementFlags |= DELETION;
+        }
+        if ( read.isReverseStrand() ) {
+            elementFlags |= REVERSE_STRAND;
+        }
+        if ( offsetInCurrentCigar == 0 ) {
+            elementFlags |= AT_START_OF_CIGAR_ELEMENT;
+        }
+        if ( offsetInCurrentCigar == currentCigarElement.getLength() - 1 ) {
+            elementFlags |= AT_END_OF_CIGAR_ELEMENT;
+        }
+
+        bases[size] = isDeletion ? PileupElement.DELETION_BASE : read.getBase(offset);
+        quals[size] = isDeletion ? PileupElement.DELETION_QUAL : read.getBaseQuality(offset);
+        offsets[size] = offset;
+        mappingQuals[size] = read.getMappingQuality();
+        flags[size] = elementFlags;
+        reads[size] = read;
+        cigarElements[size] = currentCigarElement;
+        cigarElementIndices[size] = currentCigarOffset;
+        offsetsInCigarElement[size] = offsetInCurrentCigar;
+        size++;
+    }
+
+    /**
+     * Hand this pileup back to its producer for reuse. The pileup must not be used afterwards.
+     * Does nothing if this pileup isn't pooled or has already been released.
+     */
+    public void release() {
+        if ( recycler != null && ! released ) {
+            released = true;
+            recycler.accept(this);
+        }
+    }
+
+    public Locatable getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the number of reads in this pileup
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return backing array of the bases at this locus ({@link PileupElement#DELETION_BASE} for deletions)
+     */
+    public byte[] getBases() {
+        return bases;
+    }
+
+    /**
+     * @return backing array of the base qualities at this locus ({@link PileupElement#DELETION_QUAL} for deletions)
+     */
+    public byte[] getQuals() {
+        return quals;
+    }
+
+    /**
+     * @return backing array of the offsets into each read of the base at this locus
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * @return backing array of the mapping qualities of each read
+     */
+    public int[] getMappingQuals() {
+        return mappingQuals;
+    }
+
+    /**
+     * @return backing array of the flags ({@link #DELETION}, {@link #REVERSE_STRAND}, ...) of each read at this locus
+     */
+    public int[] getFlags() {
+        return flags;
+    }
+
+    public byte getBase(final int i) {
+        return bases[checkIndex(i)];
+    }
+
+    public byte getQual(final int i) {
+        return quals[checkIndex(i)];
+    }
+
+    public int getOffset(final int i) {
+        return offsets[checkIndex(i)];
+    }
+
+    public int getMappingQual(final int i) {
+        return mappingQuals[checkIndex(i)];
+    }
+
+    public boolean isDeletion(final int i) {
+        return (flags[checkIndex(i)] & DELETION) != 0;
+    }
+
+    public boolean isReverseStrand(final int i) {
+        return (flags[checkIndex(i)] & REVERSE_STRAND) != 0;
+    }
+
+    public GATKRead getRead(final int i) {
+        return reads[checkIndex(i)];
+    }
+
+    private int checkIndex(final int i) {
+        Utils.validIndex(i, size);
+        return i;
+    }
+
+    /**
+     * Count the A, C, G and T bases in this pileup, skipping deletions, in the order given by
+     * {@link BaseUtils#simpleBaseToBaseIndex}. Equivalent to {@link ReadPileup#getBaseCounts()}.
+     *
+     * @param minBaseQuality only bases with at least this quality are counted
+     * @param counts array of length 4 that the counts are added to
+     */
+    public void addBaseCounts(final int minBaseQuality, final int[] counts) {
+        Utils.validateArg(counts.length == 4, "counts must have length 4");
+        for ( int i = 0; i < size; i++ ) {
+            if ( (flags[i] & DELETION) == 0 && quals[i] >= minBaseQuality ) {
+                final int index = BaseUtils.simpleBaseToBaseIndex(bases[i]);
+                if ( index != -1 ) {
+                    counts[index]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a new PileupElement for the i-th read of this pileup
+     */
+    public PileupElement makePileupElement(final int i) {
+        checkIndex(i);
+        return new PileupElement(reads[i], offsets[i], cigarElements[i], cigarElementIndices[i], offsetsInCigarElement[i]);
+    }
+
+    /**
+     * Get the object-based view of this pileup. It is built on the first call for the current locus, and is
+     * independent of this pileup, so it remains valid after this pileup is released or reused.
+     *
+     * @return a ReadPileup with the same reads, in the same order, as this pileup
+     */
+    public ReadPileup toReadPileup() {
+        if ( readPileupView == null ) {
+            final List<PileupElement> elements = new ArrayList<>(size);
+            for ( int i = 0; i < size; i++ ) {
+                elements.add(makePileupElement(i));
+            }
+            readPileupView = new ReadPileup(location, elements);
+        }
+        return readPileupView;
+    }
+}
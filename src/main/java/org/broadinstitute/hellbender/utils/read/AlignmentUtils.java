@@ -29,9 +29,22 @@ public final class AlignmentUtils {
     public final static String HAPLOTYPE_TAG = "HC";
     public final static byte GAP_CHARACTER = (byte)'-';
 
+    // padding added to the end of the haplotype to reference cigar, so that reads overhanging the haplotype can be projected
+    private static final int HAPLOTYPE_CIGAR_PADDING = 1000;
+
     // cannot be instantiated
     private AlignmentUtils() { }
 
+    /**
+     * @return the alignment of the haplotype to the reference, padded on the right, through which
+     * {@link #createReadAlignedToRef} projects the alignments of reads to the haplotype onto the reference
+     */
+    public static Cigar getHaplotypeCigarForRealignment(final Haplotype haplotype) {
+        Utils.nonNull(haplotype);
+        Utils.nonNull(haplotype.getCigar());
+        return haplotype.getConsolidatedPaddedCigar(HAPLOTYPE_CIGAR_PADDING);
+    }
+
     /**
      * Aligns reads the haplotype, and then projects this alignment of read -> hap onto the reference
      * via the alignment of haplotype (via its getCigar) method.
@@ -53,10 +66,28 @@ public final class AlignmentUtils {
                                                   final int referenceStart,
                                                   final boolean isInformative,
                                                   final SmithWatermanAligner aligner) {
+        return createReadAlignedToRef(originalRead, haplotype, getHaplotypeCigarForRealignment(haplotype), refHaplotype, referenceStart, isInformative, aligner);
+    }
+
+    /**
+     * Same as {@link #createReadAlignedToRef(GATKRead, Haplotype, Haplotype, int, boolean, SmithWatermanAligner)}, but
+     * with the padded alignment of the haplotype to the reference computed by the caller, so that it can be computed
+     * once per haplotype when realigning many reads to the same haplotypes.
+     *
+     * @param rightPaddedHaplotypeVsRefCigar the alignment of {@code haplotype} to the reference, as given by
+     *                                       {@link #getHaplotypeCigarForRealignment(Haplotype)}
+     */
+    public static GATKRead createReadAlignedToRef(final GATKRead originalRead,
+                                                  final Haplotype haplotype,
+                                                  final Cigar rightPaddedHaplotypeVsRefCigar,
+                                                  final Haplotype refHaplotype,
+                                                  final int referenceStart,
+                                                  final boolean isInformative,
+                                                  final SmithWatermanAligner aligner) {
         Utils.nonNull(originalRead);
         Utils.nonNull(haplotype);
+        Utils.nonNull(rightPaddedHaplotypeVsRefCigar);
         Utils.nonNull(refHaplotype);
-        Utils.nonNull(haplotype.getCigar());
         Utils.nonNull(aligner);
         if ( referenceStart < 1 ) { throw new IllegalArgumentException("reference start much be >= 1 but got " + referenceStart); }
 
@@ -78,8 +109,6 @@ public final class AlignmentUtils {
         }
 
         // compute here the read starts w.r.t. the reference from the SW result and the hap -> ref cigar
-        final Cigar rightPaddedHaplotypeVsRefCigar = haplotype.getConsolidatedPaddedCigar(1000);
-
         // this computes the number of reference bases before the read starts, based on the haplotype vs ref cigar
         // This cigar corresponds exactly to the readToRefCigarRaw, below.  One might wonder whether readToRefCigarRaw and
         // readToRefCigarClean ever imply different starts, which could occur if if the former has a leading deletion.  However,
@@ -62,6 +62,14 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationArgumentCollection recalArgs;
 
+    /**
+     * The counts accumulated by processRead, turned into RecalDatum tables when they are needed
+     */
+    private FlatRecalibrationTables flatTables;
+
+    /**
+     * The finalized tables, or null until finalizeData() has been called
+     */
     private RecalibrationTables recalTables;
 
     private SAMFileHeader readsHeader;
@@ -97,7 +105,7 @@ public final class BaseRecalibrationEngine implements Serializable {
         if ( numReadGroups < 1 ) {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
-        recalTables = new RecalibrationTables(covariates, numReadGroups);
+        flatTables = new FlatRecalibrationTables(covariates, numReadGroups);
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -149,6 +157,19 @@ public final class BaseRecalibrationEngine implements Serializable {
         numReadsProcessed++;
     }
 
+    /**
+     * Add the counts collected by other, which must have been created with the same arguments and header, to the
+     * counts of this engine, so that reads can be processed by several engines in parallel and finalized by one.
+     *
+     * Neither engine may have been finalized.
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "FinalizeData() has already been called");
+        flatTables.combine(other.flatTables);
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
      *
@@ -159,6 +180,8 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        recalTables = flatTables.toRecalibrationTables();
+        flatTables = null;
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -210,9 +233,12 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * Before finalizeData() has been called this returns new tables holding the counts so far, which are not
+     * updated by later calls to processRead.
      */
     public RecalibrationTables getRecalibrationTables() {
-        return recalTables;
+        return finalized ? recalTables : flatTables.toRecalibrationTables();
     }
 
     /**
@@ -246,7 +272,7 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
+        final FlatRecalibrationTables.Table qualityScoreTable = flatTables.getQualityScoreTable();
 
         final int nCovariates = covariates.size();
         final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
@@ -257,18 +283,18 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final EventType eventType = cachedEventTypes[idx];
                     final int[] keys = readCovariates.getKeySet(offset, eventType);
                     final int eventIndex = eventType.ordinal();
-                    final byte qual = recalInfo.getQual(eventType, offset);
                     final double isError = recalInfo.getErrorFraction(eventType, offset);
 
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    // the reported quality of each datum is its quality score key, key1
+                    qualityScoreTable.increment(key0, key1, eventIndex, isError);
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
                         final int keyi = keys[i];
                         if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            flatTables.getAdditionalTable(i).increment(key0, key1, keyi, eventIndex, isError);
                         }
                     }
                 }
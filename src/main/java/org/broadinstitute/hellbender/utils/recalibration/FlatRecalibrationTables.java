@@ -0,0 +1,240 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The recalibration tables as they are accumulated by {@link BaseRecalibrationEngine}: the by-quality-score table and
+ * one table per additional covariate, each stored as flat arrays of observation counts and mismatch sums indexed by an
+ * offset computed from the keys, rather than as a {@link NestedIntegerArray} of {@link RecalDatum} objects.
+ * Incrementing a cell does not allocate, and merging two sets of tables is a loop over the arrays.
+ *
+ * Mismatches are summed with the {@link RecalDatum} multiplier applied, in the same order as {@link RecalDatum#increment}
+ * would, so {@link #toRecalibrationTables} gives exactly the tables that incrementing {@link RecalDatum}s would have.
+ * The read group table is not accumulated, since it is derived from the quality score table when the tables are finalized.
+ *
+ * Not thread-safe.
+ */
+final class FlatRecalibrationTables implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final StandardCovariateList covariates;
+    private final int numReadGroups;
+
+    private final Table qualityScoreTable;
+    private final Table[] additionalTables;
+
+    FlatRecalibrationTables(final StandardCovariateList covariates, final int numReadGroups) {
+        this.covariates = Utils.nonNull(covariates);
+        this.numReadGroups = numReadGroups;
+
+        final int qualDimension = covariates.getQualityScoreCovariate().maximumKeyValue() + 1;
+        final int eventDimension = EventType.values().length;
+        qualityScoreTable = new Table(numReadGroups, qualDimension, eventDimension);
+
+        final List<Table> tables = new ArrayList<>();
+        for ( final Covariate cov : covariates.getAdditionalCovariates() ) {
+            tables.add(new Table(numReadGroups, qualDimension, cov.maximumKeyValue() + 1, eventDimension));
+        }
+        additionalTables = tables.toArray(new Table[tables.size()]);
+    }
+
+    Table getQualityScoreTable() {
+        return qualityScoreTable;
+    }
+
+    /**
+     * @param index index of the table in the {@link RecalibrationTables}, and of its covariate in the covariate list
+     * @return the table of an additional covariate
+     */
+    Table getAdditionalTable(final int index) {
+        return additionalTables[index - covariates.numberOfSpecialCovariates()];
+    }
+
+    /**
+     * Add all the counts of other, which must have been created with the same covariates, to these tables
+     */
+    void combine(final FlatRecalibrationTables other) {
+        Utils.validateArg(additionalTables.length == other.additionalTables.length && numReadGroups == other.numReadGroups,
+                "Attempting to merge FlatRecalibrationTables with different sizes");
+        qualityScoreTable.combine(other.qualityScoreTable);
+        for ( int i = 0; i < additionalTables.length; i++ ) {
+            additionalTables[i].combine(other.additionalTables[i]);
+        }
+    }
+
+    /**
+     * @return new, non-finalized recalibration tables with a {@link RecalDatum} for every cell with observations
+     */
+    RecalibrationTables toRecalibrationTables() {
+        final RecalibrationTables tables = new RecalibrationTables(covariates, numReadGroups);
+        qualityScoreTable.addTo(tables.getQualityScoreTable());
+        final List<NestedIntegerArray<RecalDatum>> nestedAdditionalTables = tables.getAdditionalTables();
+        for ( int i = 0; i < additionalTables.length; i++ ) {
+            additionalTables[i].addTo(nestedAdditionalTables.get(i));
+        }
+        return tables;
+    }
+
+    /**
+     * A table of observation counts and mismatch sums whose first key is the read group and second key the reported
+     * quality.  Tables with at most {@link #MAX_DENSE_CELLS} cells have an array element per cell; larger tables, such
+     * as the context table, hold the cells with observations in an open addressing hash table keyed by cell offset.
+     */
+    static final class Table implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        static final long MAX_DENSE_CELLS = 1L << 20;
+
+        private static final int INITIAL_HASHED_CAPACITY = 1 << 12;
+        private static final long EMPTY_SLOT = 0L;
+
+        private final int[] dimensions;
+        private final boolean dense;
+
+        // hashed tables only: cell offset + 1 of each slot, or EMPTY_SLOT, and the number of used slots
+        private long[] slotOffsets;
+        private int size;
+
+        private long[] observations;
+        private double[] scaledMismatches;
+
+        Table(final int... dimensions) {
+            this.dimensions = dimensions.clone();
+            long cells = 1;
+            for ( final int dimension : dimensions ) {
+                Utils.validateArg(dimension > 0, "dimensions must be positive");
+                cells *= dimension;
+            }
+            dense = cells <= MAX_DENSE_CELLS;
+            final int capacity = dense ? (int) cells : INITIAL_HASHED_CAPACITY;
+            slotOffsets = dense ? null : new long[capacity];
+            observations = new long[capacity];
+            scaledMismatches = new double[capacity];
+        }
+
+        /**
+         * Count one observation with the given error fraction in the cell of a three dimensional table
+         */
+        void increment(final int key0, final int key1, final int key2, final double isError) {
+            final long offset = ((long) checkKey(key0, 0) * dimensions[1] + checkKey(key1, 1)) * dimensions[2] + checkKey(key2, 2);
+            add(offset, 1L, isError * RecalDatum.MULTIPLIER);
+        }
+
+        /**
+         * Count one observation with the given error fraction in the cell of a four dimensional table
+         */
+        void increment(final int key0, final int key1, final int key2, final int key3, final double isError) {
+            final long offset = (((long) checkKey(key0, 0) * dimensions[1] + checkKey(key1, 1)) * dimensions[2] + checkKey(key2, 2)) * dimensions[3] + checkKey(key3, 3);
+            add(offset, 1L, isError * RecalDatum.MULTIPLIER);
+        }
+
+        private int checkKey(final int key, final int dimension) {
+            if ( key >= dimensions[dimension] ) {
+                throw new IllegalArgumentException("Key " + key + " is too large for dimension " + dimension + " (max is " + (dimensions[dimension] - 1) + ")");
+            }
+            return key;
+        }
+
+        private void add(final long offset, final long numObservations, final double numScaledMismatches) {
+            final int slot = dense ? (int) offset : findOrInsertSlot(offset);
+            observations[slot] += numObservations;
+            scaledMismatches[slot] += numScaledMismatches;
+        }
+
+        private int findOrInsertSlot(final long offset) {
+            final long slotOffset = offset + 1;
+            final int mask = slotOffsets.length - 1;
+            int slot = hash(slotOffset) & mask;
+            while ( slotOffsets[slot] != slotOffset ) {
+                if ( slotOffsets[slot] == EMPTY_SLOT ) {
+                    if ( 2 * (size + 1) > slotOffsets.length ) {
+                        grow();
+                        return findOrInsertSlot(offset);
+                    }
+                    slotOffsets[slot] = slotOffset;
+                    size++;
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int hash(final long slotOffset) {
+            final long h = slotOffset * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void grow() {
+            final long[] oldOffsets = slotOffsets;
+            final long[] oldObservations = observations;
+            final double[] oldMismatches = scaledMismatches;
+            slotOffsets = new long[oldOffsets.length * 2];
+            observations = new long[oldOffsets.length * 2];
+            scaledMismatches = new double[oldOffsets.length * 2];
+            size = 0;
+            for ( int i = 0; i < oldOffsets.length; i++ ) {
+                if ( oldOffsets[i] != EMPTY_SLOT ) {
+                    final int slot = findOrInsertSlot(oldOffsets[i] - 1);
+                    observations[slot] = oldObservations[i];
+                    scaledMismatches[slot] = oldMismatches[i];
+                }
+            }
+        }
+
+        /**
+         * @return the offset of the cell in slot, or -1 if the slot holds no cell
+         */
+        private long offsetOfSlot(final int slot) {
+            if ( dense ) {
+                return observations[slot] == 0 ? -1 : slot;
+            }
+            return slotOffsets[slot] == EMPTY_SLOT ? -1 : slotOffsets[slot] - 1;
+        }
+
+        void combine(final Table other) {
+            Utils.validateArg(Arrays.equals(dimensions, other.dimensions), "Attempting to merge tables with different dimensions");
+            if ( dense ) {
+                for ( int i = 0; i < observations.length; i++ ) {
+                    observations[i] += other.observations[i];
+                    scaledMismatches[i] += other.scaledMismatches[i];
+                }
+                return;
+            }
+            for ( int slot = 0; slot < other.observations.length; slot++ ) {
+                final long offset = other.offsetOfSlot(slot);
+                if ( offset >= 0 ) {
+                    add(offset, other.observations[slot], other.scaledMismatches[slot]);
+                }
+            }
+        }
+
+        /**
+         * Put a {@link RecalDatum} for every cell with observations in target, which must have the same dimensions and
+         * no datum in those cells.  The reported quality of a datum is its quality score key.
+         */
+        void addTo(final NestedIntegerArray<RecalDatum> target) {
+            Utils.validateArg(Arrays.equals(dimensions, target.getDimensions()), "Target table has different dimensions");
+            for ( int slot = 0; slot < observations.length; slot++ ) {
+                long offset = offsetOfSlot(slot);
+                if ( offset < 0 ) {
+                    continue;
+                }
+                final int[] keys = new int[dimensions.length];
+                for ( int i = dimensions.length - 1; i >= 0; i-- ) {
+                    keys[i] = (int) (offset % dimensions[i]);
+                    offset /= dimensions[i];
+                }
+                target.put(RecalDatum.fromScaledCounts(observations[slot], scaledMismatches[slot], (byte) keys[1]), keys);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.tribble.Feature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.FeatureInput;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The reference positions covered by the known sites of BQSR, as one {@link BitSet} per contig indexed by 1-based
+ * position, in the spirit of {@link org.broadinstitute.hellbender.utils.variant.DbSnpBitSetUtil}.
+ *
+ * The index is built once from the known sites files, by decoding each of their records once, instead of querying
+ * and decoding the records overlapping every read.  It can be saved to a file and loaded by later runs with the same
+ * known sites.  Layout of the (gzipped) file:
+ *
+ * <pre>
+ *     8 bytes      magic ("GATKKSIX")
+ *     int          format version
+ *     int          number of known sites sources, followed for each source by its path (modified UTF-8), and its
+ *                  size and last modified time in milliseconds when the index was built (-1 if unknown)
+ *     int          number of contigs, followed for each contig by its name (modified UTF-8), the number of words of
+ *                  its bit set, and the words
+ * </pre>
+ *
+ * The size and last modified time of the sources are kept so that {@link #getChangedSources} can detect a source
+ * replaced or updated at the same path since the index was built.  Sources that are not files, such as GenomicsDB
+ * workspaces, can only be checked by path.
+ *
+ * The known sites of a read are the maximal runs of covered positions that overlap it.  Overlapping or adjacent
+ * sites are merged into a single run, so bases inserted in a read between two adjacent known sites are skipped as
+ * well, which they would not be when the sites are queried one by one.
+ *
+ * Instances are immutable once built, and may be shared by all the threads of a tool.
+ */
+public final class KnownSitesIndex {
+    private static final Logger logger = LogManager.getLogger(KnownSitesIndex.class);
+
+    private static final byte[] MAGIC = "GATKKSIX".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 2;
+
+    private static final long UNKNOWN = -1L;
+
+    private final List<String> sources;
+    private final long[] sourceSizes;
+    private final long[] sourceLastModifiedTimes;
+    private final Map<String, BitSet> contigToCoveredPositions;
+
+    private KnownSitesIndex(final List<String> sources, final long[] sourceSizes, final long[] sourceLastModifiedTimes,
+                            final Map<String, BitSet> contigToCoveredPositions) {
+        this.sources = Collections.unmodifiableList(sources);
+        this.sourceSizes = sourceSizes;
+        this.sourceLastModifiedTimes = sourceLastModifiedTimes;
+        this.contigToCoveredPositions = contigToCoveredPositions;
+    }
+
+    /**
+     * Build the index of the positions covered by the features of the known sites sources.
+     *
+     * @param knownSites known sites sources
+     * @param sequenceDictionary dictionary of the reference, if available, used to size the bit sets; may be null
+     */
+    public static KnownSitesIndex build(final List<FeatureInput<Feature>> knownSites, final SAMSequenceDictionary sequenceDictionary) {
+        Utils.nonEmpty(knownSites);
+
+        final Map<String, BitSet> contigToCoveredPositions = new LinkedHashMap<>();
+        final List<String> sources = new ArrayList<>(knownSites.size());
+        final long[] sourceSizes = new long[knownSites.size()];
+        final long[] sourceLastModifiedTimes = new long[knownSites.size()];
+        for ( final FeatureInput<Feature> input : knownSites ) {
+            logger.info("Indexing known sites of " + input.getFeaturePath());
+            // take the fingerprint before reading, so that a source updated while it is indexed is seen as changed
+            sourceSizes[sources.size()] = getSize(input.getFeaturePath());
+            sourceLastModifiedTimes[sources.size()] = getLastModifiedTime(input.getFeaturePath());
+            sources.add(input.getFeaturePath());
+            long numSites = 0;
+            try ( final FeatureDataSource<Feature> dataSource = new FeatureDataSource<>(input, 0, null) ) {
+                for ( final Feature site : dataSource ) {
+                    final BitSet covered = contigToCoveredPositions.computeIfAbsent(site.getContig(), contig -> {
+                        final SAMSequenceRecord record = sequenceDictionary == null ? null : sequenceDictionary.getSequence(contig);
+                        return record == null ? new BitSet() : new BitSet(record.getSequenceLength() + 1);
+                    });
+                    covered.set(site.getStart(), Math.max(site.getStart(), site.getEnd()) + 1);
+                    numSites++;
+                }
+            }
+            logger.info(String.format("Indexed %d known sites of %s", numSites, input.getFeaturePath()));
+        }
+        return new KnownSitesIndex(sources, sourceSizes, sourceLastModifiedTimes, contigToCoveredPositions);
+    }
+
+    /**
+     * Load an index saved by {@link #save}
+     */
+    public static KnownSitesIndex load(final File file) {
+        Utils.nonNull(file);
+        try ( final DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath())))) ) {
+            final byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if ( !Arrays.equals(magic, MAGIC) ) {
+                throw new UserException.CouldNotReadInputFile(file, "not a known sites index");
+            }
+            final int version = in.readInt();
+            if ( version != FORMAT_VERSION ) {
+                throw new UserException.CouldNotReadInputFile(file, "unsupported known sites index version " + version + ", delete the file to rebuild it");
+            }
+
+            final int numSources = in.readInt();
+            final List<String> sources = new ArrayList<>(numSources);
+            final long[] sourceSizes = new long[numSources];
+            final long[] sourceLastModifiedTimes = new long[numSources];
+            for ( int i = 0; i < numSources; i++ ) {
+                sources.add(in.readUTF());
+                sourceSizes[i] = in.readLong();
+                sourceLastModifiedTimes[i] = in.readLong();
+            }
+
+            final int numContigs = in.readInt();
+            final Map<String, BitSet> contigToCoveredPositions = new LinkedHashMap<>();
+            for ( int i = 0; i < numContigs; i++ ) {
+                final String contig = in.readUTF();
+                final long[] words = new long[in.readInt()];
+                for ( int j = 0; j < words.length; j++ ) {
+                    words[j] = in.readLong();
+                }
+                contigToCoveredPositions.put(contig, BitSet.valueOf(words));
+            }
+            return new KnownSitesIndex(sources, sourceSizes, sourceLastModifiedTimes, contigToCoveredPositions);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(file.toPath(), "could not read known sites index", e);
+        }
+    }
+
+    /**
+     * Save the index, so that it can be loaded by {@link #load}
+     */
+    public void save(final File file) {
+        Utils.nonNull(file);
+        try ( final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file.toPath())))) ) {
+            out.write(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(sources.size());
+            for ( int i = 0; i < sources.size(); i++ ) {
+                out.writeUTF(sources.get(i));
+                out.writeLong(sourceSizes[i]);
+                out.writeLong(sourceLastModifiedTimes[i]);
+            }
+            out.writeInt(contigToCoveredPositions.size());
+            for ( final Map.Entry<String, BitSet> entry : contigToCoveredPositions.entrySet() ) {
+                out.writeUTF(entry.getKey());
+                final long[] words = entry.getValue().toLongArray();
+                out.writeInt(words.length);
+                for ( final long word : words ) {
+                    out.writeLong(word);
+                }
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(file, "could not write known sites index", e);
+        }
+    }
+
+    /**
+     * @return the paths of the known sites sources the index was built from
+     */
+    public List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * @param knownSites the known sites sources, which must have the same paths as {@link #getSources}
+     * @return the paths of the sources whose size or last modified time differs from when the index was built
+     */
+    public List<String> getChangedSources(final List<FeatureInput<Feature>> knownSites) {
+        Utils.validateArg(knownSites.size() == sources.size(), "the known sites are not the sources of the index");
+        final List<String> changedSources = new ArrayList<>();
+        for ( int i = 0; i < sources.size(); i++ ) {
+            final String path = knownSites.get(i).getFeaturePath();
+            Utils.validateArg(path.equals(sources.get(i)), "the known sites are not the sources of the index");
+            if ( getSize(path) != sourceSizes[i] || getLastModifiedTime(path) != sourceLastModifiedTimes[i] ) {
+                changedSources.add(path);
+            }
+        }
+        return changedSources;
+    }
+
+    private static long getSize(final String path) {
+        try {
+            return Files.size(IOUtils.getPath(path));
+        } catch ( final IOException | RuntimeException e ) {
+            return UNKNOWN;
+        }
+    }
+
+    private static long getLastModifiedTime(final String path) {
+        try {
+            return Files.getLastModifiedTime(IOUtils.getPath(path)).toMillis();
+        } catch ( final IOException | RuntimeException e ) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * @return the maximal runs of positions covered by known sites that overlap the alignment of the read, to be
+     *         used in place of the known sites features overlapping the read
+     */
+    public List<SimpleInterval> getKnownSites(final GATKRead read) {
+        final BitSet covered = read.isUnmapped() ? null : contigToCoveredPositions.get(read.getContig());
+        if ( covered == null ) {
+            return Collections.emptyList();
+        }
+
+        final int readStart = read.getStart();
+        final int readEnd = read.getEnd();
+        List<SimpleInterval> runs = null;
+        int runStart = covered.get(readStart) ? covered.previousClearBit(readStart) + 1 : covered.nextSetBit(readStart);
+        while ( runStart >= 0 && runStart <= readEnd ) {
+            final int runEnd = covered.nextClearBit(runStart) - 1;
+            if ( runs == null ) {
+                runs = new ArrayList<>(2);
+            }
+            runs.add(new SimpleInterval(read.getContig(), runStart, runEnd));
+            runStart = covered.nextSetBit(runEnd + 1);
+        }
+        return runs == null ? Collections.emptyList() : runs;
+    }
+}
@@ -16,7 +16,7 @@ public final class RecalDatum implements Serializable {
     public static final byte MAX_RECALIBRATED_Q_SCORE = SAMUtils.MAX_PHRED_SCORE;
     private static final double UNINITIALIZED = -1.0;
     private static final long serialVersionUID = 1L;
-    private static final double MULTIPLIER = 100000.0;  //See discussion in numMismatches about what the multiplier is.
+    static final double MULTIPLIER = 100000.0;  //See discussion in numMismatches about what the multiplier is.
 
     /**
      * estimated reported quality score based on combined data's individual q-reporteds and number of observations
@@ -74,6 +74,20 @@ public final class RecalDatum implements Serializable {
         empiricalQuality = UNINITIALIZED;
     }
 
+    /**
+     * Create a new RecalDatum from counts accumulated outside of a RecalDatum, such as in {@link FlatRecalibrationTables}
+     *
+     * @param numObservations     observations
+     * @param scaledNumMismatches mismatches, already multiplied by {@link #MULTIPLIER}
+     * @param reportedQuality     Qreported
+     */
+    static RecalDatum fromScaledCounts(final long numObservations, final double scaledNumMismatches, final byte reportedQuality) {
+        if ( scaledNumMismatches < 0.0 ) throw new IllegalArgumentException("numMismatches < 0");
+        final RecalDatum datum = new RecalDatum(numObservations, 0.0, reportedQuality);
+        datum.numMismatches = scaledNumMismatches;
+        return datum;
+    }
+
     /**
      * Copy copy into this recal datum, overwriting all of this objects data
      * @param copy  RecalDatum to copy
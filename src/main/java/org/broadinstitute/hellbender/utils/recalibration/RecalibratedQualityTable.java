@@ -0,0 +1,171 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The terms of the recalibrated base substitution quality of a base, precomputed from the recalibration tables so that
+ * applying the recalibration takes a few array lookups per base instead of a lookup in each table and an empirical
+ * quality per {@link RecalDatum}.
+ *
+ * The recalibrated quality computed by {@link org.broadinstitute.hellbender.transformers.BQSRReadTransformer#hierarchicalBayesianQualityEstimate}
+ * is a conditional prior, which depends only on the read group and reported quality, plus one delta per additional
+ * covariate, which depends on the read group, reported quality and key of that covariate.  The key space of all the
+ * covariates together is too large to enumerate, so the table holds the conditional prior of each read group and
+ * reported quality pair with data (a row), and for each additional covariate the delta of each row and key, which is
+ * zero for keys without data.  The terms are added in the same order as by hierarchicalBayesianQualityEstimate, so the
+ * result is exactly the same.
+ *
+ * The table is immutable once built, so unlike the recalibration tables, whose datums compute their empirical quality
+ * lazily, it can be used by several threads.
+ */
+public final class RecalibratedQualityTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int NO_ROW = -1;
+    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
+
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final int numSpecialCovariates;
+
+    // per read group: whether the read group table has data for it, and the estimate for reported qualities without data
+    private final boolean[] hasReadGroup;
+    private final double[] readGroupEstimates;
+
+    // per read group and reported quality, at readGroup * qualDimension + qual: the row, or NO_ROW
+    private final int[] rows;
+    private final double[] conditionalPriors;
+
+    // per additional covariate: the number of keys, and the delta of each row and key, at row * numKeys + key
+    private final int[] numCovariateKeys;
+    private final double[][] covariateDeltas;
+
+    /**
+     * @param tables finalized recalibration tables
+     * @param covariates the covariates of the tables
+     * @param globalQScorePrior the global quality score prior, or a non-positive value to use the reported quality of each read group
+     */
+    public RecalibratedQualityTable(final RecalibrationTables tables, final StandardCovariateList covariates, final double globalQScorePrior) {
+        Utils.nonNull(tables);
+        Utils.nonNull(covariates);
+        final NestedIntegerArray<RecalDatum> readGroupTable = tables.getReadGroupTable();
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = tables.getQualityScoreTable();
+        final List<NestedIntegerArray<RecalDatum>> additionalTables = tables.getAdditionalTables();
+
+        numReadGroups = readGroupTable.getDimensions()[0];
+        qualDimension = qualityScoreTable.getDimensions()[1];
+        numSpecialCovariates = covariates.numberOfSpecialCovariates();
+
+        hasReadGroup = new boolean[numReadGroups];
+        readGroupEstimates = new double[numReadGroups];
+        final double[] globalDeltaQs = new double[numReadGroups];
+        final double[] epsilons = new double[numReadGroups];
+        for ( int rg = 0; rg < numReadGroups; rg++ ) {
+            final RecalDatum empiricalQualRG = readGroupTable.get2Keys(rg, BASE_SUBSTITUTION_INDEX);
+            if ( empiricalQualRG != null ) {
+                hasReadGroup[rg] = true;
+                epsilons[rg] = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+                globalDeltaQs[rg] = empiricalQualRG.getEmpiricalQuality(epsilons[rg]) - epsilons[rg];
+                readGroupEstimates[rg] = 0.0 + globalDeltaQs[rg] + epsilons[rg];
+            }
+        }
+
+        // a row for every read group and reported quality with data in any table but the read group table
+        rows = new int[numReadGroups * qualDimension];
+        Arrays.fill(rows, NO_ROW);
+        int numRows = 0;
+        for ( final NestedIntegerArray<RecalDatum> table : tables ) {
+            if ( tables.isReadGroupTable(table) ) {
+                continue;
+            }
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+                final int cell = leaf.keys[0] * qualDimension + leaf.keys[1];
+                if ( hasReadGroup[leaf.keys[0]] && rows[cell] == NO_ROW ) {
+                    rows[cell] = numRows++;
+                }
+            }
+        }
+
+        conditionalPriors = new double[numRows];
+        for ( int rg = 0; rg < numReadGroups; rg++ ) {
+            for ( int qual = 0; qual < qualDimension; qual++ ) {
+                final int row = rows[rg * qualDimension + qual];
+                if ( row != NO_ROW ) {
+                    final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(rg, qual, BASE_SUBSTITUTION_INDEX);
+                    final double qsPrior = globalDeltaQs[rg] + epsilons[rg];
+                    final double deltaQReported = empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(qsPrior) - qsPrior;
+                    conditionalPriors[row] = deltaQReported + globalDeltaQs[rg] + epsilons[rg];
+                }
+            }
+        }
+
+        numCovariateKeys = new int[additionalTables.size()];
+        covariateDeltas = new double[additionalTables.size()][];
+        for ( int i = 0; i < additionalTables.size(); i++ ) {
+            final NestedIntegerArray<RecalDatum> table = additionalTables.get(i);
+            final int numKeys = table.getDimensions()[2];
+            final double[] deltas = new double[numRows * numKeys];
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+                final int row = rows[leaf.keys[0] * qualDimension + leaf.keys[1]];
+                if ( row != NO_ROW && leaf.keys[3] == BASE_SUBSTITUTION_INDEX ) {
+                    deltas[row * numKeys + leaf.keys[2]] = leaf.value.getEmpiricalQuality(conditionalPriors[row]) - conditionalPriors[row];
+                }
+            }
+            numCovariateKeys[i] = numKeys;
+            covariateDeltas[i] = deltas;
+        }
+    }
+
+    /**
+     * @return whether the tables have data for the read group; bases of other read groups are not recalibrated
+     */
+    public boolean hasReadGroup(final int readGroupKey) {
+        return readGroupKey < numReadGroups && hasReadGroup[readGroupKey];
+    }
+
+    /**
+     * @param keySet the base substitution covariate keys of a base, whose read group must satisfy {@link #hasReadGroup}
+     * @return the recalibrated base substitution quality of the base, before rounding and quantization
+     */
+    public double getRecalibratedQuality(final int[] keySet) {
+        final int readGroupKey = keySet[0];
+        final int qualKey = keySet[1];
+        final int row = qualKey < qualDimension ? rows[readGroupKey * qualDimension + qualKey] : NO_ROW;
+        if ( row == NO_ROW ) {
+            return readGroupEstimates[readGroupKey];
+        }
+
+        double deltaQCovariates = 0.0;
+        for ( int i = 0; i < covariateDeltas.length; i++ ) {
+            final int key = keySet[numSpecialCovariates + i];
+            if ( key >= 0 && key < numCovariateKeys[i] ) {
+                deltaQCovariates += covariateDeltas[i][row * numCovariateKeys[i] + key];
+            }
+        }
+        return conditionalPriors[row] + deltaQCovariates;
+    }
+
+    /**
+     * @return the number of read group and reported quality pairs with data
+     */
+    public int getNumRows() {
+        return conditionalPriors.length;
+    }
+
+    /**
+     * @return the approximate memory used by the arrays of the table, in bytes
+     */
+    public long getSizeInBytes() {
+        long bytes = hasReadGroup.length + 8L * readGroupEstimates.length + 4L * rows.length + 8L * conditionalPriors.length;
+        for ( final double[] deltas : covariateDeltas ) {
+            bytes += 8L * deltas.length;
+        }
+        return bytes;
+    }
+}
@@ -15,13 +15,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A wrapper that converts instances of {@link SWAlignerNativeBinding} into a {@link SmithWatermanAligner}
  */
 public final class SWNativeAlignerWrapper implements SmithWatermanAligner {
     private final SWAlignerNativeBinding aligner;
-    private long totalComputeTime = 0;
+    private final LongAdder totalComputeTime = new LongAdder();
 
     public SWNativeAlignerWrapper(final SWAlignerNativeBinding aligner) {
         this.aligner = aligner;
@@ -54,7 +55,7 @@ public final class SWNativeAlignerWrapper implements SmithWatermanAligner {
             alignmentResult =  new SWNativeResultWrapper(alignment);
         }
 
-        totalComputeTime += System.nanoTime() - startTime;
+        totalComputeTime.add(System.nanoTime() - startTime);
         return alignmentResult;
     }
 
@@ -63,7 +64,7 @@ public final class SWNativeAlignerWrapper implements SmithWatermanAligner {
      */
     @Override
     public void close() {
-        logger.info(String.format("Total compute time in native Smith-Waterman : %.2f sec", totalComputeTime * 1e-9));
+        logger.info(String.format("Total compute time in native Smith-Waterman : %.2f sec", totalComputeTime.sum() * 1e-9));
         aligner.close();
     }
 
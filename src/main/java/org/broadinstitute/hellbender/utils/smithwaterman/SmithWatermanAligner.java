@@ -51,8 +51,8 @@ public interface SmithWatermanAligner extends Closeable {
                 logger.info("Using AVX accelerated SmithWaterman implementation");
                 return aligner;
             } catch (UserException.HardwareFeatureException exception) {
-                logger.info("AVX accelerated SmithWaterman implementation is not supported, falling back to the Java implementation");
-                return SmithWatermanJavaAligner.getInstance();
+                logger.info("AVX accelerated SmithWaterman implementation is not supported, falling back to the Java query profile implementation");
+                return SmithWatermanQueryProfileAligner.getInstance();
             }
         }),
 
@@ -69,7 +69,13 @@ public interface SmithWatermanAligner extends Closeable {
         /**
          * use the pure java implementation of Smith-Waterman, works on all hardware
          */
-        JAVA(SmithWatermanJavaAligner::getInstance);
+        JAVA(SmithWatermanJavaAligner::getInstance),
+
+        /**
+         * use the pure java implementation of Smith-Waterman with query profiles and reused buffers, works on all
+         * hardware and gives the same alignments as JAVA
+         */
+        JAVA_QUERY_PROFILE(SmithWatermanQueryProfileAligner::getInstance);
 
         private final Supplier<SmithWatermanAligner> alignerSupplier;
 
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Pairwise discrete smith-waterman alignment implemented in pure java
@@ -25,7 +26,7 @@ import java.util.List;
  */
 public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     private static final SmithWatermanJavaAligner ALIGNER = new SmithWatermanJavaAligner();
-    private long totalComputeTime = 0;
+    private final LongAdder totalComputeTime = new LongAdder();
 
     /**
      * return the stateless singleton instance of SmithWatermanJavaAligner
@@ -90,10 +91,14 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             final int[][] btrack=new int[n][m];
 
             calculateMatrix(reference, alternate, sw, btrack, overhangStrategy, parameters);
-            alignmentResult = calculateCigar(sw, btrack, overhangStrategy); // length of the segment (continuous matches, insertions or deletions)
+            final int[] lastColumn = new int[n];
+            for ( int i = 0; i < n; i++ ) {
+                lastColumn[i] = sw[i][m - 1];
+            }
+            alignmentResult = calculateCigar(reference.length, alternate.length, lastColumn, sw[n - 1], btrack, overhangStrategy);
         }
 
-        totalComputeTime += System.nanoTime() - startTime;
+        totalComputeTime.add(System.nanoTime() - startTime);
         return alignmentResult;
     }
 
@@ -230,7 +235,7 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     /*
      * Class to store the result of calculating the CIGAR from the back track matrix
      */
-    private static final class SWPairwiseAlignmentResult implements SmithWatermanAlignment {
+    static final class SWPairwiseAlignmentResult implements SmithWatermanAlignment {
         private final Cigar cigar;
         private final int alignmentOffset;
 
@@ -253,18 +258,22 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     /**
      * Calculates the CIGAR for the alignment from the back track matrix
      *
-     * @param sw                   the Smith-Waterman matrix to use
+     * Only the last column and the bottom row of the Smith-Waterman matrix are needed, and the back track matrix may be
+     * larger than (refLength + 1) x (altLength + 1).
+     *
+     * @param refLength            length of the reference
+     * @param altLength            length of the alternate
+     * @param lastColumn           the last column of the Smith-Waterman matrix, sw[i][altLength] for i in [0, refLength]
+     * @param bottomRow            the bottom row of the Smith-Waterman matrix, sw[refLength][j] for j in [0, altLength]
      * @param btrack               the back track matrix to use
      * @param overhangStrategy    the strategy to use for dealing with overhangs
      * @return non-null SWPairwiseAlignmentResult object
      */
-    private static SWPairwiseAlignmentResult calculateCigar(final int[][] sw, final int[][] btrack, final SWOverhangStrategy overhangStrategy) {
+    static SWPairwiseAlignmentResult calculateCigar(final int refLength, final int altLength, final int[] lastColumn, final int[] bottomRow,
+                                                    final int[][] btrack, final SWOverhangStrategy overhangStrategy) {
         // p holds the position we start backtracking from; we will be assembling a cigar in the backwards order
         int p1 = 0, p2 = 0;
 
-        final int refLength = sw.length-1;
-        final int altLength = sw[0].length-1;
-
         int maxscore = Integer.MIN_VALUE; // sw scores are allowed to be negative
         int segment_length = 0; // length of the segment (continuous matches, insertions or deletions)
 
@@ -279,8 +288,8 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             //excluding high scoring local alignments
             p2=altLength;
 
-            for(int i=1;i<sw.length;i++)  {
-               final int curScore = sw[i][altLength];
+            for(int i=1;i<=refLength;i++)  {
+               final int curScore = lastColumn[i];
                if (curScore >= maxscore ) {
                     p1 = i;
                     maxscore = curScore;
@@ -288,8 +297,7 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             }
             // now look for a larger score on the bottom-most row
             if ( overhangStrategy != SWOverhangStrategy.LEADING_INDEL ) {
-                final int[] bottomRow=sw[refLength];
-                for ( int j = 1 ; j < bottomRow.length; j++) {
+                for ( int j = 1 ; j <= altLength; j++) {
                     final int curScore=bottomRow[j];
                     // data_offset is the offset of [n][j]
                     if ( curScore > maxscore ||
@@ -391,6 +399,6 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
 
     @Override
     public void close() {
-        logger.info(String.format("Total compute time in java Smith-Waterman : %.2f sec", totalComputeTime * 1e-9));
+        logger.info(String.format("Total compute time in java Smith-Waterman : %.2f sec", totalComputeTime.sum() * 1e-9));
     }
 }
@@ -0,0 +1,247 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pure java Smith-Waterman aligner that computes exactly the same alignments as {@link SmithWatermanJavaAligner},
+ * with less work per cell and no allocation per alignment.
+ *
+ * <ul>
+ *     <li>The scores of each reference base against every alternate base are looked up in a query profile, built
+ *     once per alignment for each distinct reference base, instead of comparing the bases in every cell.</li>
+ *     <li>Only two rows of the score matrix are kept, plus its last column and bottom row, which are all that is
+ *     needed to find where to start the back track.</li>
+ *     <li>The rows, the back track matrix and the query profiles are kept per thread and reused by later alignments,
+ *     unless the back track matrix would be larger than {@link #MAX_RETAINED_BACKTRACK_CELLS}.</li>
+ * </ul>
+ *
+ * Thread-safe: each thread uses its own buffers.
+ *
+ * ************************************************************************
+ * ****                    IMPORTANT NOTE:                             ****
+ * ****  This class assumes that all bytes come from UPPERCASED chars! ****
+ * ************************************************************************
+ */
+public final class SmithWatermanQueryProfileAligner implements SmithWatermanAligner {
+    private static final SmithWatermanQueryProfileAligner ALIGNER = new SmithWatermanQueryProfileAligner();
+
+    /**
+     * Back track matrices with more cells than this are allocated for a single alignment and not kept for reuse
+     */
+    private static final long MAX_RETAINED_BACKTRACK_CELLS = 1L << 22;
+
+    private static final int MATRIX_MIN_CUTOFF = (int) -1.0e8;   // never let matrix elements drop below this cutoff
+    private static final int LOW_INIT_VALUE = Integer.MIN_VALUE / 2;
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+    private final LongAdder totalComputeTime = new LongAdder();
+
+    /**
+     * return the singleton instance of SmithWatermanQueryProfileAligner
+     */
+    public static SmithWatermanQueryProfileAligner getInstance() {
+        return ALIGNER;
+    }
+
+    private SmithWatermanQueryProfileAligner() {}
+
+    /**
+     * Aligns the alternate sequence to the reference sequence
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     */
+    @Override
+    public SmithWatermanAlignment align(final byte[] reference, final byte[] alternate, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
+        final long startTime = System.nanoTime();
+
+        if ( reference == null || reference.length == 0 || alternate == null || alternate.length == 0 ) {
+            throw new IllegalArgumentException("Non-null, non-empty sequences are required for the Smith-Waterman calculation");
+        }
+        Utils.nonNull(parameters);
+        Utils.nonNull(overhangStrategy);
+
+        // avoid running full Smith-Waterman if there is an exact match of alternate in reference
+        int matchIndex = -1;
+        if (overhangStrategy == SWOverhangStrategy.SOFTCLIP || overhangStrategy == SWOverhangStrategy.IGNORE) {
+            // Use a substring search to find an exact match of the alternate in the reference
+            // NOTE: This approach only works for SOFTCLIP and IGNORE overhang strategies
+            matchIndex = Utils.lastIndexOf(reference, alternate);
+        }
+
+        final SmithWatermanAlignment alignmentResult;
+        if (matchIndex != -1) {
+            alignmentResult = new SmithWatermanJavaAligner.SWPairwiseAlignmentResult(new Cigar(Collections.singletonList(new CigarElement(alternate.length, CigarOperator.M))), matchIndex);
+        } else {
+            final Buffers buffers = this.buffers.get();
+            final int[] bottomRow = buffers.calculateMatrix(reference, alternate, parameters, overhangStrategy);
+            alignmentResult = SmithWatermanJavaAligner.calculateCigar(reference.length, alternate.length, buffers.lastColumn, bottomRow,
+                    buffers.backtrack, overhangStrategy);
+            buffers.releaseOversizedBacktrack();
+        }
+
+        totalComputeTime.add(System.nanoTime() - startTime);
+        return alignmentResult;
+    }
+
+    /**
+     * The buffers of one thread
+     */
+    private static final class Buffers {
+        private int[][] backtrack = new int[0][0];
+        private int[] lastColumn = new int[0];
+        private int[] rowA = new int[0];
+        private int[] rowB = new int[0];
+        private int[] bestGapV = new int[0];
+        private int[] gapSizeV = new int[0];
+
+        // query profiles indexed by reference base; a profile is valid for the current alignment if its stamp matches
+        private final int[][] profiles = new int[256][0];
+        private final int[] profileStamps = new int[256];
+        private int stamp = 0;
+
+        /**
+         * Fill the back track matrix and the last column of the score matrix, with the same recurrence and tie-breaking
+         * as {@link SmithWatermanJavaAligner}
+         *
+         * @return the bottom row of the score matrix
+         */
+        private int[] calculateMatrix(final byte[] reference, final byte[] alternate, final SWParameters parameters,
+                                      final SWOverhangStrategy overhangStrategy) {
+            final int nrow = reference.length + 1;
+            final int ncol = alternate.length + 1;
+            ensureCapacity(nrow, ncol);
+            if ( ++stamp == 0 ) {
+                Arrays.fill(profileStamps, 0);
+                stamp = 1;
+            }
+
+            //access is pricey if done enough times so we extract those out
+            final int w_open = parameters.getGapOpenPenalty();
+            final int w_extend = parameters.getGapExtendPenalty();
+            final int w_match = parameters.getMatchValue();
+            final int w_mismatch = parameters.getMismatchPenalty();
+
+            // we need to initialize the first row and column with gap penalties if we want to keep track of indels at the edges of alignments
+            final boolean penalizeEdges = overhangStrategy == SWOverhangStrategy.INDEL || overhangStrategy == SWOverhangStrategy.LEADING_INDEL;
+
+            int[] lastRow = rowA;
+            int[] curRow = rowB;
+            lastRow[0] = 0;
+            for ( int j = 1; j < ncol; j++ ) {
+                lastRow[j] = penalizeEdges ? w_open + (j - 1) * w_extend : 0;
+                bestGapV[j] = LOW_INIT_VALUE;
+                gapSizeV[j] = 0;
+            }
+            lastColumn[0] = lastRow[ncol - 1];
+
+            for ( int i = 1; i < nrow; i++ ) {
+                final int[] profile = profile(reference[i - 1], alternate, w_match, w_mismatch);
+                final int[] curBackTrackRow = backtrack[i];
+                curRow[0] = penalizeEdges ? w_open + (i - 1) * w_extend : 0;
+
+                int bestGapH = LOW_INIT_VALUE;
+                int gapSizeH = 0;
+                for ( int j = 1; j < ncol; j++ ) {
+                    final int stepDiag = lastRow[j - 1] + profile[j];
+
+                    // best gap from above: open one just above, or extend the best one opened earlier (linear gap
+                    // penalties only)
+                    int prevGap = lastRow[j] + w_open;
+                    int stepDown = bestGapV[j] + w_extend;
+                    final int kd;
+                    if ( prevGap > stepDown ) {
+                        stepDown = prevGap;
+                        kd = 1;
+                    } else {
+                        kd = gapSizeV[j] + 1;
+                    }
+                    bestGapV[j] = stepDown;
+                    gapSizeV[j] = kd;
+
+                    // same for the best gap from the left
+                    prevGap = curRow[j - 1] + w_open;
+                    bestGapH += w_extend;
+                    if ( prevGap > bestGapH ) {
+                        bestGapH = prevGap;
+                        gapSizeH = 1;
+                    } else {
+                        gapSizeH++;
+                    }
+
+                    //priority here will be step diagonal, step right, step down
+                    if ( stepDiag >= stepDown && stepDiag >= bestGapH ) {
+                        curRow[j] = Math.max(MATRIX_MIN_CUTOFF, stepDiag);
+                        curBackTrackRow[j] = 0;
+                    } else if ( bestGapH >= stepDown ) {
+                        curRow[j] = Math.max(MATRIX_MIN_CUTOFF, bestGapH);
+                        curBackTrackRow[j] = -gapSizeH; // negative = horizontal
+                    } else {
+                        curRow[j] = Math.max(MATRIX_MIN_CUTOFF, stepDown);
+                        curBackTrackRow[j] = kd; // positive = vertical
+                    }
+                }
+                lastColumn[i] = curRow[ncol - 1];
+
+                final int[] swap = lastRow;
+                lastRow = curRow;
+                curRow = swap;
+            }
+            return lastRow;
+        }
+
+        /**
+         * @return the scores of referenceBase against each alternate base, at index j for alternate base j - 1
+         */
+        private int[] profile(final byte referenceBase, final byte[] alternate, final int w_match, final int w_mismatch) {
+            final int index = referenceBase & 0xFF;
+            if ( profileStamps[index] != stamp ) {
+                if ( profiles[index].length < alternate.length + 1 ) {
+                    profiles[index] = new int[alternate.length + 1];
+                }
+                final int[] profile = profiles[index];
+                for ( int j = 1; j <= alternate.length; j++ ) {
+                    profile[j] = alternate[j - 1] == referenceBase ? w_match : w_mismatch;
+                }
+                profileStamps[index] = stamp;
+            }
+            return profiles[index];
+        }
+
+        private void ensureCapacity(final int nrow, final int ncol) {
+            if ( rowA.length < ncol ) {
+                rowA = new int[ncol];
+                rowB = new int[ncol];
+                bestGapV = new int[ncol];
+                gapSizeV = new int[ncol];
+            }
+            if ( lastColumn.length < nrow ) {
+                lastColumn = new int[nrow];
+            }
+            final int backtrackColumns = backtrack.length == 0 ? 0 : backtrack[0].length;
+            if ( backtrack.length < nrow || backtrackColumns < ncol ) {
+                backtrack = new int[Math.max(backtrack.length, nrow)][Math.max(backtrackColumns, ncol)];
+            }
+        }
+
+        private void releaseOversizedBacktrack() {
+            if ( backtrack.length > 0 && (long) backtrack.length * backtrack[0].length > MAX_RETAINED_BACKTRACK_CELLS ) {
+                backtrack = new int[0][0];
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        logger.info(String.format("Total compute time in java query profile Smith-Waterman : %.2f sec", totalComputeTime.sum() * 1e-9));
+    }
+}